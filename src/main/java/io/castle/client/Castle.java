@@ -8,11 +8,13 @@ import io.castle.client.internal.config.CastleConfigurationBuilder;
 import io.castle.client.internal.config.CastleSdkInternalConfiguration;
 import io.castle.client.internal.json.CastleGsonModel;
 import io.castle.client.internal.utils.CastleContextBuilder;
+import io.castle.client.internal.utils.CastleMetrics;
 import io.castle.client.model.CastleSdkConfigurationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.Closeable;
 
 /**
  * Creates an instance of the Castle SDK
@@ -23,7 +25,7 @@ import javax.servlet.http.HttpServletRequest;
  * Static method {@code this#setSingletonInstance()} can be called to set a global instance of the SDK.
  * Once set the {@code this#instance()} method will return that instance
  */
-public class Castle {
+public class Castle implements Closeable {
     public static final Logger logger = LoggerFactory.getLogger(Castle.class);
 
     private final CastleSdkInternalConfiguration internalConfiguration;
@@ -195,6 +197,15 @@ public class Castle {
         return internalConfiguration.getConfiguration();
     }
 
+    /**
+     * Gets the counters and gauges reported by this instance of the SDK.
+     *
+     * @return the metrics registry of the SDK
+     */
+    public CastleMetrics getMetrics() {
+        return internalConfiguration.getMetrics();
+    }
+
     /**
      * Get Gson model for serialization and deserialization
      * @return the Gson model
@@ -212,6 +223,17 @@ public class Castle {
         return internalConfiguration;
     }
 
+    /**
+     * Sends the track events still waiting to be batched and releases the threads of this instance of the SDK.
+     * <p>
+     * Should be called before the application exits, since batched events are only kept in memory.
+     * API clients of this instance can not be used afterwards.
+     */
+    @Override
+    public void close() {
+        internalConfiguration.close();
+    }
+
     /**
      * Calculate the secure userId HMAC using the internal API Secret.
      * @param userId raw user Id
@@ -3,10 +3,13 @@ package io.castle.client.api;
 import io.castle.client.model.AsyncCallbackHandler;
 import io.castle.client.model.CastleMessage;
 import io.castle.client.model.Review;
+import io.castle.client.model.TrackResult;
 import io.castle.client.model.Verdict;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Contains methods for calling the Castle API and the settings needed to properly make such a request.
@@ -80,6 +83,20 @@ public interface CastleApi {
      */
     Verdict authenticate(CastleMessage message);
 
+    /**
+     * Makes a sync POST request to the authenticate endpoint that completes before a deadline.
+     * <p>
+     * The deadline bounds the whole call, including the time spent waiting for a connection and resolving the host.
+     * When it passes, the call is cancelled and the verdict of the
+     * {@link io.castle.client.model.AuthenticateFailoverStrategy} is returned.
+     *
+     * @param message       Event parameters
+     * @param deadlineNanos value of {@link System#nanoTime()} at which the call is abandoned
+     * @return a verdict that might result from a successful call to the Castle API or from the client's
+     * {@link io.castle.client.model.AuthenticateFailoverStrategy}, in case of a failed or late call
+     */
+    Verdict authenticate(CastleMessage message, long deadlineNanos);
+
     /**
      * Makes an async POST request to the authenticate endpoint containing required and optional parameters.
      *
@@ -112,6 +129,19 @@ public interface CastleApi {
      */
     void authenticateAsync(CastleMessage message, AsyncCallbackHandler<Verdict> asyncCallbackHandler);
 
+    /**
+     * Makes an async POST request to the authenticate endpoint that completes before a deadline.
+     * <p>
+     * When the deadline passes, the call is cancelled and the handler is informed with the verdict of the
+     * {@link io.castle.client.model.AuthenticateFailoverStrategy}.
+     *
+     * @param message              Event parameters
+     * @param deadlineNanos        value of {@link System#nanoTime()} at which the call is abandoned
+     * @param asyncCallbackHandler a user-implemented instance of {@code AsyncCallbackHandler} which specifies
+     *                             how to handle success of failure of authenticate API calls
+     */
+    void authenticateAsync(CastleMessage message, long deadlineNanos, AsyncCallbackHandler<Verdict> asyncCallbackHandler);
+
     /**
      * Sets the doNotTrack boolean of a new instance of {@code CastleApi}
      *
@@ -200,6 +230,27 @@ public interface CastleApi {
      */
     void track(CastleMessage message, AsyncCallbackHandler<Boolean> asyncCallbackHandler);
 
+    /**
+     * Tracks a collection of events, waiting until all of them were sent.
+     * <p>
+     * The events are sent in chunks on concurrent requests to the track endpoint, as set by
+     * {@code withTrackAllChunkSize} and {@code withTrackAllConcurrency} of the configuration.
+     *
+     * @param messages Event parameters of each event
+     * @return the result of each event, in the iteration order of {@code messages}
+     */
+    List<TrackResult> trackAll(Collection<CastleMessage> messages);
+
+    /**
+     * Tracks a collection of events, returning immediately.
+     *
+     * @param messages             Event parameters of each event
+     * @param asyncCallbackHandler informed with the result of each event, in the iteration order of {@code messages},
+     *                             once all of them were sent
+     * @see #trackAll(Collection)
+     */
+    void trackAllAsync(Collection<CastleMessage> messages, AsyncCallbackHandler<List<TrackResult>> asyncCallbackHandler);
+
     /**
      * Makes an async POST request to the identify endpoint with all required parameters.
      * <p>
@@ -232,6 +283,19 @@ public interface CastleApi {
      */
     void identify(String userId, @Nullable Object traits, boolean active);
 
+    /**
+     * Makes an async POST request to the identify endpoint and a custom handler for the async call's success and
+     * failure cases.
+     *
+     * @param userId user unique ID
+     * @param traits object for recording additional information connected to the user, takes null
+     * @param active is this call associated to an active user session
+     * @param asyncCallbackHandler a user-implemented instance of {@code AsyncCallbackHandler} which specifies
+     *                             how to handle success of failure of identify API calls, takes null
+     * @see <a href="https://api.castle.io/docs#identify">The docs</a>
+     */
+    void identify(String userId, @Nullable Object traits, boolean active, @Nullable AsyncCallbackHandler<Boolean> asyncCallbackHandler);
+
     /**
      * Makes a sync GET request to the review endpoint.
      *
@@ -0,0 +1,111 @@
+package io.castle.client.api;
+
+import io.castle.client.internal.utils.BackpressuredTrackSender;
+import io.castle.client.internal.utils.VerdictSubscription;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.Verdict;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * <a href="http://www.reactive-streams.org/">Reactive Streams</a> adapters of a {@link CastleApi}, to use it from
+ * libraries such as Reactor or RxJava.
+ * <p>
+ * They require {@code org.reactivestreams:reactive-streams} in the classpath. On Java 11 or later,
+ * {@code CastleFlow} offers the same adapters for {@code java.util.concurrent.Flow}.
+ */
+public final class CastleReactiveStreams {
+
+    private CastleReactiveStreams() {
+    }
+
+    /**
+     * Creates a subscriber tracking the events of a stream, requesting a new event each time a sent one completes.
+     * <p>
+     * The producer is slowed down to the pace of the transport instead of the SDK queueing the events.
+     *
+     * @param api         API instance the events are tracked with
+     * @param maxInFlight number of events sent but not completed yet; positive
+     * @return a subscriber for a single stream of events
+     */
+    public static Subscriber<CastleMessage> trackSubscriber(CastleApi api, int maxInFlight) {
+        final BackpressuredTrackSender sender = new BackpressuredTrackSender(api, maxInFlight);
+        return new Subscriber<CastleMessage>() {
+            @Override
+            public void onSubscribe(final Subscription subscription) {
+                sender.onSubscribe(new BackpressuredTrackSender.Upstream() {
+                    @Override
+                    public void request(long n) {
+                        subscription.request(n);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        subscription.cancel();
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(CastleMessage message) {
+                sender.onNext(message);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                sender.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                sender.onComplete();
+            }
+        };
+    }
+
+    /**
+     * Creates a publisher of the verdict of an authenticate call.
+     * <p>
+     * Each subscriber gets its own call, sent when it first requests an element. Cancelling the subscription cancels
+     * the call when the backend supports it.
+     *
+     * @param api     API instance the event is authenticated with
+     * @param message event to authenticate
+     * @return a publisher of one verdict
+     */
+    public static Publisher<Verdict> authenticatePublisher(final CastleApi api, final CastleMessage message) {
+        return new Publisher<Verdict>() {
+            @Override
+            public void subscribe(final Subscriber<? super Verdict> subscriber) {
+                final VerdictSubscription subscription = new VerdictSubscription(api, message, new VerdictSubscription.Downstream() {
+                    @Override
+                    public void onNext(Verdict verdict) {
+                        subscriber.onNext(verdict);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        subscriber.onError(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        subscriber.onComplete();
+                    }
+                });
+                subscriber.onSubscribe(new Subscription() {
+                    @Override
+                    public void request(long n) {
+                        subscription.request(n);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        subscription.cancel();
+                    }
+                });
+            }
+        };
+    }
+}
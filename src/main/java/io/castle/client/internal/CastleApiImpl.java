@@ -4,18 +4,30 @@ import com.google.common.base.Preconditions;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import io.castle.client.api.CastleApi;
+import io.castle.client.internal.backend.CancellableCallbackHandler;
 import io.castle.client.internal.backend.RestApi;
 import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.internal.json.CastlePayload;
+import io.castle.client.internal.utils.BulkTrackSender;
+import io.castle.client.internal.utils.CallbackDispatcher;
 import io.castle.client.internal.utils.CastleContextBuilder;
 import io.castle.client.internal.utils.ContextMerge;
+import io.castle.client.internal.utils.RequestCoalescer;
+import io.castle.client.internal.utils.ReviewCache;
 import io.castle.client.internal.utils.VerdictBuilder;
 import io.castle.client.model.*;
 
 import javax.annotation.Nullable;
 import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 public class CastleApiImpl implements CastleApi {
 
+    private static final String AUTHENTICATE_KEY_PREFIX = "authenticate:";
+    private static final String REVIEW_KEY_PREFIX = "review:";
+
     private final boolean doNotTrack;
     private final CastleSdkInternalConfiguration configuration;
     private final JsonObject contextJson;
@@ -74,12 +86,30 @@ public class CastleApiImpl implements CastleApi {
 
     @Override
     public Verdict authenticate(CastleMessage message) {
+        if (doNotTrack) {
+            return buildVerdictForDoNotTrack(message.getUserId());
+        }
+        final RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        final CastlePayload payload = buildPayload(message);
+        RequestCoalescer coalescer = configuration.getRequestCoalescer();
+        if (coalescer == null) {
+            return restApi.sendAuthenticateSync(payload);
+        }
+        return coalescer.execute(authenticateKey(payload), new RequestCoalescer.SyncCall<Verdict>() {
+            @Override
+            public Verdict execute() {
+                return restApi.sendAuthenticateSync(payload);
+            }
+        });
+    }
+
+    @Override
+    public Verdict authenticate(CastleMessage message, long deadlineNanos) {
         if (doNotTrack) {
             return buildVerdictForDoNotTrack(message.getUserId());
         }
         RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        JsonElement messageJson = buildJson(message);
-        return restApi.sendAuthenticateSync(messageJson);
+        return restApi.sendAuthenticateSync(buildPayload(message), deadlineNanos);
     }
 
     private Verdict buildVerdictForDoNotTrack(String userId) {
@@ -108,12 +138,34 @@ public class CastleApiImpl implements CastleApi {
     @Override
     public void authenticateAsync(CastleMessage message, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
         if (doNotTrack) {
-            asyncCallbackHandler.onResponse(buildVerdictForDoNotTrack(message.getUserId()));
+            dispatched(asyncCallbackHandler).onResponse(buildVerdictForDoNotTrack(message.getUserId()));
+        } else {
+            Preconditions.checkNotNull(asyncCallbackHandler, "The async handler can not be null");
+            asyncCallbackHandler = dispatched(asyncCallbackHandler);
+            final RestApi restApi = configuration.getRestApiFactory().buildBackend();
+            final CastlePayload payload = buildPayload(message);
+            RequestCoalescer coalescer = configuration.getRequestCoalescer();
+            if (coalescer == null) {
+                restApi.sendAuthenticateAsync(payload, asyncCallbackHandler);
+                return;
+            }
+            coalescer.enqueue(authenticateKey(payload), asyncCallbackHandler, new RequestCoalescer.AsyncCall<Verdict>() {
+                @Override
+                public void enqueue(AsyncCallbackHandler<Verdict> handler) {
+                    restApi.sendAuthenticateAsync(payload, handler);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void authenticateAsync(CastleMessage message, long deadlineNanos, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        if (doNotTrack) {
+            dispatched(asyncCallbackHandler).onResponse(buildVerdictForDoNotTrack(message.getUserId()));
         } else {
             Preconditions.checkNotNull(asyncCallbackHandler, "The async handler can not be null");
             RestApi restApi = configuration.getRestApiFactory().buildBackend();
-            JsonElement messageJson = buildJson(message);
-            restApi.sendAuthenticateAsync(messageJson, asyncCallbackHandler);
+            restApi.sendAuthenticateAsync(buildPayload(message), deadlineNanos, dispatched(asyncCallbackHandler));
         }
     }
 
@@ -164,19 +216,62 @@ public class CastleApiImpl implements CastleApi {
         Preconditions.checkNotNull(message.getEvent());
         if (doNotTrack) {
             if (asyncCallbackHandler != null) {
-                asyncCallbackHandler.onResponse(true);
+                dispatched(asyncCallbackHandler).onResponse(true);
             }
             return;
         }
         RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        JsonElement messageJson = buildJson(message);
-        restApi.sendTrackRequest(messageJson, asyncCallbackHandler);
+        restApi.sendTrackRequest(buildPayload(message), dispatched(asyncCallbackHandler));
+    }
+
+    @Override
+    public List<TrackResult> trackAll(Collection<CastleMessage> messages) {
+        if (doNotTrack) {
+            return doNotTrackResults(messages);
+        }
+        return buildBulkTrackSender(messages).sendAndWait();
+    }
+
+    @Override
+    public void trackAllAsync(Collection<CastleMessage> messages, AsyncCallbackHandler<List<TrackResult>> asyncCallbackHandler) {
+        Preconditions.checkNotNull(asyncCallbackHandler);
+        if (doNotTrack) {
+            dispatched(asyncCallbackHandler).onResponse(doNotTrackResults(messages));
+            return;
+        }
+        buildBulkTrackSender(messages).send(dispatched(asyncCallbackHandler));
+    }
+
+    private BulkTrackSender buildBulkTrackSender(Collection<CastleMessage> messages) {
+        List<CastlePayload> payloads = new ArrayList<>(messages.size());
+        for (CastleMessage message : messages) {
+            Preconditions.checkNotNull(message.getEvent());
+            payloads.add(buildPayload(message));
+        }
+        RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        return new BulkTrackSender(restApi, payloads, configuration.getConfiguration().getBulkTrack());
+    }
+
+    private static List<TrackResult> doNotTrackResults(Collection<CastleMessage> messages) {
+        List<TrackResult> results = new ArrayList<>(messages.size());
+        for (CastleMessage message : messages) {
+            results.add(new TrackResult(message, true, null));
+        }
+        return results;
     }
 
     @Override
     public void identify(String userId, @Nullable Object traits, boolean active) {
+        identify(userId, traits, active, null);
+    }
+
+    @Override
+    public void identify(String userId, @Nullable Object traits, boolean active, @Nullable AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
         Preconditions.checkNotNull(userId);
         if (doNotTrack) {
+            if (asyncCallbackHandler != null) {
+                dispatched(asyncCallbackHandler).onResponse(true);
+            }
             return;
         }
         JsonElement traitsJson = null;
@@ -184,7 +279,7 @@ public class CastleApiImpl implements CastleApi {
             traitsJson = configuration.getModel().getGson().toJsonTree(traits);
         }
         RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        restApi.sendIdentifyRequest(userId, contextJson, active, traitsJson);
+        restApi.sendIdentifyRequest(userId, contextJson, active, traitsJson, dispatched(asyncCallbackHandler));
     }
 
     @Override
@@ -200,18 +295,82 @@ public class CastleApiImpl implements CastleApi {
 
 
     @Override
-    public Review review(String reviewId) {
+    public Review review(final String reviewId) {
         Preconditions.checkNotNull(reviewId);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        return restApi.sendReviewRequestSync(reviewId);
+        ReviewCache cache = configuration.getReviewCache();
+        if (cache != null) {
+            Review cached = cache.get(reviewId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RequestCoalescer coalescer = configuration.getRequestCoalescer();
+        Review review;
+        if (coalescer == null) {
+            review = restApi.sendReviewRequestSync(reviewId);
+        } else {
+            review = coalescer.execute(REVIEW_KEY_PREFIX + reviewId, new RequestCoalescer.SyncCall<Review>() {
+                @Override
+                public Review execute() {
+                    return restApi.sendReviewRequestSync(reviewId);
+                }
+            });
+        }
+        if (cache != null) {
+            cache.put(reviewId, review);
+        }
+        return review;
     }
 
     @Override
-    public void reviewAsync(String reviewId, AsyncCallbackHandler<Review> asyncCallbackHandler) {
+    public void reviewAsync(final String reviewId, AsyncCallbackHandler<Review> asyncCallbackHandler) {
         Preconditions.checkNotNull(reviewId);
         Preconditions.checkNotNull(asyncCallbackHandler);
-        RestApi restApi = configuration.getRestApiFactory().buildBackend();
-        restApi.sendReviewRequestAsync(reviewId, asyncCallbackHandler);
+        final ReviewCache cache = configuration.getReviewCache();
+        if (cache != null) {
+            Review cached = cache.get(reviewId);
+            if (cached != null) {
+                dispatched(asyncCallbackHandler).onResponse(cached);
+                return;
+            }
+            final AsyncCallbackHandler<Review> handler = dispatched(asyncCallbackHandler);
+            final CancellableCallbackHandler<Review> cachingHandler = new CancellableCallbackHandler<Review>() {
+                @Override
+                public void onResponse(Review response) {
+                    cache.put(reviewId, response);
+                    handler.onResponse(response);
+                }
+
+                @Override
+                public void onException(Exception exception) {
+                    handler.onException(exception);
+                }
+            };
+            if (handler instanceof CancellableCallbackHandler) {
+                ((CancellableCallbackHandler<Review>) handler).onCancel(new Runnable() {
+                    @Override
+                    public void run() {
+                        cachingHandler.cancel();
+                    }
+                });
+            }
+            asyncCallbackHandler = cachingHandler;
+        } else {
+            asyncCallbackHandler = dispatched(asyncCallbackHandler);
+        }
+        final RestApi restApi = configuration.getRestApiFactory().buildBackend();
+        RequestCoalescer coalescer = configuration.getRequestCoalescer();
+        if (coalescer == null) {
+            restApi.sendReviewRequestAsync(reviewId, asyncCallbackHandler);
+            return;
+        }
+        coalescer.enqueue(REVIEW_KEY_PREFIX + reviewId, asyncCallbackHandler, new RequestCoalescer.AsyncCall<Review>() {
+            @Override
+            public void enqueue(AsyncCallbackHandler<Review> handler) {
+                restApi.sendReviewRequestAsync(reviewId, handler);
+            }
+        });
     }
 
     private CastleMessage buildMessage(String event, String userId, @Nullable Object properties, @Nullable Object traits) {
@@ -232,20 +391,21 @@ public class CastleApiImpl implements CastleApi {
         return message;
     }
 
-    private JsonElement buildJson(CastleMessage message) throws CastleRuntimeException {
-        JsonObject contextJson;
-        // Context can be either from the message or from the instance of this
-        // class. Make sure we have one
-        CastleContext context = message.getContext();
-        if (context == null) {
-            contextJson = this.contextJson;
-        } else {
-            contextJson = configuration.getModel().getGson().toJsonTree(context).getAsJsonObject();
-        }
+    private String authenticateKey(CastlePayload payload) {
+        return AUTHENTICATE_KEY_PREFIX + RequestCoalescer.payloadKey(payload);
+    }
 
-        JsonElement messageJson = configuration.getModel().getGson().toJsonTree(message);
-        JsonObject messageObj = messageJson.getAsJsonObject();
-        messageObj.add("context", contextJson);
-        return messageObj;
+    /**
+     * Has the handler informed on the callback executor, when one is configured.
+     */
+    private <T> AsyncCallbackHandler<T> dispatched(AsyncCallbackHandler<T> handler) {
+        CallbackDispatcher dispatcher = configuration.getCallbackDispatcher();
+        return dispatcher != null ? dispatcher.wrap(handler) : handler;
+    }
+
+    private CastlePayload buildPayload(CastleMessage message) {
+        // Context can be either from the message or from the instance of this
+        // class. The payload picks the one to use when it is serialized.
+        return new CastlePayload(configuration.getModel(), message, contextJson);
     }
 }
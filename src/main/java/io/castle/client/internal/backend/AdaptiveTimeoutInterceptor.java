@@ -0,0 +1,127 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.AdaptiveTimeoutConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.internal.utils.LatencyRecorder;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets the timeouts of each call from the latencies recently observed by the calls of the same client.
+ * <p>
+ * The effective timeout is the target percentile of the recent latencies multiplied by the headroom, within the floor
+ * and the ceiling. It bounds the connect, read and write of a call, and the whole call through
+ * {@link #callTimeout(EventListener.Factory, int)}, since the call timeout is already running when interceptors are
+ * reached.
+ * <p>
+ * The latency of every call that received a response is recorded. A call that timed out only tells that its latency
+ * was longer than its timeout, so it is recorded with twice its timeout, which lets the timeout grow towards the
+ * ceiling when the API slows down instead of cutting every call at the current value.
+ * The effective timeout is published as a gauge of {@link CastleMetrics}.
+ */
+class AdaptiveTimeoutInterceptor implements Interceptor {
+
+    private static final int LATENCY_WINDOW = 1000;
+    private static final int LATENCY_MIN_SAMPLES = 100;
+
+    private final LatencyRecorder latency = new LatencyRecorder(LATENCY_WINDOW, LATENCY_MIN_SAMPLES);
+    private final Map<Call, Long> callStarts = Collections.synchronizedMap(new WeakHashMap<Call, Long>());
+    private final double percentile;
+    private final double headroom;
+    private final int floorMillis;
+    private final int ceilingMillis;
+    private final int initialMillis;
+    private final CastleMetrics metrics;
+    private final String gauge;
+
+    /**
+     * @param configuration  adaptive timeout settings
+     * @param initialMillis  timeout used until enough calls were observed
+     * @param metrics        registry of the effective timeout gauge
+     * @param gauge          name of the gauge reporting the effective timeout in milliseconds
+     */
+    AdaptiveTimeoutInterceptor(AdaptiveTimeoutConfiguration configuration, int initialMillis, CastleMetrics metrics, String gauge) {
+        this.percentile = configuration.getPercentile();
+        this.headroom = configuration.getHeadroom();
+        this.floorMillis = configuration.getFloorMillis();
+        this.ceilingMillis = configuration.getCeilingMillis();
+        this.initialMillis = initialMillis;
+        this.metrics = metrics;
+        this.gauge = gauge;
+        metrics.set(gauge, effectiveTimeoutMillis());
+    }
+
+    /**
+     * Wraps the event listener factory of a client so that the whole timeout of each of its calls is the effective
+     * timeout when the call is created.
+     *
+     * @param delegate          event listener factory of the client
+     * @param callTimeoutMillis static timeout of whole calls, zero for no limit; the effective timeout never exceeds it
+     * @return a factory setting the call timeout before delegating
+     */
+    EventListener.Factory callTimeout(final EventListener.Factory delegate, final int callTimeoutMillis) {
+        return new EventListener.Factory() {
+            @Override
+            public EventListener create(Call call) {
+                int timeoutMillis = effectiveTimeoutMillis();
+                if (callTimeoutMillis > 0) {
+                    timeoutMillis = Math.min(timeoutMillis, callTimeoutMillis);
+                }
+                call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+                callStarts.put(call, System.nanoTime());
+                return delegate.create(call);
+            }
+        };
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        int timeoutMillis = effectiveTimeoutMillis();
+        metrics.set(gauge, timeoutMillis);
+        long start = System.nanoTime();
+        Long created = callStarts.remove(chain.call());
+        try {
+            Response response = chain
+                    .withConnectTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                    .withReadTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                    .withWriteTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                    .proceed(chain.request());
+            latency.record(System.nanoTime() - start);
+            return response;
+        } catch (IOException e) {
+            if (timedOut(chain.call(), e, created != null ? created : start)) {
+                latency.record(TimeUnit.MILLISECONDS.toNanos(Math.min(2L * timeoutMillis, ceilingMillis)));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A call canceled by its call timeout cannot be told apart from a call canceled by its caller, except by the time
+     * it ran for.
+     */
+    private static boolean timedOut(Call call, IOException e, long startNanos) {
+        if (!call.isCanceled()) {
+            return e instanceof InterruptedIOException;
+        }
+        return System.nanoTime() - startNanos >= call.timeout().timeoutNanos();
+    }
+
+    /**
+     * @return the timeout in milliseconds applied to the next call
+     */
+    int effectiveTimeoutMillis() {
+        long observed = latency.percentileNanos(percentile);
+        long millis = observed >= 0 ? TimeUnit.NANOSECONDS.toMillis((long) (observed * headroom)) : initialMillis;
+        return (int) Math.max(floorMillis, Math.min(ceilingMillis, millis));
+    }
+}
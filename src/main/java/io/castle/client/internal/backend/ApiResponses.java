@@ -0,0 +1,95 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.utils.VerdictBuilder;
+import io.castle.client.internal.utils.VerdictTransportModel;
+import io.castle.client.model.CastleRuntimeException;
+import io.castle.client.model.Review;
+import io.castle.client.model.Verdict;
+
+import java.io.IOException;
+
+/**
+ * Interprets the responses of the Castle API independently of the HTTP client that received them.
+ */
+class ApiResponses {
+
+    private final CastleGsonModel model;
+    private final CastleConfiguration configuration;
+
+    ApiResponses(CastleGsonModel model, CastleConfiguration configuration) {
+        this.model = model;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Builds the verdict of an authenticate response.
+     *
+     * @param code         HTTP status code
+     * @param errorReason  reason phrase of the status, used to explain failures
+     * @param jsonResponse body of the response
+     * @param userId       user ID of the authenticate request
+     * @return the verdict sent by the API, or a failover verdict for server errors and rate limited calls
+     * @throws CastleRuntimeException when no verdict can be extracted and no failover applies
+     */
+    Verdict extractVerdict(int code, String errorReason, String jsonResponse, String userId) {
+        if (code >= 200 && code < 300) {
+            VerdictTransportModel transport = model.getGson().fromJson(jsonResponse, VerdictTransportModel.class);
+            if (transport != null && transport.getAction() != null && transport.getUserId() != null) {
+                return VerdictBuilder.fromTransport(transport);
+            } else {
+                errorReason = "Invalid JSON in response";
+            }
+        }
+
+        if (code >= 500 || code == 429) {
+            //Use failover for error backends calls and when the API asks to slow down.
+            if (!configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
+                return failover(errorReason, userId);
+            }
+        }
+
+        // Could not extract Verdict, so fail for client logic space.
+        throw new CastleRuntimeException(
+                responseErrorMessage(code, errorReason, jsonResponse)
+        );
+    }
+
+    /**
+     * Builds the verdict of an authenticate call that did not get a response.
+     *
+     * @param reason explanation of the failure
+     * @param userId user ID of the authenticate request
+     * @return a verdict with the action of the failover strategy
+     */
+    Verdict failover(String reason, String userId) {
+        return VerdictBuilder.failover(reason)
+                .withAction(configuration.getAuthenticateFailoverStrategy().getDefaultAction())
+                .withUserId(userId)
+                .build();
+    }
+
+    /**
+     * Builds the review contained in a review response.
+     *
+     * @param code         HTTP status code
+     * @param jsonResponse body of the response
+     * @return the review sent by the API
+     * @throws IOException when the response is not successful
+     */
+    Review extractReview(int code, String jsonResponse) throws IOException {
+        if (code >= 200 && code < 300) {
+            return model.getGson().fromJson(jsonResponse, Review.class);
+        }
+        throw new IOException("HTTP request failure");
+    }
+
+    private String responseErrorMessage(Integer code, String message, String response) {
+        String errorMessage =
+            "Request error: server responded with code " + code.toString() + ". " +
+            message + ": `" + response + "`";
+
+        return errorMessage;
+    }
+}
@@ -0,0 +1,181 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.DnsCacheConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import okhttp3.Dns;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves host names through a delegate and caches the results.
+ * <p>
+ * Entries are refreshed from a background thread once three quarters of their time to live elapsed, so lookups on
+ * the request path are served from the cache as long as the host keeps being used.
+ * When the delegate fails, the last known addresses are served for up to {@code maxStaleMillis} after they expired.
+ * Hosts that were not looked up for longer than that stop being refreshed and are dropped.
+ * <p>
+ * Addresses are returned with IPv6 and IPv4 addresses interleaved, in the order of RFC 8305, so that when one family
+ * is unreachable the connection attempt moves to the other family after a single failed address, rather than after
+ * all the addresses of the broken family.
+ */
+class CachingDns implements Dns {
+
+    private final Dns delegate;
+    private final long ttlNanos;
+    private final long maxStaleNanos;
+    private final CastleMetrics metrics;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    CachingDns(DnsCacheConfiguration configuration, CastleMetrics metrics) {
+        this(Dns.SYSTEM, configuration, metrics);
+    }
+
+    CachingDns(Dns delegate, DnsCacheConfiguration configuration, CastleMetrics metrics) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getTtlMillis());
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getMaxStaleMillis());
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "castle-dns-refresher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long intervalMillis = Math.max(1, configuration.getTtlMillis() / 4);
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops refreshing entries in the background. Lookups are still served, resolving expired entries on demand.
+     */
+    void close() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        long now = System.nanoTime();
+        Entry entry = entries.get(hostname);
+        if (entry != null) {
+            entry.usedAt = now;
+            if (now - entry.resolvedAt < ttlNanos) {
+                metrics.increment(CastleMetrics.DNS_CACHE_HITS);
+                return entry.addresses;
+            }
+        }
+        try {
+            return resolve(hostname).addresses;
+        } catch (UnknownHostException e) {
+            if (entry != null && now - entry.resolvedAt < ttlNanos + maxStaleNanos) {
+                metrics.increment(CastleMetrics.DNS_STALE_SERVED);
+                Castle.logger.warn("DNS lookup of {} failed, using the last known addresses.", hostname);
+                return entry.addresses;
+            }
+            throw e;
+        }
+    }
+
+    private Entry resolve(String hostname) throws UnknownHostException {
+        long start = System.nanoTime();
+        List<InetAddress> addresses;
+        try {
+            addresses = delegate.lookup(hostname);
+        } catch (UnknownHostException e) {
+            metrics.increment(CastleMetrics.DNS_FAILURES);
+            throw e;
+        } finally {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            metrics.increment(CastleMetrics.DNS_LOOKUPS);
+            metrics.add(CastleMetrics.DNS_LOOKUP_MILLIS_TOTAL, elapsedMillis);
+            metrics.max(CastleMetrics.DNS_LOOKUP_MILLIS_MAX, elapsedMillis);
+        }
+        Entry entry = new Entry(interleave(addresses), System.nanoTime());
+        Entry previous = entries.put(hostname, entry);
+        if (previous != null) {
+            entry.usedAt = previous.usedAt;
+        }
+        return entry;
+    }
+
+    /**
+     * Resolves again the hosts in use whose entry is about to expire, and drops the hosts no longer in use.
+     */
+    private void refresh() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+            Entry entry = cached.getValue();
+            if (now - entry.usedAt > ttlNanos + maxStaleNanos) {
+                entries.remove(cached.getKey(), entry);
+            } else if (now - entry.resolvedAt >= ttlNanos * 3 / 4) {
+                try {
+                    resolve(cached.getKey());
+                } catch (UnknownHostException | RuntimeException e) {
+                    Castle.logger.warn("Background DNS refresh of {} failed: {}", cached.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Orders addresses alternating between families, starting with the family of the first address returned by the
+     * resolver.
+     *
+     * @param addresses addresses in the order of the resolver
+     * @return the same addresses with families interleaved
+     */
+    static List<InetAddress> interleave(List<InetAddress> addresses) {
+        List<InetAddress> ipv6 = new ArrayList<>();
+        List<InetAddress> ipv4 = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            (address instanceof Inet6Address ? ipv6 : ipv4).add(address);
+        }
+        if (ipv6.isEmpty() || ipv4.isEmpty()) {
+            return addresses;
+        }
+        List<InetAddress> first = addresses.get(0) instanceof Inet4Address ? ipv4 : ipv6;
+        List<InetAddress> second = first == ipv4 ? ipv6 : ipv4;
+        List<InetAddress> interleaved = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+            if (i < first.size()) {
+                interleaved.add(first.get(i));
+            }
+            if (i < second.size()) {
+                interleaved.add(second.get(i));
+            }
+        }
+        return interleaved;
+    }
+
+    private static class Entry {
+
+        private final List<InetAddress> addresses;
+        private final long resolvedAt;
+        private volatile long usedAt;
+
+        private Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+            this.usedAt = resolvedAt;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.castle.client.internal.backend;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.AsyncTimeout;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Abandons asynchronous calls at a deadline, including the time they wait in the dispatcher.
+ * <p>
+ * OkHttp only starts the timeout of an asynchronous call once the dispatcher runs it, so a call queued behind the
+ * concurrent request limit could wait past its deadline. When the deadline passes, the calls created through
+ * {@link #calls(Call.Factory)} are cancelled and the callback returned by {@link #guard(Callback)} is informed with an
+ * {@link InterruptedIOException}, whether the calls were started or not. Later outcomes of the calls are discarded.
+ */
+class CallDeadline extends AsyncTimeout {
+
+    private final long deadlineNanos;
+    private final List<Call> calls = new ArrayList<>();
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private Callback callback;
+
+    /**
+     * @param deadlineNanos value of {@link System#nanoTime()} at which calls are abandoned
+     */
+    CallDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+        deadlineNanoTime(deadlineNanos);
+    }
+
+    /**
+     * @return true if the deadline already passed, in which case no call should be sent
+     */
+    boolean hasPassed() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Creates calls that time out at the deadline once started, and are cancelled at the deadline before.
+     *
+     * @param client factory of the calls
+     * @return a factory of calls bound to the deadline
+     */
+    Call.Factory calls(final Call.Factory client) {
+        return new Call.Factory() {
+            @Override
+            public Call newCall(Request request) {
+                Call call = client.newCall(request);
+                call.timeout().deadlineNanoTime(deadlineNanos);
+                synchronized (calls) {
+                    calls.add(call);
+                }
+                return call;
+            }
+        };
+    }
+
+    /**
+     * Starts watching the deadline.
+     *
+     * @param delegate callback of the calls
+     * @return a callback informing {@code delegate} once, with the first outcome of the calls or the expiry of the
+     * deadline
+     */
+    Callback guard(final Callback delegate) {
+        this.callback = delegate;
+        enter();
+        return new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (complete()) {
+                    delegate.onFailure(call, e);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                if (complete()) {
+                    delegate.onResponse(call, response);
+                } else {
+                    response.close();
+                }
+            }
+        };
+    }
+
+    private boolean complete() {
+        if (!completed.compareAndSet(false, true)) {
+            return false;
+        }
+        exit();
+        return true;
+    }
+
+    @Override
+    protected void timedOut() {
+        if (!completed.compareAndSet(false, true)) {
+            return;
+        }
+        List<Call> cancelled;
+        synchronized (calls) {
+            cancelled = new ArrayList<>(calls);
+        }
+        for (Call call : cancelled) {
+            call.cancel();
+        }
+        callback.onFailure(cancelled.isEmpty() ? null : cancelled.get(0), new InterruptedIOException("deadline exceeded"));
+    }
+}
@@ -0,0 +1,58 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.model.AsyncCallbackHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Callback handler whose calls can be cancelled before they complete.
+ * <p>
+ * Backends that support it register how to cancel each HTTP call they send for the handler, including hedged calls.
+ * Cancelling a call that is shared with other callers, such as a coalesced one, only stops this handler from waiting
+ * for it.
+ *
+ * @param <T> The type of the internal response after execution.
+ */
+public abstract class CancellableCallbackHandler<T> implements AsyncCallbackHandler<T> {
+
+    private final List<Runnable> cancellers = new ArrayList<>();
+    private boolean cancelled;
+
+    /**
+     * Cancels the calls sent for this handler, and the ones sent afterwards.
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(cancellers);
+            cancellers.clear();
+        }
+        for (Runnable canceller : toRun) {
+            canceller.run();
+        }
+    }
+
+    /**
+     * Registers how to cancel a call sent for this handler, running it at once when the handler was cancelled.
+     *
+     * @param canceller action cancelling the call
+     */
+    public void onCancel(Runnable canceller) {
+        synchronized (this) {
+            if (!cancelled) {
+                cancellers.add(canceller);
+                return;
+            }
+        }
+        canceller.run();
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
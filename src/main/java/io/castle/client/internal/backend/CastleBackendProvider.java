@@ -6,5 +6,13 @@ package io.castle.client.internal.backend;
  * The default value is OKHTTP.
  */
 public enum CastleBackendProvider {
-    OKHTTP
+    OKHTTP,
+    /**
+     * Backend built on {@code java.net.http.HttpClient}, only available when running on Java 11 or later.
+     */
+    JDK_HTTP,
+    /**
+     * Non-blocking backend built on Netty, only available when {@code io.netty:netty-codec-http} is in the classpath.
+     */
+    NETTY
 }
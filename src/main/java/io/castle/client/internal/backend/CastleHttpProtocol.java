@@ -0,0 +1,23 @@
+package io.castle.client.internal.backend;
+
+/**
+ * HTTP protocols that can be used for calls to the Castle API.
+ * <p>
+ * The default value is HTTP_2.
+ */
+public enum CastleHttpProtocol {
+    /**
+     * Only HTTP/1.1, with one in-flight request per connection.
+     */
+    HTTP_1_1,
+    /**
+     * HTTP/2 negotiated through ALPN on TLS connections, falling back to HTTP/1.1 when the server does not support it.
+     * Concurrent requests are multiplexed as streams over a single connection per endpoint group.
+     */
+    HTTP_2,
+    /**
+     * Cleartext HTTP/2 (h2c) without negotiation, for a base URL pointing to a local proxy known to speak HTTP/2.
+     * Requires an {@code http} base URL.
+     */
+    H2_PRIOR_KNOWLEDGE
+}
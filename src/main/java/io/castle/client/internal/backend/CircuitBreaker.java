@@ -0,0 +1,180 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.CircuitBreakerConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.CircuitBreakerListener;
+import io.castle.client.model.CircuitBreakerState;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count based circuit breaker of an endpoint group.
+ * <p>
+ * Every call first asks for a permission with {@link #acquire()} and then reports its outcome with
+ * {@link #onResult(CircuitBreakerState, long, boolean)}, passing the state in which it was allowed.
+ * Outcomes of calls allowed in a previous state are ignored, so a slow call started before the breaker opened does
+ * not count as a probe.
+ */
+class CircuitBreaker {
+
+    private final String endpoint;
+    private final CircuitBreakerConfiguration configuration;
+    private final CastleMetrics metrics;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    private final boolean[] failures;
+    private final boolean[] slowCalls;
+    private int next;
+    private int size;
+    private int failureCount;
+    private int slowCallCount;
+
+    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+    private long openedAt;
+    private int probesAllowed;
+    private int probesSucceeded;
+
+    CircuitBreaker(String endpoint, CircuitBreakerConfiguration configuration, CastleMetrics metrics) {
+        this.endpoint = endpoint;
+        this.configuration = configuration;
+        this.metrics = metrics;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getSlowCallDurationMillis());
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getOpenDurationMillis());
+        this.failures = new boolean[configuration.getWindowSize()];
+        this.slowCalls = new boolean[configuration.getWindowSize()];
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    synchronized CircuitBreakerState getState() {
+        return state;
+    }
+
+    /**
+     * Asks for the permission to send a call.
+     *
+     * @return the state in which the call is allowed, or null if the call must fail immediately
+     */
+    CircuitBreakerState acquire() {
+        CircuitBreakerState from;
+        synchronized (this) {
+            from = state;
+            if (state == CircuitBreakerState.CLOSED) {
+                return state;
+            }
+            if (state == CircuitBreakerState.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    metrics.increment(CastleMetrics.CIRCUIT_BREAKER_REJECTED);
+                    return null;
+                }
+                state = CircuitBreakerState.HALF_OPEN;
+                probesAllowed = 0;
+                probesSucceeded = 0;
+            }
+            if (probesAllowed >= configuration.getHalfOpenProbes()) {
+                metrics.increment(CastleMetrics.CIRCUIT_BREAKER_REJECTED);
+                from = null;
+            } else {
+                probesAllowed++;
+            }
+        }
+        if (from == CircuitBreakerState.OPEN) {
+            notifyListener(CircuitBreakerState.OPEN, CircuitBreakerState.HALF_OPEN);
+        }
+        return from == null ? null : CircuitBreakerState.HALF_OPEN;
+    }
+
+    /**
+     * Reports the outcome of a call.
+     *
+     * @param allowedIn     state returned by {@link #acquire()} for the call
+     * @param durationNanos duration of the call
+     * @param failed        true if the call failed or received a server error
+     */
+    void onResult(CircuitBreakerState allowedIn, long durationNanos, boolean failed) {
+        boolean slow = durationNanos >= slowCallNanos;
+        CircuitBreakerState from;
+        CircuitBreakerState to;
+        synchronized (this) {
+            if (allowedIn != state) {
+                return;
+            }
+            from = state;
+            if (state == CircuitBreakerState.CLOSED) {
+                record(failed, slow);
+                if (size < configuration.getMinimumCalls() || !exceedsThresholds()) {
+                    return;
+                }
+                open();
+            } else if (failed || slow) {
+                open();
+            } else if (++probesSucceeded >= configuration.getHalfOpenProbes()) {
+                close();
+            } else {
+                return;
+            }
+            to = state;
+        }
+        notifyListener(from, to);
+    }
+
+    /**
+     * Gives back the permission of a call that was cancelled before completing, so that it does not hold a probe.
+     *
+     * @param allowedIn state returned by {@link #acquire()} for the call
+     */
+    synchronized void release(CircuitBreakerState allowedIn) {
+        if (allowedIn == CircuitBreakerState.HALF_OPEN && state == CircuitBreakerState.HALF_OPEN) {
+            probesAllowed--;
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (size == failures.length) {
+            failureCount -= failures[next] ? 1 : 0;
+            slowCallCount -= slowCalls[next] ? 1 : 0;
+        } else {
+            size++;
+        }
+        failures[next] = failed;
+        slowCalls[next] = slow;
+        failureCount += failed ? 1 : 0;
+        slowCallCount += slow ? 1 : 0;
+        next = (next + 1) % failures.length;
+    }
+
+    private boolean exceedsThresholds() {
+        return failureCount * 100.0 / size >= configuration.getFailureRateThreshold()
+                || slowCallCount * 100.0 / size >= configuration.getSlowCallRateThreshold();
+    }
+
+    private void open() {
+        state = CircuitBreakerState.OPEN;
+        openedAt = System.nanoTime();
+        metrics.increment(CastleMetrics.CIRCUIT_BREAKER_OPENED);
+    }
+
+    private void close() {
+        state = CircuitBreakerState.CLOSED;
+        next = 0;
+        size = 0;
+        failureCount = 0;
+        slowCallCount = 0;
+    }
+
+    private void notifyListener(CircuitBreakerState from, CircuitBreakerState to) {
+        Castle.logger.warn("Circuit breaker of the {} endpoint changed from {} to {}.", endpoint, from, to);
+        CircuitBreakerListener listener = configuration.getListener();
+        if (listener != null) {
+            try {
+                listener.onStateChange(endpoint, from, to);
+            } catch (RuntimeException e) {
+                Castle.logger.error("Circuit breaker listener failed.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.model.CircuitBreakerState;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+/**
+ * Fails calls immediately while the {@link CircuitBreaker} of their endpoint group is open, and reports the outcome of
+ * the calls it lets through.
+ * <p>
+ * IO errors and server errors count as failures. Calls cancelled by the SDK, such as the losing copy of a hedged
+ * request, and calls failing with an unexpected runtime exception are not reported, and their permit is released.
+ */
+class CircuitBreakerInterceptor implements Interceptor {
+
+    private final CircuitBreaker breaker;
+
+    CircuitBreakerInterceptor(CircuitBreaker breaker) {
+        this.breaker = breaker;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        CircuitBreakerState allowedIn = breaker.acquire();
+        if (allowedIn == null) {
+            throw new CircuitBreakerOpenException(breaker.getEndpoint());
+        }
+        long start = System.nanoTime();
+        boolean reported = false;
+        try {
+            Response response = chain.proceed(chain.request());
+            breaker.onResult(allowedIn, System.nanoTime() - start, response.code() >= 500);
+            reported = true;
+            return response;
+        } catch (IOException e) {
+            if (!chain.call().isCanceled()) {
+                breaker.onResult(allowedIn, System.nanoTime() - start, true);
+                reported = true;
+            }
+            throw e;
+        } finally {
+            if (!reported) {
+                // Cancelled, or failed with an unexpected exception: the permit is returned without an outcome.
+                breaker.release(allowedIn);
+            }
+        }
+    }
+}
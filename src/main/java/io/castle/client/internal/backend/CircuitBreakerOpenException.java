@@ -0,0 +1,13 @@
+package io.castle.client.internal.backend;
+
+import java.io.IOException;
+
+/**
+ * Failure of a call that was not sent because the circuit breaker of its endpoint group is open.
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    public CircuitBreakerOpenException(String endpoint) {
+        super("Circuit breaker open for the " + endpoint + " endpoint");
+    }
+}
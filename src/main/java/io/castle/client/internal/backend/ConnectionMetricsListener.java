@@ -0,0 +1,63 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.utils.CastleMetrics;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reports how calls are spread over connections.
+ * <p>
+ * Each call holding a connection counts as one stream of that connection.
+ * With HTTP/2 several streams share a connection, while with HTTP/1.1 a connection carries one stream at a time.
+ */
+class ConnectionMetricsListener extends EventListener {
+
+    private final Map<Connection, Integer> streamsPerConnection = new HashMap<>();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final CastleMetrics metrics;
+
+    ConnectionMetricsListener(CastleMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        metrics.increment(CastleMetrics.HTTP_CONNECTIONS_OPENED);
+        if (protocol == Protocol.HTTP_2 || protocol == Protocol.H2_PRIOR_KNOWLEDGE) {
+            metrics.increment(CastleMetrics.HTTP_CONNECTIONS_HTTP2);
+        }
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        int streams;
+        synchronized (streamsPerConnection) {
+            Integer current = streamsPerConnection.get(connection);
+            streams = current == null ? 1 : current + 1;
+            streamsPerConnection.put(connection, streams);
+        }
+        metrics.max(CastleMetrics.HTTP_STREAMS_MAX_PER_CONNECTION, streams);
+        metrics.set(CastleMetrics.HTTP_STREAMS_ACTIVE, activeStreams.incrementAndGet());
+    }
+
+    @Override
+    public void connectionReleased(Call call, Connection connection) {
+        synchronized (streamsPerConnection) {
+            Integer current = streamsPerConnection.get(connection);
+            if (current == null || current <= 1) {
+                streamsPerConnection.remove(connection);
+            } else {
+                streamsPerConnection.put(connection, current - 1);
+            }
+        }
+        metrics.set(CastleMetrics.HTTP_STREAMS_ACTIVE, activeStreams.decrementAndGet());
+    }
+}
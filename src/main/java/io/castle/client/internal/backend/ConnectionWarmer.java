@@ -0,0 +1,123 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.utils.CastleMetrics;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens connections of a client in advance and keeps them alive with lightweight requests.
+ * <p>
+ * Each round sends as many concurrent {@code HEAD} requests as connections should be kept, so that every one of them
+ * is used, or opened again when the pool had evicted it.
+ * Over HTTP/2 a single connection is kept, since concurrent requests are multiplexed over it and would never open
+ * more: with prior knowledge only one connection is warmed, and once a response shows that HTTP/2 was negotiated the
+ * keep-alive rounds send a single request.
+ * The response status is irrelevant, only the connection matters.
+ */
+class ConnectionWarmer {
+
+    private final OkHttpClient client;
+    private final Request ping;
+    private final int connections;
+    private final CastleMetrics metrics;
+    private volatile boolean multiplexed;
+    private ScheduledExecutorService scheduler;
+
+    ConnectionWarmer(OkHttpClient client, HttpUrl baseUrl, int connections, CastleMetrics metrics) {
+        this.client = client;
+        this.ping = new Request.Builder()
+                .url(baseUrl.resolve("/v1/"))
+                .head()
+                .build();
+        this.connections = connections;
+        this.metrics = metrics;
+        this.multiplexed = client.protocols().equals(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+    }
+
+    /**
+     * Sends a round of warm-up requests and waits for them to complete.
+     *
+     * @param timeoutMillis maximum time to wait for the connections to be ready
+     * @return true if all the requests completed within the timeout
+     */
+    boolean warm(long timeoutMillis) {
+        CountDownLatch completed = sendRound();
+        try {
+            return completed.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Starts sending a round of keep-alive requests at a fixed interval from a daemon thread.
+     *
+     * @param intervalMillis milliseconds between rounds
+     */
+    synchronized void scheduleKeepAlive(long intervalMillis) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "castle-connection-keepalive");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sendRound();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sending keep-alive requests.
+     */
+    synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private CountDownLatch sendRound() {
+        int requests = multiplexed ? 1 : connections;
+        final CountDownLatch completed = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            metrics.increment(CastleMetrics.CONNECTION_WARMUP_REQUESTS);
+            client.newCall(ping).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    metrics.increment(CastleMetrics.CONNECTION_WARMUP_FAILURES);
+                    Castle.logger.warn("HTTP layer. Connection warm-up request failed.", e);
+                    completed.countDown();
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    if (response.protocol() != Protocol.HTTP_1_1 && response.protocol() != Protocol.HTTP_1_0) {
+                        multiplexed = true;
+                    }
+                    response.close();
+                    completed.countDown();
+                }
+            });
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,202 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.EndpointRoutingConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends each call to one of several base URLs of the Castle API, preferring the fastest healthy one.
+ * <p>
+ * The latency of each base URL is tracked with an exponentially weighted moving average of its recent calls.
+ * A call that can not connect, or that gets a server error, is sent again right away to the next base URL, and the
+ * failed base URL is skipped for the cooldown period.
+ * Calls that fail in any other way, such as a read timeout, are not sent again, since the server may have processed
+ * them and the time budget of the caller is already spent.
+ * One call out of {@value #EXPLORATION_INTERVAL} goes to the healthy base URL that was used least recently, so that
+ * the latency of the other base URLs stays known.
+ */
+class EndpointRouter implements Interceptor {
+
+    private static final double EWMA_WEIGHT = 0.2;
+    static final int EXPLORATION_INTERVAL = 50;
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final long cooldownNanos;
+    private final CastleMetrics metrics;
+    private final AtomicLong calls = new AtomicLong();
+
+    EndpointRouter(EndpointRoutingConfiguration configuration, CastleMetrics metrics) {
+        List<String> urls = configuration.getApiBaseUrls();
+        for (int i = 0; i < urls.size(); i++) {
+            endpoints.add(new Endpoint(i, HttpUrl.parse(urls.get(i))));
+            metrics.set(CastleMetrics.ROUTING_ENDPOINT_PREFIX + i + ".healthy", 1);
+        }
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getCooldownMillis());
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        List<Endpoint> candidates = rank(System.nanoTime());
+        IOException failure = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            Endpoint endpoint = candidates.get(i);
+            if (i > 0) {
+                if (chain.call().isCanceled()) {
+                    break;
+                }
+                metrics.increment(CastleMetrics.ROUTING_FAILOVERS);
+            }
+            metrics.increment(CastleMetrics.ROUTING_ENDPOINT_PREFIX + endpoint.index + ".requests");
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = chain.proceed(endpoint.route(request));
+            } catch (IOException e) {
+                if (!isConnectionFailure(e)) {
+                    throw e;
+                }
+                markDown(endpoint, e.getMessage());
+                failure = e;
+                continue;
+            }
+            if (response.code() >= 500) {
+                markDown(endpoint, "status " + response.code());
+                if (i < candidates.size() - 1) {
+                    response.close();
+                    continue;
+                }
+            } else {
+                endpoint.recordLatency(System.nanoTime() - start);
+                metrics.set(CastleMetrics.ROUTING_ENDPOINT_PREFIX + endpoint.index + ".latency_micros",
+                        TimeUnit.NANOSECONDS.toMicros(endpoint.latencyNanos()));
+                metrics.set(CastleMetrics.ROUTING_ENDPOINT_PREFIX + endpoint.index + ".healthy", 1);
+            }
+            return response;
+        }
+        throw failure != null ? failure : new IOException("Canceled");
+    }
+
+    /**
+     * Orders the base URLs for a call: healthy ones by latency, then the ones in cooldown by the end of their
+     * cooldown.
+     */
+    private List<Endpoint> rank(final long now) {
+        List<Endpoint> healthy = new ArrayList<>();
+        List<Endpoint> down = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            (endpoint.isHealthy(now) ? healthy : down).add(endpoint);
+        }
+        Collections.sort(healthy, new Comparator<Endpoint>() {
+            @Override
+            public int compare(Endpoint first, Endpoint second) {
+                return Long.compare(first.latencyNanos(), second.latencyNanos());
+            }
+        });
+        Collections.sort(down, new Comparator<Endpoint>() {
+            @Override
+            public int compare(Endpoint first, Endpoint second) {
+                return Long.compare(first.downUntil() - now, second.downUntil() - now);
+            }
+        });
+        if (healthy.size() > 1 && calls.incrementAndGet() % EXPLORATION_INTERVAL == 0) {
+            Endpoint stalest = healthy.get(0);
+            for (Endpoint endpoint : healthy) {
+                if (endpoint.selectedAt() - stalest.selectedAt() < 0) {
+                    stalest = endpoint;
+                }
+            }
+            healthy.remove(stalest);
+            healthy.add(0, stalest);
+        }
+        healthy.addAll(down);
+        healthy.get(0).select(now);
+        return healthy;
+    }
+
+    private void markDown(Endpoint endpoint, String reason) {
+        endpoint.markDown(System.nanoTime() + cooldownNanos);
+        metrics.set(CastleMetrics.ROUTING_ENDPOINT_PREFIX + endpoint.index + ".healthy", 0);
+        Castle.logger.warn("HTTP layer. Base URL {} failed ({}), routing calls to the other base URLs.", endpoint.baseUrl, reason);
+    }
+
+    private static boolean isConnectionFailure(IOException e) {
+        return e instanceof ConnectException
+                || e instanceof NoRouteToHostException
+                || e instanceof UnknownHostException
+                || (e instanceof SocketTimeoutException && "connect timed out".equals(e.getMessage()));
+    }
+
+    private static class Endpoint {
+
+        private final int index;
+        private final HttpUrl baseUrl;
+        private boolean measured;
+        private double latencyNanos;
+        private boolean down;
+        private long downUntil;
+        private long selectedAt = System.nanoTime();
+
+        private Endpoint(int index, HttpUrl baseUrl) {
+            this.index = index;
+            this.baseUrl = baseUrl;
+        }
+
+        private Request route(Request request) {
+            HttpUrl url = request.url().newBuilder()
+                    .scheme(baseUrl.scheme())
+                    .host(baseUrl.host())
+                    .port(baseUrl.port())
+                    .build();
+            return request.newBuilder().url(url).build();
+        }
+
+        private synchronized void recordLatency(long nanos) {
+            latencyNanos = measured ? latencyNanos + EWMA_WEIGHT * (nanos - latencyNanos) : nanos;
+            measured = true;
+            down = false;
+        }
+
+        private synchronized long latencyNanos() {
+            return (long) latencyNanos;
+        }
+
+        private synchronized void markDown(long until) {
+            down = true;
+            downUntil = until;
+        }
+
+        private synchronized boolean isHealthy(long now) {
+            return !down || now - downUntil >= 0;
+        }
+
+        private synchronized long downUntil() {
+            return downUntil;
+        }
+
+        private synchronized void select(long now) {
+            selectedAt = now;
+        }
+
+        private synchronized long selectedAt() {
+            return selectedAt;
+        }
+    }
+}
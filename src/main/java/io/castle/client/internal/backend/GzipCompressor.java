@@ -0,0 +1,67 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CompressionConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Gzip compresses serialized request bodies of at least {@link CompressionConfiguration#getMinSizeBytes()} bytes.
+ * <p>
+ * The bytes saved and the CPU time spent compressing are reported to {@link CastleMetrics}.
+ */
+class GzipCompressor {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final long minSizeBytes;
+    private final CastleMetrics metrics;
+
+    GzipCompressor(CompressionConfiguration configuration, CastleMetrics metrics) {
+        this.minSizeBytes = configuration.getMinSizeBytes();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Compresses a body, leaving the uncompressed buffer untouched.
+     *
+     * @param uncompressed serialized body
+     * @return the gzip compressed body, or null when the body is below the minimum size or gzip does not make it
+     * smaller
+     * @throws IOException when compression fails
+     */
+    Buffer compress(Buffer uncompressed) throws IOException {
+        long uncompressedSize = uncompressed.size();
+        if (uncompressedSize < minSizeBytes) {
+            return null;
+        }
+        long startCpu = currentCpuTime();
+        Buffer compressed = new Buffer();
+        BufferedSink gzip = Okio.buffer(new GzipSink(compressed));
+        gzip.writeAll(uncompressed.clone());
+        gzip.close();
+        metrics.add(CastleMetrics.COMPRESSION_CPU_NANOS, currentCpuTime() - startCpu);
+
+        long compressedSize = compressed.size();
+        if (compressedSize >= uncompressedSize) {
+            metrics.increment(CastleMetrics.COMPRESSION_SKIPPED);
+            return null;
+        }
+        metrics.increment(CastleMetrics.COMPRESSION_REQUESTS);
+        metrics.add(CastleMetrics.COMPRESSION_BYTES_SAVED, uncompressedSize - compressedSize);
+        return compressed;
+    }
+
+    private static long currentCpuTime() {
+        if (THREADS.isCurrentThreadCpuTimeSupported()) {
+            return THREADS.getCurrentThreadCpuTime();
+        }
+        return System.nanoTime();
+    }
+}
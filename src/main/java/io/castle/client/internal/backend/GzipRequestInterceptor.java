@@ -0,0 +1,46 @@
+package io.castle.client.internal.backend;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+
+import java.io.IOException;
+
+/**
+ * Sends request bodies gzip compressed when {@link GzipCompressor} finds it worthwhile.
+ * <p>
+ * The body is first serialized into a buffer to learn its size.
+ * Bodies that are not compressed are sent from that buffer, so both paths send a known {@code Content-Length}
+ * instead of a chunked body.
+ */
+class GzipRequestInterceptor implements Interceptor {
+
+    private final GzipCompressor compressor;
+
+    GzipRequestInterceptor(GzipCompressor compressor) {
+        this.compressor = compressor;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        RequestBody body = request.body();
+        if (body == null || request.header("Content-Encoding") != null) {
+            return chain.proceed(request);
+        }
+        Buffer uncompressed = new Buffer();
+        body.writeTo(uncompressed);
+        Buffer compressed = compressor.compress(uncompressed);
+        if (compressed == null) {
+            return chain.proceed(request.newBuilder()
+                    .method(request.method(), RequestBody.create(body.contentType(), uncompressed.readByteString()))
+                    .build());
+        }
+        return chain.proceed(request.newBuilder()
+                .header("Content-Encoding", "gzip")
+                .method(request.method(), RequestBody.create(body.contentType(), compressed.readByteString()))
+                .build());
+    }
+}
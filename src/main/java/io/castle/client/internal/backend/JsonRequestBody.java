@@ -0,0 +1,68 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonElement;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastlePayload;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Request bodies of the JSON content of the calls.
+ * <p>
+ * The content is serialized before the call is handed to the backend, so its length is known and bodies are not sent
+ * with chunked transfer encoding. Writing a body again, for example when OkHttp retries a request, does not serialize
+ * it again.
+ */
+final class JsonRequestBody {
+
+    static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private JsonRequestBody() {
+    }
+
+    static RequestBody of(CastlePayload payload) {
+        return RequestBody.create(JSON, payload.getJson());
+    }
+
+    /**
+     * Creates the body of a batch, writing the serialized payloads one after the other in a JSON array.
+     */
+    static RequestBody of(final List<CastlePayload> payloads) {
+        long length = 2 + Math.max(0, payloads.size() - 1);
+        for (CastlePayload payload : payloads) {
+            length += payload.getJson().size();
+        }
+        final long contentLength = length;
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public long contentLength() {
+                return contentLength;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                sink.writeByte('[');
+                for (int i = 0; i < payloads.size(); i++) {
+                    if (i > 0) {
+                        sink.writeByte(',');
+                    }
+                    sink.write(payloads.get(i).getJson());
+                }
+                sink.writeByte(']');
+            }
+        };
+    }
+
+    static RequestBody of(CastleGsonModel model, JsonElement json) {
+        return RequestBody.create(JSON, model.getGson().toJson(json));
+    }
+}
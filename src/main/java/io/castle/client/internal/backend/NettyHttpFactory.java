@@ -0,0 +1,58 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.CastleRuntimeException;
+import io.netty.channel.pool.ChannelPool;
+
+import javax.net.ssl.SSLException;
+
+/**
+ * Builds backends on top of a non-blocking Netty transport.
+ * <p>
+ * Authenticate, track and review calls use separate connection pools on the same event loop threads.
+ * Netty is an optional dependency, so this class is only loaded when the {@link CastleBackendProvider#NETTY}
+ * provider is selected.
+ */
+public class NettyHttpFactory implements RestApiFactory {
+
+    private final NettyHttpTransport transport;
+    private final ChannelPool authenticatePool;
+    private final ChannelPool trackPool;
+    private final ChannelPool reviewPool;
+    private final CastleGsonModel modelInstance;
+    private final CastleConfiguration configuration;
+    private final TrackBatcher trackBatcher;
+
+    public NettyHttpFactory(CastleConfiguration configuration, CastleGsonModel modelInstance, CastleMetrics metrics) {
+        this.configuration = configuration;
+        this.modelInstance = modelInstance;
+        GzipCompressor compressor = configuration.getCompression().isEnabled() ? new GzipCompressor(configuration.getCompression(), metrics) : null;
+        try {
+            transport = new NettyHttpTransport(configuration, compressor);
+        } catch (SSLException e) {
+            throw new CastleRuntimeException(e);
+        }
+        authenticatePool = transport.newPool(configuration.getAuthenticateConnectionLimits());
+        trackPool = transport.newPool(configuration.getTrackConnectionLimits());
+        reviewPool = transport.newPool(configuration.getReviewConnectionLimits());
+        if (configuration.getTrackBatching().isEnabled()) {
+            trackBatcher = new TrackBatcher(configuration.getTrackBatching(), this, metrics);
+        } else {
+            trackBatcher = null;
+        }
+    }
+
+    @Override
+    public RestApi buildBackend() {
+        return new NettyRestApiBackend(transport, authenticatePool, trackPool, reviewPool, modelInstance, configuration, trackBatcher);
+    }
+
+    @Override
+    public void close() {
+        if (trackBatcher != null) {
+            trackBatcher.close(configuration.getTimeout());
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.config.ConnectionLimits;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking HTTP/1.1 transport to the Castle API built on Netty.
+ * <p>
+ * All connections are served by a few event loop threads, using the native epoll transport when it is available and
+ * NIO otherwise.
+ * An outstanding request only costs its pending promise: it waits for a pooled connection of its endpoint group and
+ * its body is serialized into a pooled {@link ByteBuf} once a connection is assigned.
+ * Promises complete on event loop threads, so their listeners must not block.
+ */
+class NettyHttpTransport {
+
+    private static final int EVENT_LOOP_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int MAX_RESPONSE_BYTES = 1024 * 1024;
+    private static final AttributeKey<Promise<NettyResponse>> RESPONSE = AttributeKey.valueOf("castle.response");
+
+    private final EventLoopGroup group;
+    private final Bootstrap bootstrap;
+    private final SslContext sslContext;
+    private final GzipCompressor compressor;
+    private final String host;
+    private final int port;
+    private final String hostHeader;
+    private final String credential;
+    private final int timeoutMillis;
+    private final int idleTimeoutMillis;
+
+    /**
+     * @param configuration configuration with the endpoint, secret and timeouts
+     * @param compressor    compressor of request bodies, null when compression is disabled
+     * @throws SSLException when the TLS context can not be created
+     */
+    NettyHttpTransport(CastleConfiguration configuration, GzipCompressor compressor) throws SSLException {
+        HttpUrl baseUrl = HttpUrl.parse(configuration.getApiBaseUrl());
+        this.compressor = compressor;
+        this.host = baseUrl.host();
+        this.port = baseUrl.port();
+        this.hostHeader = port == HttpUrl.defaultPort(baseUrl.scheme()) ? host : host + ":" + port;
+        this.credential = Credentials.basic("", configuration.getApiSecret());
+        this.timeoutMillis = configuration.getTimeout();
+        this.idleTimeoutMillis = configuration.getConnectionWarmup().getIdleTimeoutMillis();
+        this.sslContext = baseUrl.isHttps() ? SslContextBuilder.forClient().build() : null;
+
+        ThreadFactory threadFactory = new DefaultThreadFactory("castle-netty", true);
+        Class<? extends SocketChannel> channelClass;
+        if (isEpollAvailable()) {
+            group = EpollSupport.newEventLoopGroup(EVENT_LOOP_THREADS, threadFactory);
+            channelClass = EpollSupport.channelClass();
+        } else {
+            group = new NioEventLoopGroup(EVENT_LOOP_THREADS, threadFactory);
+            channelClass = NioSocketChannel.class;
+        }
+        this.bootstrap = new Bootstrap()
+                .group(group)
+                .channel(channelClass)
+                .remoteAddress(host, port)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutMillis)
+                .option(ChannelOption.TCP_NODELAY, true);
+    }
+
+    /**
+     * Creates a pool of connections dedicated to an endpoint group.
+     *
+     * @param limits limits of the group; the maximum number of concurrent requests bounds the number of connections
+     * @return a pool whose requests wait in memory for a free connection
+     */
+    ChannelPool newPool(ConnectionLimits limits) {
+        return new FixedChannelPool(bootstrap, new AbstractChannelPoolHandler() {
+            @Override
+            public void channelCreated(Channel channel) {
+                ChannelPipeline pipeline = channel.pipeline();
+                if (sslContext != null) {
+                    pipeline.addLast(sslContext.newHandler(channel.alloc(), host, port));
+                }
+                pipeline.addLast(new IdleStateHandler(0, 0, idleTimeoutMillis, TimeUnit.MILLISECONDS));
+                pipeline.addLast(new HttpClientCodec());
+                pipeline.addLast(new HttpObjectAggregator(MAX_RESPONSE_BYTES));
+                pipeline.addLast(new ResponseHandler());
+            }
+        }, limits.getMaxConcurrentRequests());
+    }
+
+    /**
+     * Sends a request on a connection of the pool.
+     *
+     * @param pool   pool of the endpoint group
+     * @param method HTTP method
+     * @param url    URL of the request
+     * @param body   body of the request, null when there is none
+     * @return a future completed with the response, or failed when the request does not complete within the timeout
+     */
+    Future<NettyResponse> execute(ChannelPool pool, HttpMethod method, HttpUrl url, RequestBody body) {
+        return execute(pool, method, url, body, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    /**
+     * Sends a request on a connection of the pool, failing it at a deadline or after the timeout, whichever comes
+     * first.
+     *
+     * @param pool          pool of the endpoint group
+     * @param method        HTTP method
+     * @param url           URL of the request
+     * @param body          body of the request, null when there is none
+     * @param deadlineNanos value of {@link System#nanoTime()} at which the request fails
+     * @return a future completed with the response, or failed when the request does not complete in time
+     */
+    Future<NettyResponse> execute(final ChannelPool pool, final HttpMethod method, final HttpUrl url, final RequestBody body, long deadlineNanos) {
+        long delayNanos = Math.min(deadlineNanos - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        EventLoop loop = group.next();
+        final Promise<NettyResponse> promise = loop.newPromise();
+        final ScheduledFuture<?> timeout = loop.schedule(new Runnable() {
+            @Override
+            public void run() {
+                promise.tryFailure(new SocketTimeoutException("timeout"));
+            }
+        }, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+        promise.addListener(new FutureListener<NettyResponse>() {
+            @Override
+            public void operationComplete(Future<NettyResponse> future) {
+                timeout.cancel(false);
+            }
+        });
+        pool.acquire().addListener(new FutureListener<Channel>() {
+            @Override
+            public void operationComplete(Future<Channel> acquired) {
+                if (!acquired.isSuccess()) {
+                    promise.tryFailure(acquired.cause());
+                    return;
+                }
+                Channel channel = acquired.getNow();
+                if (promise.isDone()) {
+                    pool.release(channel);
+                    return;
+                }
+                send(pool, channel, method, url, body, promise);
+            }
+        });
+        return promise;
+    }
+
+    private void send(final ChannelPool pool, final Channel channel, HttpMethod method, HttpUrl url, RequestBody body, final Promise<NettyResponse> promise) {
+        FullHttpRequest request;
+        try {
+            request = newRequest(channel.alloc(), method, url, body);
+        } catch (IOException e) {
+            pool.release(channel);
+            promise.tryFailure(e);
+            return;
+        }
+        channel.attr(RESPONSE).set(promise);
+        promise.addListener(new FutureListener<NettyResponse>() {
+            @Override
+            public void operationComplete(Future<NettyResponse> future) {
+                channel.attr(RESPONSE).set(null);
+                if (!future.isSuccess() || !future.getNow().isKeepAlive()) {
+                    channel.close();
+                }
+                pool.release(channel);
+            }
+        });
+        channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture written) {
+                if (!written.isSuccess()) {
+                    promise.tryFailure(written.cause());
+                }
+            }
+        });
+    }
+
+    private FullHttpRequest newRequest(ByteBufAllocator allocator, HttpMethod method, HttpUrl url, RequestBody body) throws IOException {
+        ByteBuf content = Unpooled.EMPTY_BUFFER;
+        boolean compressed = false;
+        if (body != null) {
+            content = allocator.buffer();
+            try {
+                compressed = writeBody(body, content);
+            } catch (IOException e) {
+                content.release();
+                throw e;
+            }
+        }
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, url.encodedPath(), content);
+        request.headers()
+                .set(HttpHeaderNames.HOST, hostHeader)
+                .set(HttpHeaderNames.AUTHORIZATION, credential)
+                .set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        if (body != null) {
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, String.valueOf(body.contentType()));
+        }
+        if (compressed) {
+            request.headers().set(HttpHeaderNames.CONTENT_ENCODING, "gzip");
+        }
+        return request;
+    }
+
+    /**
+     * Serializes a body into a pooled buffer, going through an intermediate buffer only when it may be compressed.
+     *
+     * @return true if the written body is gzip compressed
+     */
+    private boolean writeBody(RequestBody body, ByteBuf content) throws IOException {
+        ByteBufOutputStream output = new ByteBufOutputStream(content);
+        if (compressor == null) {
+            BufferedSink sink = Okio.buffer(Okio.sink(output));
+            body.writeTo(sink);
+            sink.flush();
+            return false;
+        }
+        Buffer uncompressed = new Buffer();
+        body.writeTo(uncompressed);
+        Buffer compressed = compressor.compress(uncompressed);
+        Buffer written = compressed != null ? compressed : uncompressed;
+        written.writeTo(output);
+        return compressed != null;
+    }
+
+    private static boolean isEpollAvailable() {
+        try {
+            Class.forName("io.netty.channel.epoll.Epoll");
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+        return EpollSupport.isAvailable();
+    }
+
+    /**
+     * Response of the Castle API, with its body already decoded.
+     */
+    static class NettyResponse {
+        private final int code;
+        private final String reason;
+        private final String body;
+        private final boolean keepAlive;
+
+        NettyResponse(int code, String reason, String body, boolean keepAlive) {
+            this.code = code;
+            this.reason = reason;
+            this.body = body;
+            this.keepAlive = keepAlive;
+        }
+
+        int getCode() {
+            return code;
+        }
+
+        String getReason() {
+            return reason;
+        }
+
+        String getBody() {
+            return body;
+        }
+
+        boolean isSuccessful() {
+            return code >= 200 && code < 300;
+        }
+
+        boolean isKeepAlive() {
+            return keepAlive;
+        }
+    }
+
+    /**
+     * Completes the promise of the request in flight on a connection.
+     */
+    private static class ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+            Promise<NettyResponse> promise = ctx.channel().attr(RESPONSE).getAndSet(null);
+            if (promise != null) {
+                promise.trySuccess(new NettyResponse(response.status().code(), response.status().reasonPhrase(),
+                        response.content().toString(StandardCharsets.UTF_8), HttpUtil.isKeepAlive(response)));
+            }
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object event) throws Exception {
+            if (event instanceof IdleStateEvent) {
+                ctx.close();
+            } else {
+                super.userEventTriggered(ctx, event);
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            fail(ctx, new ClosedChannelException());
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            fail(ctx, cause);
+            ctx.close();
+        }
+
+        private void fail(ChannelHandlerContext ctx, Throwable cause) {
+            Promise<NettyResponse> promise = ctx.channel().attr(RESPONSE).getAndSet(null);
+            if (promise != null) {
+                promise.tryFailure(cause);
+            }
+        }
+    }
+
+    /**
+     * Keeps the references to the optional native epoll transport out of the classes loaded when it is missing.
+     */
+    private static class EpollSupport {
+
+        static boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        static EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        static Class<? extends SocketChannel> channelClass() {
+            return EpollSocketChannel.class;
+        }
+    }
+}
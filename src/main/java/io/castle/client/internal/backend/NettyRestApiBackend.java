@@ -0,0 +1,227 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.Castle;
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastlePayload;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleRuntimeException;
+import io.castle.client.model.Review;
+import io.castle.client.model.Verdict;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import okhttp3.HttpUrl;
+import okhttp3.RequestBody;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link RestApi} implementation on top of {@link NettyHttpTransport}.
+ * <p>
+ * Async calls do not hold any thread while in flight.
+ * Their callback handlers are invoked on the Netty event loop threads, so they must return quickly and not block.
+ * Responses are interpreted by {@link ApiResponses}, so verdicts, failover and errors are the same for all backends.
+ */
+class NettyRestApiBackend implements RestApi {
+
+    private final NettyHttpTransport transport;
+    private final ChannelPool authenticatePool;
+    private final ChannelPool trackPool;
+    private final ChannelPool reviewPool;
+    private final CastleGsonModel model;
+    private final CastleConfiguration configuration;
+    private final TrackBatcher trackBatcher;
+    private final ApiResponses responses;
+
+    private final HttpUrl track;
+    private final HttpUrl authenticate;
+    private final HttpUrl identify;
+    private final HttpUrl reviewsBase;
+
+    NettyRestApiBackend(NettyHttpTransport transport, ChannelPool authenticatePool, ChannelPool trackPool, ChannelPool reviewPool, CastleGsonModel model, CastleConfiguration configuration, TrackBatcher trackBatcher) {
+        HttpUrl baseUrl = HttpUrl.parse(configuration.getApiBaseUrl());
+        this.transport = transport;
+        this.authenticatePool = authenticatePool;
+        this.trackPool = trackPool;
+        this.reviewPool = reviewPool;
+        this.model = model;
+        this.configuration = configuration;
+        this.trackBatcher = trackBatcher;
+        this.responses = new ApiResponses(model, configuration);
+        this.track = baseUrl.resolve("/v1/track");
+        this.authenticate = baseUrl.resolve("/v1/authenticate");
+        this.reviewsBase = baseUrl.resolve("/v1/reviews/");
+        this.identify = baseUrl.resolve("/v1/identify");
+    }
+
+    @Override
+    public void sendTrackRequest(CastlePayload payload, AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        if (trackBatcher != null) {
+            trackBatcher.enqueue(payload, asyncCallbackHandler);
+            return;
+        }
+        sendTrack(JsonRequestBody.of(payload), "HTTP layer. Error sending track request.", asyncCallbackHandler);
+    }
+
+    @Override
+    public void sendTrackBatch(List<CastlePayload> payloads, AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        sendTrack(JsonRequestBody.of(payloads), "HTTP layer. Error sending track batch request.", asyncCallbackHandler);
+    }
+
+    private void sendTrack(RequestBody body, final String errorMessage, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        transport.execute(trackPool, HttpMethod.POST, track, body).addListener(new FutureListener<NettyHttpTransport.NettyResponse>() {
+            @Override
+            public void operationComplete(Future<NettyHttpTransport.NettyResponse> future) {
+                if (!future.isSuccess()) {
+                    Castle.logger.error(errorMessage, future.cause());
+                    if (asyncCallbackHandler != null) {
+                        asyncCallbackHandler.onException(asException(future.cause()));
+                    }
+                } else if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onResponse(future.getNow().isSuccessful());
+                }
+            }
+        });
+    }
+
+    @Override
+    public Verdict sendAuthenticateSync(CastlePayload payload) {
+        return sendAuthenticateSync(payload, transport.execute(authenticatePool, HttpMethod.POST, authenticate, JsonRequestBody.of(payload)));
+    }
+
+    @Override
+    public Verdict sendAuthenticateSync(CastlePayload payload, long deadlineNanos) {
+        return sendAuthenticateSync(payload, transport.execute(authenticatePool, HttpMethod.POST, authenticate, JsonRequestBody.of(payload), deadlineNanos));
+    }
+
+    private Verdict sendAuthenticateSync(CastlePayload payload, Future<NettyHttpTransport.NettyResponse> call) {
+        String userId = getUserIdFromPayload(payload);
+        Future<NettyHttpTransport.NettyResponse> future = call.awaitUninterruptibly();
+        if (!future.isSuccess()) {
+            Castle.logger.error("HTTP layer. Error sending request.", future.cause());
+            if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
+                throw new CastleRuntimeException(future.cause());
+            }
+            return responses.failover(future.cause().getMessage(), userId);
+        }
+        NettyHttpTransport.NettyResponse response = future.getNow();
+        return responses.extractVerdict(response.getCode(), response.getReason(), response.getBody(), userId);
+    }
+
+    @Override
+    public void sendAuthenticateAsync(CastlePayload payload, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        sendAuthenticateAsync(payload, transport.execute(authenticatePool, HttpMethod.POST, authenticate, JsonRequestBody.of(payload)), asyncCallbackHandler);
+    }
+
+    @Override
+    public void sendAuthenticateAsync(CastlePayload payload, long deadlineNanos, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        sendAuthenticateAsync(payload, transport.execute(authenticatePool, HttpMethod.POST, authenticate, JsonRequestBody.of(payload), deadlineNanos), asyncCallbackHandler);
+    }
+
+    private void sendAuthenticateAsync(CastlePayload payload, Future<NettyHttpTransport.NettyResponse> call, final AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        final String userId = getUserIdFromPayload(payload);
+        call.addListener(new FutureListener<NettyHttpTransport.NettyResponse>() {
+            @Override
+            public void operationComplete(Future<NettyHttpTransport.NettyResponse> future) {
+                if (!future.isSuccess()) {
+                    if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
+                        asyncCallbackHandler.onException(new CastleRuntimeException(future.cause()));
+                    } else {
+                        asyncCallbackHandler.onResponse(responses.failover(future.cause().getMessage(), userId));
+                    }
+                    return;
+                }
+                NettyHttpTransport.NettyResponse response = future.getNow();
+                Verdict verdict;
+                try {
+                    verdict = responses.extractVerdict(response.getCode(), response.getReason(), response.getBody(), userId);
+                } catch (RuntimeException e) {
+                    asyncCallbackHandler.onException(e);
+                    return;
+                }
+                asyncCallbackHandler.onResponse(verdict);
+            }
+        });
+    }
+
+    private String getUserIdFromPayload(CastlePayload payload) {
+        final String userId = payload.getUserId();
+        if (userId == null) {
+            Castle.logger.warn("Authenticate called with user_id null. Is this correct?");
+        }
+        return userId;
+    }
+
+    @Override
+    public void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        JsonObject json = new JsonObject();
+        json.add("user_id", new JsonPrimitive(userId));
+        contextJson.add("active", new JsonPrimitive(active));
+        json.add("context", contextJson);
+        if (traitsJson != null) {
+            json.add("traits", traitsJson);
+        }
+        transport.execute(trackPool, HttpMethod.POST, identify, JsonRequestBody.of(model, json)).addListener(new FutureListener<NettyHttpTransport.NettyResponse>() {
+            @Override
+            public void operationComplete(Future<NettyHttpTransport.NettyResponse> future) {
+                if (!future.isSuccess()) {
+                    Castle.logger.error("HTTP layer. Error sending request.", future.cause());
+                    if (asyncCallbackHandler != null) {
+                        asyncCallbackHandler.onException(asException(future.cause()));
+                    }
+                } else {
+                    Castle.logger.debug("Identify request successful");
+                    if (asyncCallbackHandler != null) {
+                        asyncCallbackHandler.onResponse(future.getNow().isSuccessful());
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public Review sendReviewRequestSync(String reviewId) {
+        Future<NettyHttpTransport.NettyResponse> future = transport
+                .execute(reviewPool, HttpMethod.GET, reviewsBase.resolve(reviewId), null)
+                .awaitUninterruptibly();
+        if (!future.isSuccess()) {
+            throw new CastleRuntimeException(future.cause());
+        }
+        try {
+            return responses.extractReview(future.getNow().getCode(), future.getNow().getBody());
+        } catch (IOException e) {
+            throw new CastleRuntimeException(e);
+        }
+    }
+
+    @Override
+    public void sendReviewRequestAsync(String reviewId, final AsyncCallbackHandler<Review> callbackHandler) {
+        transport.execute(reviewPool, HttpMethod.GET, reviewsBase.resolve(reviewId), null).addListener(new FutureListener<NettyHttpTransport.NettyResponse>() {
+            @Override
+            public void operationComplete(Future<NettyHttpTransport.NettyResponse> future) {
+                if (!future.isSuccess()) {
+                    callbackHandler.onException(asException(future.cause()));
+                    return;
+                }
+                Review review;
+                try {
+                    review = responses.extractReview(future.getNow().getCode(), future.getNow().getBody());
+                } catch (IOException | RuntimeException e) {
+                    callbackHandler.onException(e);
+                    return;
+                }
+                callbackHandler.onResponse(review);
+            }
+        });
+    }
+
+    private static Exception asException(Throwable cause) {
+        return cause instanceof Exception ? (Exception) cause : new CastleRuntimeException(cause);
+    }
+}
@@ -1,28 +1,122 @@
 package io.castle.client.internal.backend;
 
 import com.google.common.collect.ImmutableList;
+import io.castle.client.Castle;
 import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.config.ConnectionLimits;
+import io.castle.client.internal.config.ConnectionWarmupConfiguration;
+import io.castle.client.internal.config.RateLimitConfiguration;
+import io.castle.client.internal.config.SpillJournalConfiguration;
 import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.internal.utils.TokenBucket;
+import io.castle.client.internal.utils.VirtualThreads;
+import io.castle.client.model.CastleRuntimeException;
 import okhttp3.*;
 import okhttp3.logging.HttpLoggingInterceptor;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class OkHttpFactory implements RestApiFactory {
 
-    private final OkHttpClient client;
+    private final OkHttpClient authenticateClient;
+    private final OkHttpClient trackClient;
+    private final OkHttpClient reviewClient;
     private final CastleGsonModel modelInstance;
     private final CastleConfiguration configuration;
+    private final TrackBatcher trackBatcher;
+    private final RequestHedger authenticateHedger;
+    private final RequestRetrier trackRetrier;
+    private final SpillJournal spillJournal;
+    private final SpillDrainer spillDrainer;
+    private final TrackAdmissionController trackAdmission;
+    private final ExecutorService virtualThreadExecutor;
+    private final ConnectionWarmer connectionWarmer;
+    private final CachingDns cachingDns;
 
     public OkHttpFactory(CastleConfiguration configuration, CastleGsonModel modelInstance) {
+        this(configuration, modelInstance, new CastleMetrics());
+    }
+
+    public OkHttpFactory(CastleConfiguration configuration, CastleGsonModel modelInstance, CastleMetrics metrics) {
         this.configuration = configuration;
         this.modelInstance = modelInstance;
-        client = createOkHttpClient();
+        virtualThreadExecutor = configuration.isVirtualThreads()
+                ? VirtualThreads.newThreadPerTaskExecutor("castle-okhttp-virtual-") : null;
+        cachingDns = configuration.getDnsCache().isEnabled() ? new CachingDns(configuration.getDnsCache(), metrics) : null;
+        OkHttpClient client = createOkHttpClient(metrics);
+        RateLimitConfiguration rateLimit = configuration.getRateLimit();
+        authenticateClient = withDedicatedResources(client, "authenticate", configuration.getAuthenticateConnectionLimits(),
+                configuration.getAuthenticateCallTimeoutMillis(),
+                new TokenBucket(rateLimit.getAuthenticateRatePerSecond(), rateLimit.getAuthenticateBurst()),
+                metrics, CastleMetrics.HTTP_TIMEOUT_AUTHENTICATE);
+        trackClient = withDedicatedResources(client, "track", configuration.getTrackConnectionLimits(),
+                configuration.getTrackCallTimeoutMillis(),
+                new TokenBucket(rateLimit.getTrackRatePerSecond(), rateLimit.getTrackBurst()),
+                metrics, CastleMetrics.HTTP_TIMEOUT_TRACK);
+        reviewClient = withDedicatedResources(client, "review", configuration.getReviewConnectionLimits(),
+                configuration.getReviewCallTimeoutMillis(), new TokenBucket(0, 1), metrics,
+                CastleMetrics.HTTP_TIMEOUT_REVIEW);
+        ConnectionWarmupConfiguration warmup = configuration.getConnectionWarmup();
+        if (warmup.isEnabled()) {
+            // Pings share the connections and the dispatcher of the authenticate group, but not its interceptors, so
+            // they use no rate limit permits and are not recorded by the circuit breaker or the adaptive timeout.
+            OkHttpClient warmupClient = client.newBuilder()
+                    .dispatcher(authenticateClient.dispatcher())
+                    .connectionPool(authenticateClient.connectionPool())
+                    .build();
+            connectionWarmer = new ConnectionWarmer(warmupClient, HttpUrl.parse(configuration.getApiBaseUrl()),
+                    warmup.getConnections(), metrics);
+            connectionWarmer.warm(configuration.getTimeout());
+            if (warmup.getKeepAliveIntervalMillis() > 0) {
+                connectionWarmer.scheduleKeepAlive(warmup.getKeepAliveIntervalMillis());
+            }
+        } else {
+            connectionWarmer = null;
+        }
+        if (configuration.getAuthenticateHedging().isEnabled()) {
+            authenticateHedger = new RequestHedger(configuration.getAuthenticateHedging(), metrics);
+        } else {
+            authenticateHedger = null;
+        }
+        if (configuration.getTrackRetry().isEnabled()) {
+            trackRetrier = new RequestRetrier(configuration.getTrackRetry(), metrics);
+        } else {
+            trackRetrier = null;
+        }
+        SpillJournalConfiguration spill = configuration.getSpillJournal();
+        if (spill.isEnabled()) {
+            try {
+                spillJournal = new SpillJournal(new File(spill.getDirectory()), spill.getSegmentSizeBytes(),
+                        spill.getMaxDiskBytes(), metrics);
+            } catch (IOException e) {
+                throw new CastleRuntimeException(e);
+            }
+            spillDrainer = new SpillDrainer(spillJournal, trackClient, HttpUrl.parse(configuration.getApiBaseUrl()),
+                    spill.getDrainRatePerSecond(), metrics);
+            spillDrainer.start();
+        } else {
+            spillJournal = null;
+            spillDrainer = null;
+        }
+        if (configuration.getTrackShedding().isEnabled()) {
+            trackAdmission = new TrackAdmissionController(configuration.getTrackShedding(), metrics);
+        } else {
+            trackAdmission = null;
+        }
+        if (configuration.getTrackBatching().isEnabled()) {
+            trackBatcher = new TrackBatcher(configuration.getTrackBatching(), this, metrics, spillJournal);
+        } else {
+            trackBatcher = null;
+        }
     }
 
-    private OkHttpClient createOkHttpClient() {
+    private OkHttpClient createOkHttpClient(CastleMetrics metrics) {
         final String credential = Credentials.basic("", configuration.getApiSecret());
 
         OkHttpClient.Builder builder = new OkHttpClient()
@@ -37,6 +131,14 @@ public class OkHttpFactory implements RestApiFactory {
             builder = builder.addInterceptor(logging);
         }
 
+        if (cachingDns != null) {
+            builder = builder.dns(cachingDns);
+        }
+
+        if (configuration.getEndpointRouting().getApiBaseUrls().size() > 1) {
+            builder = builder.addInterceptor(new EndpointRouter(configuration.getEndpointRouting(), metrics));
+        }
+
         ConnectionSpec sslSpec = new ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS)
                 .tlsVersions(TlsVersion.TLS_1_1, TlsVersion.TLS_1_2, TlsVersion.TLS_1_3)
                 .build();
@@ -55,13 +157,108 @@ public class OkHttpFactory implements RestApiFactory {
                     }
                 })
                 .connectionSpecs(ImmutableList.of(sslSpec, cleartextSpec))
+                .protocols(protocols(configuration.getHttpProtocol(), configuration.isVirtualThreads()))
+                .eventListener(new ConnectionMetricsListener(metrics))
                 .build();
+        if (configuration.getCompression().isEnabled()) {
+            client = client.newBuilder()
+                    .addInterceptor(new GzipRequestInterceptor(new GzipCompressor(configuration.getCompression(), metrics)))
+                    .build();
+        }
 
         return client;
     }
 
+    /**
+     * Lists the protocols of the client.
+     * <p>
+     * The HTTP/2 streams of OkHttp wait for responses in {@code Object.wait()}, which pins virtual threads to their
+     * carrier thread, so HTTP/2 is only negotiated when running on platform threads.
+     */
+    private static List<Protocol> protocols(CastleHttpProtocol httpProtocol, boolean virtualThreads) {
+        if (virtualThreads && httpProtocol == CastleHttpProtocol.HTTP_2) {
+            return Collections.singletonList(Protocol.HTTP_1_1);
+        }
+        switch (httpProtocol) {
+            case HTTP_1_1:
+                return Collections.singletonList(Protocol.HTTP_1_1);
+            case H2_PRIOR_KNOWLEDGE:
+                return Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE);
+            default:
+                return ImmutableList.of(Protocol.HTTP_2, Protocol.HTTP_1_1);
+        }
+    }
+
+    /**
+     * Derives a client sharing the settings of the base client but with its own dispatcher and connection pool.
+     * <p>
+     * When enabled, the new client also has its own rate limit and circuit breaker, and derives its timeouts from the
+     * latency of its own calls.
+     *
+     * @param client       base client with the shared settings
+     * @param endpoint     name of the endpoint group, reported by the rate limit and the circuit breaker
+     * @param limits       limits of the resources dedicated to the new client
+     * @param callTimeout  milliseconds after which a whole call of the new client fails, zero for no limit
+     * @param rateLimit    bucket limiting the rate of calls of the new client when rate limiting is enabled
+     * @param metrics      registry of the effective timeout gauge
+     * @param timeoutGauge name of the gauge reporting the effective timeout of the new client
+     * @return a client whose calls do not compete for threads or connections with other endpoint groups
+     */
+    private OkHttpClient withDedicatedResources(OkHttpClient client, String endpoint, ConnectionLimits limits, int callTimeout, TokenBucket rateLimit, CastleMetrics metrics, String timeoutGauge) {
+        Dispatcher dispatcher = virtualThreadExecutor != null ? new Dispatcher(virtualThreadExecutor) : new Dispatcher();
+        dispatcher.setMaxRequests(limits.getMaxConcurrentRequests());
+        dispatcher.setMaxRequestsPerHost(limits.getMaxConcurrentRequests());
+        OkHttpClient.Builder builder = client.newBuilder()
+                .dispatcher(dispatcher)
+                .callTimeout(callTimeout, TimeUnit.MILLISECONDS)
+                .connectionPool(new ConnectionPool(limits.getMaxIdleConnections(),
+                        configuration.getConnectionWarmup().getIdleTimeoutMillis(), TimeUnit.MILLISECONDS));
+        if (configuration.getRateLimit().isEnabled()) {
+            builder.addInterceptor(new RateLimitInterceptor(endpoint, rateLimit,
+                    configuration.getRateLimit().getMaxPauseMillis(), metrics));
+        }
+        if (configuration.getCircuitBreaker().isEnabled()) {
+            builder.addInterceptor(new CircuitBreakerInterceptor(
+                    new CircuitBreaker(endpoint, configuration.getCircuitBreaker(), metrics)));
+        }
+        if (configuration.getAdaptiveTimeout().isEnabled()) {
+            AdaptiveTimeoutInterceptor adaptiveTimeout = new AdaptiveTimeoutInterceptor(configuration.getAdaptiveTimeout(),
+                    configuration.getTimeout(), metrics, timeoutGauge);
+            builder.addInterceptor(adaptiveTimeout)
+                    .eventListenerFactory(adaptiveTimeout.callTimeout(client.eventListenerFactory(), callTimeout));
+        }
+        return builder.build();
+    }
+
     @Override
     public RestApi buildBackend() {
-        return new OkRestApiBackend(client, modelInstance, configuration);
+        return new OkRestApiBackend(authenticateClient, trackClient, reviewClient, modelInstance, configuration, trackBatcher, authenticateHedger, trackRetrier, spillJournal, trackAdmission);
+    }
+
+    @Override
+    public void close() {
+        if (trackBatcher != null) {
+            trackBatcher.close(configuration.getTimeout());
+        }
+        if (connectionWarmer != null) {
+            connectionWarmer.close();
+        }
+        if (authenticateHedger != null) {
+            authenticateHedger.close();
+        }
+        if (trackRetrier != null) {
+            trackRetrier.close();
+        }
+        if (cachingDns != null) {
+            cachingDns.close();
+        }
+        if (spillJournal != null) {
+            spillDrainer.stop(configuration.getTimeout());
+            try {
+                spillJournal.close();
+            } catch (IOException e) {
+                Castle.logger.error("Spill journal could not be closed.", e);
+            }
+        }
     }
 }
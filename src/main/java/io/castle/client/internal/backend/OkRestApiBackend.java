@@ -4,22 +4,31 @@ import com.google.gson.*;
 import io.castle.client.Castle;
 import io.castle.client.internal.config.CastleConfiguration;
 import io.castle.client.internal.json.CastleGsonModel;
-import io.castle.client.internal.utils.VerdictBuilder;
-import io.castle.client.internal.utils.VerdictTransportModel;
+import io.castle.client.internal.json.CastlePayload;
 import io.castle.client.model.AsyncCallbackHandler;
 import io.castle.client.model.CastleRuntimeException;
 import io.castle.client.model.Review;
 import io.castle.client.model.Verdict;
 import okhttp3.*;
+import okio.Buffer;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
 
 public class OkRestApiBackend implements RestApi {
 
-    private final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
-    private final OkHttpClient client;
+    private final OkHttpClient authenticateClient;
+    private final OkHttpClient trackClient;
+    private final OkHttpClient reviewClient;
     private final CastleGsonModel model;
     private final CastleConfiguration configuration;
+    private final TrackBatcher trackBatcher;
+    private final RequestHedger authenticateHedger;
+    private final RequestRetrier trackRetrier;
+    private final SpillJournal spillJournal;
+    private final TrackAdmissionController trackAdmission;
+    private final ApiResponses responses;
 
     private final HttpUrl track;
     private final HttpUrl authenticate;
@@ -27,10 +36,22 @@ public class OkRestApiBackend implements RestApi {
     private final HttpUrl reviewsBase;
 
     public OkRestApiBackend(OkHttpClient client, CastleGsonModel model, CastleConfiguration configuration) {
+        this(client, client, client, model, configuration, null, null, null, null, null);
+    }
+
+    OkRestApiBackend(OkHttpClient authenticateClient, OkHttpClient trackClient, OkHttpClient reviewClient, CastleGsonModel model, CastleConfiguration configuration, TrackBatcher trackBatcher, RequestHedger authenticateHedger, RequestRetrier trackRetrier, SpillJournal spillJournal, TrackAdmissionController trackAdmission) {
         HttpUrl baseUrl = HttpUrl.parse(configuration.getApiBaseUrl());
-        this.client = client;
+        this.authenticateClient = authenticateClient;
+        this.trackClient = trackClient;
+        this.reviewClient = reviewClient;
         this.model = model;
         this.configuration = configuration;
+        this.trackBatcher = trackBatcher;
+        this.authenticateHedger = authenticateHedger;
+        this.trackRetrier = trackRetrier;
+        this.spillJournal = spillJournal;
+        this.trackAdmission = trackAdmission;
+        this.responses = new ApiResponses(model, configuration);
         this.track = baseUrl.resolve("/v1/track");
         this.authenticate = baseUrl.resolve("/v1/authenticate");
         this.reviewsBase = baseUrl.resolve("/v1/reviews/");
@@ -38,13 +59,24 @@ public class OkRestApiBackend implements RestApi {
     }
 
     @Override
-    public void sendTrackRequest(JsonElement payload, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
-        RequestBody body = buildRequestBody(payload);
+    public void sendTrackRequest(CastlePayload payload, AsyncCallbackHandler<Boolean> handler) {
+        if (trackAdmission != null) {
+            handler = trackAdmission.admit(payload.getMessage().getEvent(), handler);
+            if (handler == null) {
+                return;
+            }
+        }
+        final AsyncCallbackHandler<Boolean> asyncCallbackHandler = handler;
+        if (trackBatcher != null) {
+            trackBatcher.enqueue(payload, asyncCallbackHandler);
+            return;
+        }
+        RequestBody body = JsonRequestBody.of(payload);
         Request request = new Request.Builder()
                 .url(track)
                 .post(body)
                 .build();
-        client.newCall(request).enqueue(new Callback() {
+        enqueueTrackCall(request, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 Castle.logger.error("HTTP layer. Error sending track request.", e);
@@ -55,6 +87,33 @@ public class OkRestApiBackend implements RestApi {
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
+                response.close();
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onResponse(response.isSuccessful());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void sendTrackBatch(List<CastlePayload> payloads, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        RequestBody body = JsonRequestBody.of(payloads);
+        Request request = new Request.Builder()
+                .url(track)
+                .post(body)
+                .build();
+        enqueueTrackCall(request, new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Castle.logger.error("HTTP layer. Error sending track batch request.", e);
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onException(e);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                response.close();
                 if (asyncCallbackHandler != null) {
                     asyncCallbackHandler.onResponse(response.isSuccessful());
                 }
@@ -63,107 +122,137 @@ public class OkRestApiBackend implements RestApi {
     }
 
     @Override
-    public Verdict sendAuthenticateSync(JsonElement payloadJson) {
-        final String userId = getUserIdFromPayload(payloadJson);
+    public Verdict sendAuthenticateSync(CastlePayload payload) {
+        return sendAuthenticateSync(payload, null);
+    }
+
+    @Override
+    public Verdict sendAuthenticateSync(CastlePayload payload, long deadlineNanos) {
+        return sendAuthenticateSync(payload, new CallDeadline(deadlineNanos));
+    }
 
-        RequestBody body = buildRequestBody(payloadJson);
+    private Verdict sendAuthenticateSync(CastlePayload payload, CallDeadline deadline) {
+        final String userId = getUserIdFromPayload(payload);
+
+        RequestBody body = JsonRequestBody.of(payload);
         Request request = new Request.Builder()
                 .url(authenticate)
                 .post(body)
                 .build();
         try {
-            Response response = client.newCall(request).execute();
+            if (deadline != null && deadline.hasPassed()) {
+                throw new InterruptedIOException("deadline exceeded");
+            }
+            // A sync call starts its timeout, bound to the deadline, right away; hedged copies are queued.
+            Response response = authenticateHedger != null
+                    ? authenticateHedger.execute(authenticateClient, request, deadline)
+                    : (deadline != null ? deadline.calls(authenticateClient) : authenticateClient).newCall(request).execute();
             return extractAuthenticationAction(response, userId);
         } catch (IOException e) {
             Castle.logger.error("HTTP layer. Error sending request.", e);
             if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
                 throw new CastleRuntimeException(e);
             } else {
-                return VerdictBuilder.failover(e.getMessage())
-                        .withAction(configuration.getAuthenticateFailoverStrategy().getDefaultAction())
-                        .withUserId(userId)
-                        .build();
+                return responses.failover(e.getMessage(), userId);
             }
         }
     }
 
     @Override
-    public void sendAuthenticateAsync(JsonElement payloadJson, final AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
-        final String userId = getUserIdFromPayload(payloadJson);
+    public void sendAuthenticateAsync(CastlePayload payload, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        sendAuthenticateAsync(payload, null, asyncCallbackHandler);
+    }
+
+    @Override
+    public void sendAuthenticateAsync(CastlePayload payload, long deadlineNanos, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        sendAuthenticateAsync(payload, new CallDeadline(deadlineNanos), asyncCallbackHandler);
+    }
+
+    private void sendAuthenticateAsync(CastlePayload payload, CallDeadline deadline, final AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        final String userId = getUserIdFromPayload(payload);
+        Call.Factory client = cancellable(deadline != null ? deadline.calls(authenticateClient) : authenticateClient, asyncCallbackHandler);
 
-        RequestBody body = buildRequestBody(payloadJson);
+        RequestBody body = JsonRequestBody.of(payload);
         Request request = new Request.Builder()
                 .url(authenticate)
                 .post(body)
                 .build();
-        client.newCall(request).enqueue(new Callback() {
+        Callback callback = new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
                     asyncCallbackHandler.onException(new CastleRuntimeException(e));
                 } else {
-                    asyncCallbackHandler.onResponse(
-                            VerdictBuilder.failover(e.getMessage())
-                                    .withAction(configuration.getAuthenticateFailoverStrategy().getDefaultAction())
-                                    .withUserId(userId)
-                                    .build()
-                    );
+                    asyncCallbackHandler.onResponse(responses.failover(e.getMessage(), userId));
                 }
             }
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
-                asyncCallbackHandler.onResponse(extractAuthenticationAction(response, userId));
+                Verdict verdict;
+                try {
+                    verdict = extractAuthenticationAction(response, userId);
+                } catch (IOException | RuntimeException e) {
+                    asyncCallbackHandler.onException(e);
+                    return;
+                } finally {
+                    response.close();
+                }
+                asyncCallbackHandler.onResponse(verdict);
             }
-        });
+        };
+        if (deadline != null) {
+            if (deadline.hasPassed()) {
+                callback.onFailure(null, new InterruptedIOException("deadline exceeded"));
+                return;
+            }
+            callback = deadline.guard(callback);
+        }
+        if (authenticateHedger != null) {
+            authenticateHedger.enqueue(client, request, callback);
+        } else {
+            client.newCall(request).enqueue(callback);
+        }
+    }
+
+    /**
+     * Creates calls that are cancelled with the handler they are sent for, when it is a
+     * {@link CancellableCallbackHandler}.
+     */
+    private static Call.Factory cancellable(final Call.Factory client, AsyncCallbackHandler<?> handler) {
+        if (!(handler instanceof CancellableCallbackHandler)) {
+            return client;
+        }
+        final CancellableCallbackHandler<?> cancellableHandler = (CancellableCallbackHandler<?>) handler;
+        return new Call.Factory() {
+            @Override
+            public Call newCall(Request request) {
+                final Call call = client.newCall(request);
+                cancellableHandler.onCancel(new Runnable() {
+                    @Override
+                    public void run() {
+                        call.cancel();
+                    }
+                });
+                return call;
+            }
+        };
     }
 
-    private String getUserIdFromPayload(JsonElement payloadJson) {
-        final String userId = ((JsonObject) payloadJson).has("user_id") ? ((JsonObject) payloadJson).get("user_id").getAsString() : null;
+    private String getUserIdFromPayload(CastlePayload payload) {
+        final String userId = payload.getUserId();
         if (userId == null) {
             Castle.logger.warn("Authenticate called with user_id null. Is this correct?");
         }
         return userId;
     }
 
-    private RequestBody buildRequestBody(JsonElement payloadJson) {
-        JsonObject json = payloadJson.getAsJsonObject();
-        return RequestBody.create(JSON, json.toString());
-    }
-
     private Verdict extractAuthenticationAction(Response response, String userId) throws IOException {
-        String errorReason = response.message();
-        String jsonResponse = response.body().string();
-
-        if (response.isSuccessful()) {
-            Gson gson = model.getGson();
-            VerdictTransportModel transport = gson.fromJson(jsonResponse, VerdictTransportModel.class);
-            if (transport != null && transport.getAction() != null && transport.getUserId() != null) {
-                return VerdictBuilder.fromTransport(transport);
-            } else {
-                errorReason = "Invalid JSON in response";
-            }
-        }
-
-        if (response.code() >= 500) {
-            //Use failover for error backends calls.
-            if (!configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
-                Verdict verdict = VerdictBuilder.failover(errorReason)
-                        .withAction(configuration.getAuthenticateFailoverStrategy().getDefaultAction())
-                        .withUserId(userId)
-                        .build();
-                return verdict;
-            }
-        }
-
-        // Could not extract Verdict, so fail for client logic space.
-        throw new CastleRuntimeException(
-            responseErrorMessage(response.code(), errorReason, jsonResponse)
-        );
+        return responses.extractVerdict(response.code(), response.message(), response.body().string(), userId);
     }
 
     @Override
-    public void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson) {
+    public void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
         JsonObject json = new JsonObject();
         json.add("user_id", new JsonPrimitive(userId));
 //        json.add("active", new JsonPrimitive(active));
@@ -172,29 +261,51 @@ public class OkRestApiBackend implements RestApi {
         if (traitsJson != null) {
             json.add("traits", traitsJson);
         }
-        RequestBody body = RequestBody.create(JSON, json.toString());
+        RequestBody body = JsonRequestBody.of(model, json);
         Request request = new Request.Builder()
                 .url(identify)
                 .post(body)
                 .build();
-        client.newCall(request).enqueue(new Callback() {
+        enqueueTrackCall(request, new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 Castle.logger.error("HTTP layer. Error sending request.", e);
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onException(e);
+                }
             }
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
+                response.close();
                 Castle.logger.debug("Identify request successful");
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onResponse(response.isSuccessful());
+                }
             }
         });
     }
 
+    /**
+     * Sends a fire-and-forget request of the track endpoint group, retrying it on failure when retries are enabled and
+     * storing it in the spill journal when it could not be delivered.
+     */
+    private void enqueueTrackCall(Request request, Callback callback) {
+        if (spillJournal != null) {
+            callback = new SpillingCallback(callback);
+        }
+        if (trackRetrier != null) {
+            trackRetrier.enqueue(trackClient, request, callback);
+        } else {
+            trackClient.newCall(request).enqueue(callback);
+        }
+    }
+
     @Override
     public Review sendReviewRequestSync(String reviewId) {
         Request request = createReviewRequest(reviewId);
         try {
-            Response response = client.newCall(request).execute();
+            Response response = reviewClient.newCall(request).execute();
             return extractReview(response);
         } catch (IOException e) {
             throw new CastleRuntimeException(e);
@@ -204,7 +315,7 @@ public class OkRestApiBackend implements RestApi {
     @Override
     public void sendReviewRequestAsync(String reviewId, final AsyncCallbackHandler<Review> callbackHandler) {
         Request request = createReviewRequest(reviewId);
-        client.newCall(request).enqueue(new Callback() {
+        cancellable(reviewClient, callbackHandler).newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 callbackHandler.onException(e);
@@ -212,7 +323,16 @@ public class OkRestApiBackend implements RestApi {
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
-                callbackHandler.onResponse(extractReview(response));
+                Review review;
+                try {
+                    review = extractReview(response);
+                } catch (IOException | RuntimeException e) {
+                    callbackHandler.onException(e);
+                    return;
+                } finally {
+                    response.close();
+                }
+                callbackHandler.onResponse(review);
             }
         });
     }
@@ -239,19 +359,46 @@ public class OkRestApiBackend implements RestApi {
     }
 
     private Review extractReview(Response response) throws IOException {
-        if (response.isSuccessful()) {
-            String jsonResponse = response.body().string();
-            Gson gson = model.getGson();
-            return gson.fromJson(jsonResponse, Review.class);
-        }
-        throw new IOException("HTTP request failure");
+        String jsonResponse = response.isSuccessful() ? response.body().string() : null;
+        return responses.extractReview(response.code(), jsonResponse);
     }
 
-    private String responseErrorMessage(Integer code, String message, String response) {
-        String errorMessage =
-            "Request error: server responded with code " + code.toString() + ". " +
-            message + ": `" + response + "`";
+    /**
+     * Stores the body of requests that failed, or got a retryable status, in the spill journal before informing the
+     * wrapped callback.
+     */
+    private class SpillingCallback implements Callback {
+
+        private final Callback delegate;
 
-        return errorMessage;
+        private SpillingCallback(Callback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            spill(call.request());
+            delegate.onFailure(call, e);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            if (RequestRetrier.isRetryable(response.code())) {
+                spill(call.request());
+            }
+            delegate.onResponse(call, response);
+        }
+
+        private void spill(Request request) {
+            byte kind = request.url().equals(identify) ? SpillJournal.IDENTIFY : SpillJournal.TRACK;
+            Buffer buffer = new Buffer();
+            try {
+                request.body().writeTo(buffer);
+            } catch (IOException e) {
+                Castle.logger.error("HTTP layer. Can not store undelivered request.", e);
+                return;
+            }
+            spillJournal.append(kind, request.header(RequestRetrier.IDEMPOTENCY_KEY_HEADER), buffer.readByteArray());
+        }
     }
 }
@@ -0,0 +1,84 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.internal.utils.TokenBucket;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Limits the rate of calls of an endpoint group with a {@link TokenBucket}, and stops sending calls for the time
+ * asked by the Castle API in a {@code 429} or {@code 503} response, up to a maximum pause.
+ * <p>
+ * Calls over the limit fail immediately with a {@link RateLimitedException}, so authenticate returns the failover
+ * verdict, and track and identify requests are retried later or stored in the spill journal when those are enabled.
+ */
+class RateLimitInterceptor implements Interceptor {
+
+    /**
+     * Pause applied after a {@code 429} response without a {@code Retry-After} header.
+     */
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+
+    private final String endpoint;
+    private final TokenBucket bucket;
+    private final long maxPauseMillis;
+    private final CastleMetrics metrics;
+
+    RateLimitInterceptor(String endpoint, TokenBucket bucket, long maxPauseMillis, CastleMetrics metrics) {
+        this.endpoint = endpoint;
+        this.bucket = bucket;
+        this.maxPauseMillis = maxPauseMillis;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (!bucket.tryAcquire()) {
+            metrics.increment(CastleMetrics.RATE_LIMIT_REJECTED);
+            throw new RateLimitedException(endpoint, bucket.blockedMillis());
+        }
+        Response response = chain.proceed(chain.request());
+        long retryAfter = Math.min(retryAfterMillis(response), maxPauseMillis);
+        if (retryAfter > 0) {
+            metrics.increment(CastleMetrics.RATE_LIMIT_THROTTLED);
+            Castle.logger.warn("Castle API asked to slow down the {} endpoint for {} ms.", endpoint, retryAfter);
+            bucket.blockFor(retryAfter);
+        }
+        return response;
+    }
+
+    /**
+     * Reads how long the server asked the client to wait before the next request.
+     *
+     * @param response response of the server
+     * @return the delay in milliseconds given by the {@code Retry-After} header of a {@code 429} or {@code 503}
+     * response, a default delay for a {@code 429} response without it, or zero
+     */
+    static long retryAfterMillis(Response response) {
+        if (response.code() != 429 && response.code() != 503) {
+            return 0;
+        }
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+            } catch (NumberFormatException e) {
+                SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+                format.setTimeZone(TimeZone.getTimeZone("GMT"));
+                try {
+                    return Math.max(0, format.parse(retryAfter.trim()).getTime() - System.currentTimeMillis());
+                } catch (ParseException invalidDate) {
+                    Castle.logger.warn("Ignoring invalid Retry-After header {}.", retryAfter);
+                }
+            }
+        }
+        return response.code() == 429 ? DEFAULT_RETRY_AFTER_MILLIS : 0;
+    }
+}
@@ -0,0 +1,24 @@
+package io.castle.client.internal.backend;
+
+import java.io.IOException;
+
+/**
+ * Failure of a call that was not sent because the client side rate limit of its endpoint group was reached, or
+ * because the Castle API asked the SDK to slow down.
+ */
+public class RateLimitedException extends IOException {
+
+    private final long retryAfterMillis;
+
+    public RateLimitedException(String endpoint, long retryAfterMillis) {
+        super("Rate limited for the " + endpoint + " endpoint");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return milliseconds before a new call can be sent, zero when unknown
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,257 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.HedgingConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.internal.utils.LatencyRecorder;
+import io.castle.client.internal.utils.RequestBudget;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a second copy of a request that has not been answered after a delay, and uses the first response received.
+ * <p>
+ * The delay is the configured percentile of the recent latencies of the endpoint, or a fixed delay while too few
+ * calls were observed. The latency of a call is measured from the start of its first copy, so a slow first copy that
+ * loses to the hedge is still sampled, up to the moment it is cancelled.
+ * Once a response is received the other copy is cancelled.
+ * Copies are only sent while the {@link RequestBudget} allows it, so a degraded API does not receive twice the
+ * traffic.
+ * A copy is only sent on another connection when the request is not multiplexed over HTTP/2.
+ */
+class RequestHedger {
+
+    private static final int LATENCY_WINDOW = 1000;
+    private static final int LATENCY_MIN_SAMPLES = 100;
+    private static final int BUDGET_MAX_BALANCE = 10;
+
+    private final long delayNanos;
+    private final double delayPercentile;
+    private final LatencyRecorder latency;
+    private final RequestBudget budget;
+    private final CastleMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+
+    RequestHedger(HedgingConfiguration configuration, CastleMetrics metrics) {
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getDelayMillis());
+        this.delayPercentile = configuration.getDelayPercentile();
+        this.latency = new LatencyRecorder(LATENCY_WINDOW, LATENCY_MIN_SAMPLES);
+        this.budget = new RequestBudget(configuration.getBudgetPercent() / 100, BUDGET_MAX_BALANCE);
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "castle-request-hedger");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Executes a hedged request and waits for its response.
+     *
+     * @param client   client executing the request and its copy
+     * @param request  request to send
+     * @param deadline deadline at which both copies are abandoned, null for none
+     * @return the first response received
+     * @throws IOException when every copy of the request failed, or the deadline passed
+     */
+    Response execute(Call.Factory client, Request request, CallDeadline deadline) throws IOException {
+        final CountDownLatch completed = new CountDownLatch(1);
+        final Response[] response = new Response[1];
+        final IOException[] failure = new IOException[1];
+        Callback callback = new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                failure[0] = e;
+                completed.countDown();
+            }
+
+            @Override
+            public void onResponse(Call call, Response received) {
+                response[0] = received;
+                completed.countDown();
+            }
+        };
+        if (deadline != null) {
+            client = deadline.calls(client);
+            callback = deadline.guard(callback);
+        }
+        HedgedCall call = new HedgedCall(client, request, callback);
+        call.start();
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            call.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a hedged request");
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return response[0];
+    }
+
+    /**
+     * Executes a hedged request asynchronously.
+     *
+     * @param client   client executing the request and its copy
+     * @param request  request to send
+     * @param callback informed once with the first response received, or with the last failure when every copy failed
+     */
+    void enqueue(Call.Factory client, Request request, Callback callback) {
+        new HedgedCall(client, request, callback).start();
+    }
+
+    /**
+     * Stops sending hedges. Requests are still sent, without copy.
+     */
+    void close() {
+        scheduler.shutdownNow();
+    }
+
+    private long hedgeDelayNanos() {
+        if (delayPercentile > 0) {
+            long observed = latency.percentileNanos(delayPercentile);
+            if (observed >= 0) {
+                return observed;
+            }
+        }
+        return delayNanos;
+    }
+
+    private class HedgedCall implements Runnable {
+
+        private final Call.Factory client;
+        private final Request request;
+        private final Callback callback;
+        private final List<Call> calls = new ArrayList<>(2);
+        private boolean completed;
+        private int pending;
+        private ScheduledFuture<?> hedge;
+        private long startNanos;
+
+        private HedgedCall(Call.Factory client, Request request, Callback callback) {
+            this.client = client;
+            this.request = request;
+            this.callback = callback;
+        }
+
+        private void start() {
+            startNanos = System.nanoTime();
+            budget.recordRequest();
+            send(false);
+            ScheduledFuture<?> scheduled;
+            try {
+                scheduled = scheduler.schedule(this, hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // closed, the request is sent without hedge
+                return;
+            }
+            synchronized (this) {
+                if (completed) {
+                    scheduled.cancel(false);
+                } else {
+                    hedge = scheduled;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+            }
+            if (!budget.tryAcquire()) {
+                metrics.increment(CastleMetrics.AUTHENTICATE_HEDGE_BUDGET_EXHAUSTED);
+                return;
+            }
+            metrics.increment(CastleMetrics.AUTHENTICATE_HEDGES);
+            send(true);
+        }
+
+        private void cancel() {
+            List<Call> cancelled;
+            synchronized (this) {
+                completed = true;
+                cancelled = new ArrayList<>(calls);
+                if (hedge != null) {
+                    hedge.cancel(false);
+                }
+            }
+            for (Call call : cancelled) {
+                call.cancel();
+            }
+        }
+
+        private void send(final boolean isHedge) {
+            Call call = client.newCall(request);
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                calls.add(call);
+                pending++;
+            }
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    synchronized (HedgedCall.this) {
+                        pending--;
+                        // Wait for the other copy when it is still in flight.
+                        if (completed || pending > 0) {
+                            return;
+                        }
+                        completed = true;
+                        if (hedge != null) {
+                            hedge.cancel(false);
+                        }
+                    }
+                    callback.onFailure(call, e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    List<Call> losers;
+                    synchronized (HedgedCall.this) {
+                        pending--;
+                        if (completed) {
+                            response.close();
+                            return;
+                        }
+                        completed = true;
+                        losers = new ArrayList<>(calls);
+                        losers.remove(call);
+                        if (hedge != null) {
+                            hedge.cancel(false);
+                        }
+                    }
+                    for (Call loser : losers) {
+                        loser.cancel();
+                    }
+                    latency.record(System.nanoTime() - startNanos);
+                    if (isHedge) {
+                        metrics.increment(CastleMetrics.AUTHENTICATE_HEDGE_WINS);
+                    }
+                    callback.onResponse(call, response);
+                }
+            });
+        }
+    }
+}
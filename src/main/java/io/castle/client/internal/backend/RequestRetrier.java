@@ -0,0 +1,146 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.RetryConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.internal.utils.RequestBudget;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends asynchronous requests again when they fail with an IO error or a retryable status code.
+ * <p>
+ * Every attempt of a request carries the same {@code Idempotency-Key} header, so that the Castle API can discard
+ * duplicates when an attempt that looked failed had actually been processed.
+ * The backoff before attempt {@code n} is a random duration between zero and
+ * {@code min(maxBackoff, initialBackoff * 2^(n - 2))}, and never shorter than the delay the Castle API asked for with a
+ * {@code Retry-After} header.
+ * Retries are only sent while the {@link RequestBudget} allows it, so a degraded API does not receive a multiple of
+ * the normal traffic. The budget starts full, so that failures right after start-up can be retried.
+ */
+class RequestRetrier {
+
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final int BUDGET_MAX_BALANCE = 10;
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final RequestBudget budget;
+    private final CastleMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+
+    RequestRetrier(RetryConfiguration configuration, CastleMetrics metrics) {
+        this.maxAttempts = configuration.getMaxAttempts();
+        this.initialBackoffMillis = configuration.getInitialBackoffMillis();
+        this.maxBackoffMillis = configuration.getMaxBackoffMillis();
+        this.budget = new RequestBudget(configuration.getBudgetPercent() / 100, BUDGET_MAX_BALANCE, BUDGET_MAX_BALANCE);
+        this.metrics = metrics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "castle-request-retrier");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Sends a request asynchronously, retrying it when it fails.
+     *
+     * @param client   client executing the attempts
+     * @param request  request to send
+     * @param callback informed once with the outcome of the last attempt
+     */
+    void enqueue(OkHttpClient client, Request request, Callback callback) {
+        budget.recordRequest();
+        Request idempotent = request.newBuilder()
+                .header(IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                .build();
+        new Attempt(client, idempotent, callback, 1).run();
+    }
+
+    /**
+     * Stops scheduling retries. Retries already waiting for their backoff are still sent.
+     */
+    void close() {
+        scheduler.shutdown();
+    }
+
+    static boolean isRetryable(int code) {
+        return code == 408 || code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    private class Attempt implements Runnable, Callback {
+
+        private final OkHttpClient client;
+        private final Request request;
+        private final Callback callback;
+        private final int number;
+
+        private Attempt(OkHttpClient client, Request request, Callback callback, int number) {
+            this.client = client;
+            this.request = request;
+            this.callback = callback;
+            this.number = number;
+        }
+
+        @Override
+        public void run() {
+            client.newCall(request).enqueue(this);
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            long retryAfter = e instanceof RateLimitedException ? ((RateLimitedException) e).getRetryAfterMillis() : 0;
+            if (!call.isCanceled() && !(e instanceof CircuitBreakerOpenException) && retry(retryAfter)) {
+                Castle.logger.warn("HTTP layer. Retrying request to {} after error: {}", request.url(), e.getMessage());
+                return;
+            }
+            callback.onFailure(call, e);
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            if (isRetryable(response.code()) && retry(RateLimitInterceptor.retryAfterMillis(response))) {
+                Castle.logger.warn("HTTP layer. Retrying request to {} after status {}", request.url(), response.code());
+                response.close();
+                return;
+            }
+            callback.onResponse(call, response);
+        }
+
+        private boolean retry(long retryAfterMillis) {
+            if (number >= maxAttempts || scheduler.isShutdown()) {
+                return false;
+            }
+            if (!budget.tryAcquire()) {
+                metrics.increment(CastleMetrics.RETRY_BUDGET_EXHAUSTED);
+                return false;
+            }
+            metrics.increment(CastleMetrics.RETRY_ATTEMPTS);
+            long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(number - 1, 30));
+            long backoff = Math.max(retryAfterMillis, ThreadLocalRandom.current().nextLong(ceiling + 1));
+            try {
+                scheduler.schedule(new Attempt(client, request, callback, number + 1), backoff, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -2,31 +2,60 @@ package io.castle.client.internal.backend;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import io.castle.client.internal.json.CastlePayload;
 import io.castle.client.model.AsyncCallbackHandler;
 import io.castle.client.model.Review;
 import io.castle.client.model.Verdict;
 
+import java.util.List;
+
 public interface RestApi {
     /**
      *
-     * @param payloadJson          JSON object containing the event properties
+     * @param payload              payload containing the event properties
      * @param asyncCallbackHandler callback to inform if request was correctly sent
      */
-    void sendTrackRequest(JsonElement payloadJson, AsyncCallbackHandler<Boolean> asyncCallbackHandler);
+    void sendTrackRequest(CastlePayload payload, AsyncCallbackHandler<Boolean> asyncCallbackHandler);
+
+    /**
+     * Async call sending several track events in a single request to the track endpoint.
+     *
+     * @param payloads             payloads containing the properties of each event
+     * @param asyncCallbackHandler callback to inform if the request was correctly sent
+     */
+    void sendTrackBatch(List<CastlePayload> payloads, AsyncCallbackHandler<Boolean> asyncCallbackHandler);
 
     /**
      *
-     * @param payloadJson JSON object containing the event properties
+     * @param payload payload containing the event properties
      * @return Verdict to be used in login logic
      */
-    Verdict sendAuthenticateSync(JsonElement payloadJson);
+    Verdict sendAuthenticateSync(CastlePayload payload);
+
+    /**
+     * Sync call to the authenticate endpoint, abandoned with the failover verdict once the deadline passes.
+     *
+     * @param payload       payload containing the event properties
+     * @param deadlineNanos value of {@link System#nanoTime()} bounding the whole call
+     * @return Verdict to be used in login logic
+     */
+    Verdict sendAuthenticateSync(CastlePayload payload, long deadlineNanos);
+
+    /**
+     *
+     * @param payload              payload containing the event properties
+     * @param asyncCallbackHandler callback to inform if request was correctly sent
+     */
+    void sendAuthenticateAsync(CastlePayload payload, AsyncCallbackHandler<Verdict> asyncCallbackHandler);
 
     /**
+     * Async call to the authenticate endpoint, abandoned with the failover verdict once the deadline passes.
      *
-     * @param payloadJson          JSON object containing the event properties
+     * @param payload              payload containing the event properties
+     * @param deadlineNanos        value of {@link System#nanoTime()} bounding the whole call
      * @param asyncCallbackHandler callback to inform if request was correctly sent
      */
-    void sendAuthenticateAsync(JsonElement payloadJson, AsyncCallbackHandler<Verdict> asyncCallbackHandler);
+    void sendAuthenticateAsync(CastlePayload payload, long deadlineNanos, AsyncCallbackHandler<Verdict> asyncCallbackHandler);
 
     /**
      * Async call to the identify endpoint, returning immediately.
@@ -35,8 +64,9 @@ public interface RestApi {
      * @param contextJson context json
      * @param active      is this call realized as part of a active session of the user
      * @param traitsJson  additional traits json
+     * @param asyncCallbackHandler callback informed of the success of the request, takes null
      */
-    void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson);
+    void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson, AsyncCallbackHandler<Boolean> asyncCallbackHandler);
 
     /**
      * Sync call to the review endpoint.
@@ -3,4 +3,11 @@ package io.castle.client.internal.backend;
 public interface RestApiFactory {
 
     RestApi buildBackend();
+
+    /**
+     * Sends the track events still waiting in memory and releases the threads of the factory.
+     * <p>
+     * Backends built afterwards can not be used.
+     */
+    void close();
 }
@@ -0,0 +1,127 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.utils.CastleMetrics;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the records of a {@link SpillJournal} from a background thread.
+ * <p>
+ * Records are sent one at a time, at most {@code ratePerSecond} per second, so that a recovering API is not flooded
+ * with the backlog. Each record is sent with the {@code Idempotency-Key} stored with it, so an event the API already
+ * processed before it was spilled is not recorded twice.
+ * A record is removed from the journal once the API accepted it, or rejected it with a client error that a new
+ * attempt would not fix.
+ * After a failure, the drainer waits with an exponential backoff before trying again, so it probes the API until it is
+ * healthy without adding load while it is not.
+ */
+class SpillDrainer {
+
+    private static final long IDLE_WAIT_MILLIS = 1000;
+    private static final long MIN_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private final SpillJournal journal;
+    private final OkHttpClient client;
+    private final HttpUrl track;
+    private final HttpUrl identify;
+    private final long intervalNanos;
+    private final CastleMetrics metrics;
+    private volatile boolean stopped;
+    private Thread drainer;
+
+    SpillDrainer(SpillJournal journal, OkHttpClient client, HttpUrl baseUrl, int ratePerSecond, CastleMetrics metrics) {
+        this.journal = journal;
+        this.client = client;
+        this.track = baseUrl.resolve("/v1/track");
+        this.identify = baseUrl.resolve("/v1/identify");
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts replaying records from a daemon thread.
+     */
+    synchronized void start() {
+        drainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainLoop();
+            }
+        }, "castle-spill-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Stops replaying records, waiting for the record being sent.
+     *
+     * @param timeoutMillis maximum time to wait for the drainer thread
+     */
+    synchronized void stop(long timeoutMillis) {
+        stopped = true;
+        if (drainer == null) {
+            return;
+        }
+        drainer.interrupt();
+        try {
+            drainer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        long backoffMillis = MIN_BACKOFF_MILLIS;
+        while (!stopped) {
+            try {
+                SpillJournal.Record record = journal.next(IDLE_WAIT_MILLIS);
+                if (record == null) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                if (deliver(record)) {
+                    journal.commit(record);
+                    metrics.increment(CastleMetrics.SPILL_REPLAYED);
+                    backoffMillis = MIN_BACKOFF_MILLIS;
+                    TimeUnit.NANOSECONDS.sleep(intervalNanos - (System.nanoTime() - start));
+                } else if (!stopped) {
+                    Thread.sleep(backoffMillis);
+                    backoffMillis = Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                Castle.logger.error("Spill journal drainer failed to replay an event.", e);
+            }
+        }
+    }
+
+    /**
+     * @return true if the record does not need to be sent again
+     */
+    private boolean deliver(SpillJournal.Record record) {
+        Request request = new Request.Builder()
+                .url(record.getKind() == SpillJournal.IDENTIFY ? identify : track)
+                .header(RequestRetrier.IDEMPOTENCY_KEY_HEADER, record.getIdempotencyKey())
+                .post(RequestBody.create(JsonRequestBody.JSON, record.getBody()))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() >= 400 && response.code() < 500 && !RequestRetrier.isRetryable(response.code())) {
+                Castle.logger.warn("Spilled event rejected by the API with status {}, discarding it.", response.code());
+                return true;
+            }
+            return response.isSuccessful();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
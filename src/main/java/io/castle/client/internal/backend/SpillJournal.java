@@ -0,0 +1,383 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.utils.CastleMetrics;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append only journal of undelivered request bodies, stored in memory-mapped segment files.
+ * <p>
+ * Each record is written as {@code [length][crc32][kind][key length][idempotency key][body]}, where length and CRC
+ * cover everything after them. The idempotency key is replayed with the body, so the Castle API can discard a record
+ * it already processed before the request that spilled it failed.
+ * The length is written last, so a record interrupted by a crash is either absent or fails its CRC check, and the
+ * journal is truncated at the first invalid record when it is opened again.
+ * The position of the next record to replay is stored in a checkpoint file after each delivery, so replay resumes
+ * after a restart with at most the record being delivered sent twice.
+ * When appending would exceed the disk cap, the oldest segment is deleted with the records it still holds.
+ * A lock file prevents two processes from using the same directory.
+ */
+class SpillJournal {
+
+    static final byte TRACK = 1;
+    static final byte IDENTIFY = 2;
+
+    private static final int HEADER_BYTES = 8;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("castle-spill-(\\d+)\\.seg");
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final CastleMetrics metrics;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final RandomAccessFile lockFile;
+    private final FileLock lock;
+    private final MappedByteBuffer checkpoint;
+    private long nextSequence;
+    private int readOffset;
+    private boolean closed;
+
+    /**
+     * Opens the journal stored in a directory, recovering the records written before a restart.
+     *
+     * @param directory    directory of the segment files, created if missing
+     * @param segmentSize  size in bytes of each segment file
+     * @param maxDiskBytes maximum number of bytes used by the segment files, at least two segments
+     * @param metrics      registry of the journal counters
+     * @throws IOException when the directory can not be used
+     */
+    SpillJournal(File directory, int segmentSize, long maxDiskBytes, CastleMetrics metrics) throws IOException {
+        if (maxDiskBytes < 2L * segmentSize) {
+            throw new IllegalArgumentException("The spill journal disk cap must hold at least two segments");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create spill journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.min(Integer.MAX_VALUE, maxDiskBytes / segmentSize);
+        this.metrics = metrics;
+        this.lockFile = new RandomAccessFile(new File(directory, "castle-spill.lock"), "rw");
+        this.lock = lockFile.getChannel().tryLock();
+        if (lock == null) {
+            lockFile.close();
+            throw new IOException("Spill journal directory " + directory + " is used by another process");
+        }
+        this.checkpoint = map(new File(directory, "castle-spill.checkpoint"), 12);
+        recover();
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param kind           endpoint the body must be sent to, {@link #TRACK} or {@link #IDENTIFY}
+     * @param idempotencyKey {@code Idempotency-Key} the request was sent with, null to generate one for the replays
+     * @param body           request body
+     * @return true if the record was stored
+     */
+    synchronized boolean append(byte kind, String idempotencyKey, byte[] body) {
+        byte[] key = (idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString()).getBytes(StandardCharsets.UTF_8);
+        if (key.length > 255) {
+            key = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        }
+        int length = 2 + key.length + body.length;
+        if (closed || HEADER_BYTES + length > segmentSize) {
+            metrics.increment(CastleMetrics.SPILL_DROPPED);
+            return false;
+        }
+        try {
+            Segment segment = segments.peekLast();
+            if (segment == null || segment.writePosition + HEADER_BYTES + length > segmentSize) {
+                segment = roll();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(kind);
+            crc.update(key.length);
+            crc.update(key);
+            crc.update(body);
+            int position = segment.writePosition;
+            ByteBuffer view = viewAt(segment.buffer, position + HEADER_BYTES);
+            view.put(kind);
+            view.put((byte) key.length);
+            view.put(key);
+            view.put(body);
+            segment.buffer.putInt(position + 4, (int) crc.getValue());
+            segment.buffer.putInt(position, length);
+            segment.writePosition += HEADER_BYTES + length;
+            metrics.increment(CastleMetrics.SPILL_APPENDED);
+            notifyAll();
+            return true;
+        } catch (IOException e) {
+            Castle.logger.error("Spill journal can not store an event.", e);
+            metrics.increment(CastleMetrics.SPILL_DROPPED);
+            return false;
+        }
+    }
+
+    /**
+     * Gets the oldest record not delivered yet, waiting for one to be appended.
+     *
+     * @param timeoutMillis maximum time to wait
+     * @return the record, or null if none was appended within the timeout or the journal is closed
+     * @throws InterruptedException when interrupted while waiting
+     */
+    synchronized Record next(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            Record record = peek();
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (record != null || remaining <= 0 || closed) {
+                return record;
+            }
+            wait(remaining);
+        }
+    }
+
+    /**
+     * Marks a record as delivered, persisting the replay position.
+     *
+     * @param record record returned by {@link #next(long)}
+     */
+    synchronized void commit(Record record) {
+        Segment first = segments.peekFirst();
+        if (first == null || first.sequence != record.sequence || readOffset != record.offset) {
+            // The segment was evicted while the record was being delivered.
+            return;
+        }
+        readOffset = record.nextOffset;
+        checkpoint.putLong(0, first.sequence);
+        checkpoint.putInt(8, readOffset);
+    }
+
+    /**
+     * Releases the directory lock and the mapped segments. Appended records stay on disk for the next process using
+     * the directory.
+     */
+    synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        notifyAll();
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        // Mappings are released once no longer referenced.
+        segments.clear();
+        checkpoint.force();
+        lock.release();
+        lockFile.close();
+    }
+
+    private Record peek() {
+        while (!segments.isEmpty()) {
+            Segment first = segments.peekFirst();
+            if (readOffset < first.writePosition) {
+                int length = first.buffer.getInt(readOffset);
+                ByteBuffer view = viewAt(first.buffer, readOffset + HEADER_BYTES);
+                byte kind = view.get();
+                byte[] key = new byte[view.get() & 0xFF];
+                view.get(key);
+                byte[] body = new byte[length - 2 - key.length];
+                view.get(body);
+                return new Record(first.sequence, readOffset, readOffset + HEADER_BYTES + length, kind,
+                        new String(key, StandardCharsets.UTF_8), body);
+            }
+            if (first == segments.peekLast()) {
+                return null;
+            }
+            delete(segments.pollFirst());
+            readOffset = 0;
+        }
+        return null;
+    }
+
+    /**
+     * Positions a view of a buffer without moving the buffer itself.
+     * <p>
+     * The view is positioned through {@link Buffer}, since {@code ByteBuffer.position(int)} only exists from Java 9
+     * and would not link on older runtimes when built with a newer JDK.
+     */
+    private static ByteBuffer viewAt(ByteBuffer buffer, int position) {
+        ByteBuffer view = buffer.duplicate();
+        ((Buffer) view).position(position);
+        return view;
+    }
+
+    private Segment roll() throws IOException {
+        Segment last = segments.peekLast();
+        if (last != null) {
+            last.buffer.force();
+        }
+        while (segments.size() >= maxSegments) {
+            Segment evicted = segments.pollFirst();
+            int lost = countRecords(evicted, readOffset);
+            metrics.add(CastleMetrics.SPILL_EVICTED, lost);
+            Castle.logger.warn("Spill journal is full, evicting {} undelivered events.", lost);
+            delete(evicted);
+            readOffset = 0;
+        }
+        long sequence = nextSequence++;
+        File file = new File(directory, "castle-spill-" + sequence + ".seg");
+        Segment segment = new Segment(sequence, file, map(file, segmentSize));
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return SEGMENT_NAME.matcher(name).matches();
+            }
+        });
+        List<Segment> found = new ArrayList<>();
+        for (File file : files == null ? new File[0] : files) {
+            Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+            if (matcher.matches() && file.length() == segmentSize) {
+                found.add(new Segment(Long.parseLong(matcher.group(1)), file, map(file, segmentSize)));
+            } else if (!file.delete()) {
+                Castle.logger.warn("Can not delete invalid spill journal segment {}.", file);
+            }
+        }
+        Collections.sort(found);
+        long checkpointSequence = checkpoint.getLong(0);
+        int checkpointOffset = checkpoint.getInt(8);
+        // A new segment never reuses the sequence of the checkpoint, whose offset belongs to a deleted segment.
+        nextSequence = checkpointSequence + 1;
+        for (Segment segment : found) {
+            nextSequence = Math.max(nextSequence, segment.sequence + 1);
+            if (segment.sequence < checkpointSequence) {
+                delete(segment);
+                continue;
+            }
+            segment.writePosition = validLength(segment);
+            segments.addLast(segment);
+        }
+        Segment first = segments.peekFirst();
+        if (first != null && first.sequence == checkpointSequence) {
+            readOffset = Math.min(checkpointOffset, first.writePosition);
+        }
+    }
+
+    /**
+     * Finds the end of the valid records of a segment, truncating a record interrupted by a crash.
+     */
+    private int validLength(Segment segment) {
+        int position = 0;
+        while (position + HEADER_BYTES < segmentSize) {
+            int length = segment.buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > segmentSize) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            viewAt(segment.buffer, position + HEADER_BYTES).get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.buffer.getInt(position + 4)) {
+                Castle.logger.warn("Spill journal segment {} has a corrupted record at {}, truncating it.", segment.file, position);
+                for (int i = position; i < segmentSize; i++) {
+                    segment.buffer.put(i, (byte) 0);
+                }
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private int countRecords(Segment segment, int from) {
+        int count = 0;
+        for (int position = from; position < segment.writePosition; position += HEADER_BYTES + segment.buffer.getInt(position)) {
+            count++;
+        }
+        return count;
+    }
+
+    private void delete(Segment segment) {
+        if (!segment.file.delete()) {
+            Castle.logger.warn("Can not delete spill journal segment {}.", segment.file);
+        }
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            // The mapping stays valid after the channel is closed.
+            randomAccessFile.close();
+        }
+    }
+
+    private static class Segment implements Comparable<Segment> {
+        private final long sequence;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(long sequence, File file, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int compareTo(Segment other) {
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * Undelivered request body read from the journal.
+     */
+    static class Record {
+        private final long sequence;
+        private final int offset;
+        private final int nextOffset;
+        private final byte kind;
+        private final String idempotencyKey;
+        private final byte[] body;
+
+        private Record(long sequence, int offset, int nextOffset, byte kind, String idempotencyKey, byte[] body) {
+            this.sequence = sequence;
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+            this.kind = kind;
+            this.idempotencyKey = idempotencyKey;
+            this.body = body;
+        }
+
+        byte getKind() {
+            return kind;
+        }
+
+        String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.TrackSheddingConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.internal.utils.LatencyRecorder;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleRuntimeException;
+import io.castle.client.model.TrackPriority;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides which track events are sent when the track endpoint group is under pressure.
+ * <p>
+ * An event is outstanding from its admission until its callback is informed, which covers the time spent in the
+ * batching queue, the dispatcher queue, the call itself and its retries.
+ * Each priority may only be admitted while the number of outstanding events is below its share of
+ * {@code maxOutstanding}: half of it for {@code LOW} events, three quarters for {@code NORMAL} events and all of it
+ * for {@code HIGH} events.
+ * While the 90th percentile latency of recent events is over the threshold, {@code LOW} and {@code NORMAL} events
+ * are not admitted at all, except one in every {@value #LATENCY_PROBE_INTERVAL} of them. Shed events record no latency,
+ * so these probes keep the recent latencies up to date and let the controller notice when the API recovered.
+ * {@code CRITICAL} events are always admitted.
+ */
+class TrackAdmissionController {
+
+    private static final int LATENCY_WINDOW = 200;
+    private static final int LATENCY_MIN_SAMPLES = 20;
+    private static final double LATENCY_PERCENTILE = 90;
+    private static final int LATENCY_PROBE_INTERVAL = 10;
+
+    private final int maxOutstanding;
+    private final long latencyThresholdNanos;
+    private final Map<String, TrackPriority> priorities;
+    private final LatencyRecorder latencies = new LatencyRecorder(LATENCY_WINDOW, LATENCY_MIN_SAMPLES);
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger latencySheds = new AtomicInteger();
+    private final CastleMetrics metrics;
+
+    TrackAdmissionController(TrackSheddingConfiguration configuration, CastleMetrics metrics) {
+        this.maxOutstanding = configuration.getMaxOutstanding();
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getLatencyThresholdMillis());
+        this.priorities = new LinkedHashMap<>(configuration.getPriorities());
+        this.metrics = metrics;
+    }
+
+    /**
+     * Admits a track event or sheds it.
+     *
+     * @param event   name of the tracked event
+     * @param handler callback of the event, takes null
+     * @return the callback to use for the admitted event, which must be informed exactly once, or null when the event
+     * was shed, in which case {@code handler} was already informed with an exception
+     */
+    AsyncCallbackHandler<Boolean> admit(String event, AsyncCallbackHandler<Boolean> handler) {
+        TrackPriority priority = priorityOf(event);
+        if (priority != TrackPriority.CRITICAL && shouldShed(priority)) {
+            metrics.increment(shedMetric(priority));
+            Castle.logger.warn("Track endpoint under pressure, dropping {} priority event {}.", priority, event);
+            if (handler != null) {
+                handler.onException(new CastleRuntimeException("Track event dropped under load"));
+            }
+            return null;
+        }
+        metrics.set(CastleMetrics.TRACK_OUTSTANDING, outstanding.incrementAndGet());
+        return new AdmittedTrack(handler);
+    }
+
+    /**
+     * Finds the priority of an event from the longest event name pattern it matches.
+     *
+     * @param event name of the event
+     * @return the priority of the event, {@code NORMAL} when no pattern matches
+     */
+    TrackPriority priorityOf(String event) {
+        TrackPriority priority = TrackPriority.NORMAL;
+        int longest = -1;
+        for (Map.Entry<String, TrackPriority> rule : priorities.entrySet()) {
+            String pattern = rule.getKey();
+            boolean matches = pattern.endsWith("*")
+                    ? event.startsWith(pattern.substring(0, pattern.length() - 1))
+                    : event.equals(pattern);
+            if (matches && pattern.length() > longest) {
+                priority = rule.getValue();
+                longest = pattern.length();
+            }
+        }
+        return priority;
+    }
+
+    private boolean shouldShed(TrackPriority priority) {
+        if (priority != TrackPriority.HIGH && latencies.percentileNanos(LATENCY_PERCENTILE) > latencyThresholdNanos
+                && latencySheds.incrementAndGet() % LATENCY_PROBE_INTERVAL != 0) {
+            return true;
+        }
+        int limit;
+        switch (priority) {
+            case LOW:
+                limit = maxOutstanding / 2;
+                break;
+            case NORMAL:
+                limit = maxOutstanding * 3 / 4;
+                break;
+            default:
+                limit = maxOutstanding;
+        }
+        return outstanding.get() >= limit;
+    }
+
+    private static String shedMetric(TrackPriority priority) {
+        switch (priority) {
+            case LOW:
+                return CastleMetrics.TRACK_SHED_LOW;
+            case NORMAL:
+                return CastleMetrics.TRACK_SHED_NORMAL;
+            default:
+                return CastleMetrics.TRACK_SHED_HIGH;
+        }
+    }
+
+    /**
+     * Releases the admission of an event and records its latency before informing its callback.
+     */
+    private class AdmittedTrack implements AsyncCallbackHandler<Boolean> {
+
+        private final AsyncCallbackHandler<Boolean> delegate;
+        private final long admittedAt = System.nanoTime();
+
+        private AdmittedTrack(AsyncCallbackHandler<Boolean> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onResponse(Boolean response) {
+            release();
+            if (delegate != null) {
+                delegate.onResponse(response);
+            }
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            release();
+            if (delegate != null) {
+                delegate.onException(exception);
+            }
+        }
+
+        private void release() {
+            latencies.record(System.nanoTime() - admittedAt);
+            metrics.set(CastleMetrics.TRACK_OUTSTANDING, outstanding.decrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.TrackBatchingConfiguration;
+import io.castle.client.internal.json.CastlePayload;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects track payloads in a bounded queue and sends them in batches from a background thread.
+ * <p>
+ * A batch is flushed when {@link TrackBatchingConfiguration#getFlushSize()} events are waiting, or when the oldest
+ * waiting event has been queued for {@link TrackBatchingConfiguration#getLingerMillis()}.
+ * The callback handler of every event in a batch is informed with the outcome of the request that carried it.
+ * When a {@link SpillJournal} is given, events that do not fit in the queue are stored in it instead of being dropped.
+ * <p>
+ * {@link #close(long)} sends the events still waiting in the queue and waits for the answers of the last batches, so
+ * events are not lost when the SDK is closed before the JVM exits.
+ */
+class TrackBatcher {
+
+    private final BlockingQueue<PendingTrack> queue;
+    private final RestApiFactory restApiFactory;
+    private final CastleMetrics metrics;
+    private final int flushSize;
+    private final long lingerNanos;
+    private final SpillJournal spillJournal;
+    private final Thread flusher;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean closed;
+
+    TrackBatcher(TrackBatchingConfiguration configuration, RestApiFactory restApiFactory, CastleMetrics metrics) {
+        this(configuration, restApiFactory, metrics, null);
+    }
+
+    TrackBatcher(TrackBatchingConfiguration configuration, RestApiFactory restApiFactory, CastleMetrics metrics, SpillJournal spillJournal) {
+        this.spillJournal = spillJournal;
+        this.queue = new ArrayBlockingQueue<>(configuration.getQueueCapacity());
+        this.restApiFactory = restApiFactory;
+        this.metrics = metrics;
+        this.flushSize = configuration.getFlushSize();
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getLingerMillis());
+        flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "castle-track-batcher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Adds a track payload to the queue, returning immediately.
+     *
+     * @param payload              payload containing the event properties
+     * @param asyncCallbackHandler callback to inform if the batch containing the event was correctly sent, takes null
+     * @return true if the event was queued, false if it was dropped or spilled because the queue is full
+     */
+    boolean enqueue(CastlePayload payload, AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        PendingTrack pending = new PendingTrack(payload, asyncCallbackHandler);
+        if (!closed && queue.offer(pending)) {
+            // An event queued while closing is either sent by the final drain or taken back here.
+            if (closed && queue.remove(pending)) {
+                return rejectClosed(asyncCallbackHandler);
+            }
+            metrics.increment(CastleMetrics.TRACK_BATCH_ENQUEUED);
+            return true;
+        }
+        if (closed) {
+            return rejectClosed(asyncCallbackHandler);
+        }
+        if (spillJournal != null && spill(payload)) {
+            Castle.logger.warn("Track batching queue is full, storing event in the spill journal.");
+            if (asyncCallbackHandler != null) {
+                asyncCallbackHandler.onException(new CastleRuntimeException("Track batching queue is full, event stored in the spill journal"));
+            }
+            return false;
+        }
+        metrics.increment(CastleMetrics.TRACK_BATCH_DROPPED);
+        Castle.logger.warn("Track batching queue is full, dropping event.");
+        if (asyncCallbackHandler != null) {
+            asyncCallbackHandler.onException(new CastleRuntimeException("Track batching queue is full"));
+        }
+        return false;
+    }
+
+    private boolean rejectClosed(AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        metrics.increment(CastleMetrics.TRACK_BATCH_DROPPED);
+        Castle.logger.warn("Track batching is closed, dropping event.");
+        if (asyncCallbackHandler != null) {
+            asyncCallbackHandler.onException(new CastleRuntimeException("Track batching is closed"));
+        }
+        return false;
+    }
+
+    /**
+     * Stops the flusher, sends the events waiting in the queue and waits for the answers of the batches in flight.
+     * <p>
+     * Events enqueued afterwards are dropped and their handler is informed with an exception.
+     *
+     * @param timeoutMillis maximum time to wait for the flusher and the batches in flight
+     */
+    void close(long timeoutMillis) {
+        closed = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        flusher.interrupt();
+        try {
+            flusher.join(Math.max(1, timeoutMillis));
+            // Sends what the flusher left behind, for instance when it was stuck past the timeout.
+            drainQueue();
+            synchronized (inFlight) {
+                long remaining;
+                while (inFlight.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(inFlight, remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (inFlight.get() > 0) {
+            Castle.logger.warn("Track batching closed before the last batches were answered.");
+        }
+    }
+
+    private void drainQueue() {
+        List<PendingTrack> batch = new ArrayList<>(flushSize);
+        while (queue.drainTo(batch, flushSize) > 0) {
+            flush(batch);
+            batch = new ArrayList<>(flushSize);
+        }
+    }
+
+    private boolean spill(CastlePayload payload) {
+        return spillJournal.append(SpillJournal.TRACK, null, payload.getJson().toByteArray());
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<PendingTrack> batch = new ArrayList<>(flushSize);
+            try {
+                collectBatch(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    // The events collected so far are sent with the rest of the queue.
+                    if (!batch.isEmpty()) {
+                        flush(batch);
+                    }
+                    drainQueue();
+                } else {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            } catch (RuntimeException e) {
+                Castle.logger.error("Track batching flusher failed to send a batch.", e);
+            }
+        }
+    }
+
+    private void collectBatch(List<PendingTrack> batch) throws InterruptedException {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < flushSize) {
+            if (queue.drainTo(batch, flushSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingTrack next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(final List<PendingTrack> batch) {
+        List<CastlePayload> payloads = new ArrayList<>(batch.size());
+        for (PendingTrack pending : batch) {
+            payloads.add(pending.payload);
+        }
+        metrics.increment(CastleMetrics.TRACK_BATCH_REQUESTS);
+        metrics.add(CastleMetrics.TRACK_BATCH_FLUSHED, batch.size());
+        inFlight.incrementAndGet();
+        try {
+            send(payloads, batch);
+        } catch (RuntimeException e) {
+            completed();
+            throw e;
+        }
+    }
+
+    private void send(List<CastlePayload> payloads, final List<PendingTrack> batch) {
+        restApiFactory.buildBackend().sendTrackBatch(payloads, new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                try {
+                    for (PendingTrack pending : batch) {
+                        if (pending.handler != null) {
+                            pending.handler.onResponse(response);
+                        }
+                    }
+                } finally {
+                    completed();
+                }
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                try {
+                    for (PendingTrack pending : batch) {
+                        if (pending.handler != null) {
+                            pending.handler.onException(exception);
+                        }
+                    }
+                } finally {
+                    completed();
+                }
+            }
+        });
+    }
+
+    private void completed() {
+        synchronized (inFlight) {
+            if (inFlight.decrementAndGet() == 0) {
+                inFlight.notifyAll();
+            }
+        }
+    }
+
+    private static class PendingTrack {
+        private final CastlePayload payload;
+        private final AsyncCallbackHandler<Boolean> handler;
+
+        private PendingTrack(CastlePayload payload, AsyncCallbackHandler<Boolean> handler) {
+            this.payload = payload;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for deriving the timeout of each endpoint group from its observed latency.
+ * <p>
+ * When enabled, the timeout of a whole call, and its connect, read and write timeouts, are the {@code percentile} of
+ * the recent latencies of its endpoint group multiplied by {@code headroom}, kept between {@code floorMillis} and
+ * {@code ceilingMillis}.
+ * Until enough calls were observed, the static timeout of the configuration is used within the same bounds.
+ */
+public class AdaptiveTimeoutConfiguration {
+
+    /**
+     * Flag to derive timeouts from observed latencies.
+     */
+    private final boolean enabled;
+
+    /**
+     * Percentile of recent latencies used as timeout.
+     */
+    private final double percentile;
+
+    /**
+     * Multiplier applied to the percentile.
+     */
+    private final double headroom;
+
+    /**
+     * Lowest timeout in milliseconds.
+     */
+    private final int floorMillis;
+
+    /**
+     * Highest timeout in milliseconds.
+     */
+    private final int ceilingMillis;
+
+    public AdaptiveTimeoutConfiguration(boolean enabled, double percentile, double headroom, int floorMillis, int ceilingMillis) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.headroom = headroom;
+        this.floorMillis = floorMillis;
+        this.ceilingMillis = ceilingMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public double getHeadroom() {
+        return headroom;
+    }
+
+    public int getFloorMillis() {
+        return floorMillis;
+    }
+
+    public int getCeilingMillis() {
+        return ceilingMillis;
+    }
+}
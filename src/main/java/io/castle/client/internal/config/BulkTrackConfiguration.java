@@ -0,0 +1,33 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for tracking a collection of events with {@link io.castle.client.api.CastleApi#trackAll}.
+ * <p>
+ * The events are split in chunks of {@code chunkSize} events, each sent on its own request, and at most
+ * {@code concurrency} of these requests are in flight at the same time.
+ */
+public class BulkTrackConfiguration {
+
+    /**
+     * Maximum number of events sent in a single request.
+     */
+    private final int chunkSize;
+
+    /**
+     * Maximum number of requests of a single call in flight at the same time.
+     */
+    private final int concurrency;
+
+    public BulkTrackConfiguration(int chunkSize, int concurrency) {
+        this.chunkSize = chunkSize;
+        this.concurrency = concurrency;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+}
@@ -1,10 +1,12 @@
 package io.castle.client.internal.config;
 
 import io.castle.client.internal.backend.CastleBackendProvider;
+import io.castle.client.internal.backend.CastleHttpProtocol;
 import io.castle.client.model.AuthenticateFailoverStrategy;
 import io.castle.client.model.CastleRuntimeException;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Application level settings used by the SDK singleton.
@@ -59,7 +61,127 @@ public class CastleConfiguration {
      */
     private final boolean logHttpRequests;
 
-    public CastleConfiguration(String apiBaseUrl, int timeout, AuthenticateFailoverStrategy authenticateFailoverStrategy, List<String> whiteListHeaders, List<String> blackListHeaders, String apiSecret, String castleAppId, CastleBackendProvider backendProvider, boolean logHttpRequests) {
+    /**
+     * Settings for batching track events.
+     */
+    private final TrackBatchingConfiguration trackBatching;
+
+    /**
+     * HTTP resources dedicated to the authenticate endpoint.
+     */
+    private final ConnectionLimits authenticateConnectionLimits;
+
+    /**
+     * HTTP resources dedicated to the track and identify endpoints.
+     */
+    private final ConnectionLimits trackConnectionLimits;
+
+    /**
+     * HTTP resources dedicated to the review endpoint.
+     */
+    private final ConnectionLimits reviewConnectionLimits;
+
+    /**
+     * Gzip compression of request bodies.
+     */
+    private final CompressionConfiguration compression;
+
+    /**
+     * HTTP protocol used for calls to the Castle API.
+     */
+    private final CastleHttpProtocol httpProtocol;
+
+    /**
+     * Warm-up, keep-alive and eviction of pooled connections.
+     */
+    private final ConnectionWarmupConfiguration connectionWarmup;
+
+    /**
+     * Hedging of authenticate requests.
+     */
+    private final HedgingConfiguration authenticateHedging;
+
+    /**
+     * Timeouts derived from observed latencies.
+     */
+    private final AdaptiveTimeoutConfiguration adaptiveTimeout;
+
+    /**
+     * Circuit breakers of the endpoint groups.
+     */
+    private final CircuitBreakerConfiguration circuitBreaker;
+
+    /**
+     * Retries of track and identify requests.
+     */
+    private final RetryConfiguration trackRetry;
+
+    /**
+     * On-disk journal of undeliverable events.
+     */
+    private final SpillJournalConfiguration spillJournal;
+
+    /**
+     * Client side rate limits of the endpoint groups.
+     */
+    private final RateLimitConfiguration rateLimit;
+
+    /**
+     * Priority-aware dropping of track events under pressure.
+     */
+    private final TrackSheddingConfiguration trackShedding;
+
+    /**
+     * Milliseconds after which a whole authenticate call fails, zero for no limit.
+     */
+    private final int authenticateCallTimeoutMillis;
+
+    /**
+     * Milliseconds after which a whole track or identify call fails, zero for no limit.
+     */
+    private final int trackCallTimeoutMillis;
+
+    /**
+     * Milliseconds after which a whole review call fails, zero for no limit.
+     */
+    private final int reviewCallTimeoutMillis;
+
+    /**
+     * Caching of host name lookups.
+     */
+    private final DnsCacheConfiguration dnsCache;
+
+    /**
+     * Routing of calls over several base URLs.
+     */
+    private final EndpointRoutingConfiguration endpointRouting;
+
+    /**
+     * Flag to share the result of authenticate and review calls with the identical calls made while they are in flight.
+     */
+    private final boolean requestCoalescing;
+
+    /**
+     * Caching of fetched reviews.
+     */
+    private final ReviewCacheConfiguration reviewCache;
+
+    /**
+     * Flag to run the calls and callbacks of the HTTP client on virtual threads.
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * Chunking and concurrency of calls tracking a collection of events.
+     */
+    private final BulkTrackConfiguration bulkTrack;
+
+    /**
+     * Executor running the callback handlers of async calls, null to run them on the threads of the backend.
+     */
+    private final Executor callbackExecutor;
+
+    public CastleConfiguration(String apiBaseUrl, int timeout, AuthenticateFailoverStrategy authenticateFailoverStrategy, List<String> whiteListHeaders, List<String> blackListHeaders, String apiSecret, String castleAppId, CastleBackendProvider backendProvider, boolean logHttpRequests, TrackBatchingConfiguration trackBatching, ConnectionLimits authenticateConnectionLimits, ConnectionLimits trackConnectionLimits, ConnectionLimits reviewConnectionLimits, CompressionConfiguration compression, CastleHttpProtocol httpProtocol, ConnectionWarmupConfiguration connectionWarmup, HedgingConfiguration authenticateHedging, AdaptiveTimeoutConfiguration adaptiveTimeout, CircuitBreakerConfiguration circuitBreaker, RetryConfiguration trackRetry, SpillJournalConfiguration spillJournal, RateLimitConfiguration rateLimit, TrackSheddingConfiguration trackShedding, int authenticateCallTimeoutMillis, int trackCallTimeoutMillis, int reviewCallTimeoutMillis, DnsCacheConfiguration dnsCache, EndpointRoutingConfiguration endpointRouting, boolean requestCoalescing, ReviewCacheConfiguration reviewCache, boolean virtualThreads, BulkTrackConfiguration bulkTrack, Executor callbackExecutor) {
         this.apiBaseUrl = apiBaseUrl;
         this.timeout = timeout;
         this.authenticateFailoverStrategy = authenticateFailoverStrategy;
@@ -69,6 +191,30 @@ public class CastleConfiguration {
         this.castleAppId = castleAppId;
         this.backendProvider = backendProvider;
         this.logHttpRequests = logHttpRequests;
+        this.trackBatching = trackBatching;
+        this.authenticateConnectionLimits = authenticateConnectionLimits;
+        this.trackConnectionLimits = trackConnectionLimits;
+        this.reviewConnectionLimits = reviewConnectionLimits;
+        this.compression = compression;
+        this.httpProtocol = httpProtocol;
+        this.connectionWarmup = connectionWarmup;
+        this.authenticateHedging = authenticateHedging;
+        this.adaptiveTimeout = adaptiveTimeout;
+        this.circuitBreaker = circuitBreaker;
+        this.trackRetry = trackRetry;
+        this.spillJournal = spillJournal;
+        this.rateLimit = rateLimit;
+        this.trackShedding = trackShedding;
+        this.authenticateCallTimeoutMillis = authenticateCallTimeoutMillis;
+        this.trackCallTimeoutMillis = trackCallTimeoutMillis;
+        this.reviewCallTimeoutMillis = reviewCallTimeoutMillis;
+        this.dnsCache = dnsCache;
+        this.endpointRouting = endpointRouting;
+        this.requestCoalescing = requestCoalescing;
+        this.reviewCache = reviewCache;
+        this.virtualThreads = virtualThreads;
+        this.bulkTrack = bulkTrack;
+        this.callbackExecutor = callbackExecutor;
     }
 
     public String getApiBaseUrl() {
@@ -116,4 +262,100 @@ public class CastleConfiguration {
     public boolean isLogHttpRequests() {
         return logHttpRequests;
     }
+
+    public TrackBatchingConfiguration getTrackBatching() {
+        return trackBatching;
+    }
+
+    public ConnectionLimits getAuthenticateConnectionLimits() {
+        return authenticateConnectionLimits;
+    }
+
+    public ConnectionLimits getTrackConnectionLimits() {
+        return trackConnectionLimits;
+    }
+
+    public ConnectionLimits getReviewConnectionLimits() {
+        return reviewConnectionLimits;
+    }
+
+    public CompressionConfiguration getCompression() {
+        return compression;
+    }
+
+    public CastleHttpProtocol getHttpProtocol() {
+        return httpProtocol;
+    }
+
+    public ConnectionWarmupConfiguration getConnectionWarmup() {
+        return connectionWarmup;
+    }
+
+    public HedgingConfiguration getAuthenticateHedging() {
+        return authenticateHedging;
+    }
+
+    public AdaptiveTimeoutConfiguration getAdaptiveTimeout() {
+        return adaptiveTimeout;
+    }
+
+    public CircuitBreakerConfiguration getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public RetryConfiguration getTrackRetry() {
+        return trackRetry;
+    }
+
+    public SpillJournalConfiguration getSpillJournal() {
+        return spillJournal;
+    }
+
+    public RateLimitConfiguration getRateLimit() {
+        return rateLimit;
+    }
+
+    public TrackSheddingConfiguration getTrackShedding() {
+        return trackShedding;
+    }
+
+    public int getAuthenticateCallTimeoutMillis() {
+        return authenticateCallTimeoutMillis;
+    }
+
+    public int getTrackCallTimeoutMillis() {
+        return trackCallTimeoutMillis;
+    }
+
+    public int getReviewCallTimeoutMillis() {
+        return reviewCallTimeoutMillis;
+    }
+
+    public DnsCacheConfiguration getDnsCache() {
+        return dnsCache;
+    }
+
+    public EndpointRoutingConfiguration getEndpointRouting() {
+        return endpointRouting;
+    }
+
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    public ReviewCacheConfiguration getReviewCache() {
+        return reviewCache;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public BulkTrackConfiguration getBulkTrack() {
+        return bulkTrack;
+    }
+
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
 }
@@ -2,14 +2,24 @@ package io.castle.client.internal.config;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.castle.client.internal.backend.CastleBackendProvider;
+import io.castle.client.internal.backend.CastleHttpProtocol;
 import io.castle.client.internal.utils.HeaderNormalizer;
+import io.castle.client.internal.utils.VirtualThreads;
 import io.castle.client.model.AuthenticateAction;
 import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CircuitBreakerListener;
 import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.TrackPriority;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Allows to programmatically create and validate a castleConfiguration through a DSL.
@@ -25,6 +35,26 @@ import java.util.List;
  * <li> apiSecret
  * <li> castleAppId
  * <li> backendProvider
+ * <li> trackBatching
+ * <li> authenticate, track and review connection limits
+ * <li> compression
+ * <li> httpProtocol
+ * <li> connection warm-up, keep-alive and idle timeout
+ * <li> authenticate hedging
+ * <li> adaptive timeouts
+ * <li> circuit breakers
+ * <li> track and identify retries
+ * <li> spill journal
+ * <li> rate limits
+ * <li> track load shedding
+ * <li> authenticate, track and review call timeouts
+ * <li> DNS cache
+ * <li> endpoint routing over several base URLs
+ * <li> request coalescing
+ * <li> review cache
+ * <li> virtual threads
+ * <li> chunk size and concurrency of bulk track calls
+ * <li> callback executor
  * </ul>
  * The {@code build} method provides a layer of validation.
  * It will throw a {@link CastleSdkConfigurationException} if one of the fields is left unset.
@@ -82,6 +112,348 @@ public class CastleConfigurationBuilder {
      */
     private boolean logHttpRequests = false;
 
+    /**
+     * Flag to send track events in batches from a background flusher.
+     */
+    private boolean trackBatching = false;
+
+    /**
+     * Maximum number of track events sent in a single batch.
+     */
+    private int trackBatchFlushSize = 100;
+
+    /**
+     * Milliseconds a track event can wait before a partial batch is sent.
+     */
+    private int trackBatchLingerMillis = 500;
+
+    /**
+     * Maximum number of track events waiting to be sent in a batch.
+     */
+    private int trackQueueCapacity = 10000;
+
+    /**
+     * Maximum concurrent async requests and idle connections dedicated to the authenticate endpoint.
+     */
+    private ConnectionLimits authenticateConnectionLimits = new ConnectionLimits(64, 5);
+
+    /**
+     * Maximum concurrent async requests and idle connections dedicated to the track and identify endpoints.
+     */
+    private ConnectionLimits trackConnectionLimits = new ConnectionLimits(64, 5);
+
+    /**
+     * Maximum concurrent async requests and idle connections dedicated to the review endpoint.
+     */
+    private ConnectionLimits reviewConnectionLimits = new ConnectionLimits(16, 2);
+
+    /**
+     * Flag to gzip compress request bodies.
+     */
+    private boolean compression = false;
+
+    /**
+     * Minimum size in bytes of a request body for it to be compressed.
+     */
+    private int compressionMinSizeBytes = 1024;
+
+    /**
+     * The HTTP protocol used for calls to the Castle API.
+     */
+    private CastleHttpProtocol httpProtocol = CastleHttpProtocol.HTTP_2;
+
+    /**
+     * Number of authenticate connections opened when the SDK is initialized.
+     */
+    private int warmupConnections = 0;
+
+    /**
+     * Milliseconds between keep-alive requests on warmed connections.
+     */
+    private int keepAliveIntervalMillis = 30000;
+
+    /**
+     * Milliseconds after which idle pooled connections are evicted.
+     */
+    private int idleConnectionTimeoutMillis = 300000;
+
+    /**
+     * Flag to hedge authenticate requests.
+     */
+    private boolean authenticateHedging = false;
+
+    /**
+     * Milliseconds to wait for an authenticate response before sending a hedge.
+     */
+    private int hedgeDelayMillis = 100;
+
+    /**
+     * Percentile of recent authenticate latencies used as hedge delay, zero to use the fixed delay.
+     */
+    private double hedgeDelayPercentile = 0;
+
+    /**
+     * Maximum percentage of authenticate requests sent a second time as hedges.
+     */
+    private double hedgeBudgetPercent = 5;
+
+    /**
+     * Flag to derive timeouts from observed latencies.
+     */
+    private boolean adaptiveTimeout = false;
+
+    /**
+     * Percentile of recent latencies used as adaptive timeout.
+     */
+    private double adaptiveTimeoutPercentile = 99.9;
+
+    /**
+     * Multiplier applied to the observed percentile to get the adaptive timeout.
+     */
+    private double adaptiveTimeoutHeadroom = 1.5;
+
+    /**
+     * Lowest adaptive timeout in milliseconds.
+     */
+    private int adaptiveTimeoutFloorMillis = 100;
+
+    /**
+     * Highest adaptive timeout in milliseconds.
+     */
+    private int adaptiveTimeoutCeilingMillis = 2000;
+
+    /**
+     * Flag to protect endpoint groups with circuit breakers.
+     */
+    private boolean circuitBreaker = false;
+
+    /**
+     * Percentage of failed calls that opens a circuit breaker.
+     */
+    private double circuitBreakerFailureRateThreshold = 50;
+
+    /**
+     * Percentage of slow calls that opens a circuit breaker.
+     */
+    private double circuitBreakerSlowCallRateThreshold = 80;
+
+    /**
+     * Milliseconds after which a call counts as slow for the circuit breaker.
+     */
+    private int circuitBreakerSlowCallDurationMillis = 300;
+
+    /**
+     * Number of calls recorded before a circuit breaker evaluates its rates.
+     */
+    private int circuitBreakerMinimumCalls = 20;
+
+    /**
+     * Number of recent calls the rates of a circuit breaker are computed from.
+     */
+    private int circuitBreakerWindowSize = 100;
+
+    /**
+     * Milliseconds an open circuit breaker fails calls before probing the API.
+     */
+    private int circuitBreakerOpenDurationMillis = 10000;
+
+    /**
+     * Number of probe calls a half-open circuit breaker lets through.
+     */
+    private int circuitBreakerHalfOpenProbes = 3;
+
+    /**
+     * Listener informed of circuit breaker state changes.
+     */
+    private CircuitBreakerListener circuitBreakerListener;
+
+    /**
+     * Flag to retry failed track and identify requests.
+     */
+    private boolean trackRetries = false;
+
+    /**
+     * Maximum number of attempts of a track or identify request, including the first one.
+     */
+    private int trackRetryMaxAttempts = 3;
+
+    /**
+     * Backoff in milliseconds before the first retry.
+     */
+    private int trackRetryInitialBackoffMillis = 100;
+
+    /**
+     * Highest backoff in milliseconds between two attempts.
+     */
+    private int trackRetryMaxBackoffMillis = 2000;
+
+    /**
+     * Maximum percentage of track and identify requests sent again as retries.
+     */
+    private double trackRetryBudgetPercent = 10;
+
+    /**
+     * Flag to store undeliverable events on disk.
+     */
+    private boolean spillJournal = false;
+
+    /**
+     * Directory of the spill journal files.
+     */
+    private String spillJournalDirectory = new File(System.getProperty("java.io.tmpdir"), "castle-spill").getPath();
+
+    /**
+     * Size in bytes of each spill journal segment file.
+     */
+    private int spillJournalSegmentSizeBytes = 4 * 1024 * 1024;
+
+    /**
+     * Maximum number of bytes used by the spill journal.
+     */
+    private long spillJournalMaxDiskBytes = 64L * 1024 * 1024;
+
+    /**
+     * Maximum number of stored events replayed per second.
+     */
+    private int spillDrainRatePerSecond = 50;
+
+    /**
+     * Flag to limit the rate of requests and honor {@code 429} responses.
+     */
+    private boolean rateLimiting = false;
+
+    /**
+     * Maximum number of authenticate requests per second, zero for no limit.
+     */
+    private double authenticateRatePerSecond = 0;
+
+    /**
+     * Number of authenticate requests that can be sent at once after a quiet period.
+     */
+    private int authenticateBurst = 10;
+
+    /**
+     * Maximum number of track and identify requests per second, zero for no limit.
+     */
+    private double trackRatePerSecond = 0;
+
+    /**
+     * Number of track and identify requests that can be sent at once after a quiet period.
+     */
+    private int trackBurst = 10;
+
+    /**
+     * Longest pause in milliseconds honored when the Castle API asks to slow down.
+     */
+    private int rateLimitMaxPauseMillis = 60000;
+
+    /**
+     * Flag to drop low priority track events under pressure.
+     */
+    private boolean trackLoadShedding = false;
+
+    /**
+     * Number of outstanding track events at which every event but the critical ones is dropped.
+     */
+    private int trackMaxOutstanding = 1000;
+
+    /**
+     * Latency in milliseconds of recent track events above which low and normal priority events are dropped.
+     */
+    private int trackSheddingLatencyMillis = 2000;
+
+    /**
+     * Priorities of the track events by event name pattern.
+     * By default login, challenge and password reset events are critical and the other Castle events are high
+     * priority.
+     */
+    private Map<String, TrackPriority> trackPriorities = defaultTrackPriorities();
+
+    /**
+     * Milliseconds after which a whole authenticate call fails, zero for no limit.
+     */
+    private int authenticateCallTimeoutMillis = 0;
+
+    /**
+     * Milliseconds after which a whole track or identify call fails, zero for no limit.
+     */
+    private int trackCallTimeoutMillis = 0;
+
+    /**
+     * Milliseconds after which a whole review call fails, zero for no limit.
+     */
+    private int reviewCallTimeoutMillis = 0;
+
+    /**
+     * Flag to cache host name lookups.
+     */
+    private boolean dnsCache = false;
+
+    /**
+     * Milliseconds a host name lookup is used before being resolved again.
+     */
+    private int dnsCacheTtlMillis = 60000;
+
+    /**
+     * Milliseconds after their expiry during which the last known addresses are used when the resolver fails.
+     */
+    private int dnsMaxStaleMillis = 600000;
+
+    /**
+     * Base URLs calls are routed over, null when only {@code apiBaseUrl} is used.
+     */
+    private List<String> apiBaseUrls;
+
+    /**
+     * Milliseconds a base URL is skipped after a failure.
+     */
+    private int endpointCooldownMillis = 5000;
+
+    /**
+     * Flag to share the result of authenticate and review calls with the identical calls made while they are in flight.
+     */
+    private boolean requestCoalescing = false;
+
+    /**
+     * Flag to cache fetched reviews.
+     */
+    private boolean reviewCache = false;
+
+    /**
+     * Maximum number of cached reviews.
+     */
+    private int reviewCacheMaxSize = 10000;
+
+    /**
+     * Milliseconds a review is cached.
+     */
+    private int reviewCacheTtlMillis = 3600000;
+
+    /**
+     * Whether the time to live of a cached review counts from its fetch or from its last read.
+     */
+    private ReviewCacheExpiry reviewCacheExpiry = ReviewCacheExpiry.AFTER_WRITE;
+
+    /**
+     * Flag to run the calls and callbacks of the HTTP client on virtual threads.
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * Maximum number of events sent in a single request by {@code trackAll}.
+     */
+    private int trackAllChunkSize = 100;
+
+    /**
+     * Maximum number of requests of a single {@code trackAll} call in flight at the same time.
+     */
+    private int trackAllConcurrency = 4;
+
+    /**
+     * Executor running the callback handlers of async calls, null to run them on the threads of the backend.
+     */
+    private Executor callbackExecutor;
+
     private CastleConfigurationBuilder() {
     }
 
@@ -324,6 +696,79 @@ public class CastleConfigurationBuilder {
         if (apiBaseUrl == null) {
             builder.add("A apiBaseUrl value must be selected. If not sure, then use the default values provided by method withDefaultApiBaseUrl. Read documentation for further details.");
         }
+        if (trackBatching && (trackBatchFlushSize <= 0 || trackBatchLingerMillis < 0 || trackQueueCapacity <= 0)) {
+            builder.add("Track batching requires a positive flush size and queue capacity, and a linger time that is not negative.");
+        }
+        if (!isValid(authenticateConnectionLimits) || !isValid(trackConnectionLimits) || !isValid(reviewConnectionLimits)) {
+            builder.add("Connection limits must allow at least one concurrent request and can not have a negative number of idle connections.");
+        }
+        if (compressionMinSizeBytes < 0) {
+            builder.add("The minimum size of compressed request bodies can not be negative.");
+        }
+        if (httpProtocol == null) {
+            builder.add("An HTTP protocol must be selected. If not sure, then use the default value HTTP_2.");
+        } else if (httpProtocol == CastleHttpProtocol.H2_PRIOR_KNOWLEDGE && !allHttp()) {
+            builder.add("The H2_PRIOR_KNOWLEDGE protocol can only be used with an http apiBaseUrl.");
+        }
+        if (warmupConnections < 0 || idleConnectionTimeoutMillis <= 0) {
+            builder.add("The number of warm-up connections can not be negative and the idle connection timeout must be positive.");
+        } else if (warmupConnections > 0) {
+            if (authenticateConnectionLimits != null && warmupConnections > authenticateConnectionLimits.getMaxIdleConnections()) {
+                builder.add("The number of warm-up connections can not exceed the idle connections of the authenticate endpoint.");
+            }
+            if (keepAliveIntervalMillis < 0 || keepAliveIntervalMillis >= idleConnectionTimeoutMillis) {
+                builder.add("The keep-alive interval can not be negative and must be shorter than the idle connection timeout.");
+            }
+        }
+        if (authenticateHedging && (hedgeDelayMillis <= 0 || hedgeDelayPercentile < 0 || hedgeDelayPercentile >= 100
+                || hedgeBudgetPercent <= 0 || hedgeBudgetPercent > 100)) {
+            builder.add("Authenticate hedging requires a positive delay, a delay percentile from 0 to below 100 and a budget percentage above 0 and up to 100.");
+        }
+        if (adaptiveTimeout && (adaptiveTimeoutPercentile <= 0 || adaptiveTimeoutPercentile > 100 || adaptiveTimeoutHeadroom < 1
+                || adaptiveTimeoutFloorMillis <= 0 || adaptiveTimeoutCeilingMillis < adaptiveTimeoutFloorMillis)) {
+            builder.add("Adaptive timeouts require a percentile above 0 and up to 100, a headroom of at least 1, a positive floor and a ceiling not lower than the floor.");
+        }
+        if (circuitBreaker && (circuitBreakerFailureRateThreshold <= 0 || circuitBreakerFailureRateThreshold > 100
+                || circuitBreakerSlowCallRateThreshold <= 0 || circuitBreakerSlowCallRateThreshold > 100
+                || circuitBreakerSlowCallDurationMillis <= 0 || circuitBreakerOpenDurationMillis <= 0
+                || circuitBreakerMinimumCalls <= 0 || circuitBreakerWindowSize < circuitBreakerMinimumCalls
+                || circuitBreakerHalfOpenProbes <= 0)) {
+            builder.add("Circuit breakers require rate thresholds above 0 and up to 100, a positive slow call duration, open duration and number of probes, and a window not smaller than the minimum number of calls.");
+        }
+        if (trackRetries && (trackRetryMaxAttempts < 1 || trackRetryInitialBackoffMillis <= 0
+                || trackRetryMaxBackoffMillis < trackRetryInitialBackoffMillis
+                || trackRetryBudgetPercent <= 0 || trackRetryBudgetPercent > 100)) {
+            builder.add("Track retries require at least one attempt, a positive initial backoff not higher than the maximum backoff and a budget percentage above 0 and up to 100.");
+        }
+        if (spillJournal && (spillJournalDirectory == null || spillJournalSegmentSizeBytes < 1024
+                || spillJournalMaxDiskBytes < 2L * spillJournalSegmentSizeBytes || spillDrainRatePerSecond <= 0)) {
+            builder.add("The spill journal requires a directory, segments of at least 1024 bytes, a disk cap of at least two segments and a positive drain rate.");
+        }
+        if (rateLimiting && (authenticateRatePerSecond < 0 || authenticateBurst < 1
+                || trackRatePerSecond < 0 || trackBurst < 1 || rateLimitMaxPauseMillis <= 0)) {
+            builder.add("Rate limits require rates that are not negative, bursts of at least one request and a positive maximum pause.");
+        }
+        if (trackLoadShedding && (trackMaxOutstanding < 2 || trackSheddingLatencyMillis <= 0)) {
+            builder.add("Track load shedding requires at least 2 outstanding events and a positive latency threshold.");
+        }
+        if (authenticateCallTimeoutMillis < 0 || trackCallTimeoutMillis < 0 || reviewCallTimeoutMillis < 0) {
+            builder.add("Call timeouts can not be negative.");
+        }
+        if (dnsCache && (dnsCacheTtlMillis <= 0 || dnsMaxStaleMillis < 0)) {
+            builder.add("The DNS cache requires a positive time to live and a maximum staleness that is not negative.");
+        }
+        if ((apiBaseUrls != null && (apiBaseUrls.isEmpty() || apiBaseUrls.contains(null))) || endpointCooldownMillis <= 0) {
+            builder.add("Endpoint routing requires at least one base URL, no null base URLs and a positive cooldown.");
+        }
+        if (reviewCache && (reviewCacheMaxSize <= 0 || reviewCacheTtlMillis <= 0 || reviewCacheExpiry == null)) {
+            builder.add("The review cache requires a positive size and time to live, and an expiry.");
+        }
+        if (virtualThreads && !VirtualThreads.isAvailable()) {
+            builder.add("Virtual threads require Java 21 or later.");
+        }
+        if (trackAllChunkSize <= 0 || trackAllConcurrency <= 0) {
+            builder.add("Bulk track calls require a positive chunk size and concurrency.");
+        }
         ImmutableList<String> errorMessages = builder.build();
         if (!errorMessages.isEmpty()) {
             throw new CastleSdkConfigurationException(Joiner.on(System.lineSeparator()).join(errorMessages));
@@ -336,7 +781,62 @@ public class CastleConfigurationBuilder {
                 apiSecret,
                 castleAppId,
                 backendProvider,
-                logHttpRequests);
+                logHttpRequests,
+                new TrackBatchingConfiguration(trackBatching, trackBatchFlushSize, trackBatchLingerMillis, trackQueueCapacity),
+                authenticateConnectionLimits,
+                trackConnectionLimits,
+                reviewConnectionLimits,
+                new CompressionConfiguration(compression, compressionMinSizeBytes),
+                httpProtocol,
+                new ConnectionWarmupConfiguration(warmupConnections, keepAliveIntervalMillis, idleConnectionTimeoutMillis),
+                new HedgingConfiguration(authenticateHedging, hedgeDelayMillis, hedgeDelayPercentile, hedgeBudgetPercent),
+                new AdaptiveTimeoutConfiguration(adaptiveTimeout, adaptiveTimeoutPercentile, adaptiveTimeoutHeadroom, adaptiveTimeoutFloorMillis, adaptiveTimeoutCeilingMillis),
+                new CircuitBreakerConfiguration(circuitBreaker, circuitBreakerFailureRateThreshold,
+                        circuitBreakerSlowCallRateThreshold, circuitBreakerSlowCallDurationMillis,
+                        circuitBreakerMinimumCalls, circuitBreakerWindowSize, circuitBreakerOpenDurationMillis,
+                        circuitBreakerHalfOpenProbes, circuitBreakerListener),
+                new RetryConfiguration(trackRetries, trackRetryMaxAttempts, trackRetryInitialBackoffMillis,
+                        trackRetryMaxBackoffMillis, trackRetryBudgetPercent),
+                new SpillJournalConfiguration(spillJournal, spillJournalDirectory, spillJournalSegmentSizeBytes,
+                        spillJournalMaxDiskBytes, spillDrainRatePerSecond),
+                new RateLimitConfiguration(rateLimiting, authenticateRatePerSecond, authenticateBurst,
+                        trackRatePerSecond, trackBurst, rateLimitMaxPauseMillis),
+                new TrackSheddingConfiguration(trackLoadShedding, trackMaxOutstanding, trackSheddingLatencyMillis,
+                        ImmutableMap.copyOf(trackPriorities)),
+                authenticateCallTimeoutMillis,
+                trackCallTimeoutMillis,
+                reviewCallTimeoutMillis,
+                new DnsCacheConfiguration(dnsCache, dnsCacheTtlMillis, dnsMaxStaleMillis),
+                new EndpointRoutingConfiguration(
+                        apiBaseUrls != null ? ImmutableList.copyOf(apiBaseUrls) : ImmutableList.of(apiBaseUrl),
+                        endpointCooldownMillis),
+                requestCoalescing,
+                new ReviewCacheConfiguration(reviewCache, reviewCacheMaxSize, reviewCacheTtlMillis, reviewCacheExpiry),
+                virtualThreads,
+                new BulkTrackConfiguration(trackAllChunkSize, trackAllConcurrency),
+                callbackExecutor);
+    }
+
+    private static Map<String, TrackPriority> defaultTrackPriorities() {
+        Map<String, TrackPriority> priorities = new LinkedHashMap<>();
+        priorities.put("$login.*", TrackPriority.CRITICAL);
+        priorities.put("$challenge.*", TrackPriority.CRITICAL);
+        priorities.put("$password_reset_request.*", TrackPriority.CRITICAL);
+        priorities.put("$*", TrackPriority.HIGH);
+        return priorities;
+    }
+
+    private static boolean isValid(ConnectionLimits limits) {
+        return limits != null && limits.getMaxConcurrentRequests() > 0 && limits.getMaxIdleConnections() >= 0;
+    }
+
+    private boolean allHttp() {
+        for (String url : apiBaseUrls != null ? apiBaseUrls : ImmutableList.of(apiBaseUrl)) {
+            if (url != null && !url.startsWith("http://")) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -373,6 +873,7 @@ public class CastleConfigurationBuilder {
      */
     public CastleConfigurationBuilder withApiBaseUrl(String apiBaseUrl) {
         this.apiBaseUrl = apiBaseUrl;
+        this.apiBaseUrls = null;
         return this;
     }
 
@@ -391,4 +892,801 @@ public class CastleConfigurationBuilder {
     public CastleConfigurationBuilder enableHttpLogging(Boolean logHttpRequests) {
         return withLogHttpRequests(logHttpRequests);
     }
-}
\ No newline at end of file
+
+    /**
+     * Flag to send track events in batches from a background flusher instead of one request per event.
+     *
+     * @param trackBatching boolean to switch batching on or off
+     * @return a castleConfigurationBuilder with track batching set
+     */
+    public CastleConfigurationBuilder withTrackBatching(boolean trackBatching) {
+        this.trackBatching = trackBatching;
+        return this;
+    }
+
+    /**
+     * Sets the number of queued track events that triggers a flush.
+     *
+     * @param trackBatchFlushSize maximum number of events sent in a single request; positive
+     * @return a castleConfigurationBuilder with the batch flush size set
+     */
+    public CastleConfigurationBuilder withTrackBatchFlushSize(int trackBatchFlushSize) {
+        this.trackBatchFlushSize = trackBatchFlushSize;
+        return this;
+    }
+
+    /**
+     * Sets the milliseconds a track event can wait in the queue before a partial batch is flushed.
+     *
+     * @param trackBatchLingerMillis linger time in milliseconds; not negative
+     * @return a castleConfigurationBuilder with the batch linger time set
+     */
+    public CastleConfigurationBuilder withTrackBatchLingerMillis(int trackBatchLingerMillis) {
+        this.trackBatchLingerMillis = trackBatchLingerMillis;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of track events waiting to be flushed.
+     * <p>
+     * Events tracked while the queue is full are dropped.
+     *
+     * @param trackQueueCapacity capacity of the batching queue; positive
+     * @return a castleConfigurationBuilder with the batching queue capacity set
+     */
+    public CastleConfigurationBuilder withTrackQueueCapacity(int trackQueueCapacity) {
+        this.trackQueueCapacity = trackQueueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the HTTP resources dedicated to the authenticate endpoint.
+     * <p>
+     * Authenticate calls use their own dispatcher and connection pool, so they never wait behind track or review
+     * traffic.
+     *
+     * @param maxConcurrentRequests maximum number of async authenticate requests executed at the same time; positive
+     * @param maxIdleConnections    maximum number of idle connections kept for authenticate calls; not negative
+     * @return a castleConfigurationBuilder with the authenticate connection limits set
+     */
+    public CastleConfigurationBuilder withAuthenticateConnectionLimits(int maxConcurrentRequests, int maxIdleConnections) {
+        this.authenticateConnectionLimits = new ConnectionLimits(maxConcurrentRequests, maxIdleConnections);
+        return this;
+    }
+
+    /**
+     * Sets the HTTP resources dedicated to the track and identify endpoints.
+     *
+     * @param maxConcurrentRequests maximum number of track and identify requests executed at the same time; positive
+     * @param maxIdleConnections    maximum number of idle connections kept for track and identify calls; not negative
+     * @return a castleConfigurationBuilder with the track connection limits set
+     */
+    public CastleConfigurationBuilder withTrackConnectionLimits(int maxConcurrentRequests, int maxIdleConnections) {
+        this.trackConnectionLimits = new ConnectionLimits(maxConcurrentRequests, maxIdleConnections);
+        return this;
+    }
+
+    /**
+     * Sets the HTTP resources dedicated to the review endpoint.
+     *
+     * @param maxConcurrentRequests maximum number of async review requests executed at the same time; positive
+     * @param maxIdleConnections    maximum number of idle connections kept for review calls; not negative
+     * @return a castleConfigurationBuilder with the review connection limits set
+     */
+    public CastleConfigurationBuilder withReviewConnectionLimits(int maxConcurrentRequests, int maxIdleConnections) {
+        this.reviewConnectionLimits = new ConnectionLimits(maxConcurrentRequests, maxIdleConnections);
+        return this;
+    }
+
+    /**
+     * Flag to gzip compress the bodies of requests sent to the Castle API.
+     *
+     * @param compression boolean to switch compression on or off
+     * @return a castleConfigurationBuilder with request compression set
+     */
+    public CastleConfigurationBuilder withCompression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Sets the minimum size of a request body for it to be compressed.
+     * <p>
+     * Smaller bodies are sent uncompressed, even when compression is enabled.
+     *
+     * @param compressionMinSizeBytes minimum uncompressed size in bytes; not negative
+     * @return a castleConfigurationBuilder with the compression threshold set
+     */
+    public CastleConfigurationBuilder withCompressionMinSizeBytes(int compressionMinSizeBytes) {
+        this.compressionMinSizeBytes = compressionMinSizeBytes;
+        return this;
+    }
+
+    /**
+     * Sets the HTTP protocol used for calls to the Castle API.
+     * <p>
+     * With HTTP/2, concurrent calls of an endpoint group are multiplexed over a single connection.
+     *
+     * @param httpProtocol protocol to use; not null
+     * @return a castleConfigurationBuilder with the HTTP protocol set
+     */
+    public CastleConfigurationBuilder withHttpProtocol(CastleHttpProtocol httpProtocol) {
+        this.httpProtocol = httpProtocol;
+        return this;
+    }
+
+    /**
+     * Sets the number of authenticate connections opened, including their TLS handshake, when the SDK is initialized.
+     * <p>
+     * Warmed connections are kept alive by a lightweight request every {@code keepAliveIntervalMillis}, so that the
+     * first authenticate call after initialization or after a quiet period does not pay for connection setup.
+     *
+     * @param warmupConnections number of connections to keep ready, zero to disable warm-up; not more than the idle
+     *                          connections of the authenticate endpoint
+     * @return a castleConfigurationBuilder with the number of warm-up connections set
+     */
+    public CastleConfigurationBuilder withWarmupConnections(int warmupConnections) {
+        this.warmupConnections = warmupConnections;
+        return this;
+    }
+
+    /**
+     * Sets the milliseconds between keep-alive requests on warmed connections.
+     *
+     * @param keepAliveIntervalMillis interval in milliseconds, zero to only warm connections at initialization;
+     *                                shorter than the idle connection timeout
+     * @return a castleConfigurationBuilder with the keep-alive interval set
+     */
+    public CastleConfigurationBuilder withKeepAliveIntervalMillis(int keepAliveIntervalMillis) {
+        this.keepAliveIntervalMillis = keepAliveIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Sets the milliseconds after which idle pooled connections are evicted.
+     * <p>
+     * The value should be shorter than the idle timeout of the server or proxy in front of the Castle API, so that
+     * connections are evicted before the server closes them.
+     *
+     * @param idleConnectionTimeoutMillis idle timeout in milliseconds; positive
+     * @return a castleConfigurationBuilder with the idle connection timeout set
+     */
+    public CastleConfigurationBuilder withIdleConnectionTimeoutMillis(int idleConnectionTimeoutMillis) {
+        this.idleConnectionTimeoutMillis = idleConnectionTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Flag to hedge authenticate requests.
+     * <p>
+     * An authenticate request that has not been answered after the hedge delay is sent a second time, the first
+     * response received is used and the other request is cancelled.
+     *
+     * @param authenticateHedging boolean to switch hedging on or off
+     * @return a castleConfigurationBuilder with authenticate hedging set
+     */
+    public CastleConfigurationBuilder withAuthenticateHedging(boolean authenticateHedging) {
+        this.authenticateHedging = authenticateHedging;
+        return this;
+    }
+
+    /**
+     * Sets the milliseconds to wait for an authenticate response before sending a hedge.
+     * <p>
+     * When a delay percentile is set, this delay is only used until enough authenticate calls were observed.
+     *
+     * @param hedgeDelayMillis delay in milliseconds; positive
+     * @return a castleConfigurationBuilder with the hedge delay set
+     */
+    public CastleConfigurationBuilder withHedgeDelayMillis(int hedgeDelayMillis) {
+        this.hedgeDelayMillis = hedgeDelayMillis;
+        return this;
+    }
+
+    /**
+     * Sets the percentile of recent authenticate latencies used as hedge delay.
+     * <p>
+     * For example, with 95 a hedge is sent for the requests slower than 95% of the recent ones.
+     *
+     * @param hedgeDelayPercentile percentile from 0 to below 100, zero to always use the fixed hedge delay
+     * @return a castleConfigurationBuilder with the hedge delay percentile set
+     */
+    public CastleConfigurationBuilder withHedgeDelayPercentile(double hedgeDelayPercentile) {
+        this.hedgeDelayPercentile = hedgeDelayPercentile;
+        return this;
+    }
+
+    /**
+     * Sets the maximum percentage of authenticate requests that can be sent a second time as hedges.
+     * <p>
+     * Once the budget is spent, slow requests are not hedged until enough new authenticate calls were made.
+     *
+     * @param hedgeBudgetPercent percentage above 0 and up to 100
+     * @return a castleConfigurationBuilder with the hedge budget set
+     */
+    public CastleConfigurationBuilder withHedgeBudgetPercent(double hedgeBudgetPercent) {
+        this.hedgeBudgetPercent = hedgeBudgetPercent;
+        return this;
+    }
+
+    /**
+     * Flag to derive the timeouts of each endpoint group from its observed latency.
+     * <p>
+     * The timeout of a whole call, and its connect, read and write timeouts, become the target percentile of the
+     * recent latencies of its endpoint group times the headroom, within the floor and ceiling. The static timeout is
+     * used until enough calls were observed.
+     *
+     * @param adaptiveTimeout boolean to switch adaptive timeouts on or off
+     * @return a castleConfigurationBuilder with adaptive timeouts set
+     */
+    public CastleConfigurationBuilder withAdaptiveTimeout(boolean adaptiveTimeout) {
+        this.adaptiveTimeout = adaptiveTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the percentile of recent latencies used as adaptive timeout.
+     *
+     * @param adaptiveTimeoutPercentile percentile above 0 and up to 100
+     * @return a castleConfigurationBuilder with the adaptive timeout percentile set
+     */
+    public CastleConfigurationBuilder withAdaptiveTimeoutPercentile(double adaptiveTimeoutPercentile) {
+        this.adaptiveTimeoutPercentile = adaptiveTimeoutPercentile;
+        return this;
+    }
+
+    /**
+     * Sets the multiplier applied to the observed percentile, so that calls slightly slower than the recent ones are
+     * not cut.
+     *
+     * @param adaptiveTimeoutHeadroom multiplier; at least 1
+     * @return a castleConfigurationBuilder with the adaptive timeout headroom set
+     */
+    public CastleConfigurationBuilder withAdaptiveTimeoutHeadroom(double adaptiveTimeoutHeadroom) {
+        this.adaptiveTimeoutHeadroom = adaptiveTimeoutHeadroom;
+        return this;
+    }
+
+    /**
+     * Sets the lowest timeout in milliseconds that adaptive timeouts can apply.
+     *
+     * @param adaptiveTimeoutFloorMillis floor in milliseconds; positive
+     * @return a castleConfigurationBuilder with the adaptive timeout floor set
+     */
+    public CastleConfigurationBuilder withAdaptiveTimeoutFloorMillis(int adaptiveTimeoutFloorMillis) {
+        this.adaptiveTimeoutFloorMillis = adaptiveTimeoutFloorMillis;
+        return this;
+    }
+
+    /**
+     * Sets the highest timeout in milliseconds that adaptive timeouts can apply.
+     *
+     * @param adaptiveTimeoutCeilingMillis ceiling in milliseconds; not lower than the floor
+     * @return a castleConfigurationBuilder with the adaptive timeout ceiling set
+     */
+    public CastleConfigurationBuilder withAdaptiveTimeoutCeilingMillis(int adaptiveTimeoutCeilingMillis) {
+        this.adaptiveTimeoutCeilingMillis = adaptiveTimeoutCeilingMillis;
+        return this;
+    }
+
+    /**
+     * Flag to protect each endpoint group with a circuit breaker.
+     * <p>
+     * While the breaker of the authenticate endpoint is open, authenticate calls return the failover verdict
+     * immediately, with a failover reason telling that the circuit breaker is open, instead of waiting for the timeout.
+     *
+     * @param circuitBreaker boolean to switch circuit breakers on or off
+     * @return a castleConfigurationBuilder with circuit breakers set
+     */
+    public CastleConfigurationBuilder withCircuitBreaker(boolean circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Sets the percentage of failed calls, IO errors and server errors, that opens a circuit breaker.
+     *
+     * @param circuitBreakerFailureRateThreshold percentage above 0 and up to 100
+     * @return a castleConfigurationBuilder with the failure rate threshold set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerFailureRateThreshold(double circuitBreakerFailureRateThreshold) {
+        this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the percentage of slow calls that opens a circuit breaker.
+     *
+     * @param circuitBreakerSlowCallRateThreshold percentage above 0 and up to 100
+     * @return a castleConfigurationBuilder with the slow call rate threshold set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerSlowCallRateThreshold(double circuitBreakerSlowCallRateThreshold) {
+        this.circuitBreakerSlowCallRateThreshold = circuitBreakerSlowCallRateThreshold;
+        return this;
+    }
+
+    /**
+     * Sets the duration after which a call counts as slow for the circuit breaker.
+     *
+     * @param circuitBreakerSlowCallDurationMillis duration in milliseconds; positive
+     * @return a castleConfigurationBuilder with the slow call duration set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerSlowCallDurationMillis(int circuitBreakerSlowCallDurationMillis) {
+        this.circuitBreakerSlowCallDurationMillis = circuitBreakerSlowCallDurationMillis;
+        return this;
+    }
+
+    /**
+     * Sets the number of recent calls the rates of a circuit breaker are computed from, and the number of calls
+     * recorded before the rates are evaluated.
+     *
+     * @param circuitBreakerWindowSize   size of the window of recent calls; not smaller than the minimum calls
+     * @param circuitBreakerMinimumCalls calls needed before the breaker can open; positive
+     * @return a castleConfigurationBuilder with the circuit breaker window set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerWindow(int circuitBreakerWindowSize, int circuitBreakerMinimumCalls) {
+        this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+        this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+        return this;
+    }
+
+    /**
+     * Sets the duration an open circuit breaker fails calls before letting probe calls through.
+     *
+     * @param circuitBreakerOpenDurationMillis duration in milliseconds; positive
+     * @return a castleConfigurationBuilder with the open duration set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerOpenDurationMillis(int circuitBreakerOpenDurationMillis) {
+        this.circuitBreakerOpenDurationMillis = circuitBreakerOpenDurationMillis;
+        return this;
+    }
+
+    /**
+     * Sets the number of probe calls a half-open circuit breaker lets through; the breaker closes when all of them
+     * succeed and opens again as soon as one fails or is slow.
+     *
+     * @param circuitBreakerHalfOpenProbes number of probe calls; positive
+     * @return a castleConfigurationBuilder with the number of probes set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerHalfOpenProbes(int circuitBreakerHalfOpenProbes) {
+        this.circuitBreakerHalfOpenProbes = circuitBreakerHalfOpenProbes;
+        return this;
+    }
+
+    /**
+     * Sets a listener informed when the circuit breaker of an endpoint group changes state.
+     *
+     * @param circuitBreakerListener listener, null to remove it
+     * @return a castleConfigurationBuilder with the circuit breaker listener set
+     */
+    public CastleConfigurationBuilder withCircuitBreakerListener(CircuitBreakerListener circuitBreakerListener) {
+        this.circuitBreakerListener = circuitBreakerListener;
+        return this;
+    }
+
+    /**
+     * Flag to retry track and identify requests that fail with an IO error or a retryable status code.
+     * <p>
+     * Every attempt of a request carries the same {@code Idempotency-Key} header.
+     *
+     * @param trackRetries boolean to switch retries on or off
+     * @return a castleConfigurationBuilder with track retries set
+     */
+    public CastleConfigurationBuilder withTrackRetries(boolean trackRetries) {
+        this.trackRetries = trackRetries;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of attempts of a track or identify request.
+     *
+     * @param trackRetryMaxAttempts number of attempts, including the first one; positive
+     * @return a castleConfigurationBuilder with the maximum number of attempts set
+     */
+    public CastleConfigurationBuilder withTrackRetryMaxAttempts(int trackRetryMaxAttempts) {
+        this.trackRetryMaxAttempts = trackRetryMaxAttempts;
+        return this;
+    }
+
+    /**
+     * Sets the exponential backoff between attempts, to which full jitter is applied.
+     *
+     * @param initialBackoffMillis backoff before the first retry in milliseconds; positive
+     * @param maxBackoffMillis     highest backoff in milliseconds; not lower than the initial backoff
+     * @return a castleConfigurationBuilder with the retry backoff set
+     */
+    public CastleConfigurationBuilder withTrackRetryBackoffMillis(int initialBackoffMillis, int maxBackoffMillis) {
+        this.trackRetryInitialBackoffMillis = initialBackoffMillis;
+        this.trackRetryMaxBackoffMillis = maxBackoffMillis;
+        return this;
+    }
+
+    /**
+     * Sets the maximum percentage of track and identify requests that can be sent again as retries.
+     * <p>
+     * Once the budget is spent, failed requests are not retried until enough new requests were made.
+     *
+     * @param trackRetryBudgetPercent percentage above 0 and up to 100
+     * @return a castleConfigurationBuilder with the retry budget set
+     */
+    public CastleConfigurationBuilder withTrackRetryBudgetPercent(double trackRetryBudgetPercent) {
+        this.trackRetryBudgetPercent = trackRetryBudgetPercent;
+        return this;
+    }
+
+    /**
+     * Flag to store undeliverable track and identify events on disk and replay them once the API is reachable.
+     * <p>
+     * Events whose request failed, and track events that overflow the batching queue, are appended to a journal of
+     * memory-mapped files that survives a restart of the JVM.
+     *
+     * @param spillJournal boolean to switch the spill journal on or off
+     * @return a castleConfigurationBuilder with the spill journal set
+     */
+    public CastleConfigurationBuilder withSpillJournal(boolean spillJournal) {
+        this.spillJournal = spillJournal;
+        return this;
+    }
+
+    /**
+     * Sets the directory of the spill journal files.
+     * <p>
+     * A directory can only be used by one process at a time.
+     *
+     * @param spillJournalDirectory path of the directory, created if missing
+     * @return a castleConfigurationBuilder with the spill journal directory set
+     */
+    public CastleConfigurationBuilder withSpillJournalDirectory(String spillJournalDirectory) {
+        this.spillJournalDirectory = spillJournalDirectory;
+        return this;
+    }
+
+    /**
+     * Sets the size of the spill journal segment files and the maximum disk space they use.
+     * <p>
+     * When the journal is full, the oldest segment is deleted with the events it holds.
+     *
+     * @param segmentSizeBytes size of each segment file in bytes; at least 1024
+     * @param maxDiskBytes     maximum disk space in bytes; at least two segments
+     * @return a castleConfigurationBuilder with the spill journal size set
+     */
+    public CastleConfigurationBuilder withSpillJournalSize(int segmentSizeBytes, long maxDiskBytes) {
+        this.spillJournalSegmentSizeBytes = segmentSizeBytes;
+        this.spillJournalMaxDiskBytes = maxDiskBytes;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of stored events replayed per second once the API is reachable.
+     *
+     * @param spillDrainRatePerSecond events per second; positive
+     * @return a castleConfigurationBuilder with the drain rate set
+     */
+    public CastleConfigurationBuilder withSpillDrainRatePerSecond(int spillDrainRatePerSecond) {
+        this.spillDrainRatePerSecond = spillDrainRatePerSecond;
+        return this;
+    }
+
+    /**
+     * Flag to limit the rate of requests sent to the Castle API, and to stop sending requests for as long as the
+     * Castle API asks in a {@code 429} or {@code 503} response, up to the maximum pause.
+     * <p>
+     * Authenticate calls that are not sent return the failover verdict, and track and identify requests fail with a
+     * {@link io.castle.client.internal.backend.RateLimitedException}, so they are retried later or stored in the spill
+     * journal when those are enabled.
+     *
+     * @param rateLimiting boolean to switch rate limiting on or off
+     * @return a castleConfigurationBuilder with rate limiting set
+     */
+    public CastleConfigurationBuilder withRateLimiting(boolean rateLimiting) {
+        this.rateLimiting = rateLimiting;
+        return this;
+    }
+
+    /**
+     * Sets the client side rate limit of authenticate requests.
+     *
+     * @param ratePerSecond requests per second; zero to only honor {@code 429} responses
+     * @param burst         requests that can be sent at once after a quiet period; at least 1
+     * @return a castleConfigurationBuilder with the authenticate rate limit set
+     */
+    public CastleConfigurationBuilder withAuthenticateRateLimit(double ratePerSecond, int burst) {
+        this.authenticateRatePerSecond = ratePerSecond;
+        this.authenticateBurst = burst;
+        return this;
+    }
+
+    /**
+     * Sets the client side rate limit of track and identify requests.
+     *
+     * @param ratePerSecond requests per second; zero to only honor {@code 429} responses
+     * @param burst         requests that can be sent at once after a quiet period; at least 1
+     * @return a castleConfigurationBuilder with the track rate limit set
+     */
+    public CastleConfigurationBuilder withTrackRateLimit(double ratePerSecond, int burst) {
+        this.trackRatePerSecond = ratePerSecond;
+        this.trackBurst = burst;
+        return this;
+    }
+
+    /**
+     * Sets the longest pause honored when the Castle API asks to slow down with a {@code 429} or {@code 503}
+     * response, so a large {@code Retry-After} value can not stop an endpoint group for hours.
+     *
+     * @param rateLimitMaxPauseMillis pause in milliseconds; positive
+     * @return a castleConfigurationBuilder with the maximum pause set
+     */
+    public CastleConfigurationBuilder withRateLimitMaxPauseMillis(int rateLimitMaxPauseMillis) {
+        this.rateLimitMaxPauseMillis = rateLimitMaxPauseMillis;
+        return this;
+    }
+
+    /**
+     * Flag to drop low priority track events when the track endpoint group is under pressure.
+     * <p>
+     * Events are dropped lowest priority first, and their {@code AsyncCallbackHandler} is informed with an exception.
+     * Critical events are never dropped.
+     *
+     * @param trackLoadShedding boolean to switch track load shedding on or off
+     * @return a castleConfigurationBuilder with track load shedding set
+     */
+    public CastleConfigurationBuilder withTrackLoadShedding(boolean trackLoadShedding) {
+        this.trackLoadShedding = trackLoadShedding;
+        return this;
+    }
+
+    /**
+     * Sets when the track endpoint group is considered under pressure.
+     * <p>
+     * Low priority events are dropped from half of {@code maxOutstanding} outstanding events, normal priority events
+     * from three quarters of it and high priority events from all of it.
+     * Low and normal priority events are also dropped while the latency of recent events is over the threshold.
+     *
+     * @param maxOutstanding         outstanding track events at which only critical events are admitted; at least 2
+     * @param latencyThresholdMillis latency in milliseconds; positive
+     * @return a castleConfigurationBuilder with the load shedding thresholds set
+     */
+    public CastleConfigurationBuilder withTrackLoadSheddingThresholds(int maxOutstanding, int latencyThresholdMillis) {
+        this.trackMaxOutstanding = maxOutstanding;
+        this.trackSheddingLatencyMillis = latencyThresholdMillis;
+        return this;
+    }
+
+    /**
+     * Sets the priority of the track events matching an event name pattern.
+     * <p>
+     * A pattern ending with {@code *} matches every event name starting with the rest of the pattern, other patterns
+     * match one event name.
+     * When several patterns match an event, the longest one applies; events matching none are of normal priority.
+     *
+     * @param eventPattern event name or prefix followed by {@code *}
+     * @param priority     priority of the matching events
+     * @return a castleConfigurationBuilder with the priority rule added
+     */
+    public CastleConfigurationBuilder withTrackPriority(String eventPattern, TrackPriority priority) {
+        this.trackPriorities.put(eventPattern, priority);
+        return this;
+    }
+
+    /**
+     * Sets the maximum duration of a whole authenticate call.
+     * <p>
+     * Unlike {@code timeout}, which applies to connecting, writing and reading separately, the call timeout also
+     * covers DNS resolution, waiting in the dispatcher and retries of the HTTP client, so it bounds the time an
+     * authenticate call can take. Deadlines passed to {@code authenticate} are applied on top of it.
+     *
+     * @param authenticateCallTimeoutMillis milliseconds; zero for no limit
+     * @return a castleConfigurationBuilder with the authenticate call timeout set
+     */
+    public CastleConfigurationBuilder withAuthenticateCallTimeoutMillis(int authenticateCallTimeoutMillis) {
+        this.authenticateCallTimeoutMillis = authenticateCallTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Sets the maximum duration of a whole track or identify call.
+     *
+     * @param trackCallTimeoutMillis milliseconds; zero for no limit
+     * @return a castleConfigurationBuilder with the track call timeout set
+     */
+    public CastleConfigurationBuilder withTrackCallTimeoutMillis(int trackCallTimeoutMillis) {
+        this.trackCallTimeoutMillis = trackCallTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Sets the maximum duration of a whole review call.
+     *
+     * @param reviewCallTimeoutMillis milliseconds; zero for no limit
+     * @return a castleConfigurationBuilder with the review call timeout set
+     */
+    public CastleConfigurationBuilder withReviewCallTimeoutMillis(int reviewCallTimeoutMillis) {
+        this.reviewCallTimeoutMillis = reviewCallTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Flag to cache the host name lookups of the HTTP client and refresh them in the background.
+     * <p>
+     * Without it, every new connection resolves the host of the Castle API on the calling thread, with the caching
+     * behaviour of the JVM.
+     *
+     * @param dnsCache boolean to switch the DNS cache on or off
+     * @return a castleConfigurationBuilder with the DNS cache set
+     */
+    public CastleConfigurationBuilder withDnsCache(boolean dnsCache) {
+        this.dnsCache = dnsCache;
+        return this;
+    }
+
+    /**
+     * Sets how long a host name lookup is used before being resolved again.
+     * <p>
+     * Lookups of hosts in use are refreshed in the background once three quarters of this time elapsed.
+     *
+     * @param dnsCacheTtlMillis milliseconds; positive
+     * @return a castleConfigurationBuilder with the DNS cache time to live set
+     */
+    public CastleConfigurationBuilder withDnsCacheTtlMillis(int dnsCacheTtlMillis) {
+        this.dnsCacheTtlMillis = dnsCacheTtlMillis;
+        return this;
+    }
+
+    /**
+     * Sets how long after their expiry the last known addresses of a host are used when the resolver fails.
+     *
+     * @param dnsMaxStaleMillis milliseconds; zero to never use expired addresses
+     * @return a castleConfigurationBuilder with the DNS maximum staleness set
+     */
+    public CastleConfigurationBuilder withDnsMaxStaleMillis(int dnsMaxStaleMillis) {
+        this.dnsMaxStaleMillis = dnsMaxStaleMillis;
+        return this;
+    }
+
+    /**
+     * Sets several endpoints of the Castle API, such as regional ones, to route calls over.
+     * <p>
+     * Each call goes to the healthy endpoint with the lowest recent latency, and is sent right away to the next one
+     * when it can not connect or gets a server error.
+     * Backends that do not route calls use the first endpoint.
+     *
+     * @param apiBaseUrls URLs of the Castle API endpoints without any relative path; at least one
+     * @return a castleConfigurationBuilder with the Castle API endpoints set
+     */
+    public CastleConfigurationBuilder withApiBaseUrls(List<String> apiBaseUrls) {
+        this.apiBaseUrl = apiBaseUrls == null || apiBaseUrls.isEmpty() ? null : apiBaseUrls.get(0);
+        this.apiBaseUrls = apiBaseUrls;
+        return this;
+    }
+
+    /**
+     * Sets several endpoints of the Castle API to route calls over.
+     *
+     * @param apiBaseUrls URLs of the Castle API endpoints without any relative path; at least one
+     * @return a castleConfigurationBuilder with the Castle API endpoints set
+     * @see #withApiBaseUrls(List)
+     */
+    public CastleConfigurationBuilder withApiBaseUrls(String... apiBaseUrls) {
+        return withApiBaseUrls(Arrays.asList(apiBaseUrls));
+    }
+
+    /**
+     * Sets how long an endpoint is skipped after it could not be connected to or answered with a server error.
+     *
+     * @param endpointCooldownMillis milliseconds; positive
+     * @return a castleConfigurationBuilder with the endpoint cooldown set
+     */
+    public CastleConfigurationBuilder withEndpointCooldownMillis(int endpointCooldownMillis) {
+        this.endpointCooldownMillis = endpointCooldownMillis;
+        return this;
+    }
+
+    /**
+     * Flag to share the result of authenticate and review calls with the identical calls made while they are in flight.
+     * <p>
+     * An authenticate call with the same payload, or a review call with the same review ID, made while such a call is
+     * in flight waits for its result instead of sending another request. Authenticate calls with a deadline are always
+     * sent.
+     *
+     * @param requestCoalescing boolean to switch request coalescing on or off
+     * @return a castleConfigurationBuilder with request coalescing set
+     */
+    public CastleConfigurationBuilder withRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+        return this;
+    }
+
+    /**
+     * Flag to keep fetched reviews in memory and serve them without calling the Castle API.
+     *
+     * @param reviewCache boolean to switch the review cache on or off
+     * @return a castleConfigurationBuilder with the review cache set
+     */
+    public CastleConfigurationBuilder withReviewCache(boolean reviewCache) {
+        this.reviewCache = reviewCache;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of cached reviews, the least recently used ones being evicted first.
+     *
+     * @param reviewCacheMaxSize number of reviews; positive
+     * @return a castleConfigurationBuilder with the review cache size set
+     */
+    public CastleConfigurationBuilder withReviewCacheMaxSize(int reviewCacheMaxSize) {
+        this.reviewCacheMaxSize = reviewCacheMaxSize;
+        return this;
+    }
+
+    /**
+     * Sets how long a review is cached.
+     *
+     * @param reviewCacheTtlMillis milliseconds; positive
+     * @return a castleConfigurationBuilder with the review cache time to live set
+     */
+    public CastleConfigurationBuilder withReviewCacheTtlMillis(int reviewCacheTtlMillis) {
+        this.reviewCacheTtlMillis = reviewCacheTtlMillis;
+        return this;
+    }
+
+    /**
+     * Sets whether the time to live of a cached review counts from its fetch or from its last read.
+     *
+     * @param reviewCacheExpiry expiry of cached reviews
+     * @return a castleConfigurationBuilder with the review cache expiry set
+     */
+    public CastleConfigurationBuilder withReviewCacheExpiry(ReviewCacheExpiry reviewCacheExpiry) {
+        this.reviewCacheExpiry = reviewCacheExpiry;
+        return this;
+    }
+
+    /**
+     * Flag to run the asynchronous calls of the HTTP client, and their callbacks, on virtual threads.
+     * <p>
+     * Requires Java 21 or later. Since the HTTP/2 implementation of the client waits for responses while holding
+     * monitors, which pins virtual threads to their carrier, the {@code HTTP_2} protocol uses HTTP/1.1 in this mode.
+     *
+     * @param virtualThreads boolean to switch virtual threads on or off
+     * @return a castleConfigurationBuilder with virtual threads set
+     */
+    public CastleConfigurationBuilder withVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of events sent in a single request when tracking a collection of events.
+     *
+     * @param trackAllChunkSize number of events; positive
+     * @return a castleConfigurationBuilder with the bulk track chunk size set
+     */
+    public CastleConfigurationBuilder withTrackAllChunkSize(int trackAllChunkSize) {
+        this.trackAllChunkSize = trackAllChunkSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of requests in flight at the same time when tracking a collection of events.
+     *
+     * @param trackAllConcurrency number of requests; positive
+     * @return a castleConfigurationBuilder with the bulk track concurrency set
+     */
+    public CastleConfigurationBuilder withTrackAllConcurrency(int trackAllConcurrency) {
+        this.trackAllConcurrency = trackAllConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the executor running the callback handlers of async calls.
+     * <p>
+     * Without an executor, handlers run on the threads of the HTTP client, where a slow handler delays other calls.
+     * The executor is not shut down by the SDK.
+     *
+     * @param callbackExecutor executor of the callbacks, null to run them on the threads of the HTTP client
+     * @return a castleConfigurationBuilder with the callback executor set
+     */
+    public CastleConfigurationBuilder withCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+}
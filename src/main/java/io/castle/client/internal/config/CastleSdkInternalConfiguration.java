@@ -3,40 +3,62 @@ package io.castle.client.internal.config;
 import com.google.common.base.Charsets;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
+import io.castle.client.internal.backend.CastleBackendProvider;
 import io.castle.client.internal.backend.OkHttpFactory;
 import io.castle.client.internal.backend.RestApiFactory;
 import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.utils.CallbackDispatcher;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.internal.utils.RequestCoalescer;
+import io.castle.client.internal.utils.ReviewCache;
+import io.castle.client.model.CastleRuntimeException;
 import io.castle.client.model.CastleSdkConfigurationException;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import java.lang.reflect.InvocationTargetException;
 
 public class CastleSdkInternalConfiguration {
 
+    private static final String JDK_HTTP_FACTORY = "io.castle.client.internal.backend.JdkHttpFactory";
+    private static final String NETTY_FACTORY = "io.castle.client.internal.backend.NettyHttpFactory";
+
     private final RestApiFactory restApiFactory;
     private final CastleGsonModel model;
     private final CastleConfiguration configuration;
+    private final CastleMetrics metrics;
+    private final RequestCoalescer requestCoalescer;
+    private final ReviewCache reviewCache;
+    private final CallbackDispatcher callbackDispatcher;
 
     private final SecretKey sha256Key;
 
-    private CastleSdkInternalConfiguration(RestApiFactory restApiFactory, CastleGsonModel model, CastleConfiguration configuration) {
+    private CastleSdkInternalConfiguration(RestApiFactory restApiFactory, CastleGsonModel model, CastleConfiguration configuration, CastleMetrics metrics) {
         this.restApiFactory = restApiFactory;
         this.model = model;
         this.configuration = configuration;
+        this.metrics = metrics;
+        this.requestCoalescer = configuration.isRequestCoalescing() ? new RequestCoalescer(metrics, coalescedFlightTimeout(configuration)) : null;
+        this.reviewCache = configuration.getReviewCache().isEnabled()
+                ? new ReviewCache(configuration.getReviewCache(), metrics) : null;
+        this.callbackDispatcher = configuration.getCallbackExecutor() != null
+                ? new CallbackDispatcher(configuration.getCallbackExecutor(), metrics) : null;
         this.sha256Key = new SecretKeySpec(configuration.getApiSecret().getBytes(Charsets.UTF_8), "HmacSHA256");
     }
 
     public static CastleSdkInternalConfiguration getInternalConfiguration() throws CastleSdkConfigurationException {
         CastleGsonModel modelInstance = new CastleGsonModel();
         CastleConfiguration configuration = new ConfigurationLoader().loadConfiguration();
-        RestApiFactory apiFactory = loadRestApiFactory(modelInstance, configuration);
-        return new CastleSdkInternalConfiguration(apiFactory, modelInstance, configuration);
+        CastleMetrics metrics = new CastleMetrics();
+        RestApiFactory apiFactory = loadRestApiFactory(modelInstance, configuration, metrics);
+        return new CastleSdkInternalConfiguration(apiFactory, modelInstance, configuration, metrics);
     }
 
     public static CastleSdkInternalConfiguration buildFromConfiguration(CastleConfiguration config) {
         CastleGsonModel modelInstance = new CastleGsonModel();
-        RestApiFactory apiFactory = loadRestApiFactory(modelInstance, config);
-        return new CastleSdkInternalConfiguration(apiFactory, modelInstance, config);
+        CastleMetrics metrics = new CastleMetrics();
+        RestApiFactory apiFactory = loadRestApiFactory(modelInstance, config, metrics);
+        return new CastleSdkInternalConfiguration(apiFactory, modelInstance, config, metrics);
     }
 
     public static CastleConfigurationBuilder builderFromConfigurationLoader() {
@@ -44,16 +66,56 @@ public class CastleSdkInternalConfiguration {
     }
 
     /**
-     * Currently only the okHttp backend is available.
+     * Builds the factory of the backend provider selected in the configuration.
+     * <p>
+     * The JDK_HTTP backend is compiled for Java 11 and the NETTY backend depends on optional libraries, so both are
+     * loaded by name to keep the SDK usable with the OkHttp backend when they are not supported.
      *
      * @param modelInstance GSON model instance to use.
      * @param configuration CastleConfiguration instance.
+     * @param metrics       registry where the backend reports its counters.
      * @return The configured RestApiFactory to make backend REST calls.
+     * @throws CastleRuntimeException if the selected backend can not be loaded
+     */
+    /**
+     * A coalesced call is abandoned once it took longer than any authenticate or review call may take: its call
+     * timeout when one is set, and otherwise its connect, write and read timeouts.
      */
-    private static RestApiFactory loadRestApiFactory(final CastleGsonModel modelInstance, final CastleConfiguration configuration) {
-        return new OkHttpFactory(configuration, modelInstance);
+    private static long coalescedFlightTimeout(CastleConfiguration configuration) {
+        long callTimeout = Math.max(configuration.getAuthenticateCallTimeoutMillis(), configuration.getReviewCallTimeoutMillis());
+        return Math.max(callTimeout, 3L * configuration.getTimeout());
     }
 
+    private static RestApiFactory loadRestApiFactory(final CastleGsonModel modelInstance, final CastleConfiguration configuration, final CastleMetrics metrics) {
+        switch (configuration.getBackendProvider()) {
+            case JDK_HTTP:
+                return loadOptionalRestApiFactory(JDK_HTTP_FACTORY, modelInstance, configuration, metrics,
+                        "The JDK_HTTP backend provider requires Java 11 or later, use OKHTTP instead.");
+            case NETTY:
+                return loadOptionalRestApiFactory(NETTY_FACTORY, modelInstance, configuration, metrics,
+                        "The NETTY backend provider requires io.netty:netty-codec-http in the classpath, use OKHTTP instead.");
+            default:
+                return new OkHttpFactory(configuration, modelInstance, metrics);
+        }
+    }
+
+    private static RestApiFactory loadOptionalRestApiFactory(String className, CastleGsonModel modelInstance, CastleConfiguration configuration, CastleMetrics metrics, String unavailableMessage) {
+        try {
+            Class<?> factoryClass = Class.forName(className);
+            return (RestApiFactory) factoryClass
+                    .getConstructor(CastleConfiguration.class, CastleGsonModel.class, CastleMetrics.class)
+                    .newInstance(configuration, modelInstance, metrics);
+        } catch (ClassNotFoundException | UnsupportedClassVersionError | NoClassDefFoundError e) {
+            throw new CastleRuntimeException(unavailableMessage);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof NoClassDefFoundError) {
+                throw new CastleRuntimeException(unavailableMessage);
+            }
+            throw new CastleRuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new CastleRuntimeException(e);
+        }
+    }
 
     public CastleGsonModel getModel() {
         return model;
@@ -67,6 +129,38 @@ public class CastleSdkInternalConfiguration {
         return configuration;
     }
 
+    public CastleMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the coalescer shared by the calls of the SDK, null when request coalescing is disabled
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * @return the cache of fetched reviews, null when the review cache is disabled
+     */
+    public ReviewCache getReviewCache() {
+        return reviewCache;
+    }
+
+    /**
+     * @return the dispatcher of callbacks to the callback executor, null when no executor is configured
+     */
+    public CallbackDispatcher getCallbackDispatcher() {
+        return callbackDispatcher;
+    }
+
+    /**
+     * Sends the track events still waiting in memory and releases the resources of the backend.
+     */
+    public void close() {
+        restApiFactory.close();
+    }
+
     public HashFunction getSecureHashFunction() {
         return Hashing.hmacSha256(sha256Key);
     }
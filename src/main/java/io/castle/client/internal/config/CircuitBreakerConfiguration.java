@@ -0,0 +1,109 @@
+package io.castle.client.internal.config;
+
+import io.castle.client.model.CircuitBreakerListener;
+
+/**
+ * Settings for the circuit breakers protecting each endpoint group.
+ * <p>
+ * A breaker records the outcome of the last {@code windowSize} calls of its endpoint group.
+ * Once {@code minimumCalls} were recorded, it opens when the percentage of failed calls reaches
+ * {@code failureRateThreshold} or the percentage of calls slower than {@code slowCallDurationMillis} reaches
+ * {@code slowCallRateThreshold}.
+ * An open breaker fails calls immediately for {@code openDurationMillis}, then lets {@code halfOpenProbes} calls
+ * through and closes again if all of them succeed.
+ */
+public class CircuitBreakerConfiguration {
+
+    /**
+     * Flag to protect endpoint groups with circuit breakers.
+     */
+    private final boolean enabled;
+
+    /**
+     * Percentage of failed calls that opens the breaker.
+     */
+    private final double failureRateThreshold;
+
+    /**
+     * Percentage of slow calls that opens the breaker.
+     */
+    private final double slowCallRateThreshold;
+
+    /**
+     * Milliseconds after which a call counts as slow.
+     */
+    private final int slowCallDurationMillis;
+
+    /**
+     * Number of recorded calls needed before the rates are evaluated.
+     */
+    private final int minimumCalls;
+
+    /**
+     * Number of recent calls the rates are computed from.
+     */
+    private final int windowSize;
+
+    /**
+     * Milliseconds the breaker stays open before probing the API.
+     */
+    private final int openDurationMillis;
+
+    /**
+     * Number of probe calls let through while half-open.
+     */
+    private final int halfOpenProbes;
+
+    /**
+     * Listener informed of state changes, can be null.
+     */
+    private final CircuitBreakerListener listener;
+
+    public CircuitBreakerConfiguration(boolean enabled, double failureRateThreshold, double slowCallRateThreshold, int slowCallDurationMillis, int minimumCalls, int windowSize, int openDurationMillis, int halfOpenProbes, CircuitBreakerListener listener) {
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationMillis = slowCallDurationMillis;
+        this.minimumCalls = minimumCalls;
+        this.windowSize = windowSize;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenProbes = halfOpenProbes;
+        this.listener = listener;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public int getSlowCallDurationMillis() {
+        return slowCallDurationMillis;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    public CircuitBreakerListener getListener() {
+        return listener;
+    }
+}
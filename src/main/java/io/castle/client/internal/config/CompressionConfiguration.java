@@ -0,0 +1,35 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for compressing the bodies of requests sent to the Castle API.
+ * <p>
+ * When enabled, request bodies of at least {@code minSizeBytes} are sent gzip encoded with a
+ * {@code Content-Encoding: gzip} header.
+ * Smaller bodies, such as most authenticate payloads, are sent as they are since compressing them costs more CPU than
+ * it saves in bandwidth.
+ */
+public class CompressionConfiguration {
+
+    /**
+     * True when request bodies are gzip compressed.
+     */
+    private final boolean enabled;
+
+    /**
+     * Minimum size in bytes of an uncompressed body for it to be compressed.
+     */
+    private final int minSizeBytes;
+
+    public CompressionConfiguration(boolean enabled, int minSizeBytes) {
+        this.enabled = enabled;
+        this.minSizeBytes = minSizeBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMinSizeBytes() {
+        return minSizeBytes;
+    }
+}
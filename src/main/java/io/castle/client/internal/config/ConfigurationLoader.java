@@ -3,12 +3,16 @@ package io.castle.client.internal.config;
 import com.google.common.base.Splitter;
 import io.castle.client.Castle;
 import io.castle.client.internal.backend.CastleBackendProvider;
+import io.castle.client.internal.backend.CastleHttpProtocol;
 import io.castle.client.model.AuthenticateAction;
 import io.castle.client.model.AuthenticateFailoverStrategy;
 import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.TrackPriority;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -145,11 +149,233 @@ class ConfigurationLoader {
                 "log_http",
                 "CASTLE_SDK_LOG_HTTP"
         );
+        String compressionValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "compression",
+                "CASTLE_SDK_COMPRESSION"
+        );
+        String compressionMinSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "compression_min_size",
+                "CASTLE_SDK_COMPRESSION_MIN_SIZE"
+        );
+        String httpProtocolValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "http_protocol",
+                "CASTLE_SDK_HTTP_PROTOCOL"
+        );
+        String authenticateHedgingValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "authenticate_hedging",
+                "CASTLE_SDK_AUTHENTICATE_HEDGING"
+        );
+        String hedgeDelayValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "hedge_delay",
+                "CASTLE_SDK_HEDGE_DELAY"
+        );
+        String hedgeDelayPercentileValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "hedge_delay_percentile",
+                "CASTLE_SDK_HEDGE_DELAY_PERCENTILE"
+        );
+        String hedgeBudgetValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "hedge_budget_percent",
+                "CASTLE_SDK_HEDGE_BUDGET_PERCENT"
+        );
+        String adaptiveTimeoutValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "adaptive_timeout",
+                "CASTLE_SDK_ADAPTIVE_TIMEOUT"
+        );
+        String adaptiveTimeoutPercentileValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "adaptive_timeout_percentile",
+                "CASTLE_SDK_ADAPTIVE_TIMEOUT_PERCENTILE"
+        );
+        String adaptiveTimeoutHeadroomValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "adaptive_timeout_headroom",
+                "CASTLE_SDK_ADAPTIVE_TIMEOUT_HEADROOM"
+        );
+        String adaptiveTimeoutFloorValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "adaptive_timeout_floor",
+                "CASTLE_SDK_ADAPTIVE_TIMEOUT_FLOOR"
+        );
+        String adaptiveTimeoutCeilingValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "adaptive_timeout_ceiling",
+                "CASTLE_SDK_ADAPTIVE_TIMEOUT_CEILING"
+        );
+        String circuitBreakerValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker",
+                "CASTLE_SDK_CIRCUIT_BREAKER"
+        );
+        String circuitBreakerFailureRateValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker_failure_rate",
+                "CASTLE_SDK_CIRCUIT_BREAKER_FAILURE_RATE"
+        );
+        String circuitBreakerSlowCallRateValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker_slow_call_rate",
+                "CASTLE_SDK_CIRCUIT_BREAKER_SLOW_CALL_RATE"
+        );
+        String circuitBreakerSlowCallDurationValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker_slow_call_duration",
+                "CASTLE_SDK_CIRCUIT_BREAKER_SLOW_CALL_DURATION"
+        );
+        String circuitBreakerOpenDurationValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "circuit_breaker_open_duration",
+                "CASTLE_SDK_CIRCUIT_BREAKER_OPEN_DURATION"
+        );
+        String trackRetriesValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_retries",
+                "CASTLE_SDK_TRACK_RETRIES"
+        );
+        String trackRetryMaxAttemptsValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_retry_max_attempts",
+                "CASTLE_SDK_TRACK_RETRY_MAX_ATTEMPTS"
+        );
+        String trackRetryBudgetValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_retry_budget_percent",
+                "CASTLE_SDK_TRACK_RETRY_BUDGET_PERCENT"
+        );
+        String spillJournalValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spill_journal",
+                "CASTLE_SDK_SPILL_JOURNAL"
+        );
+        String spillJournalDirectoryValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spill_journal_directory",
+                "CASTLE_SDK_SPILL_JOURNAL_DIRECTORY"
+        );
+        String spillDrainRateValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "spill_drain_rate",
+                "CASTLE_SDK_SPILL_DRAIN_RATE"
+        );
+        String rateLimitingValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "rate_limiting",
+                "CASTLE_SDK_RATE_LIMITING"
+        );
+        String authenticateRateLimitValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "authenticate_rate_limit",
+                "CASTLE_SDK_AUTHENTICATE_RATE_LIMIT"
+        );
+        String trackRateLimitValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_rate_limit",
+                "CASTLE_SDK_TRACK_RATE_LIMIT"
+        );
+        String rateLimitMaxPauseValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "rate_limit_max_pause",
+                "CASTLE_SDK_RATE_LIMIT_MAX_PAUSE"
+        );
+        String trackLoadSheddingValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_load_shedding",
+                "CASTLE_SDK_TRACK_LOAD_SHEDDING"
+        );
+        String trackPrioritiesValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_priorities",
+                "CASTLE_SDK_TRACK_PRIORITIES"
+        );
+        String authenticateCallTimeoutValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "authenticate_call_timeout",
+                "CASTLE_SDK_AUTHENTICATE_CALL_TIMEOUT"
+        );
+        String trackCallTimeoutValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_call_timeout",
+                "CASTLE_SDK_TRACK_CALL_TIMEOUT"
+        );
+        String reviewCallTimeoutValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "review_call_timeout",
+                "CASTLE_SDK_REVIEW_CALL_TIMEOUT"
+        );
+        String dnsCacheValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "dns_cache",
+                "CASTLE_SDK_DNS_CACHE"
+        );
+        String dnsCacheTtlValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "dns_cache_ttl",
+                "CASTLE_SDK_DNS_CACHE_TTL"
+        );
+        String dnsMaxStaleValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "dns_max_stale",
+                "CASTLE_SDK_DNS_MAX_STALE"
+        );
+        String endpointCooldownValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "endpoint_cooldown",
+                "CASTLE_SDK_ENDPOINT_COOLDOWN"
+        );
+        String requestCoalescingValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "request_coalescing",
+                "CASTLE_SDK_REQUEST_COALESCING"
+        );
+        String reviewCacheValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "review_cache",
+                "CASTLE_SDK_REVIEW_CACHE"
+        );
+        String reviewCacheSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "review_cache_size",
+                "CASTLE_SDK_REVIEW_CACHE_SIZE"
+        );
+        String reviewCacheTtlValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "review_cache_ttl",
+                "CASTLE_SDK_REVIEW_CACHE_TTL"
+        );
+        String reviewCacheExpiryValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "review_cache_expiry",
+                "CASTLE_SDK_REVIEW_CACHE_EXPIRY"
+        );
+        String virtualThreadsValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "virtual_threads",
+                "CASTLE_SDK_VIRTUAL_THREADS"
+        );
+        String trackAllChunkSizeValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_all_chunk_size",
+                "CASTLE_SDK_TRACK_ALL_CHUNK_SIZE"
+        );
+        String trackAllConcurrencyValue = loadConfigurationValue(
+                castleConfigurationProperties,
+                "track_all_concurrency",
+                "CASTLE_SDK_TRACK_ALL_CONCURRENCY"
+        );
         CastleConfigurationBuilder builder = CastleConfigurationBuilder
                 .defaultConfigBuilder()
                 .withApiSecret(envApiSecret)
                 .withCastleAppId(castleAppId);
-        if (apiBaseUrl != null) {
+        if (apiBaseUrl != null && apiBaseUrl.contains(",")) {
+            builder.withApiBaseUrls(Splitter.on(",").trimResults().omitEmptyStrings().splitToList(apiBaseUrl));
+        } else if (apiBaseUrl != null) {
             builder.withApiBaseUrl(apiBaseUrl);
         } else {
             builder.withDefaultApiBaseUrl();
@@ -186,6 +412,163 @@ class ConfigurationLoader {
         if (logHttpRequests != null) {
             builder.withLogHttpRequests(Boolean.valueOf(logHttpRequests));
         }
+        if (compressionValue != null) {
+            builder.withCompression(Boolean.valueOf(compressionValue));
+        }
+        if (compressionMinSizeValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withCompressionMinSizeBytes(Integer.parseInt(compressionMinSizeValue));
+        }
+        if (httpProtocolValue != null) {
+            builder.withHttpProtocol(CastleHttpProtocol.valueOf(httpProtocolValue));
+        }
+        if (authenticateHedgingValue != null) {
+            builder.withAuthenticateHedging(Boolean.valueOf(authenticateHedgingValue));
+        }
+        if (hedgeDelayValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withHedgeDelayMillis(Integer.parseInt(hedgeDelayValue));
+        }
+        if (hedgeDelayPercentileValue != null) {
+            builder.withHedgeDelayPercentile(Double.parseDouble(hedgeDelayPercentileValue));
+        }
+        if (hedgeBudgetValue != null) {
+            builder.withHedgeBudgetPercent(Double.parseDouble(hedgeBudgetValue));
+        }
+        if (adaptiveTimeoutValue != null) {
+            builder.withAdaptiveTimeout(Boolean.valueOf(adaptiveTimeoutValue));
+        }
+        if (adaptiveTimeoutPercentileValue != null) {
+            builder.withAdaptiveTimeoutPercentile(Double.parseDouble(adaptiveTimeoutPercentileValue));
+        }
+        if (adaptiveTimeoutHeadroomValue != null) {
+            builder.withAdaptiveTimeoutHeadroom(Double.parseDouble(adaptiveTimeoutHeadroomValue));
+        }
+        if (adaptiveTimeoutFloorValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withAdaptiveTimeoutFloorMillis(Integer.parseInt(adaptiveTimeoutFloorValue));
+        }
+        if (adaptiveTimeoutCeilingValue != null) {
+            builder.withAdaptiveTimeoutCeilingMillis(Integer.parseInt(adaptiveTimeoutCeilingValue));
+        }
+        if (circuitBreakerValue != null) {
+            builder.withCircuitBreaker(Boolean.valueOf(circuitBreakerValue));
+        }
+        if (circuitBreakerFailureRateValue != null) {
+            builder.withCircuitBreakerFailureRateThreshold(Double.parseDouble(circuitBreakerFailureRateValue));
+        }
+        if (circuitBreakerSlowCallRateValue != null) {
+            builder.withCircuitBreakerSlowCallRateThreshold(Double.parseDouble(circuitBreakerSlowCallRateValue));
+        }
+        if (circuitBreakerSlowCallDurationValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withCircuitBreakerSlowCallDurationMillis(Integer.parseInt(circuitBreakerSlowCallDurationValue));
+        }
+        if (circuitBreakerOpenDurationValue != null) {
+            builder.withCircuitBreakerOpenDurationMillis(Integer.parseInt(circuitBreakerOpenDurationValue));
+        }
+        if (trackRetriesValue != null) {
+            builder.withTrackRetries(Boolean.valueOf(trackRetriesValue));
+        }
+        if (trackRetryMaxAttemptsValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withTrackRetryMaxAttempts(Integer.parseInt(trackRetryMaxAttemptsValue));
+        }
+        if (trackRetryBudgetValue != null) {
+            builder.withTrackRetryBudgetPercent(Double.parseDouble(trackRetryBudgetValue));
+        }
+        if (spillJournalValue != null) {
+            builder.withSpillJournal(Boolean.valueOf(spillJournalValue));
+        }
+        if (spillJournalDirectoryValue != null) {
+            builder.withSpillJournalDirectory(spillJournalDirectoryValue);
+        }
+        if (spillDrainRateValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withSpillDrainRatePerSecond(Integer.parseInt(spillDrainRateValue));
+        }
+        if (rateLimitingValue != null) {
+            builder.withRateLimiting(Boolean.valueOf(rateLimitingValue));
+        }
+        if (authenticateRateLimitValue != null) {
+            // rate and burst separated by a comma, might throw NumberFormatException
+            List<String> rateLimit = Splitter.on(",").trimResults().splitToList(authenticateRateLimitValue);
+            builder.withAuthenticateRateLimit(Double.parseDouble(rateLimit.get(0)), Integer.parseInt(rateLimit.get(1)));
+        }
+        if (trackRateLimitValue != null) {
+            // rate and burst separated by a comma, might throw NumberFormatException
+            List<String> rateLimit = Splitter.on(",").trimResults().splitToList(trackRateLimitValue);
+            builder.withTrackRateLimit(Double.parseDouble(rateLimit.get(0)), Integer.parseInt(rateLimit.get(1)));
+        }
+        if (rateLimitMaxPauseValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withRateLimitMaxPauseMillis(Integer.parseInt(rateLimitMaxPauseValue));
+        }
+        if (trackLoadSheddingValue != null) {
+            builder.withTrackLoadShedding(Boolean.valueOf(trackLoadSheddingValue));
+        }
+        if (trackPrioritiesValue != null) {
+            // event patterns and priorities separated by a colon, might throw IllegalArgumentException
+            Map<String, String> priorities = Splitter.on(",").trimResults().withKeyValueSeparator(":").split(trackPrioritiesValue);
+            for (Map.Entry<String, String> priority : priorities.entrySet()) {
+                builder.withTrackPriority(priority.getKey(), TrackPriority.valueOf(priority.getValue().trim()));
+            }
+        }
+        if (authenticateCallTimeoutValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withAuthenticateCallTimeoutMillis(Integer.parseInt(authenticateCallTimeoutValue));
+        }
+        if (trackCallTimeoutValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withTrackCallTimeoutMillis(Integer.parseInt(trackCallTimeoutValue));
+        }
+        if (reviewCallTimeoutValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withReviewCallTimeoutMillis(Integer.parseInt(reviewCallTimeoutValue));
+        }
+        if (dnsCacheValue != null) {
+            builder.withDnsCache(Boolean.valueOf(dnsCacheValue));
+        }
+        if (dnsCacheTtlValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withDnsCacheTtlMillis(Integer.parseInt(dnsCacheTtlValue));
+        }
+        if (dnsMaxStaleValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withDnsMaxStaleMillis(Integer.parseInt(dnsMaxStaleValue));
+        }
+        if (endpointCooldownValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withEndpointCooldownMillis(Integer.parseInt(endpointCooldownValue));
+        }
+        if (requestCoalescingValue != null) {
+            builder.withRequestCoalescing(Boolean.valueOf(requestCoalescingValue));
+        }
+        if (reviewCacheValue != null) {
+            builder.withReviewCache(Boolean.valueOf(reviewCacheValue));
+        }
+        if (reviewCacheSizeValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withReviewCacheMaxSize(Integer.parseInt(reviewCacheSizeValue));
+        }
+        if (reviewCacheTtlValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withReviewCacheTtlMillis(Integer.parseInt(reviewCacheTtlValue));
+        }
+        if (reviewCacheExpiryValue != null) {
+            builder.withReviewCacheExpiry(ReviewCacheExpiry.valueOf(reviewCacheExpiryValue));
+        }
+        if (virtualThreadsValue != null) {
+            builder.withVirtualThreads(Boolean.valueOf(virtualThreadsValue));
+        }
+        if (trackAllChunkSizeValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withTrackAllChunkSize(Integer.parseInt(trackAllChunkSizeValue));
+        }
+        if (trackAllConcurrencyValue != null) {
+            // might throw NumberFormatException if string is not parsable to int
+            builder.withTrackAllConcurrency(Integer.parseInt(trackAllConcurrencyValue));
+        }
 
         return builder;
     }
@@ -0,0 +1,34 @@
+package io.castle.client.internal.config;
+
+/**
+ * Limits of the HTTP resources dedicated to one group of Castle API endpoints.
+ * <p>
+ * Each group gets its own dispatcher and connection pool, so traffic on one group can not queue behind or take
+ * connections from another one.
+ */
+public class ConnectionLimits {
+
+    /**
+     * Maximum number of async requests of the group that are executed concurrently; further requests wait in the
+     * dispatcher of the group.
+     */
+    private final int maxConcurrentRequests;
+
+    /**
+     * Maximum number of idle connections kept in the connection pool of the group.
+     */
+    private final int maxIdleConnections;
+
+    public ConnectionLimits(int maxConcurrentRequests, int maxIdleConnections) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxIdleConnections = maxIdleConnections;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+}
@@ -0,0 +1,50 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for keeping connections to the Castle API open and ready for authenticate calls.
+ * <p>
+ * When {@code connections} is positive, that many connections of the authenticate group are opened, including their
+ * TLS handshakes, when the SDK is initialized, and they are kept in use by a lightweight request every
+ * {@code keepAliveIntervalMillis}.
+ * Pooled connections left idle for {@code idleTimeoutMillis} are evicted by every endpoint group, which should be
+ * shorter than the idle timeout of the server so that a connection closed by the server is never reused.
+ */
+public class ConnectionWarmupConfiguration {
+
+    /**
+     * Number of authenticate connections opened in advance, zero to disable warm-up.
+     */
+    private final int connections;
+
+    /**
+     * Milliseconds between keep-alive requests on warmed connections, zero to disable them.
+     */
+    private final int keepAliveIntervalMillis;
+
+    /**
+     * Milliseconds after which an idle pooled connection is evicted.
+     */
+    private final int idleTimeoutMillis;
+
+    public ConnectionWarmupConfiguration(int connections, int keepAliveIntervalMillis, int idleTimeoutMillis) {
+        this.connections = connections;
+        this.keepAliveIntervalMillis = keepAliveIntervalMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public boolean isEnabled() {
+        return connections > 0;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public int getKeepAliveIntervalMillis() {
+        return keepAliveIntervalMillis;
+    }
+
+    public int getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+}
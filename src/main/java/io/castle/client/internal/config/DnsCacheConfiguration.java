@@ -0,0 +1,43 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for caching the host name lookups of the HTTP client.
+ * <p>
+ * When enabled, lookups are cached for {@code ttlMillis} and refreshed in the background before they expire.
+ * When the resolver fails, the last known addresses are used for up to {@code maxStaleMillis} after they expired.
+ */
+public class DnsCacheConfiguration {
+
+    /**
+     * Flag to cache host name lookups.
+     */
+    private final boolean enabled;
+
+    /**
+     * Milliseconds a lookup is used before being resolved again.
+     */
+    private final int ttlMillis;
+
+    /**
+     * Milliseconds after their expiry during which the last known addresses are used when the resolver fails.
+     */
+    private final int maxStaleMillis;
+
+    public DnsCacheConfiguration(boolean enabled, int ttlMillis, int maxStaleMillis) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.maxStaleMillis = maxStaleMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public int getMaxStaleMillis() {
+        return maxStaleMillis;
+    }
+}
@@ -0,0 +1,36 @@
+package io.castle.client.internal.config;
+
+import java.util.List;
+
+/**
+ * Settings for spreading calls over several base URLs of the Castle API.
+ * <p>
+ * When more than one base URL is set, each call goes to the healthy base URL with the lowest recent latency, and
+ * moves to the next one when it can not connect or gets a server error.
+ * A base URL that failed is skipped for {@code cooldownMillis}.
+ */
+public class EndpointRoutingConfiguration {
+
+    /**
+     * Base URLs calls can be sent to, the first one being the one used by backends that do not route calls.
+     */
+    private final List<String> apiBaseUrls;
+
+    /**
+     * Milliseconds a base URL is skipped after a failure.
+     */
+    private final int cooldownMillis;
+
+    public EndpointRoutingConfiguration(List<String> apiBaseUrls, int cooldownMillis) {
+        this.apiBaseUrls = apiBaseUrls;
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    public List<String> getApiBaseUrls() {
+        return apiBaseUrls;
+    }
+
+    public int getCooldownMillis() {
+        return cooldownMillis;
+    }
+}
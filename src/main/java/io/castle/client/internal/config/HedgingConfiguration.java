@@ -0,0 +1,57 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for hedging authenticate requests.
+ * <p>
+ * When enabled, an authenticate request that has not been answered after the hedge delay is sent a second time, and
+ * the first response received is used.
+ * The hedge delay is the observed {@code delayPercentile} of recent authenticate latencies when a percentile is set
+ * and enough calls were seen, and {@code delayMillis} otherwise.
+ * Hedges are limited to {@code budgetPercent} of the authenticate requests, so that they do not multiply the load on
+ * a degraded API.
+ */
+public class HedgingConfiguration {
+
+    /**
+     * Flag to hedge authenticate requests.
+     */
+    private final boolean enabled;
+
+    /**
+     * Milliseconds to wait for a response before sending a hedge.
+     */
+    private final int delayMillis;
+
+    /**
+     * Percentile of recent authenticate latencies used as hedge delay, zero to always use {@code delayMillis}.
+     */
+    private final double delayPercentile;
+
+    /**
+     * Maximum percentage of extra requests sent as hedges.
+     */
+    private final double budgetPercent;
+
+    public HedgingConfiguration(boolean enabled, int delayMillis, double delayPercentile, double budgetPercent) {
+        this.enabled = enabled;
+        this.delayMillis = delayMillis;
+        this.delayPercentile = delayPercentile;
+        this.budgetPercent = budgetPercent;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getDelayMillis() {
+        return delayMillis;
+    }
+
+    public double getDelayPercentile() {
+        return delayPercentile;
+    }
+
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+}
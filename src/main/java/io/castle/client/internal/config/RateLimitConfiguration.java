@@ -0,0 +1,75 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for the client side rate limits of the Castle API endpoint groups.
+ * <p>
+ * When enabled, each group sends at most its rate of requests per second, with bursts of up to its burst size, and
+ * stops sending requests for as long as the Castle API asks in a {@code 429} or {@code 503} response, up to the
+ * maximum pause.
+ * A rate that is not positive only honors the requests of the Castle API to slow down.
+ */
+public class RateLimitConfiguration {
+
+    /**
+     * Flag to limit the rate of requests and honor {@code 429} responses.
+     */
+    private final boolean enabled;
+
+    /**
+     * Maximum number of authenticate requests per second, zero for no limit.
+     */
+    private final double authenticateRatePerSecond;
+
+    /**
+     * Number of authenticate requests that can be sent at once after a quiet period.
+     */
+    private final int authenticateBurst;
+
+    /**
+     * Maximum number of track and identify requests per second, zero for no limit.
+     */
+    private final double trackRatePerSecond;
+
+    /**
+     * Number of track and identify requests that can be sent at once after a quiet period.
+     */
+    private final int trackBurst;
+
+    /**
+     * Longest pause in milliseconds honored when the Castle API asks to slow down.
+     */
+    private final int maxPauseMillis;
+
+    public RateLimitConfiguration(boolean enabled, double authenticateRatePerSecond, int authenticateBurst, double trackRatePerSecond, int trackBurst, int maxPauseMillis) {
+        this.enabled = enabled;
+        this.authenticateRatePerSecond = authenticateRatePerSecond;
+        this.authenticateBurst = authenticateBurst;
+        this.trackRatePerSecond = trackRatePerSecond;
+        this.trackBurst = trackBurst;
+        this.maxPauseMillis = maxPauseMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getAuthenticateRatePerSecond() {
+        return authenticateRatePerSecond;
+    }
+
+    public int getAuthenticateBurst() {
+        return authenticateBurst;
+    }
+
+    public double getTrackRatePerSecond() {
+        return trackRatePerSecond;
+    }
+
+    public int getTrackBurst() {
+        return trackBurst;
+    }
+
+    public int getMaxPauseMillis() {
+        return maxPauseMillis;
+    }
+}
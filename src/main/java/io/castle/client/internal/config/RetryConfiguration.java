@@ -0,0 +1,65 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for retrying failed track and identify requests.
+ * <p>
+ * A request failing with an IO error or a retryable status code is sent again, up to {@code maxAttempts} times in
+ * total, after an exponential backoff with full jitter starting at {@code initialBackoffMillis} and capped at
+ * {@code maxBackoffMillis}.
+ * Retries are limited to {@code budgetPercent} of the track and identify requests.
+ */
+public class RetryConfiguration {
+
+    /**
+     * Flag to retry failed track and identify requests.
+     */
+    private final boolean enabled;
+
+    /**
+     * Maximum number of attempts of a request, including the first one.
+     */
+    private final int maxAttempts;
+
+    /**
+     * Backoff in milliseconds before the first retry.
+     */
+    private final int initialBackoffMillis;
+
+    /**
+     * Highest backoff in milliseconds between two attempts.
+     */
+    private final int maxBackoffMillis;
+
+    /**
+     * Maximum percentage of extra requests sent as retries.
+     */
+    private final double budgetPercent;
+
+    public RetryConfiguration(boolean enabled, int maxAttempts, int initialBackoffMillis, int maxBackoffMillis, double budgetPercent) {
+        this.enabled = enabled;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.budgetPercent = budgetPercent;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public int getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    public int getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+}
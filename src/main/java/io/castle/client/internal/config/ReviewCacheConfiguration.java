@@ -0,0 +1,53 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for caching the reviews fetched from the Castle API.
+ * <p>
+ * When enabled, up to {@code maxSize} reviews are kept, the least recently used being evicted first, and each expires
+ * {@code ttlMillis} after it was fetched or last read, depending on {@code expiry}.
+ */
+public class ReviewCacheConfiguration {
+
+    /**
+     * Flag to cache reviews.
+     */
+    private final boolean enabled;
+
+    /**
+     * Maximum number of cached reviews.
+     */
+    private final int maxSize;
+
+    /**
+     * Milliseconds a review is cached.
+     */
+    private final int ttlMillis;
+
+    /**
+     * Whether the time to live counts from the fetch or from the last read of a review.
+     */
+    private final ReviewCacheExpiry expiry;
+
+    public ReviewCacheConfiguration(boolean enabled, int maxSize, int ttlMillis, ReviewCacheExpiry expiry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.expiry = expiry;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public ReviewCacheExpiry getExpiry() {
+        return expiry;
+    }
+}
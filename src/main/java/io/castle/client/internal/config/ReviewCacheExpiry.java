@@ -0,0 +1,17 @@
+package io.castle.client.internal.config;
+
+/**
+ * Ways cached reviews expire, on top of the least recently used ones being evicted when the cache is full.
+ * <p>
+ * The default value is AFTER_WRITE.
+ */
+public enum ReviewCacheExpiry {
+    /**
+     * A review is fetched again once the time to live elapsed since it was fetched.
+     */
+    AFTER_WRITE,
+    /**
+     * A review stays cached while it is read at least once per time to live.
+     */
+    AFTER_ACCESS
+}
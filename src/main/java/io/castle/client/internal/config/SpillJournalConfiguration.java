@@ -0,0 +1,65 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for storing undeliverable track and identify events on disk.
+ * <p>
+ * When enabled, events whose request failed, and track events that overflow the batching queue, are appended to a
+ * journal of memory-mapped segment files of {@code segmentSizeBytes} in {@code directory}.
+ * They are replayed at most {@code drainRatePerSecond} per second once the API accepts them again.
+ * The journal never uses more than {@code maxDiskBytes}; the oldest events are evicted first.
+ */
+public class SpillJournalConfiguration {
+
+    /**
+     * Flag to store undeliverable events on disk.
+     */
+    private final boolean enabled;
+
+    /**
+     * Directory of the journal files, used by a single process.
+     */
+    private final String directory;
+
+    /**
+     * Size in bytes of each segment file.
+     */
+    private final int segmentSizeBytes;
+
+    /**
+     * Maximum number of bytes used by the segment files.
+     */
+    private final long maxDiskBytes;
+
+    /**
+     * Maximum number of stored events replayed per second.
+     */
+    private final int drainRatePerSecond;
+
+    public SpillJournalConfiguration(boolean enabled, String directory, int segmentSizeBytes, long maxDiskBytes, int drainRatePerSecond) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSizeBytes = segmentSizeBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.drainRatePerSecond = drainRatePerSecond;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentSizeBytes() {
+        return segmentSizeBytes;
+    }
+
+    public long getMaxDiskBytes() {
+        return maxDiskBytes;
+    }
+
+    public int getDrainRatePerSecond() {
+        return drainRatePerSecond;
+    }
+}
@@ -0,0 +1,53 @@
+package io.castle.client.internal.config;
+
+/**
+ * Settings for sending track events to the Castle API in batches.
+ * <p>
+ * When enabled, track payloads are put in a bounded in-memory queue and a background flusher sends them together
+ * once {@code flushSize} events are waiting or {@code lingerMillis} have passed since the oldest one was queued.
+ */
+public class TrackBatchingConfiguration {
+
+    /**
+     * True when track events are batched, false when each event is sent on its own request.
+     */
+    private final boolean enabled;
+
+    /**
+     * Maximum number of events sent in a single request.
+     */
+    private final int flushSize;
+
+    /**
+     * Milliseconds an event can wait in the queue before a partial batch is flushed.
+     */
+    private final int lingerMillis;
+
+    /**
+     * Maximum number of events waiting to be flushed; events offered to a full queue are dropped.
+     */
+    private final int queueCapacity;
+
+    public TrackBatchingConfiguration(boolean enabled, int flushSize, int lingerMillis, int queueCapacity) {
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+        this.lingerMillis = lingerMillis;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getFlushSize() {
+        return flushSize;
+    }
+
+    public int getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+}
@@ -0,0 +1,60 @@
+package io.castle.client.internal.config;
+
+import io.castle.client.model.TrackPriority;
+
+import java.util.Map;
+
+/**
+ * Settings for dropping low priority track events when the track endpoint group is under pressure.
+ * <p>
+ * When enabled, each event gets the priority of the longest event name pattern of {@code priorities} it matches, and
+ * {@link TrackPriority#NORMAL} when it matches none.
+ * A pattern ending with {@code *} matches every event name starting with the rest of the pattern.
+ * Events are dropped, lowest priority first, once the number of outstanding events nears {@code maxOutstanding} or
+ * the latency of recent events exceeds {@code latencyThresholdMillis}.
+ */
+public class TrackSheddingConfiguration {
+
+    /**
+     * Flag to drop low priority track events under pressure.
+     */
+    private final boolean enabled;
+
+    /**
+     * Number of outstanding track events at which every event but the critical ones is dropped.
+     */
+    private final int maxOutstanding;
+
+    /**
+     * Latency in milliseconds of recent track events above which low and normal priority events are dropped.
+     */
+    private final int latencyThresholdMillis;
+
+    /**
+     * Priorities of the events by event name pattern.
+     */
+    private final Map<String, TrackPriority> priorities;
+
+    public TrackSheddingConfiguration(boolean enabled, int maxOutstanding, int latencyThresholdMillis, Map<String, TrackPriority> priorities) {
+        this.enabled = enabled;
+        this.maxOutstanding = maxOutstanding;
+        this.latencyThresholdMillis = latencyThresholdMillis;
+        this.priorities = priorities;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxOutstanding() {
+        return maxOutstanding;
+    }
+
+    public int getLatencyThresholdMillis() {
+        return latencyThresholdMillis;
+    }
+
+    public Map<String, TrackPriority> getPriorities() {
+        return priorities;
+    }
+}
@@ -10,21 +10,31 @@ import io.castle.client.model.CastleMessage;
 public class CastleGsonModel {
 
     private final Gson gson;
+    private final CastleMessageTypeAdapter messageAdapter;
 
     public CastleGsonModel() {
         GsonBuilder builder = createGsonBuilder();
-        builder.registerTypeAdapter(CastleHeaders.class, new CastleHeadersSerializer());
+        builder.registerTypeAdapter(CastleHeaders.class, new CastleHeadersTypeAdapter());
         builder.registerTypeAdapter(String.class, new StringJsonSerializer());
-        builder.registerTypeAdapter(CastleMessage.class, new CastleMessageSerializer());
-        builder.registerTypeAdapter(CastleHeaders.class, new CastleHeadersDeserializer());
+        builder.registerTypeAdapterFactory(new CastleMessageTypeAdapter.Factory());
         builder.registerTypeAdapter(AuthenticateAction.class, new AuthenticateActionDeserializer());
         this.gson = builder.create();
+        this.messageAdapter = (CastleMessageTypeAdapter) gson.getAdapter(CastleMessage.class);
     }
 
     public Gson getGson() {
         return gson;
     }
 
+    /**
+     * Gets the streaming serializer used to write messages as request bodies.
+     *
+     * @return the message adapter registered in {@link #getGson()}
+     */
+    public CastleMessageTypeAdapter getMessageAdapter() {
+        return messageAdapter;
+    }
+
     public static GsonBuilder createGsonBuilder() {
         return new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES);
     }
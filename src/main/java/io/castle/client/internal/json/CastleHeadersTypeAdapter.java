@@ -0,0 +1,84 @@
+package io.castle.client.internal.json;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.castle.client.model.CastleHeader;
+import io.castle.client.model.CastleHeaders;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streaming serializer and deserializer of {@link CastleHeaders}, represented as a JSON object whose keys are the
+ * header names.
+ * <p>
+ * When a header name is repeated, the last value is written in the position of the first occurrence.
+ * When reading, only keys with primitive values are turned into headers.
+ */
+public class CastleHeadersTypeAdapter extends TypeAdapter<CastleHeaders> {
+
+    @Override
+    public void write(JsonWriter out, CastleHeaders headers) throws IOException {
+        if (headers == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        List<CastleHeader> list = headers.getHeaders();
+        for (int i = 0; i < list.size(); i++) {
+            String key = list.get(i).getKey();
+            if (!isFirstOccurrence(list, i, key)) {
+                continue;
+            }
+            out.name(key).value(lastValue(list, i, key));
+        }
+        out.endObject();
+    }
+
+    private boolean isFirstOccurrence(List<CastleHeader> list, int index, String key) {
+        for (int i = 0; i < index; i++) {
+            if (key.equals(list.get(i).getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String lastValue(List<CastleHeader> list, int index, String key) {
+        String value = list.get(index).getValue();
+        for (int i = index + 1; i < list.size(); i++) {
+            if (key.equals(list.get(i).getKey())) {
+                value = list.get(i).getValue();
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public CastleHeaders read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ImmutableList.Builder<CastleHeader> builder = ImmutableList.builder();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            JsonToken token = in.peek();
+            if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                builder.add(new CastleHeader(key, in.nextString()));
+            } else if (token == JsonToken.BOOLEAN) {
+                builder.add(new CastleHeader(key, Boolean.toString(in.nextBoolean())));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        CastleHeaders headers = new CastleHeaders();
+        headers.setHeaders(builder.build());
+        return headers;
+    }
+}
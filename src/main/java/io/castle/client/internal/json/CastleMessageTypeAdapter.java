@@ -0,0 +1,167 @@
+package io.castle.client.internal.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import io.castle.client.internal.utils.ContextMerge;
+import io.castle.client.model.CastleContext;
+import io.castle.client.model.CastleMessage;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming serializer of {@link CastleMessage} objects.
+ * <p>
+ * Fields are written straight to the {@link JsonWriter} without building an intermediate JSON tree.
+ * Values of the {@code other} map are merged while writing: they replace the message fields with the same name,
+ * except when both values are objects or both are arrays, in which case they are deep merged with
+ * {@link ContextMerge}.
+ * Only those colliding values are converted to a tree.
+ */
+public class CastleMessageTypeAdapter extends TypeAdapter<CastleMessage> {
+
+    private static final String CONTEXT = "context";
+
+    /**
+     * Gson instance without the SDK custom serializers, used for the fields declared in the message, as done by
+     * the reflective serialization of previous versions.
+     */
+    private final Gson fieldsGson = CastleGsonModel.createGsonBuilder().create();
+    private final Gson gson;
+    private final TypeAdapter<CastleMessage> delegate;
+
+    private CastleMessageTypeAdapter(Gson gson, TypeAdapter<CastleMessage> delegate) {
+        this.gson = gson;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(JsonWriter out, CastleMessage message) throws IOException {
+        if (message == null) {
+            out.nullValue();
+            return;
+        }
+        write(out, message, null);
+    }
+
+    /**
+     * Writes a message as the body of a request to the Castle API, including its context.
+     *
+     * @param out            writer receiving the JSON object
+     * @param message        message to write
+     * @param defaultContext context written when the message does not have its own, takes null
+     * @throws IOException when writing fails
+     */
+    public void writePayload(JsonWriter out, CastleMessage message, JsonElement defaultContext) throws IOException {
+        write(out, message, new ContextWriter(message.getContext(), defaultContext));
+    }
+
+    private void write(JsonWriter out, CastleMessage message, ContextWriter contextWriter) throws IOException {
+        Map other = message.getOther();
+        JsonObject otherJson = other.isEmpty() ? null : gson.toJsonTree(other).getAsJsonObject();
+        Set<String> written = otherJson == null ? null : new HashSet<String>();
+
+        out.beginObject();
+        writeField(out, "created_at", message.getCreatedAt(), otherJson, written);
+        writeField(out, "device_token", message.getDeviceToken(), otherJson, written);
+        writeField(out, "event", message.getEvent(), otherJson, written);
+        writeField(out, "properties", message.getProperties(), otherJson, written);
+        writeField(out, "review_id", message.getReviewId(), otherJson, written);
+        writeField(out, "user_id", message.getUserId(), otherJson, written);
+        writeField(out, "user_traits", message.getUserTraits(), otherJson, written);
+        if (otherJson != null) {
+            for (Map.Entry<String, JsonElement> entry : otherJson.entrySet()) {
+                String key = entry.getKey();
+                if (written.contains(key) || (contextWriter != null && CONTEXT.equals(key))) {
+                    continue;
+                }
+                out.name(key);
+                gson.toJson(entry.getValue(), out);
+            }
+        }
+        if (contextWriter != null) {
+            contextWriter.write(out);
+        }
+        out.endObject();
+    }
+
+    private void writeField(JsonWriter out, String name, Object value, JsonObject otherJson, Set<String> written) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (otherJson != null && otherJson.has(name)) {
+            written.add(name);
+            JsonElement addition = otherJson.get(name);
+            out.name(name);
+            if (addition.isJsonObject() || addition.isJsonArray()) {
+                gson.toJson(mergeValue(name, fieldsGson.toJsonTree(value), addition), out);
+            } else {
+                gson.toJson(addition, out);
+            }
+            return;
+        }
+        out.name(name);
+        if (value instanceof String) {
+            out.value((String) value);
+        } else {
+            fieldsGson.toJson(value, value.getClass(), out);
+        }
+    }
+
+    private JsonElement mergeValue(String name, JsonElement base, JsonElement addition) {
+        JsonObject baseWrapper = new JsonObject();
+        baseWrapper.add(name, base);
+        JsonObject additionWrapper = new JsonObject();
+        additionWrapper.add(name, addition);
+        return new ContextMerge().merge(baseWrapper, additionWrapper).get(name);
+    }
+
+    @Override
+    public CastleMessage read(JsonReader in) throws IOException {
+        return delegate.read(in);
+    }
+
+    private class ContextWriter {
+        private final CastleContext context;
+        private final JsonElement defaultContext;
+
+        private ContextWriter(CastleContext context, JsonElement defaultContext) {
+            this.context = context;
+            this.defaultContext = defaultContext;
+        }
+
+        private void write(JsonWriter out) throws IOException {
+            if (context != null) {
+                out.name(CONTEXT);
+                gson.getAdapter(CastleContext.class).write(out, context);
+            } else if (defaultContext != null) {
+                out.name(CONTEXT);
+                gson.toJson(defaultContext, out);
+            }
+        }
+    }
+
+    /**
+     * Creates the message adapter bound to the Gson instance it is registered in.
+     */
+    public static class Factory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != CastleMessage.class) {
+                return null;
+            }
+            TypeAdapter<CastleMessage> delegate = gson.getDelegateAdapter(this, TypeToken.get(CastleMessage.class));
+            return (TypeAdapter<T>) new CastleMessageTypeAdapter(gson, delegate);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.castle.client.internal.json;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleRuntimeException;
+import okio.Buffer;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Body of a track or authenticate request, made of a message and the context it is sent with.
+ * <p>
+ * The payload is serialized when it is built, on the thread making the call, straight into UTF-8 bytes without an
+ * intermediate JSON tree or {@code String}.
+ * Backends may send it later from their own threads, so changes made to the message afterwards are not sent, and
+ * serialization errors are thrown to the caller.
+ */
+public class CastlePayload {
+
+    private final CastleMessage message;
+    private final String userId;
+    private final ByteString json;
+
+    /**
+     * @param model          model holding the serializers of the SDK
+     * @param message        message with the event properties
+     * @param defaultContext context used when the message does not contain its own, takes null
+     */
+    public CastlePayload(CastleGsonModel model, CastleMessage message, JsonObject defaultContext) {
+        this.message = message;
+        this.userId = userIdOf(message);
+        this.json = serialize(model, message, defaultContext);
+    }
+
+    /**
+     * @return the message the payload was built from
+     */
+    public CastleMessage getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the user ID sent in the payload, taking into account values added through {@link CastleMessage#getOther()}.
+     *
+     * @return the user ID of the payload, null if there is none
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return the payload as a UTF-8 encoded JSON object
+     */
+    public ByteString getJson() {
+        return json;
+    }
+
+    private static String userIdOf(CastleMessage message) {
+        Object otherUserId = message.getOther().get("user_id");
+        if (otherUserId instanceof String) {
+            return (String) otherUserId;
+        }
+        return message.getUserId();
+    }
+
+    private static ByteString serialize(CastleGsonModel model, CastleMessage message, JsonObject defaultContext) {
+        Buffer buffer = new Buffer();
+        try {
+            JsonWriter writer = new JsonWriter(new BufferWriter(buffer));
+            model.getMessageAdapter().writePayload(writer, message, defaultContext);
+            writer.flush();
+        } catch (IOException e) {
+            // An in-memory buffer does not fail.
+            throw new CastleRuntimeException(e);
+        }
+        return buffer.readByteString();
+    }
+
+    /**
+     * Encodes the characters produced by the {@link JsonWriter} as UTF-8 straight into the buffer.
+     */
+    private static class BufferWriter extends Writer {
+        private final Buffer buffer;
+
+        private BufferWriter(Buffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int c) {
+            buffer.writeUtf8CodePoint(c);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            buffer.writeUtf8(str, off, off + len);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            buffer.writeUtf8(new String(cbuf, off, len));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.castle.client.internal.utils;
+
+import io.castle.client.Castle;
+import io.castle.client.api.CastleApi;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleMessage;
+
+/**
+ * Sends the track events of a stream, asking its producer for a new event each time one completes.
+ * <p>
+ * At most {@code maxInFlight} events are requested ahead of the ones that completed, so a producer faster than the
+ * transport is slowed down instead of filling the queues of the SDK.
+ * This is the logic shared by the Reactive Streams and {@code java.util.concurrent.Flow} subscribers, which adapt
+ * their subscription to {@link Upstream}.
+ */
+public class BackpressuredTrackSender {
+
+    /**
+     * Subscription of the producer of the events.
+     */
+    public interface Upstream {
+        void request(long n);
+
+        void cancel();
+    }
+
+    private final CastleApi api;
+    private final int maxInFlight;
+    private Upstream upstream;
+    private boolean cancelled;
+
+    /**
+     * @param api         API instance the events are tracked with
+     * @param maxInFlight number of events sent but not completed yet; positive
+     */
+    public BackpressuredTrackSender(CastleApi api, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("The number of events in flight must be positive.");
+        }
+        this.api = api;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public void onSubscribe(Upstream subscription) {
+        boolean accepted;
+        synchronized (this) {
+            accepted = upstream == null && !cancelled;
+            if (accepted) {
+                upstream = subscription;
+            }
+        }
+        if (accepted) {
+            subscription.request(maxInFlight);
+        } else {
+            // A subscriber can only have one subscription.
+            subscription.cancel();
+        }
+    }
+
+    public void onNext(CastleMessage message) {
+        if (message == null) {
+            throw new NullPointerException("Streams can not contain null events");
+        }
+        api.track(message, new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                requestNext();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                requestNext();
+            }
+        });
+    }
+
+    public void onError(Throwable throwable) {
+        Castle.logger.error("Stream of track events failed.", throwable);
+    }
+
+    public void onComplete() {
+        Castle.logger.debug("Stream of track events completed.");
+    }
+
+    /**
+     * Stops requesting events from the producer.
+     */
+    public void cancel() {
+        Upstream toCancel;
+        synchronized (this) {
+            cancelled = true;
+            toCancel = upstream;
+        }
+        if (toCancel != null) {
+            toCancel.cancel();
+        }
+    }
+
+    private void requestNext() {
+        Upstream toRequest;
+        synchronized (this) {
+            toRequest = cancelled ? null : upstream;
+        }
+        if (toRequest != null) {
+            toRequest.request(1);
+        }
+    }
+}
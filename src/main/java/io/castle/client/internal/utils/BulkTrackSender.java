@@ -0,0 +1,134 @@
+package io.castle.client.internal.utils;
+
+import io.castle.client.internal.backend.RestApi;
+import io.castle.client.internal.config.BulkTrackConfiguration;
+import io.castle.client.internal.json.CastlePayload;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleRuntimeException;
+import io.castle.client.model.TrackResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a collection of track events in chunks, keeping a bounded number of requests in flight.
+ * <p>
+ * The payloads are split in chunks of {@link BulkTrackConfiguration#getChunkSize()} events, and the first
+ * {@link BulkTrackConfiguration#getConcurrency()} chunks are sent right away. Each completed request sends the next
+ * chunk, so requests are pipelined without a thread waiting for each of them.
+ * Every event gets the outcome of the request that carried it, and the results are given in the order of the events.
+ */
+public class BulkTrackSender {
+
+    private final RestApi restApi;
+    private final List<CastlePayload> payloads;
+    private final int chunkSize;
+    private final int chunks;
+    private final int concurrency;
+    private final TrackResult[] results;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final AtomicInteger remainingChunks;
+
+    /**
+     * @param restApi       backend the chunks are sent with
+     * @param payloads      payloads of the events, in order
+     * @param configuration chunk size and concurrency of the call
+     */
+    public BulkTrackSender(RestApi restApi, List<CastlePayload> payloads, BulkTrackConfiguration configuration) {
+        this.restApi = restApi;
+        this.payloads = payloads;
+        this.chunkSize = configuration.getChunkSize();
+        this.chunks = (payloads.size() + chunkSize - 1) / chunkSize;
+        this.concurrency = Math.min(configuration.getConcurrency(), chunks);
+        this.results = new TrackResult[payloads.size()];
+        this.remainingChunks = new AtomicInteger(chunks);
+    }
+
+    /**
+     * Sends all chunks, returning immediately.
+     *
+     * @param handler informed with the result of each event once all chunks completed; never informed of an exception
+     */
+    public void send(AsyncCallbackHandler<List<TrackResult>> handler) {
+        if (chunks == 0) {
+            handler.onResponse(Collections.<TrackResult>emptyList());
+            return;
+        }
+        for (int i = 0; i < concurrency; i++) {
+            sendNext(handler);
+        }
+    }
+
+    /**
+     * Sends all chunks and waits until they completed.
+     *
+     * @return the result of each event
+     */
+    public List<TrackResult> sendAndWait() {
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<List<TrackResult>> outcome = new ArrayList<>(1);
+        send(new AsyncCallbackHandler<List<TrackResult>>() {
+            @Override
+            public void onResponse(List<TrackResult> response) {
+                outcome.add(response);
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                // never called, failures of chunks are reported in their results
+                done.countDown();
+            }
+        });
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CastleRuntimeException(e);
+        }
+        return outcome.get(0);
+    }
+
+    private void sendNext(final AsyncCallbackHandler<List<TrackResult>> handler) {
+        int chunk = nextChunk.getAndIncrement();
+        if (chunk >= chunks) {
+            return;
+        }
+        final int from = chunk * chunkSize;
+        final int to = Math.min(from + chunkSize, payloads.size());
+        AsyncCallbackHandler<Boolean> chunkHandler = new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                complete(from, to, Boolean.TRUE.equals(response), null, handler);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                complete(from, to, false, exception, handler);
+            }
+        };
+        try {
+            restApi.sendTrackBatch(payloads.subList(from, to), chunkHandler);
+        } catch (RuntimeException e) {
+            chunkHandler.onException(e);
+        }
+    }
+
+    private void complete(int from, int to, boolean successful, Exception exception, AsyncCallbackHandler<List<TrackResult>> handler) {
+        for (int i = from; i < to; i++) {
+            CastleMessage message = payloads.get(i).getMessage();
+            results[i] = new TrackResult(message, successful, exception);
+        }
+        // The decrement publishes the results written above to the thread informing the handler.
+        if (remainingChunks.decrementAndGet() == 0) {
+            handler.onResponse(Collections.unmodifiableList(Arrays.asList(results)));
+        } else {
+            sendNext(handler);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.castle.client.internal.utils;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.backend.CancellableCallbackHandler;
+import io.castle.client.model.AsyncCallbackHandler;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the callback handlers given by callers on an executor instead of the threads of the backend.
+ * <p>
+ * Backends inform handlers once the response was read and closed, so the wrapped handler only hands the outcome over
+ * to the executor and the backend thread goes back to serving calls, however long the handler of the caller takes.
+ * The time each outcome waited in the executor is reported in the metrics.
+ * When the executor rejects an outcome, the handler is run on the backend thread so that it is never lost.
+ */
+public class CallbackDispatcher {
+
+    private final Executor executor;
+    private final CastleMetrics metrics;
+
+    public CallbackDispatcher(Executor executor, CastleMetrics metrics) {
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wraps a handler so that it is informed on the executor.
+     * <p>
+     * Cancelling a {@link CancellableCallbackHandler} also cancels the calls sent for the returned handler.
+     *
+     * @param handler handler given by the caller, can be null
+     * @param <T>     type of the response
+     * @return the wrapped handler, or null when {@code handler} is null
+     */
+    public <T> AsyncCallbackHandler<T> wrap(final AsyncCallbackHandler<T> handler) {
+        if (handler == null) {
+            return null;
+        }
+        final CancellableCallbackHandler<T> dispatching = new CancellableCallbackHandler<T>() {
+            @Override
+            public void onResponse(final T response) {
+                dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        handler.onResponse(response);
+                    }
+                });
+            }
+
+            @Override
+            public void onException(final Exception exception) {
+                dispatch(new Runnable() {
+                    @Override
+                    public void run() {
+                        handler.onException(exception);
+                    }
+                });
+            }
+        };
+        if (handler instanceof CancellableCallbackHandler) {
+            ((CancellableCallbackHandler<T>) handler).onCancel(new Runnable() {
+                @Override
+                public void run() {
+                    dispatching.cancel();
+                }
+            });
+        }
+        return dispatching;
+    }
+
+    private void dispatch(final Runnable callback) {
+        final long queuedAt = System.nanoTime();
+        Runnable timed = new Runnable() {
+            @Override
+            public void run() {
+                long delayMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedAt);
+                metrics.increment(CastleMetrics.CALLBACK_DISPATCHED);
+                metrics.add(CastleMetrics.CALLBACK_QUEUE_DELAY_MICROS_TOTAL, delayMicros);
+                metrics.max(CastleMetrics.CALLBACK_QUEUE_DELAY_MICROS_MAX, delayMicros);
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    Castle.logger.error("Callback handler failed.", e);
+                }
+            }
+        };
+        try {
+            executor.execute(timed);
+        } catch (RejectedExecutionException e) {
+            metrics.increment(CastleMetrics.CALLBACK_REJECTED);
+            Castle.logger.warn("Callback executor rejected a callback, running it on the backend thread.");
+            timed.run();
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package io.castle.client.internal.utils;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe registry of the counters and gauges reported by the SDK.
+ * <p>
+ * A single instance is shared by all the components of a {@link io.castle.client.Castle} instance and can be
+ * obtained through {@link io.castle.client.Castle#getMetrics()}.
+ * Values are identified by the names declared as constants in this class.
+ * Names that were never recorded have a value of zero.
+ */
+public class CastleMetrics {
+
+    /**
+     * Number of track events accepted into the batching queue.
+     */
+    public static final String TRACK_BATCH_ENQUEUED = "track.batch.enqueued";
+
+    /**
+     * Number of track events sent to the Castle API by the batching flusher.
+     */
+    public static final String TRACK_BATCH_FLUSHED = "track.batch.flushed";
+
+    /**
+     * Number of track events rejected because the batching queue was full.
+     */
+    public static final String TRACK_BATCH_DROPPED = "track.batch.dropped";
+
+    /**
+     * Number of HTTP requests sent by the batching flusher.
+     */
+    public static final String TRACK_BATCH_REQUESTS = "track.batch.requests";
+
+    /**
+     * Number of HTTP requests sent with a gzip compressed body.
+     */
+    public static final String COMPRESSION_REQUESTS = "http.compression.requests";
+
+    /**
+     * Number of HTTP requests sent uncompressed because gzip did not make their body smaller.
+     */
+    public static final String COMPRESSION_SKIPPED = "http.compression.skipped";
+
+    /**
+     * Total number of bytes that compression removed from request bodies.
+     */
+    public static final String COMPRESSION_BYTES_SAVED = "http.compression.bytes_saved";
+
+    /**
+     * Total CPU time in nanoseconds spent compressing request bodies.
+     */
+    public static final String COMPRESSION_CPU_NANOS = "http.compression.cpu_nanos";
+
+    /**
+     * Number of connections opened to the Castle API.
+     */
+    public static final String HTTP_CONNECTIONS_OPENED = "http.connections.opened";
+
+    /**
+     * Number of opened connections that speak HTTP/2.
+     */
+    public static final String HTTP_CONNECTIONS_HTTP2 = "http.connections.http2";
+
+    /**
+     * Number of calls currently holding a connection.
+     */
+    public static final String HTTP_STREAMS_ACTIVE = "http.streams.active";
+
+    /**
+     * Highest number of calls seen sharing a single connection at the same time.
+     */
+    public static final String HTTP_STREAMS_MAX_PER_CONNECTION = "http.streams.max_per_connection";
+
+    /**
+     * Number of warm-up and keep-alive requests sent to keep connections ready.
+     */
+    public static final String CONNECTION_WARMUP_REQUESTS = "http.warmup.requests";
+
+    /**
+     * Number of warm-up and keep-alive requests that failed.
+     */
+    public static final String CONNECTION_WARMUP_FAILURES = "http.warmup.failures";
+
+    /**
+     * Number of authenticate requests sent a second time because the first one was slow.
+     */
+    public static final String AUTHENTICATE_HEDGES = "authenticate.hedge.sent";
+
+    /**
+     * Number of hedged authenticate requests answered by the hedge before the original request.
+     */
+    public static final String AUTHENTICATE_HEDGE_WINS = "authenticate.hedge.wins";
+
+    /**
+     * Number of slow authenticate requests not hedged because the hedge budget was spent.
+     */
+    public static final String AUTHENTICATE_HEDGE_BUDGET_EXHAUSTED = "authenticate.hedge.budget_exhausted";
+
+    /**
+     * Timeout in milliseconds currently applied to authenticate calls when adaptive timeouts are enabled.
+     */
+    public static final String HTTP_TIMEOUT_AUTHENTICATE = "http.timeout.authenticate";
+
+    /**
+     * Timeout in milliseconds currently applied to track and identify calls when adaptive timeouts are enabled.
+     */
+    public static final String HTTP_TIMEOUT_TRACK = "http.timeout.track";
+
+    /**
+     * Timeout in milliseconds currently applied to review calls when adaptive timeouts are enabled.
+     */
+    public static final String HTTP_TIMEOUT_REVIEW = "http.timeout.review";
+
+    /**
+     * Number of times a circuit breaker opened.
+     */
+    public static final String CIRCUIT_BREAKER_OPENED = "circuit_breaker.opened";
+
+    /**
+     * Number of calls failed immediately by an open circuit breaker.
+     */
+    public static final String CIRCUIT_BREAKER_REJECTED = "circuit_breaker.rejected";
+
+    /**
+     * Number of track and identify requests sent again after a failed attempt.
+     */
+    public static final String RETRY_ATTEMPTS = "http.retry.attempts";
+
+    /**
+     * Number of failed track and identify requests not retried because the retry budget was spent.
+     */
+    public static final String RETRY_BUDGET_EXHAUSTED = "http.retry.budget_exhausted";
+
+    /**
+     * Number of undeliverable events stored in the spill journal.
+     */
+    public static final String SPILL_APPENDED = "spill.appended";
+
+    /**
+     * Number of stored events replayed from the spill journal.
+     */
+    public static final String SPILL_REPLAYED = "spill.replayed";
+
+    /**
+     * Number of stored events deleted before being replayed because the spill journal was full.
+     */
+    public static final String SPILL_EVICTED = "spill.evicted";
+
+    /**
+     * Number of undeliverable events that could not be stored in the spill journal.
+     */
+    public static final String SPILL_DROPPED = "spill.dropped";
+
+    /**
+     * Number of requests that were not sent because of the client side rate limit of their endpoint group.
+     */
+    public static final String RATE_LIMIT_REJECTED = "rate_limit.rejected";
+
+    /**
+     * Number of responses in which the Castle API asked the SDK to slow down.
+     */
+    public static final String RATE_LIMIT_THROTTLED = "rate_limit.throttled";
+
+    /**
+     * Number of track events admitted and not completed yet.
+     */
+    public static final String TRACK_OUTSTANDING = "track.outstanding";
+
+    /**
+     * Number of high priority track events dropped under pressure.
+     */
+    public static final String TRACK_SHED_HIGH = "track.shed.high";
+
+    /**
+     * Number of normal priority track events dropped under pressure.
+     */
+    public static final String TRACK_SHED_NORMAL = "track.shed.normal";
+
+    /**
+     * Number of low priority track events dropped under pressure.
+     */
+    public static final String TRACK_SHED_LOW = "track.shed.low";
+
+    /**
+     * Number of host name lookups sent to the resolver by the DNS cache.
+     */
+    public static final String DNS_LOOKUPS = "dns.lookups";
+
+    /**
+     * Total milliseconds spent in host name lookups sent to the resolver.
+     */
+    public static final String DNS_LOOKUP_MILLIS_TOTAL = "dns.lookup.millis_total";
+
+    /**
+     * Longest host name lookup in milliseconds.
+     */
+    public static final String DNS_LOOKUP_MILLIS_MAX = "dns.lookup.millis_max";
+
+    /**
+     * Number of host name lookups served from the DNS cache.
+     */
+    public static final String DNS_CACHE_HITS = "dns.cache.hits";
+
+    /**
+     * Number of host name lookups that failed in the resolver.
+     */
+    public static final String DNS_FAILURES = "dns.failures";
+
+    /**
+     * Number of expired addresses used because the resolver failed.
+     */
+    public static final String DNS_STALE_SERVED = "dns.stale_served";
+
+    /**
+     * Number of calls sent again to another base URL after a connection failure or a server error.
+     */
+    public static final String ROUTING_FAILOVERS = "routing.failovers";
+
+    /**
+     * Prefix of the per base URL metrics, followed by the position of the base URL in the configuration and
+     * {@code .requests} for the number of attempts sent to it, {@code .healthy} for 1 when it is used and 0 while in
+     * cooldown, or {@code .latency_micros} for its average latency.
+     */
+    public static final String ROUTING_ENDPOINT_PREFIX = "routing.endpoint.";
+
+    /**
+     * Number of authenticate and review calls that waited for the result of an identical call instead of being sent.
+     */
+    public static final String COALESCED_CALLS = "coalescing.joined";
+
+    /**
+     * Number of reviews served from the review cache.
+     */
+    public static final String REVIEW_CACHE_HITS = "review_cache.hits";
+
+    /**
+     * Number of reviews not found in the review cache.
+     */
+    public static final String REVIEW_CACHE_MISSES = "review_cache.misses";
+
+    /**
+     * Number of reviews evicted from the review cache because it was full or they expired.
+     */
+    public static final String REVIEW_CACHE_EVICTIONS = "review_cache.evictions";
+
+    /**
+     * Number of callbacks run on the callback executor.
+     */
+    public static final String CALLBACK_DISPATCHED = "callback.dispatched";
+
+    /**
+     * Total microseconds callbacks waited in the callback executor before running.
+     */
+    public static final String CALLBACK_QUEUE_DELAY_MICROS_TOTAL = "callback.queue_delay.micros_total";
+
+    /**
+     * Longest wait of a callback in the callback executor in microseconds.
+     */
+    public static final String CALLBACK_QUEUE_DELAY_MICROS_MAX = "callback.queue_delay.micros_max";
+
+    /**
+     * Number of callbacks rejected by the callback executor and run on the backend thread instead.
+     */
+    public static final String CALLBACK_REJECTED = "callback.rejected";
+
+    private final ConcurrentMap<String, AtomicLong> values = new ConcurrentHashMap<>();
+
+    /**
+     * Adds one to the named counter.
+     *
+     * @param name name of the counter
+     */
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Adds a delta to the named counter.
+     *
+     * @param name  name of the counter
+     * @param delta value to add, can be negative
+     */
+    public void add(String name, long delta) {
+        valueOf(name).addAndGet(delta);
+    }
+
+    /**
+     * Sets the current value of the named gauge.
+     *
+     * @param name  name of the gauge
+     * @param value new value
+     */
+    public void set(String name, long value) {
+        valueOf(name).set(value);
+    }
+
+    /**
+     * Raises the named gauge to a value, leaving it unchanged if it is already higher.
+     *
+     * @param name  name of the gauge
+     * @param value candidate maximum
+     */
+    public void max(String name, long value) {
+        AtomicLong current = valueOf(name);
+        long previous = current.get();
+        while (value > previous && !current.compareAndSet(previous, value)) {
+            previous = current.get();
+        }
+    }
+
+    /**
+     * Gets the current value of a counter or gauge.
+     *
+     * @param name name of the counter or gauge
+     * @return the current value, zero if nothing was recorded under that name
+     */
+    public long get(String name) {
+        AtomicLong value = values.get(name);
+        return value == null ? 0 : value.get();
+    }
+
+    /**
+     * Takes a copy of all the recorded values.
+     *
+     * @return a map from metric name to value, sorted by name
+     */
+    public SortedMap<String, Long> snapshot() {
+        SortedMap<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : values.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+
+    private AtomicLong valueOf(String name) {
+        AtomicLong value = values.get(name);
+        if (value == null) {
+            AtomicLong created = new AtomicLong();
+            value = values.putIfAbsent(name, created);
+            if (value == null) {
+                value = created;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package io.castle.client.internal.utils;
+
+import java.util.Arrays;
+
+/**
+ * Thread safe record of the latencies of the most recent calls to an endpoint.
+ * <p>
+ * Only the last {@code windowSize} samples are kept, so percentiles follow changes in the behaviour of the endpoint.
+ * Percentiles are computed from a sorted copy of the window, refreshed once enough new samples were recorded, so
+ * reading them is cheap enough to be done on every call.
+ */
+public class LatencyRecorder {
+
+    private final long[] samples;
+    private final int minSamples;
+    private final int refreshInterval;
+    private int next;
+    private int size;
+    private int recordedSinceSort;
+    private long[] sorted;
+
+    /**
+     * @param windowSize number of recent samples percentiles are computed from
+     * @param minSamples number of samples needed before percentiles are reported
+     */
+    public LatencyRecorder(int windowSize, int minSamples) {
+        this.samples = new long[windowSize];
+        this.minSamples = Math.min(minSamples, windowSize);
+        this.refreshInterval = Math.max(1, windowSize / 16);
+    }
+
+    /**
+     * Records the latency of a completed call.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+        recordedSinceSort++;
+    }
+
+    /**
+     * Gets a percentile of the recorded latencies.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return the latency in nanoseconds below which that percentage of recent calls completed, or -1 when fewer than
+     * the minimum number of samples were recorded
+     */
+    public synchronized long percentileNanos(double percentile) {
+        if (size < minSamples || size == 0) {
+            return -1;
+        }
+        if (sorted == null || recordedSinceSort >= refreshInterval) {
+            sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            recordedSinceSort = 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * @return the number of samples currently in the window
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
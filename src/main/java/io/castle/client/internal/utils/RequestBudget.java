@@ -0,0 +1,60 @@
+package io.castle.client.internal.utils;
+
+/**
+ * Caps extra requests, such as hedges or retries, to a share of the normal traffic.
+ * <p>
+ * Every normal request deposits {@code ratio} tokens, up to {@code maxBalance}, and every extra request withdraws a
+ * whole token.
+ * The budget starts empty unless an initial balance is given.
+ * When the backend degrades, extra requests stop as soon as the balance is spent instead of multiplying the load.
+ */
+public class RequestBudget {
+
+    /**
+     * Balance is kept in thousandths of a token so that deposits add up exactly.
+     */
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long maxBalance;
+    private long balance;
+
+    /**
+     * @param ratio      extra requests allowed per normal request, for example 0.05 for 5%
+     * @param maxBalance maximum number of extra requests that can be saved up for a burst
+     */
+    public RequestBudget(double ratio, double maxBalance) {
+        this(ratio, maxBalance, 0);
+    }
+
+    /**
+     * @param ratio          extra requests allowed per normal request, for example 0.05 for 5%
+     * @param maxBalance     maximum number of extra requests that can be saved up for a burst
+     * @param initialBalance number of extra requests allowed before any normal request was recorded
+     */
+    public RequestBudget(double ratio, double maxBalance, double initialBalance) {
+        this.deposit = Math.round(ratio * TOKEN);
+        this.maxBalance = Math.round(maxBalance * TOKEN);
+        this.balance = Math.min(this.maxBalance, Math.round(initialBalance * TOKEN));
+    }
+
+    /**
+     * Records a normal request, adding to the budget.
+     */
+    public synchronized void recordRequest() {
+        balance = Math.min(maxBalance, balance + deposit);
+    }
+
+    /**
+     * Takes the budget for one extra request.
+     *
+     * @return true if the extra request can be sent
+     */
+    public synchronized boolean tryAcquire() {
+        if (balance >= TOKEN) {
+            balance -= TOKEN;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,266 @@
+package io.castle.client.internal.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastlePayload;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleRuntimeException;
+import okio.AsyncTimeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares the result of a call with the identical calls made while it is in flight.
+ * <p>
+ * The first call for a key is sent, and calls with the same key made before it completes wait for its result instead
+ * of being sent.
+ * Once the call completes, its key is free again, so results are never reused by later calls.
+ * Every handler informed of a shared result gets its own copy, made through JSON as in {@link ReviewCache}, so
+ * changes made by one caller are not seen by the others.
+ * A call that has not completed within the flight timeout is abandoned: the calls waiting for it fail with a
+ * {@link CastleRuntimeException} and its key is free again.
+ */
+public class RequestCoalescer {
+
+    /**
+     * A call made on the calling thread.
+     *
+     * @param <T> type of the result
+     */
+    public interface SyncCall<T> {
+        T execute();
+    }
+
+    /**
+     * A call that informs a handler of its result.
+     *
+     * @param <T> type of the result
+     */
+    public interface AsyncCall<T> {
+        void enqueue(AsyncCallbackHandler<T> handler);
+    }
+
+    private static final Gson GSON = CastleGsonModel.createGsonBuilder().create();
+
+    private final ConcurrentMap<String, Flight<?>> flights = new ConcurrentHashMap<>();
+    private final CastleMetrics metrics;
+    private final long timeoutMillis;
+
+    /**
+     * @param metrics       registry of the coalesced calls counter
+     * @param timeoutMillis milliseconds after which a call in flight is abandoned
+     */
+    public RequestCoalescer(CastleMetrics metrics, long timeoutMillis) {
+        this.metrics = metrics;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Makes a call on the calling thread, or waits for the result of the identical call in flight.
+     *
+     * @param key  key identifying identical calls
+     * @param call call to make when no identical call is in flight
+     * @param <T>  type of the result
+     * @return the result of the call
+     * @throws RuntimeException the exception thrown by the call
+     */
+    public <T> T execute(String key, SyncCall<T> call) {
+        while (true) {
+            Flight<T> flight = new Flight<>(key);
+            Flight<T> inFlight = putIfAbsent(key, flight);
+            if (inFlight == null) {
+                flight.enter();
+                T result;
+                try {
+                    result = call.execute();
+                } catch (RuntimeException e) {
+                    flight.complete(null, e);
+                    throw e;
+                }
+                flight.complete(result, null);
+                return result;
+            }
+            WaitingHandler<T> waiting = new WaitingHandler<>();
+            if (inFlight.join(waiting)) {
+                metrics.increment(CastleMetrics.COALESCED_CALLS);
+                return waiting.await();
+            }
+        }
+    }
+
+    /**
+     * Makes an asynchronous call, or has the handler informed of the result of the identical call in flight.
+     *
+     * @param key     key identifying identical calls
+     * @param handler handler of the result
+     * @param call    call to make when no identical call is in flight
+     * @param <T>     type of the result
+     */
+    public <T> void enqueue(final String key, AsyncCallbackHandler<T> handler, AsyncCall<T> call) {
+        while (true) {
+            final Flight<T> flight = new Flight<>(key);
+            Flight<T> inFlight = putIfAbsent(key, flight);
+            if (inFlight == null) {
+                flight.join(handler);
+                flight.enter();
+                call.enqueue(new AsyncCallbackHandler<T>() {
+                    @Override
+                    public void onResponse(T response) {
+                        flight.complete(response, null);
+                    }
+
+                    @Override
+                    public void onException(Exception exception) {
+                        flight.complete(null, exception);
+                    }
+                });
+                return;
+            }
+            if (inFlight.join(handler)) {
+                metrics.increment(CastleMetrics.COALESCED_CALLS);
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(T result) {
+        return result != null ? (T) GSON.fromJson(GSON.toJsonTree(result), result.getClass()) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Flight<T> putIfAbsent(String key, Flight<T> flight) {
+        return (Flight<T>) flights.putIfAbsent(key, flight);
+    }
+
+    /**
+     * Computes a key for a payload that does not depend on the order of the fields of its JSON objects.
+     *
+     * @param payload payload of the call
+     * @return a hex encoded hash of the payload
+     */
+    public static String payloadKey(CastlePayload payload) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        putCanonical(hasher, new JsonParser().parse(payload.getJson().utf8()));
+        return hasher.hash().toString();
+    }
+
+    private static void putCanonical(Hasher hasher, JsonElement element) {
+        if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            hasher.putChar('{');
+            for (String name : new TreeSet<>(object.keySet())) {
+                hasher.putString(name, Charsets.UTF_8).putChar(':');
+                putCanonical(hasher, object.get(name));
+            }
+            hasher.putChar('}');
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            hasher.putChar('[');
+            for (JsonElement item : array) {
+                putCanonical(hasher, item);
+            }
+            hasher.putChar(']');
+        } else {
+            hasher.putString(element.toString(), Charsets.UTF_8).putChar(',');
+        }
+    }
+
+    /**
+     * Handlers waiting for a call in flight, informed once with the outcome of the call or the expiry of the flight
+     * timeout.
+     */
+    private class Flight<T> extends AsyncTimeout {
+
+        private final String key;
+        private final List<AsyncCallbackHandler<T>> handlers = new ArrayList<>();
+        private boolean done;
+
+        private Flight(String key) {
+            this.key = key;
+            timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized boolean join(AsyncCallbackHandler<T> handler) {
+            if (done) {
+                return false;
+            }
+            handlers.add(handler);
+            return true;
+        }
+
+        private void complete(T result, Exception exception) {
+            List<AsyncCallbackHandler<T>> toInform;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                toInform = new ArrayList<>(handlers);
+            }
+            exit();
+            flights.remove(key, this);
+            for (AsyncCallbackHandler<T> handler : toInform) {
+                if (exception == null) {
+                    handler.onResponse(copy(result));
+                } else {
+                    handler.onException(exception);
+                }
+            }
+        }
+
+        @Override
+        protected void timedOut() {
+            complete(null, new CastleRuntimeException("Coalesced call did not complete within " + timeoutMillis + " ms"));
+        }
+    }
+
+    private class WaitingHandler<T> implements AsyncCallbackHandler<T> {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private T result;
+        private Exception exception;
+
+        @Override
+        public void onResponse(T response) {
+            this.result = response;
+            latch.countDown();
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            this.exception = exception;
+            latch.countDown();
+        }
+
+        private T await() {
+            try {
+                if (!latch.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new CastleRuntimeException("Timed out waiting for a coalesced call");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CastleRuntimeException(e);
+            }
+            if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            } else if (exception != null) {
+                throw new CastleRuntimeException(exception);
+            }
+            return result;
+        }
+    }
+}
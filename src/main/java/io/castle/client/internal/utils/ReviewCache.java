@@ -0,0 +1,74 @@
+package io.castle.client.internal.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import io.castle.client.internal.config.ReviewCacheConfiguration;
+import io.castle.client.internal.config.ReviewCacheExpiry;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.model.Review;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory cache of reviews by review ID.
+ * <p>
+ * The content of a review does not change once it exists, so a cached review can be served until it expires.
+ * Reviews are cached as JSON, so every caller gets its own copy and changes made by one caller are not seen by others.
+ */
+public class ReviewCache {
+
+    private static final Gson GSON = CastleGsonModel.createGsonBuilder().create();
+
+    private final Cache<String, JsonElement> reviews;
+    private final CastleMetrics metrics;
+
+    public ReviewCache(ReviewCacheConfiguration configuration, final CastleMetrics metrics) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(configuration.getMaxSize())
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors());
+        if (configuration.getExpiry() == ReviewCacheExpiry.AFTER_ACCESS) {
+            builder.expireAfterAccess(configuration.getTtlMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            builder.expireAfterWrite(configuration.getTtlMillis(), TimeUnit.MILLISECONDS);
+        }
+        this.reviews = builder
+                .removalListener(new RemovalListener<String, JsonElement>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, JsonElement> notification) {
+                        if (notification.wasEvicted()) {
+                            metrics.increment(CastleMetrics.REVIEW_CACHE_EVICTIONS);
+                        }
+                    }
+                })
+                .build();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets a cached review.
+     *
+     * @param reviewId ID of the review
+     * @return a copy of the review, or null when it is not cached
+     */
+    public Review get(String reviewId) {
+        JsonElement review = reviews.getIfPresent(reviewId);
+        metrics.increment(review != null ? CastleMetrics.REVIEW_CACHE_HITS : CastleMetrics.REVIEW_CACHE_MISSES);
+        return review != null ? GSON.fromJson(review, Review.class) : null;
+    }
+
+    /**
+     * Caches a copy of a fetched review.
+     *
+     * @param reviewId ID of the review
+     * @param review   the review, not cached when null
+     */
+    public void put(String reviewId, Review review) {
+        if (review != null) {
+            reviews.put(reviewId, GSON.toJsonTree(review));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.castle.client.internal.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread safe token bucket limiting the rate of requests sent to an endpoint.
+ * <p>
+ * Tokens are added at {@code ratePerSecond} up to {@code burst}, and every request takes one.
+ * A rate that is not positive does not limit requests.
+ * Independently of the rate, the bucket can be blocked for a while, for example when the server asked the client to
+ * slow down.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+    private long blockedUntil;
+
+    /**
+     * @param ratePerSecond tokens added per second, zero for no limit
+     * @param burst         maximum number of tokens saved up
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+        this.blockedUntil = refilledAt;
+    }
+
+    /**
+     * Takes a token for a request.
+     *
+     * @return true if the request can be sent
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        if (now - blockedUntil < 0) {
+            return false;
+        }
+        if (tokensPerNano <= 0) {
+            return true;
+        }
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Rejects all requests for a while.
+     *
+     * @param millis milliseconds to block requests for, from now
+     */
+    public synchronized void blockFor(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (until - blockedUntil > 0) {
+            blockedUntil = until;
+        }
+    }
+
+    /**
+     * @return milliseconds until requests stop being blocked, zero if they are not blocked
+     */
+    public synchronized long blockedMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(blockedUntil - System.nanoTime()));
+    }
+}
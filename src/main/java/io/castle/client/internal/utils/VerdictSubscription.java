@@ -0,0 +1,81 @@
+package io.castle.client.internal.utils;
+
+import io.castle.client.api.CastleApi;
+import io.castle.client.internal.backend.CancellableCallbackHandler;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.Verdict;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Subscription to the verdict of one authenticate call, sent when the subscriber first requests an element.
+ * <p>
+ * This is the logic shared by the Reactive Streams and {@code java.util.concurrent.Flow} publishers, which adapt their
+ * subscriber to {@link Downstream}.
+ */
+public class VerdictSubscription {
+
+    /**
+     * Subscriber receiving the verdict.
+     */
+    public interface Downstream {
+        void onNext(Verdict verdict);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    private final CastleApi api;
+    private final CastleMessage message;
+    private final Downstream downstream;
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final AtomicBoolean terminated = new AtomicBoolean();
+    private final CancellableCallbackHandler<Verdict> handler = new CancellableCallbackHandler<Verdict>() {
+        @Override
+        public void onResponse(Verdict response) {
+            if (terminated.compareAndSet(false, true)) {
+                downstream.onNext(response);
+                downstream.onComplete();
+            }
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            if (terminated.compareAndSet(false, true)) {
+                downstream.onError(exception);
+            }
+        }
+    };
+
+    public VerdictSubscription(CastleApi api, CastleMessage message, Downstream downstream) {
+        this.api = api;
+        this.message = message;
+        this.downstream = downstream;
+    }
+
+    public void request(long n) {
+        if (n <= 0) {
+            if (terminated.compareAndSet(false, true)) {
+                handler.cancel();
+                downstream.onError(new IllegalArgumentException("The number of requested elements must be positive."));
+            }
+            return;
+        }
+        if (requested.compareAndSet(false, true) && !terminated.get()) {
+            try {
+                api.authenticateAsync(message, handler);
+            } catch (RuntimeException e) {
+                handler.onException(e);
+            }
+        }
+    }
+
+    /**
+     * Stops waiting for the verdict, cancelling the authenticate call when the backend supports it.
+     */
+    public void cancel() {
+        terminated.set(true);
+        handler.cancel();
+    }
+}
@@ -0,0 +1,71 @@
+package io.castle.client.internal.utils;
+
+import io.castle.client.model.CastleRuntimeException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of Java 21 and later.
+ * <p>
+ * The SDK is compiled for Java 7, so the virtual thread API is only reached by reflection, and only when the virtual
+ * thread mode is enabled.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true when the running JVM supports virtual threads
+     */
+    public static boolean isAvailable() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread for each task.
+     *
+     * @param namePrefix prefix of the names of the threads, followed by a counter
+     * @return the executor
+     * @throws CastleRuntimeException when the running JVM does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            throw new CastleRuntimeException("Virtual threads require Java 21 or later.");
+        } catch (InvocationTargetException e) {
+            throw new CastleRuntimeException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new CastleRuntimeException(e);
+        }
+    }
+
+    /**
+     * @param thread a thread
+     * @return true when the thread is a virtual thread
+     */
+    public static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (NoSuchMethodException e) {
+            return false;
+        } catch (InvocationTargetException | IllegalAccessException e) {
+            throw new CastleRuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package io.castle.client.model;
+
+/**
+ * Listener informed when the circuit breaker of an endpoint group changes state.
+ * <p>
+ * It is called from the thread of the call that caused the change, so implementations should return quickly.
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * @param endpoint name of the endpoint group: {@code authenticate}, {@code track} or {@code review}
+     * @param from     previous state
+     * @param to       new state
+     */
+    void onStateChange(String endpoint, CircuitBreakerState from, CircuitBreakerState to);
+}
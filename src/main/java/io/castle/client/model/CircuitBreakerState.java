@@ -0,0 +1,11 @@
+package io.castle.client.model;
+
+/**
+ * State of the circuit breaker of an endpoint group.
+ * <p>
+ * {@code CLOSED} lets every call through, {@code OPEN} fails every call immediately and {@code HALF_OPEN} lets a few
+ * probe calls through to decide whether the Castle API recovered.
+ */
+public enum CircuitBreakerState {
+    CLOSED, OPEN, HALF_OPEN
+}
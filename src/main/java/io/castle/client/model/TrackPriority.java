@@ -0,0 +1,11 @@
+package io.castle.client.model;
+
+/**
+ * Priority of a tracked event when the SDK sheds load.
+ * <p>
+ * Under pressure, {@code LOW} events are dropped first, then {@code NORMAL} and then {@code HIGH} ones.
+ * {@code CRITICAL} events, such as failed logins, are never dropped by the SDK.
+ */
+public enum TrackPriority {
+    CRITICAL, HIGH, NORMAL, LOW
+}
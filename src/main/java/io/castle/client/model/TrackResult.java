@@ -0,0 +1,41 @@
+package io.castle.client.model;
+
+/**
+ * Model of the outcome of tracking one event of a collection sent with
+ * {@link io.castle.client.api.CastleApi#trackAll}.
+ */
+public class TrackResult {
+
+    /**
+     * The tracked event.
+     */
+    private final CastleMessage message;
+
+    /**
+     * True if the Castle API accepted the request carrying the event.
+     */
+    private final boolean successful;
+
+    /**
+     * Exception of the request carrying the event when it could not be sent, null otherwise.
+     */
+    private final Exception exception;
+
+    public TrackResult(CastleMessage message, boolean successful, Exception exception) {
+        this.message = message;
+        this.successful = successful;
+        this.exception = exception;
+    }
+
+    public CastleMessage getMessage() {
+        return message;
+    }
+
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    public Exception getException() {
+        return exception;
+    }
+}
@@ -0,0 +1,103 @@
+package io.castle.client.api;
+
+import io.castle.client.internal.utils.BackpressuredTrackSender;
+import io.castle.client.internal.utils.VerdictSubscription;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.Verdict;
+
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow} adapters of a {@link CastleApi}, the counterpart of {@link CastleReactiveStreams} without any
+ * dependency.
+ * <p>
+ * This class is compiled for Java 11, and is only part of the jar when it is built on JDK 11 or later.
+ */
+public final class CastleFlow {
+
+    private CastleFlow() {
+    }
+
+    /**
+     * Creates a subscriber tracking the events of a stream, requesting a new event each time a sent one completes.
+     *
+     * @param api         API instance the events are tracked with
+     * @param maxInFlight number of events sent but not completed yet; positive
+     * @return a subscriber for a single stream of events
+     * @see CastleReactiveStreams#trackSubscriber(CastleApi, int)
+     */
+    public static Flow.Subscriber<CastleMessage> trackSubscriber(CastleApi api, int maxInFlight) {
+        BackpressuredTrackSender sender = new BackpressuredTrackSender(api, maxInFlight);
+        return new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                sender.onSubscribe(new BackpressuredTrackSender.Upstream() {
+                    @Override
+                    public void request(long n) {
+                        subscription.request(n);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        subscription.cancel();
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(CastleMessage message) {
+                sender.onNext(message);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                sender.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                sender.onComplete();
+            }
+        };
+    }
+
+    /**
+     * Creates a publisher of the verdict of an authenticate call.
+     *
+     * @param api     API instance the event is authenticated with
+     * @param message event to authenticate
+     * @return a publisher of one verdict
+     * @see CastleReactiveStreams#authenticatePublisher(CastleApi, CastleMessage)
+     */
+    public static Flow.Publisher<Verdict> authenticatePublisher(CastleApi api, CastleMessage message) {
+        return subscriber -> {
+            VerdictSubscription subscription = new VerdictSubscription(api, message, new VerdictSubscription.Downstream() {
+                @Override
+                public void onNext(Verdict verdict) {
+                    subscriber.onNext(verdict);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    subscriber.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    subscriber.onComplete();
+                }
+            });
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                }
+            });
+        };
+    }
+}
@@ -0,0 +1,168 @@
+package io.castle.client.api;
+
+import io.castle.client.internal.backend.CancellableCallbackHandler;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.Review;
+import io.castle.client.model.TrackResult;
+import io.castle.client.model.Verdict;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * {@link CompletionStage} based variants of the async calls of a {@link CastleApi}.
+ * <p>
+ * Cancelling the future of an authenticate or review call, through {@link CompletionStage#toCompletableFuture()},
+ * cancels the HTTP calls sent for it with the {@code OKHTTP} backend provider, unless the call is shared with other
+ * callers by request coalescing. Cancelling the future of a track, bulk track or identify call only stops waiting for it.
+ * <p>
+ * Futures are completed on the threads of the backend, unless an executor is given.
+ * This class is compiled for Java 11, and is only part of the jar when it is built on JDK 11 or later.
+ */
+public final class CastleFutureApi {
+
+    private final CastleApi api;
+    private final Executor executor;
+
+    private CastleFutureApi(CastleApi api, Executor executor) {
+        this.api = Objects.requireNonNull(api);
+        this.executor = executor;
+    }
+
+    /**
+     * @param api API instance, such as the one returned by {@code Castle#onRequest}
+     * @return future variants of the calls of the API instance, completed on the threads of the backend
+     */
+    public static CastleFutureApi of(CastleApi api) {
+        return new CastleFutureApi(api, null);
+    }
+
+    /**
+     * @param api      API instance, such as the one returned by {@code Castle#onRequest}
+     * @param executor executor the futures are completed on
+     * @return future variants of the calls of the API instance, completed on the given executor
+     */
+    public static CastleFutureApi of(CastleApi api, Executor executor) {
+        return new CastleFutureApi(api, Objects.requireNonNull(executor));
+    }
+
+    /**
+     * @see CastleApi#authenticateAsync(String, String, io.castle.client.model.AsyncCallbackHandler)
+     */
+    public CompletionStage<Verdict> authenticateFuture(String event, String userId) {
+        return authenticateFuture(CastleMessage.builder(event).userId(userId).build());
+    }
+
+    /**
+     * @see CastleApi#authenticateAsync(CastleMessage, io.castle.client.model.AsyncCallbackHandler)
+     */
+    public CompletionStage<Verdict> authenticateFuture(CastleMessage message) {
+        return call(handler -> api.authenticateAsync(message, handler));
+    }
+
+    /**
+     * @see CastleApi#authenticateAsync(CastleMessage, long, io.castle.client.model.AsyncCallbackHandler)
+     */
+    public CompletionStage<Verdict> authenticateFuture(CastleMessage message, long deadlineNanos) {
+        return call(handler -> api.authenticateAsync(message, deadlineNanos, handler));
+    }
+
+    /**
+     * @return a future completed with whether the Castle API accepted the event
+     * @see CastleApi#track(CastleMessage, io.castle.client.model.AsyncCallbackHandler)
+     */
+    public CompletionStage<Boolean> trackFuture(CastleMessage message) {
+        return call(handler -> api.track(message, handler));
+    }
+
+    /**
+     * @return a future completed with the result of each event
+     * @see CastleApi#trackAllAsync(java.util.Collection, io.castle.client.model.AsyncCallbackHandler)
+     */
+    public CompletionStage<List<TrackResult>> trackAllFuture(Collection<CastleMessage> messages) {
+        return call(handler -> api.trackAllAsync(messages, handler));
+    }
+
+    /**
+     * @return a future completed with whether the Castle API accepted the call
+     * @see CastleApi#identify(String, Object, boolean, io.castle.client.model.AsyncCallbackHandler)
+     */
+    public CompletionStage<Boolean> identifyFuture(String userId, Object traits, boolean active) {
+        return call(handler -> api.identify(userId, traits, active, handler));
+    }
+
+    /**
+     * @see CastleApi#reviewAsync(String, io.castle.client.model.AsyncCallbackHandler)
+     */
+    public CompletionStage<Review> reviewFuture(String reviewId) {
+        return call(handler -> api.reviewAsync(reviewId, handler));
+    }
+
+    private <T> CompletionStage<T> call(Consumer<AsyncCallbackHandler<T>> send) {
+        FutureHandler<T> handler = new FutureHandler<>();
+        try {
+            send.accept(handler.cancellable);
+        } catch (RuntimeException e) {
+            handler.future.completeExceptionally(e);
+        }
+        return handler.future;
+    }
+
+    private class FutureHandler<T> implements AsyncCallbackHandler<T> {
+
+        /**
+         * Handler given to the backend, so that cancelling the future cancels the HTTP calls sent for it.
+         */
+        private final CancellableCallbackHandler<T> cancellable = new CancellableCallbackHandler<T>() {
+            @Override
+            public void onResponse(T response) {
+                FutureHandler.this.onResponse(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                FutureHandler.this.onException(exception);
+            }
+        };
+
+        private final CompletableFuture<T> future = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled) {
+                    cancellable.cancel();
+                }
+                return cancelled;
+            }
+        };
+
+        @Override
+        public void onResponse(T response) {
+            complete(() -> future.complete(response));
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            complete(() -> future.completeExceptionally(exception));
+        }
+
+        private void complete(Runnable completion) {
+            if (executor == null) {
+                completion.run();
+                return;
+            }
+            try {
+                executor.execute(completion);
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
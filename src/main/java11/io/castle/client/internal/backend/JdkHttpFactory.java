@@ -0,0 +1,75 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.utils.CastleMetrics;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds backends on top of {@code java.net.http.HttpClient}.
+ * <p>
+ * Like {@link OkHttpFactory}, authenticate, track and review calls use separate clients, hence separate connection
+ * pools, but all of them complete their calls on a single shared pool of daemon threads.
+ * This class is compiled for Java 11 and only loaded when the {@link CastleBackendProvider#JDK_HTTP} provider is
+ * selected.
+ */
+public class JdkHttpFactory implements RestApiFactory {
+
+    private final HttpClient authenticateClient;
+    private final HttpClient trackClient;
+    private final HttpClient reviewClient;
+    private final CastleGsonModel modelInstance;
+    private final CastleConfiguration configuration;
+    private final GzipCompressor compressor;
+    private final TrackBatcher trackBatcher;
+
+    public JdkHttpFactory(CastleConfiguration configuration, CastleGsonModel modelInstance, CastleMetrics metrics) {
+        this.configuration = configuration;
+        this.modelInstance = modelInstance;
+        ExecutorService executor = Executors.newCachedThreadPool(daemonThreads());
+        authenticateClient = createHttpClient(executor);
+        trackClient = createHttpClient(executor);
+        reviewClient = createHttpClient(executor);
+        compressor = configuration.getCompression().isEnabled() ? new GzipCompressor(configuration.getCompression(), metrics) : null;
+        if (configuration.getTrackBatching().isEnabled()) {
+            trackBatcher = new TrackBatcher(configuration.getTrackBatching(), this, metrics);
+        } else {
+            trackBatcher = null;
+        }
+    }
+
+    private HttpClient createHttpClient(ExecutorService executor) {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(configuration.getTimeout()))
+                .version(configuration.getHttpProtocol() == CastleHttpProtocol.HTTP_1_1 ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2)
+                .executor(executor)
+                .build();
+    }
+
+    private static ThreadFactory daemonThreads() {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "castle-jdk-http-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public RestApi buildBackend() {
+        return new JdkHttpRestApiBackend(authenticateClient, trackClient, reviewClient, modelInstance, configuration, compressor, trackBatcher);
+    }
+
+    @Override
+    public void close() {
+        if (trackBatcher != null) {
+            trackBatcher.close(configuration.getTimeout());
+        }
+    }
+}
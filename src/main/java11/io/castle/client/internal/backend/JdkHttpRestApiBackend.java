@@ -0,0 +1,312 @@
+package io.castle.client.internal.backend;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.Castle;
+import io.castle.client.internal.config.CastleConfiguration;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastlePayload;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleRuntimeException;
+import io.castle.client.model.Review;
+import io.castle.client.model.Verdict;
+import okhttp3.Credentials;
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RestApi} implementation on top of the asynchronous {@code java.net.http.HttpClient} pipeline.
+ * <p>
+ * Request bodies are serialized with the same streaming writers as the OkHttp backend, into a buffer since the JDK
+ * client publishes bodies from memory.
+ * Responses are interpreted by {@link ApiResponses}, so verdicts, failover and errors are the same for both backends.
+ */
+class JdkHttpRestApiBackend implements RestApi {
+
+    private final HttpClient authenticateClient;
+    private final HttpClient trackClient;
+    private final HttpClient reviewClient;
+    private final CastleGsonModel model;
+    private final CastleConfiguration configuration;
+    private final GzipCompressor compressor;
+    private final TrackBatcher trackBatcher;
+    private final ApiResponses responses;
+    private final String credential;
+
+    private final URI track;
+    private final URI authenticate;
+    private final URI identify;
+    private final URI reviewsBase;
+
+    JdkHttpRestApiBackend(HttpClient authenticateClient, HttpClient trackClient, HttpClient reviewClient, CastleGsonModel model, CastleConfiguration configuration, GzipCompressor compressor, TrackBatcher trackBatcher) {
+        URI baseUrl = URI.create(configuration.getApiBaseUrl());
+        this.authenticateClient = authenticateClient;
+        this.trackClient = trackClient;
+        this.reviewClient = reviewClient;
+        this.model = model;
+        this.configuration = configuration;
+        this.compressor = compressor;
+        this.trackBatcher = trackBatcher;
+        this.responses = new ApiResponses(model, configuration);
+        this.credential = Credentials.basic("", configuration.getApiSecret());
+        this.track = baseUrl.resolve("/v1/track");
+        this.authenticate = baseUrl.resolve("/v1/authenticate");
+        this.reviewsBase = baseUrl.resolve("/v1/reviews/");
+        this.identify = baseUrl.resolve("/v1/identify");
+    }
+
+    @Override
+    public void sendTrackRequest(CastlePayload payload, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        if (trackBatcher != null) {
+            trackBatcher.enqueue(payload, asyncCallbackHandler);
+            return;
+        }
+        sendTrack(JsonRequestBody.of(payload), "HTTP layer. Error sending track request.", asyncCallbackHandler);
+    }
+
+    @Override
+    public void sendTrackBatch(List<CastlePayload> payloads, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        sendTrack(JsonRequestBody.of(payloads), "HTTP layer. Error sending track batch request.", asyncCallbackHandler);
+    }
+
+    private void sendTrack(RequestBody body, final String errorMessage, final AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        HttpRequest request;
+        try {
+            request = post(track, body);
+        } catch (IOException e) {
+            Castle.logger.error(errorMessage, e);
+            if (asyncCallbackHandler != null) {
+                asyncCallbackHandler.onException(e);
+            }
+            return;
+        }
+        trackClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error != null) {
+                Castle.logger.error(errorMessage, error);
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onException(unwrap(error));
+                }
+            } else if (asyncCallbackHandler != null) {
+                asyncCallbackHandler.onResponse(isSuccessful(response));
+            }
+        });
+    }
+
+    @Override
+    public Verdict sendAuthenticateSync(CastlePayload payload) {
+        return sendAuthenticateSync(payload, Duration.ofMillis(configuration.getTimeout()));
+    }
+
+    @Override
+    public Verdict sendAuthenticateSync(CastlePayload payload, long deadlineNanos) {
+        return sendAuthenticateSync(payload, timeoutUntil(deadlineNanos));
+    }
+
+    private Verdict sendAuthenticateSync(CastlePayload payload, Duration timeout) {
+        final String userId = getUserIdFromPayload(payload);
+        try {
+            if (timeout.isNegative() || timeout.isZero()) {
+                throw new HttpTimeoutException("Deadline exceeded");
+            }
+            HttpResponse<String> response = authenticateClient.send(post(authenticate, JsonRequestBody.of(payload), timeout), HttpResponse.BodyHandlers.ofString());
+            return responses.extractVerdict(response.statusCode(), "", response.body(), userId);
+        } catch (IOException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Castle.logger.error("HTTP layer. Error sending request.", e);
+            if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
+                throw new CastleRuntimeException(e);
+            } else {
+                return responses.failover(e.getMessage(), userId);
+            }
+        }
+    }
+
+    @Override
+    public void sendAuthenticateAsync(CastlePayload payload, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        sendAuthenticateAsync(payload, Duration.ofMillis(configuration.getTimeout()), asyncCallbackHandler);
+    }
+
+    @Override
+    public void sendAuthenticateAsync(CastlePayload payload, long deadlineNanos, AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        sendAuthenticateAsync(payload, timeoutUntil(deadlineNanos), asyncCallbackHandler);
+    }
+
+    private void sendAuthenticateAsync(CastlePayload payload, Duration timeout, final AsyncCallbackHandler<Verdict> asyncCallbackHandler) {
+        final String userId = getUserIdFromPayload(payload);
+        if (timeout.isNegative() || timeout.isZero()) {
+            if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
+                asyncCallbackHandler.onException(new CastleRuntimeException(new HttpTimeoutException("Deadline exceeded")));
+            } else {
+                asyncCallbackHandler.onResponse(responses.failover("Deadline exceeded", userId));
+            }
+            return;
+        }
+        HttpRequest request;
+        try {
+            request = post(authenticate, JsonRequestBody.of(payload), timeout);
+        } catch (IOException e) {
+            asyncCallbackHandler.onException(new CastleRuntimeException(e));
+            return;
+        }
+        authenticateClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                if (configuration.getAuthenticateFailoverStrategy().isThrowTimeoutException()) {
+                    asyncCallbackHandler.onException(new CastleRuntimeException(cause));
+                } else {
+                    asyncCallbackHandler.onResponse(responses.failover(cause.getMessage(), userId));
+                }
+                return;
+            }
+            Verdict verdict;
+            try {
+                verdict = responses.extractVerdict(response.statusCode(), "", response.body(), userId);
+            } catch (RuntimeException e) {
+                asyncCallbackHandler.onException(e);
+                return;
+            }
+            asyncCallbackHandler.onResponse(verdict);
+        });
+    }
+
+    private String getUserIdFromPayload(CastlePayload payload) {
+        final String userId = payload.getUserId();
+        if (userId == null) {
+            Castle.logger.warn("Authenticate called with user_id null. Is this correct?");
+        }
+        return userId;
+    }
+
+    @Override
+    public void sendIdentifyRequest(String userId, JsonObject contextJson, boolean active, JsonElement traitsJson, AsyncCallbackHandler<Boolean> asyncCallbackHandler) {
+        JsonObject json = new JsonObject();
+        json.add("user_id", new JsonPrimitive(userId));
+        contextJson.add("active", new JsonPrimitive(active));
+        json.add("context", contextJson);
+        if (traitsJson != null) {
+            json.add("traits", traitsJson);
+        }
+        HttpRequest request;
+        try {
+            request = post(identify, JsonRequestBody.of(model, json));
+        } catch (IOException e) {
+            Castle.logger.error("HTTP layer. Error sending request.", e);
+            if (asyncCallbackHandler != null) {
+                asyncCallbackHandler.onException(e);
+            }
+            return;
+        }
+        trackClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error != null) {
+                Castle.logger.error("HTTP layer. Error sending request.", error);
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onException(unwrap(error));
+                }
+            } else {
+                Castle.logger.debug("Identify request successful");
+                if (asyncCallbackHandler != null) {
+                    asyncCallbackHandler.onResponse(isSuccessful(response));
+                }
+            }
+        });
+    }
+
+    @Override
+    public Review sendReviewRequestSync(String reviewId) {
+        try {
+            HttpResponse<String> response = reviewClient.send(createReviewRequest(reviewId), HttpResponse.BodyHandlers.ofString());
+            return responses.extractReview(response.statusCode(), response.body());
+        } catch (IOException e) {
+            throw new CastleRuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CastleRuntimeException(e);
+        }
+    }
+
+    @Override
+    public void sendReviewRequestAsync(String reviewId, final AsyncCallbackHandler<Review> callbackHandler) {
+        reviewClient.sendAsync(createReviewRequest(reviewId), HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            if (error != null) {
+                callbackHandler.onException(unwrap(error));
+                return;
+            }
+            Review review;
+            try {
+                review = responses.extractReview(response.statusCode(), response.body());
+            } catch (IOException | RuntimeException e) {
+                callbackHandler.onException(e);
+                return;
+            }
+            callbackHandler.onResponse(review);
+        });
+    }
+
+    private HttpRequest createReviewRequest(String reviewId) {
+        return newRequest(reviewsBase.resolve(reviewId))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(URI uri, RequestBody body) throws IOException {
+        return post(uri, body, Duration.ofMillis(configuration.getTimeout()));
+    }
+
+    private HttpRequest post(URI uri, RequestBody body, Duration timeout) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        HttpRequest.Builder builder = newRequest(uri, timeout)
+                .header("Content-Type", JsonRequestBody.JSON.toString());
+        if (compressor != null) {
+            Buffer compressed = compressor.compress(buffer);
+            if (compressed != null) {
+                builder.header("Content-Encoding", "gzip");
+                buffer = compressed;
+            }
+        }
+        return builder
+                .POST(HttpRequest.BodyPublishers.ofByteArray(buffer.readByteArray()))
+                .build();
+    }
+
+    private HttpRequest.Builder newRequest(URI uri) {
+        return newRequest(uri, Duration.ofMillis(configuration.getTimeout()));
+    }
+
+    private HttpRequest.Builder newRequest(URI uri, Duration timeout) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Authorization", credential);
+    }
+
+    /**
+     * The request timeout of the JDK client covers the call until the response headers are received, so it is used
+     * to enforce deadlines.
+     */
+    private Duration timeoutUntil(long deadlineNanos) {
+        return Duration.ofNanos(Math.min(deadlineNanos - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(configuration.getTimeout())));
+    }
+
+    private static boolean isSuccessful(HttpResponse<?> response) {
+        return response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof Exception ? (Exception) cause : new CastleRuntimeException(cause);
+    }
+}
@@ -32,12 +32,13 @@ public abstract class AbstractCastleHttpLayerTest {
     public void prepare() throws NoSuchFieldException, IllegalAccessException, CastleSdkConfigurationException, IOException {
         //Given a mocked API server
         server = new MockWebServer();
+        configureServer(server);
         server.start(InetAddress.getByName("127.0.0.1"),0);
         //Given a SDK instance
         sdk = new Castle(CastleSdkInternalConfiguration.getInternalConfiguration());
         CastleConfiguration configuration = sdk.getInternalConfiguration().getConfiguration();
         testServerBaseUrl = server.url("/");
-        CastleConfiguration mockedApiConfiguration = CastleConfigurationBuilder.aConfigBuilder()
+        CastleConfigurationBuilder mockedApiConfigurationBuilder = CastleConfigurationBuilder.aConfigBuilder()
                 .withApiSecret(configuration.getApiSecret())
                 .withApiBaseUrl(testServerBaseUrl.toString())
                 .withLogHttpRequests(true)
@@ -46,14 +47,32 @@ public abstract class AbstractCastleHttpLayerTest {
                 .withCastleAppId(configuration.getCastleAppId())
                 .withBackendProvider(configuration.getBackendProvider())
                 .withAuthenticateFailoverStrategy(testAuthenticateFailoverStrategy)
-                .withTimeout(configuration.getTimeout())
-                .build();
-        OkHttpFactory mockedFactory = new OkHttpFactory(mockedApiConfiguration, sdk.getInternalConfiguration().getModel());
+                .withTimeout(configuration.getTimeout());
+        CastleConfiguration mockedApiConfiguration = configure(mockedApiConfigurationBuilder).build();
+        OkHttpFactory mockedFactory = new OkHttpFactory(mockedApiConfiguration, sdk.getInternalConfiguration().getModel(), sdk.getInternalConfiguration().getMetrics());
 
         //When the utils are used to override the internal backend factory
         SdkMockUtil.modifyInternalBackendFactory(sdk, mockedFactory);
     }
 
+    /**
+     * Allows subclasses to change the configuration of the SDK used against the mocked API server.
+     *
+     * @param builder builder with the settings of the mocked API configuration
+     * @return the builder to use for the mocked API configuration
+     */
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder;
+    }
+
+    /**
+     * Allows subclasses to change the mocked API server before it is started.
+     *
+     * @param server mocked API server
+     */
+    protected void configureServer(MockWebServer server) {
+    }
+
     @After
     public void tearDown() throws Exception {
         server.shutdown();
@@ -0,0 +1,87 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+public class CastleAdaptiveTimeoutHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleAdaptiveTimeoutHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withTimeout(1000)
+                .withAdaptiveTimeout(true)
+                .withAdaptiveTimeoutPercentile(99)
+                .withAdaptiveTimeoutFloorMillis(50)
+                .withAdaptiveTimeoutCeilingMillis(1500);
+    }
+
+    @Test
+    public void staticTimeoutIsUsedUntilLatenciesAreObserved() {
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.HTTP_TIMEOUT_AUTHENTICATE)).isEqualTo(1000);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.HTTP_TIMEOUT_TRACK)).isEqualTo(1000);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.HTTP_TIMEOUT_REVIEW)).isEqualTo(1000);
+    }
+
+    @Test
+    public void timeoutFollowsObservedLatency() {
+        // Given enough fast authenticate calls
+        for (int i = 0; i < 101; i++) {
+            server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+            sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+        }
+
+        // Then the authenticate timeout is lowered to the floor, other endpoint groups are unaffected
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.HTTP_TIMEOUT_AUTHENTICATE)).isEqualTo(50);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.HTTP_TIMEOUT_TRACK)).isEqualTo(1000);
+
+        // When a call is much slower than the recent ones
+        server.enqueue(new MockResponse()
+                .setHeadersDelay(300, TimeUnit.MILLISECONDS)
+                .setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then it fails over at the adaptive timeout
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+    }
+
+    @Test
+    public void adaptiveTimeoutBoundsTheWholeCall() throws CastleSdkConfigurationException {
+        // Given an SDK whose timeout is 200ms
+        Castle shortTimeoutSdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                CastleConfigurationBuilder.defaultConfigBuilder()
+                        .withApiSecret("secret")
+                        .withApiBaseUrl(server.url("/").toString())
+                        .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                        .withTimeout(200)
+                        .withAdaptiveTimeout(true)
+                        .withAdaptiveTimeoutFloorMillis(50)
+                        .build()));
+
+        // When the headers and the body each take less than the timeout, but more together
+        server.enqueue(new MockResponse()
+                .setHeadersDelay(150, TimeUnit.MILLISECONDS)
+                .setBodyDelay(150, TimeUnit.MILLISECONDS)
+                .setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+        Verdict verdict = shortTimeoutSdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then the whole call fails over at the timeout
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        shortTimeoutSdk.close();
+    }
+}
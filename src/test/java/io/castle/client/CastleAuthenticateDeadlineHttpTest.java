@@ -0,0 +1,169 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleAuthenticateDeadlineHttpTest extends AbstractCastleHttpLayerTest {
+
+    private static final CastleMessage MESSAGE = CastleMessage.builder("$login.succeeded").userId("12345").build();
+
+    public CastleAuthenticateDeadlineHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder.withAuthenticateCallTimeoutMillis(60);
+    }
+
+    @Test
+    public void deadlineBoundsTheWholeCall() {
+        // Given a response slower than the deadline but within the read timeout
+        server.enqueue(slowResponse());
+
+        // When
+        long start = System.nanoTime();
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest())
+                .authenticate(MESSAGE, start + TimeUnit.MILLISECONDS.toNanos(20));
+
+        // Then the failover verdict is returned once the deadline passed
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(elapsedMillis).isLessThan(60);
+    }
+
+    @Test
+    public void callsWithinTheDeadlineReturnTheVerdict() {
+        // Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+
+        // When
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest())
+                .authenticate(MESSAGE, System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        // Then
+        Assertions.assertThat(verdict.isFailover()).isFalse();
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+    }
+
+    @Test
+    public void asyncCallsHonorTheDeadline() throws InterruptedException {
+        // Given
+        server.enqueue(slowResponse());
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Verdict> result = new AtomicReference<>();
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).authenticateAsync(MESSAGE,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(20), new AsyncCallbackHandler<Verdict>() {
+                    @Override
+                    public void onResponse(Verdict response) {
+                        result.set(response);
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onException(Exception exception) {
+                        done.countDown();
+                    }
+                });
+
+        // Then
+        Assertions.assertThat(done.await(1, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(result.get().isFailover()).isTrue();
+        Assertions.assertThat(result.get().getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+    }
+
+    @Test
+    public void callTimeoutOfTheEndpointAppliesWithoutDeadline() {
+        // Given a response slower than the authenticate call timeout
+        server.enqueue(slowResponse());
+
+        // When
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate(MESSAGE);
+
+        // Then
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+    }
+
+    @Test
+    public void deadlineCoversTheTimeQueuedInTheDispatcher() throws CastleSdkConfigurationException, InterruptedException {
+        // Given an SDK allowing one concurrent authenticate call, busy with a slow call
+        Castle singleCallSdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                CastleConfigurationBuilder.defaultConfigBuilder()
+                        .withApiSecret("secret")
+                        .withApiBaseUrl(server.url("/").toString())
+                        .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                        .withTimeout(1000)
+                        .withAuthenticateConnectionLimits(1, 1)
+                        .build()));
+        server.enqueue(new MockResponse()
+                .setHeadersDelay(500, TimeUnit.MILLISECONDS)
+                .setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+        singleCallSdk.onRequest(new MockHttpServletRequest()).authenticateAsync(MESSAGE, new AsyncCallbackHandler<Verdict>() {
+            @Override
+            public void onResponse(Verdict response) {
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Verdict> result = new AtomicReference<>();
+
+        // When a call with a deadline waits for the dispatcher
+        long start = System.nanoTime();
+        singleCallSdk.onRequest(new MockHttpServletRequest()).authenticateAsync(MESSAGE,
+                start + TimeUnit.MILLISECONDS.toNanos(50), new AsyncCallbackHandler<Verdict>() {
+                    @Override
+                    public void onResponse(Verdict response) {
+                        result.set(response);
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onException(Exception exception) {
+                        done.countDown();
+                    }
+                });
+
+        // Then it fails over at the deadline, without waiting for the call ahead of it
+        Assertions.assertThat(done.await(1, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(300);
+        Assertions.assertThat(result.get().isFailover()).isTrue();
+        singleCallSdk.close();
+    }
+
+    @Test
+    public void passedDeadlineFailsOverWithoutRequest() {
+        // When
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate(MESSAGE, System.nanoTime() - 1);
+
+        // Then
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(0);
+    }
+
+    private static MockResponse slowResponse() {
+        return new MockResponse()
+                .setHeadersDelay(80, TimeUnit.MILLISECONDS)
+                .setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}");
+    }
+}
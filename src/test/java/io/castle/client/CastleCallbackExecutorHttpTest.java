@@ -0,0 +1,172 @@
+package io.castle.client;
+
+import io.castle.client.api.CastleApi;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleCallbackExecutorHttpTest {
+
+    private MockWebServer server;
+    private ExecutorService callbackExecutor;
+    private Castle sdk;
+
+    @Before
+    public void prepare() throws IOException, CastleSdkConfigurationException {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        callbackExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "test-callbacks");
+            }
+        });
+        sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withTrackConnectionLimits(1, 1)
+                .withCallbackExecutor(callbackExecutor)
+                .build()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        callbackExecutor.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void slowHandlerDoesNotHoldTheDispatcher() throws InterruptedException {
+        // Given a track endpoint group allowing a single request in flight
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<String> slowHandlerThread = new AtomicReference<>();
+        final CountDownLatch secondDone = new CountDownLatch(1);
+
+        // When the handler of the first event blocks
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("1").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                slowHandlerThread.set(Thread.currentThread().getName());
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$logout.succeeded").userId("1").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                secondDone.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // Then the second event is still sent and its handler informed
+        try {
+            Assertions.assertThat(secondDone.await(1, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+        }
+        Assertions.assertThat(slowHandlerThread.get()).isEqualTo("test-callbacks");
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.CALLBACK_DISPATCHED)).isEqualTo(2);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.CALLBACK_QUEUE_DELAY_MICROS_MAX))
+                .isLessThanOrEqualTo(sdk.getMetrics().get(CastleMetrics.CALLBACK_QUEUE_DELAY_MICROS_TOTAL));
+    }
+
+    @Test
+    public void rejectedCallbacksRunOnTheBackendThread() throws InterruptedException {
+        // Given an executor that no longer accepts tasks
+        server.enqueue(new MockResponse());
+        callbackExecutor.shutdown();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("1").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // Then the handler is still informed
+        Assertions.assertThat(done.await(1, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.CALLBACK_REJECTED)).isEqualTo(1);
+    }
+
+    @Test
+    public void answersWithoutRequestAreRunOnTheExecutor() throws InterruptedException {
+        // Given calls that are not tracked
+        CastleApi api = sdk.onRequest(new MockHttpServletRequest()).doNotTrack(true);
+        final AtomicReference<String> authenticateThread = new AtomicReference<>();
+        final AtomicReference<String> trackThread = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(2);
+
+        // When
+        api.authenticateAsync(CastleMessage.builder("$login.succeeded").userId("1").build(), new AsyncCallbackHandler<Verdict>() {
+            @Override
+            public void onResponse(Verdict response) {
+                authenticateThread.set(Thread.currentThread().getName());
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+        api.track(CastleMessage.builder("$login.succeeded").userId("1").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                trackThread.set(Thread.currentThread().getName());
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // Then the handlers run on the executor without any request
+        Assertions.assertThat(done.await(1, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(authenticateThread.get()).isEqualTo("test-callbacks");
+        Assertions.assertThat(trackThread.get()).isEqualTo("test-callbacks");
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(0);
+    }
+}
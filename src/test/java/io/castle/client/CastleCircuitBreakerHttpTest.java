@@ -0,0 +1,114 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CircuitBreakerListener;
+import io.castle.client.model.CircuitBreakerState;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class CastleCircuitBreakerHttpTest extends AbstractCastleHttpLayerTest {
+
+    private final List<String> transitions = new CopyOnWriteArrayList<>();
+    private volatile boolean healthy = false;
+
+    public CastleCircuitBreakerHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected void configureServer(MockWebServer server) {
+        // Fault injecting API: server errors until it is marked healthy.
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (!healthy) {
+                    return new MockResponse().setResponseCode(503);
+                }
+                return new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}");
+            }
+        });
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withCircuitBreaker(true)
+                .withCircuitBreakerWindow(4, 4)
+                .withCircuitBreakerFailureRateThreshold(50)
+                .withCircuitBreakerOpenDurationMillis(1000)
+                .withCircuitBreakerHalfOpenProbes(1)
+                .withCircuitBreakerListener(new CircuitBreakerListener() {
+                    @Override
+                    public void onStateChange(String endpoint, CircuitBreakerState from, CircuitBreakerState to) {
+                        transitions.add(endpoint + ":" + from + "->" + to);
+                    }
+                });
+    }
+
+    @Test
+    public void openBreakerFailsOverImmediatelyAndClosesAfterProbe() throws InterruptedException {
+        // Given enough failed calls to open the breaker
+        for (int i = 0; i < 4; i++) {
+            authenticate();
+        }
+        Assertions.assertThat(transitions).containsExactly("authenticate:CLOSED->OPEN");
+
+        // When
+        Verdict rejected = authenticate();
+
+        // Then the failover verdict is returned without calling the API
+        Assertions.assertThat(rejected.isFailover()).isTrue();
+        Assertions.assertThat(rejected.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(rejected.getFailoverReason()).contains("Circuit breaker open");
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(4);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.CIRCUIT_BREAKER_REJECTED)).isEqualTo(1);
+
+        // When the API recovers and the open duration passed
+        healthy = true;
+        Thread.sleep(1050);
+        Verdict probe = authenticate();
+
+        // Then the probe goes through and closes the breaker
+        Assertions.assertThat(probe.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(transitions).containsExactly(
+                "authenticate:CLOSED->OPEN",
+                "authenticate:OPEN->HALF_OPEN",
+                "authenticate:HALF_OPEN->CLOSED");
+    }
+
+    @Test
+    public void failedProbeOpensTheBreakerAgain() throws InterruptedException {
+        // Given an open breaker
+        for (int i = 0; i < 4; i++) {
+            authenticate();
+        }
+
+        // When the probe fails
+        Thread.sleep(1050);
+        authenticate();
+
+        // Then the breaker opens again and keeps failing fast
+        Assertions.assertThat(transitions).containsExactly(
+                "authenticate:CLOSED->OPEN",
+                "authenticate:OPEN->HALF_OPEN",
+                "authenticate:HALF_OPEN->OPEN");
+        Assertions.assertThat(authenticate().getFailoverReason()).contains("Circuit breaker open");
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(5);
+    }
+
+    private Verdict authenticate() {
+        return sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+    }
+}
@@ -0,0 +1,73 @@
+package io.castle.client;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.GzipSource;
+import okio.Okio;
+import org.assertj.core.api.Assertions;
+import org.json.JSONException;
+import org.junit.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+
+public class CastleCompressionHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleCompressionHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withCompression(true)
+                .withCompressionMinSizeBytes(512);
+    }
+
+    @Test
+    public void largeTrackBodyIsSentGzipCompressed() throws InterruptedException, IOException, JSONException {
+        // Given
+        server.enqueue(new MockResponse());
+        String description = Strings.repeat("large trait value ", 100);
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .userTraits(ImmutableMap.of("description", description))
+                .build());
+
+        // Then the body is gzip encoded and decompresses to the original payload
+        RecordedRequest recordedRequest = server.takeRequest();
+        Assertions.assertThat(recordedRequest.getHeader("Content-Encoding")).isEqualTo("gzip");
+        long compressedSize = recordedRequest.getBodySize();
+        String body = Okio.buffer(new GzipSource(recordedRequest.getBody())).readUtf8();
+        JSONAssert.assertEquals("{\"event\":\"$login.succeeded\",\"user_id\":\"12345\",\"user_traits\":{\"description\":\"" + description + "\"}}",
+                body, false);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.COMPRESSION_REQUESTS)).isEqualTo(1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.COMPRESSION_BYTES_SAVED))
+                .isEqualTo(body.length() - compressedSize);
+    }
+
+    @Test
+    public void smallAuthenticateBodyIsNotCompressed() throws InterruptedException {
+        // Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then
+        RecordedRequest recordedRequest = server.takeRequest();
+        Assertions.assertThat(recordedRequest.getHeader("Content-Encoding")).isNull();
+        Assertions.assertThat(recordedRequest.getBody().readUtf8()).contains("\"user_id\":\"12345\"");
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.COMPRESSION_REQUESTS)).isEqualTo(0);
+    }
+}
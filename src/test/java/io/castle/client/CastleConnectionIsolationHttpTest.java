@@ -0,0 +1,68 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleConnectionIsolationHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleConnectionIsolationHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withTrackConnectionLimits(1, 1)
+                .withAuthenticateConnectionLimits(4, 1);
+    }
+
+    @Test
+    public void authenticateDoesNotQueueBehindTrackRequests() {
+        // Given a server that answers track requests slowly and authenticate requests immediately
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/v1/track".equals(request.getPath())) {
+                    return new MockResponse().setHeadersDelay(300, TimeUnit.MILLISECONDS);
+                }
+                return new MockResponse().setBody("{\"action\":\"deny\",\"user_id\":\"12345\"}");
+            }
+        });
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        // And the track dispatcher is saturated
+        for (int i = 0; i < 10; i++) {
+            sdk.onRequest(request).track("$login.succeeded", "12345");
+        }
+
+        // When an async authenticate is made
+        final AtomicReference<Verdict> result = new AtomicReference<>();
+        sdk.onRequest(request).authenticateAsync("$login.succeeded", "12345", new AsyncCallbackHandler<Verdict>() {
+            @Override
+            public void onResponse(Verdict response) {
+                result.set(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // Then the verdict arrives before the queued track requests are done
+        Verdict verdict = waitForValue(result);
+        Assertions.assertThat(verdict.isFailover()).isFalse();
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+    }
+}
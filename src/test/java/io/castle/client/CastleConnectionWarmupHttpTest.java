@@ -0,0 +1,155 @@
+package io.castle.client;
+
+import io.castle.client.internal.backend.CastleHttpProtocol;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.Verdict;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class CastleConnectionWarmupHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleConnectionWarmupHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected void configureServer(MockWebServer server) {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getMethod().equals("HEAD")) {
+                    // Slow enough for the warm-up requests to be in flight at the same time.
+                    return new MockResponse().setHeadersDelay(50, TimeUnit.MILLISECONDS);
+                }
+                return new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}");
+            }
+        });
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withWarmupConnections(2)
+                .withKeepAliveIntervalMillis(200)
+                .withIdleConnectionTimeoutMillis(2000);
+    }
+
+    @Test
+    public void connectionsAreOpenedAtInitializationAndReused() throws InterruptedException, CastleSdkConfigurationException {
+        // Given warm-up requests sent when the SDK was initialized, without keep-alive rounds competing for the
+        // connections, and which may outlast the timeout on a cold JVM
+        Castle warmedSdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                CastleConfigurationBuilder.defaultConfigBuilder()
+                        .withApiSecret("secret")
+                        .withApiBaseUrl(server.url("/").toString())
+                        .withWarmupConnections(2)
+                        .withKeepAliveIntervalMillis(0)
+                        .build()));
+        long deadline = System.currentTimeMillis() + 1000;
+        while (warmedSdk.getMetrics().get(CastleMetrics.HTTP_CONNECTIONS_OPENED) < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        // Let their delayed responses complete
+        Thread.sleep(100);
+        Assertions.assertThat(warmedSdk.getMetrics().get(CastleMetrics.HTTP_CONNECTIONS_OPENED)).isEqualTo(2);
+
+        // When
+        Verdict verdict = warmedSdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then the authenticate call uses one of the warmed connections
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(warmedSdk.getMetrics().get(CastleMetrics.HTTP_CONNECTIONS_OPENED)).isEqualTo(2);
+        warmedSdk.close();
+    }
+
+    @Test
+    public void warmedConnectionsAreKeptAlive() throws InterruptedException {
+        // When more than one keep-alive interval passes
+        Thread.sleep(500);
+
+        // Then further rounds of keep-alive requests are sent over the same connections
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.CONNECTION_WARMUP_REQUESTS)).isGreaterThanOrEqualTo(4);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.CONNECTION_WARMUP_FAILURES)).isEqualTo(0);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.HTTP_CONNECTIONS_OPENED)).isEqualTo(2);
+    }
+
+    @Test
+    public void keepAliveStopsWhenClosed() throws InterruptedException {
+        // Given
+        sdk.close();
+        Thread.sleep(100);
+        long sent = sdk.getMetrics().get(CastleMetrics.CONNECTION_WARMUP_REQUESTS);
+
+        // When more than one keep-alive interval passes
+        Thread.sleep(500);
+
+        // Then no further keep-alive requests are sent
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.CONNECTION_WARMUP_REQUESTS)).isEqualTo(sent);
+    }
+
+    @Test
+    public void warmupRequestsDoNotUseAuthenticateRateLimitPermits() throws CastleSdkConfigurationException {
+        // Given an authenticate rate limit allowing a single call, and warm-up requests sent at initialization
+        Castle limitedSdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                CastleConfigurationBuilder.defaultConfigBuilder()
+                        .withApiSecret("secret")
+                        .withApiBaseUrl(server.url("/").toString())
+                        .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                        .withRateLimiting(true)
+                        .withAuthenticateRateLimit(0.01, 1)
+                        .withWarmupConnections(2)
+                        .withKeepAliveIntervalMillis(0)
+                        .build()));
+        Assertions.assertThat(limitedSdk.getMetrics().get(CastleMetrics.CONNECTION_WARMUP_REQUESTS)).isEqualTo(2);
+
+        // When
+        Verdict verdict = limitedSdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then the permit is still available for the authenticate call
+        Assertions.assertThat(verdict.isFailover()).isFalse();
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(limitedSdk.getMetrics().get(CastleMetrics.RATE_LIMIT_REJECTED)).isEqualTo(0);
+        limitedSdk.close();
+    }
+
+    @Test
+    public void singleConnectionIsWarmedOverHttp2() throws IOException, CastleSdkConfigurationException {
+        // Given an h2c server
+        MockWebServer h2Server = new MockWebServer();
+        h2Server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        h2Server.start();
+        try {
+            // When
+            Castle h2Sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                    CastleConfigurationBuilder.defaultConfigBuilder()
+                            .withApiSecret("secret")
+                            .withApiBaseUrl(h2Server.url("/").toString())
+                            .withHttpProtocol(CastleHttpProtocol.H2_PRIOR_KNOWLEDGE)
+                            .withWarmupConnections(2)
+                            .withKeepAliveIntervalMillis(0)
+                            .build()));
+            h2Sdk.close();
+
+            // Then one warm-up request is enough, since further requests would share its connection
+            Assertions.assertThat(h2Sdk.getMetrics().get(CastleMetrics.CONNECTION_WARMUP_REQUESTS)).isEqualTo(1);
+            Assertions.assertThat(h2Sdk.getMetrics().get(CastleMetrics.HTTP_CONNECTIONS_OPENED)).isEqualTo(1);
+        } finally {
+            h2Server.shutdown();
+        }
+    }
+}
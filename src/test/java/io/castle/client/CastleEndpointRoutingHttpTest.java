@@ -0,0 +1,87 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+public class CastleEndpointRoutingHttpTest extends AbstractCastleHttpLayerTest {
+
+    private MockWebServer fallback;
+    private String unreachableUrl;
+
+    public CastleEndpointRoutingHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        try {
+            fallback = new MockWebServer();
+            fallback.start(InetAddress.getByName("127.0.0.1"), 0);
+            // A port nothing listens on, so connecting to it is refused.
+            try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+                unreachableUrl = "http://127.0.0.1:" + socket.getLocalPort() + "/";
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return builder
+                .withApiBaseUrls(unreachableUrl, testServerBaseUrl.toString(), fallback.url("/").toString())
+                .withEndpointCooldownMillis(60000);
+    }
+
+    @After
+    public void shutdownFallback() throws IOException {
+        fallback.shutdown();
+    }
+
+    @Test
+    public void callsMoveToTheNextEndpointOnConnectionFailureAndServerError() {
+        // Given the second endpoint failing and the third one answering
+        server.enqueue(new MockResponse().setResponseCode(503));
+        fallback.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+
+        // When
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then the call was answered by the third endpoint
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        Assertions.assertThat(fallback.getRequestCount()).isEqualTo(1);
+        CastleMetrics metrics = sdk.getMetrics();
+        Assertions.assertThat(metrics.get(CastleMetrics.ROUTING_FAILOVERS)).isEqualTo(2);
+        Assertions.assertThat(metrics.get(CastleMetrics.ROUTING_ENDPOINT_PREFIX + "0.healthy")).isEqualTo(0);
+        Assertions.assertThat(metrics.get(CastleMetrics.ROUTING_ENDPOINT_PREFIX + "1.healthy")).isEqualTo(0);
+        Assertions.assertThat(metrics.get(CastleMetrics.ROUTING_ENDPOINT_PREFIX + "2.healthy")).isEqualTo(1);
+    }
+
+    @Test
+    public void failedEndpointsAreSkippedDuringTheirCooldown() {
+        // Given the first two endpoints failed once
+        server.enqueue(new MockResponse().setResponseCode(503));
+        fallback.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+        sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // When
+        fallback.enqueue(new MockResponse().setBody("{\"action\":\"deny\",\"user_id\":\"12345\"}"));
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then the call went straight to the healthy endpoint
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.ROUTING_FAILOVERS)).isEqualTo(2);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.ROUTING_ENDPOINT_PREFIX + "2.requests")).isEqualTo(2);
+    }
+}
@@ -0,0 +1,133 @@
+package io.castle.client;
+
+import io.castle.client.api.CastleApi;
+import io.castle.client.internal.backend.CancellableCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.Review;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleFutureApiHttpTest extends AbstractCastleHttpLayerTest {
+
+    private static final String FUTURE_API = "io.castle.client.api.CastleFutureApi";
+
+    public CastleFutureApiHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Test
+    public void cancellingTheHandlerCancelsTheCall() throws InterruptedException {
+        // Given a review call that is slow to answer
+        server.enqueue(new MockResponse()
+                .setHeadersDelay(80, TimeUnit.MILLISECONDS)
+                .setBody("{\"user_id\":\"12345\"}"));
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final AtomicBoolean answered = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+        CancellableCallbackHandler<Review> handler = new CancellableCallbackHandler<Review>() {
+            @Override
+            public void onResponse(Review response) {
+                answered.set(true);
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                failure.set(exception);
+                done.countDown();
+            }
+        };
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).reviewAsync("review", handler);
+        handler.cancel();
+
+        // Then the call fails instead of waiting for the server
+        Assertions.assertThat(done.await(1, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(failure.get()).isInstanceOf(IOException.class);
+        Assertions.assertThat(answered.get()).isFalse();
+    }
+
+    @Test
+    public void futuresAreCompletedOnTheGivenExecutor() throws Exception {
+        Assume.assumeTrue(isFutureApiAvailable());
+        // Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"deny\",\"user_id\":\"12345\"}"));
+        final AtomicReference<String> completionThread = new AtomicReference<>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                Thread thread = new Thread(command, "caller-executor");
+                completionThread.set(thread.getName());
+                thread.start();
+            }
+        };
+        Object futureApi = Class.forName(FUTURE_API)
+                .getMethod("of", CastleApi.class, Executor.class)
+                .invoke(null, sdk.onRequest(new MockHttpServletRequest()), executor);
+
+        // When
+        Object stage = futureApi.getClass()
+                .getMethod("authenticateFuture", String.class, String.class)
+                .invoke(futureApi, "$login.succeeded", "12345");
+        Verdict verdict = (Verdict) ((Future<?>) stage).get(1, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+        Assertions.assertThat(completionThread.get()).isEqualTo("caller-executor");
+    }
+
+    @Test
+    public void futuresFailOnErrorStatus() throws Exception {
+        Assume.assumeTrue(isFutureApiAvailable());
+        // Given an invalid authenticate request and a review that is not found
+        server.enqueue(new MockResponse().setResponseCode(422).setBody("{\"type\":\"invalid_request_error\"}"));
+        server.enqueue(new MockResponse().setResponseCode(404));
+        Object futureApi = Class.forName(FUTURE_API)
+                .getMethod("of", CastleApi.class)
+                .invoke(null, sdk.onRequest(new MockHttpServletRequest()));
+
+        // When
+        Object authenticate = futureApi.getClass()
+                .getMethod("authenticateFuture", String.class, String.class)
+                .invoke(futureApi, "$login.succeeded", "12345");
+        Object review = futureApi.getClass()
+                .getMethod("reviewFuture", String.class)
+                .invoke(futureApi, "review");
+
+        // Then both futures complete exceptionally
+        assertFailed((Future<?>) authenticate);
+        assertFailed((Future<?>) review);
+    }
+
+    private static void assertFailed(Future<?> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            Assertions.fail("the future should complete exceptionally");
+        } catch (ExecutionException expected) {
+        }
+    }
+
+    private static boolean isFutureApiAvailable() {
+        try {
+            Class.forName(FUTURE_API);
+            return true;
+        } catch (ClassNotFoundException | UnsupportedClassVersionError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleHedgingHttpTest extends AbstractCastleHttpLayerTest {
+
+    private final AtomicInteger authenticateRequests = new AtomicInteger();
+
+    public CastleHedgingHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected void configureServer(MockWebServer server) {
+        // The first authenticate request is slow, the following ones are answered immediately.
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (authenticateRequests.getAndIncrement() == 0) {
+                    return new MockResponse()
+                            .setHeadersDelay(800, TimeUnit.MILLISECONDS)
+                            .setBody("{\"action\":\"deny\",\"user_id\":\"12345\"}");
+                }
+                return new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}");
+            }
+        });
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withTimeout(2000)
+                .withAuthenticateHedging(true)
+                .withHedgeDelayMillis(200)
+                .withHedgeBudgetPercent(100);
+    }
+
+    @Test
+    public void slowAuthenticateIsAnsweredByTheHedge() {
+        // When
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then the response of the hedge is used without waiting for the slow request
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(authenticateRequests.get()).isEqualTo(2);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.AUTHENTICATE_HEDGES)).isEqualTo(1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.AUTHENTICATE_HEDGE_WINS)).isEqualTo(1);
+    }
+
+    @Test
+    public void slowAsyncAuthenticateIsAnsweredByTheHedge() throws InterruptedException {
+        // Given
+        final CountDownLatch answered = new CountDownLatch(1);
+        final AtomicReference<Verdict> result = new AtomicReference<>();
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).authenticateAsync("$login.succeeded", "12345", null, null, new AsyncCallbackHandler<Verdict>() {
+            @Override
+            public void onResponse(Verdict response) {
+                result.set(response);
+                answered.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                answered.countDown();
+            }
+        });
+
+        // Then the handler is informed once, with the response of the hedge
+        Assertions.assertThat(answered.await(500, TimeUnit.MILLISECONDS)).isTrue();
+        Assertions.assertThat(result.get().getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.AUTHENTICATE_HEDGE_WINS)).isEqualTo(1);
+    }
+
+    @Test
+    public void fastAuthenticateIsNotHedged() {
+        // Given the slow request was already answered, and a first call paid for class loading and connecting
+        authenticateRequests.set(1);
+        sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+        int requests = authenticateRequests.get();
+        long hedges = sdk.getMetrics().get(CastleMetrics.AUTHENTICATE_HEDGES);
+
+        // When
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then a single request was sent
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(authenticateRequests.get()).isEqualTo(requests + 1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.AUTHENTICATE_HEDGES)).isEqualTo(hedges);
+    }
+}
@@ -0,0 +1,79 @@
+package io.castle.client;
+
+import io.castle.client.internal.backend.CastleHttpProtocol;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.Verdict;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CastleHttp2HttpTest extends AbstractCastleHttpLayerTest {
+
+    private static final int CONCURRENT_CALLS = 8;
+
+    public CastleHttp2HttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected void configureServer(MockWebServer server) {
+        // h2c stand-in for a local egress proxy
+        server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withLogHttpRequests(false)
+                .withHttpProtocol(CastleHttpProtocol.H2_PRIOR_KNOWLEDGE);
+    }
+
+    @Test
+    public void concurrentAuthenticateCallsAreMultiplexedOverOneConnection() throws InterruptedException {
+        // Given an established connection
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+        sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+        // and responses that take some time, so that all calls are in flight together
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            server.enqueue(new MockResponse()
+                    .setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}")
+                    .setHeadersDelay(200, TimeUnit.MILLISECONDS));
+        }
+        final CountDownLatch responses = new CountDownLatch(CONCURRENT_CALLS);
+
+        // When
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            sdk.onRequest(new MockHttpServletRequest()).authenticateAsync(
+                    CastleMessage.builder("$login.succeeded").userId("12345").build(),
+                    new AsyncCallbackHandler<Verdict>() {
+                        @Override
+                        public void onResponse(Verdict response) {
+                            responses.countDown();
+                        }
+
+                        @Override
+                        public void onException(Exception exception) {
+                        }
+                    });
+        }
+
+        // Then all calls succeed over a single HTTP/2 connection
+        Assertions.assertThat(responses.await(5, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(CONCURRENT_CALLS + 1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.HTTP_CONNECTIONS_OPENED)).isEqualTo(1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.HTTP_CONNECTIONS_HTTP2)).isEqualTo(1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.HTTP_STREAMS_MAX_PER_CONNECTION)).isGreaterThan(1);
+    }
+}
@@ -0,0 +1,151 @@
+package io.castle.client;
+
+import io.castle.client.internal.backend.CastleBackendProvider;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleRuntimeException;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleJdkHttpBackendTest {
+
+    private MockWebServer server;
+    private CastleConfigurationBuilder builder;
+
+    @Before
+    public void prepare() throws IOException {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        builder = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withBackendProvider(CastleBackendProvider.JDK_HTTP);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void authenticateIsSentThroughJdkHttpClient() throws CastleSdkConfigurationException, InterruptedException, JSONException {
+        Assume.assumeTrue(isJdkHttpClientAvailable());
+        // Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"deny\",\"user_id\":\"12345\"}"));
+        Castle sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(builder.build()));
+
+        // When
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+        RecordedRequest recordedRequest = server.takeRequest();
+        Assertions.assertThat(recordedRequest.getPath()).isEqualTo("/v1/authenticate");
+        Assertions.assertThat(recordedRequest.getHeader("Authorization")).isEqualTo("Basic OnNlY3JldA==");
+        Assertions.assertThat(recordedRequest.getHeader("User-Agent")).startsWith("Java-http-client");
+        JSONAssert.assertEquals("{\"event\":\"$login.succeeded\",\"user_id\":\"12345\"}", recordedRequest.getBody().readUtf8(), false);
+    }
+
+    @Test
+    public void serverErrorOnAsyncAuthenticateUsesFailoverStrategy() throws CastleSdkConfigurationException {
+        Assume.assumeTrue(isJdkHttpClientAvailable());
+        // Given
+        server.enqueue(new MockResponse().setResponseCode(503));
+        Castle sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(builder.build()));
+        final AtomicReference<Verdict> result = new AtomicReference<>();
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).authenticateAsync(CastleMessage.builder("$login.succeeded").userId("12345").build(), new AsyncCallbackHandler<Verdict>() {
+            @Override
+            public void onResponse(Verdict response) {
+                result.set(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // Then
+        Verdict verdict = waitForValue(result);
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+    }
+
+    @Test
+    public void trackIsSentThroughJdkHttpClient() throws CastleSdkConfigurationException, InterruptedException {
+        Assume.assumeTrue(isJdkHttpClientAvailable());
+        // Given
+        server.enqueue(new MockResponse());
+        Castle sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(builder.build()));
+        final AtomicReference<Boolean> result = new AtomicReference<>();
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("12345").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                result.set(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // Then
+        RecordedRequest recordedRequest = server.takeRequest(1, TimeUnit.SECONDS);
+        Assertions.assertThat(recordedRequest.getPath()).isEqualTo("/v1/track");
+        Assertions.assertThat(waitForValue(result)).isTrue();
+    }
+
+    @Test(expected = CastleRuntimeException.class)
+    public void jdkHttpProviderIsRejectedBeforeJava11() throws CastleSdkConfigurationException {
+        Assume.assumeFalse(isJdkHttpClientAvailable());
+
+        CastleSdkInternalConfiguration.buildFromConfiguration(builder.build());
+    }
+
+    private static boolean isJdkHttpClientAvailable() {
+        try {
+            Class.forName("java.net.http.HttpClient");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static <T> T waitForValue(AtomicReference<T> result) {
+        T value = result.get();
+        for (int i = 0; value == null && i < 20; i++) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            value = result.get();
+        }
+        Assertions.assertThat(value).isNotNull();
+        return value;
+    }
+}
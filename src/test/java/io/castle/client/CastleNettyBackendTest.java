@@ -0,0 +1,132 @@
+package io.castle.client;
+
+import io.castle.client.internal.backend.CastleBackendProvider;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.assertj.core.api.Assertions;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CastleNettyBackendTest {
+
+    private MockWebServer server;
+    private CastleConfigurationBuilder builder;
+
+    @Before
+    public void prepare() throws IOException {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        builder = CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withBackendProvider(CastleBackendProvider.NETTY);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void authenticateIsSentThroughNetty() throws CastleSdkConfigurationException, InterruptedException, JSONException {
+        // Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"deny\",\"user_id\":\"12345\"}"));
+        Castle sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(builder.build()));
+
+        // When
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.DENY);
+        RecordedRequest recordedRequest = server.takeRequest();
+        Assertions.assertThat(recordedRequest.getPath()).isEqualTo("/v1/authenticate");
+        Assertions.assertThat(recordedRequest.getHeader("Authorization")).isEqualTo("Basic OnNlY3JldA==");
+        Assertions.assertThat(recordedRequest.getHeader("Content-Type")).isEqualTo("application/json; charset=utf-8");
+        JSONAssert.assertEquals("{\"event\":\"$login.succeeded\",\"user_id\":\"12345\"}", recordedRequest.getBody().readUtf8(), false);
+    }
+
+    @Test
+    public void authenticateTimeoutUsesFailoverStrategy() throws CastleSdkConfigurationException {
+        // Given a server that never answers
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        Castle sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(builder.withTimeout(200).build()));
+
+        // When
+        Verdict verdict = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then
+        Assertions.assertThat(verdict.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(verdict.isFailover()).isTrue();
+    }
+
+    @Test
+    public void manyConcurrentTrackCallsShareFewConnectionsAndThreads() throws CastleSdkConfigurationException, InterruptedException {
+        // Given a track group limited to four connections
+        int calls = 500;
+        for (int i = 0; i < calls; i++) {
+            server.enqueue(new MockResponse());
+        }
+        int threadsBefore = countThreads("castle-netty");
+        Castle sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(builder
+                .withTimeout(10000)
+                .withTrackConnectionLimits(4, 4)
+                .build()));
+        final CountDownLatch completed = new CountDownLatch(calls);
+        final AtomicInteger successful = new AtomicInteger();
+
+        // When all the calls are issued at once
+        for (int i = 0; i < calls; i++) {
+            sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId(String.valueOf(i)).build(), new AsyncCallbackHandler<Boolean>() {
+                @Override
+                public void onResponse(Boolean response) {
+                    if (response) {
+                        successful.incrementAndGet();
+                    }
+                    completed.countDown();
+                }
+
+                @Override
+                public void onException(Exception exception) {
+                    completed.countDown();
+                }
+            });
+        }
+
+        // Then every call succeeds without a thread per outstanding request
+        Assertions.assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(successful.get()).isEqualTo(calls);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(calls);
+        Assertions.assertThat(countThreads("castle-netty") - threadsBefore).isBetween(1, 4);
+    }
+
+    private static int countThreads(String prefix) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,157 @@
+package io.castle.client;
+
+import io.castle.client.internal.backend.RateLimitedException;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleRateLimitHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleRateLimitHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withRateLimiting(true)
+                .withTrackRateLimit(1, 2)
+                .withTrackRetries(true)
+                .withTrackRetryBackoffMillis(10, 50)
+                .withTrackRetryBudgetPercent(100);
+    }
+
+    @Test
+    public void authenticateFailsOverWhileTheApiAsksToSlowDown() {
+        // Given an API answering 429 with a Retry-After header
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "5"));
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+
+        // When
+        Verdict throttled = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+        Verdict next = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then both calls return the failover verdict, and the second one is not sent
+        Assertions.assertThat(throttled.isFailover()).isTrue();
+        Assertions.assertThat(throttled.getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(next.isFailover()).isTrue();
+        Assertions.assertThat(next.getFailoverReason()).contains("Rate limited");
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.RATE_LIMIT_THROTTLED)).isEqualTo(1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.RATE_LIMIT_REJECTED)).isEqualTo(1);
+    }
+
+    @Test
+    public void retryAfterIsIgnoredOnOtherStatuses() {
+        // Given an API failing with a Retry-After header on a status that does not ask to slow down
+        server.enqueue(new MockResponse().setResponseCode(500).setHeader("Retry-After", "5"));
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+
+        // When
+        Verdict failed = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+        Verdict next = sdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then the next call is sent
+        Assertions.assertThat(failed.isFailover()).isTrue();
+        Assertions.assertThat(next.isFailover()).isFalse();
+        Assertions.assertThat(next.getAction()).isEqualTo(AuthenticateAction.ALLOW);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.RATE_LIMIT_THROTTLED)).isEqualTo(0);
+    }
+
+    @Test
+    public void retryAfterIsClampedToTheMaximumPause() throws CastleSdkConfigurationException, InterruptedException {
+        // Given an API asking to wait an hour, and a maximum pause of 200 ms
+        Castle clampedSdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                CastleConfigurationBuilder.defaultConfigBuilder()
+                        .withApiSecret("secret")
+                        .withApiBaseUrl(server.url("/").toString())
+                        .withRateLimiting(true)
+                        .withRateLimitMaxPauseMillis(200)
+                        .build()));
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "3600"));
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+
+        // When a call is made after the maximum pause
+        Verdict throttled = clampedSdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+        Thread.sleep(400);
+        Verdict next = clampedSdk.onRequest(new MockHttpServletRequest()).authenticate("$login.succeeded", "12345");
+
+        // Then it is sent
+        Assertions.assertThat(throttled.isFailover()).isTrue();
+        Assertions.assertThat(next.isFailover()).isFalse();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+        Assertions.assertThat(clampedSdk.getMetrics().get(CastleMetrics.RATE_LIMIT_THROTTLED)).isEqualTo(1);
+        clampedSdk.close();
+    }
+
+    @Test
+    public void trackRequestsAreLimitedByTheTokenBucket() throws InterruptedException {
+        // Given an API accepting every event
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse());
+        }
+
+        // When more events than the burst are sent at once
+        AtomicReference<Object> first = track();
+        AtomicReference<Object> second = track();
+        AtomicReference<Object> third = track();
+
+        // Then the events over the burst are not sent
+        Assertions.assertThat(first.get()).isEqualTo(true);
+        Assertions.assertThat(second.get()).isEqualTo(true);
+        Assertions.assertThat(third.get()).isInstanceOf(RateLimitedException.class);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.RATE_LIMIT_REJECTED)).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void trackIsRetriedAfterTheRequestedDelay() throws InterruptedException {
+        // Given an API asking to wait one second
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        server.enqueue(new MockResponse());
+
+        // When
+        long start = System.nanoTime();
+        AtomicReference<Object> result = track();
+
+        // Then the event is delivered once the delay passed
+        Assertions.assertThat(result.get()).isEqualTo(true);
+        Assertions.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(1000);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+    }
+
+    private AtomicReference<Object> track() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Object> result = new AtomicReference<>();
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("1").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                result.set(response);
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                result.set(exception);
+                done.countDown();
+            }
+        });
+        Assertions.assertThat(done.await(3, TimeUnit.SECONDS)).isTrue();
+        return result;
+    }
+}
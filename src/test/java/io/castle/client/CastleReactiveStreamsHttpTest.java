@@ -0,0 +1,96 @@
+package io.castle.client;
+
+import io.castle.client.api.CastleApi;
+import io.castle.client.api.CastleReactiveStreams;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleReactiveStreamsHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleReactiveStreamsHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Test
+    public void trackSubscriberRequestsEventsAsTheyComplete() throws InterruptedException {
+        // Given a subscriber allowing two events in flight
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+        final AtomicLong requested = new AtomicLong();
+        Subscriber<CastleMessage> subscriber = CastleReactiveStreams.trackSubscriber(sdk.onRequest(new MockHttpServletRequest()), 2);
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                requested.addAndGet(n);
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        Assertions.assertThat(requested.get()).isEqualTo(2);
+
+        // When both events are sent
+        subscriber.onNext(CastleMessage.builder("$login.succeeded").userId("12345").build());
+        subscriber.onNext(CastleMessage.builder("$logout.succeeded").userId("12345").build());
+
+        // Then one more event is requested as each one completes
+        server.takeRequest(1, TimeUnit.SECONDS);
+        server.takeRequest(1, TimeUnit.SECONDS);
+        long deadline = System.currentTimeMillis() + 1000;
+        while (requested.get() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertThat(requested.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void authenticatePublisherEmitsTheVerdict() throws InterruptedException {
+        // Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"deny\",\"user_id\":\"12345\"}"));
+        CastleApi api = sdk.onRequest(new MockHttpServletRequest());
+        final AtomicReference<Verdict> verdict = new AtomicReference<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        // When
+        CastleReactiveStreams.authenticatePublisher(api, CastleMessage.builder("$login.succeeded").userId("12345").build())
+                .subscribe(new Subscriber<Verdict>() {
+                    @Override
+                    public void onSubscribe(Subscription subscription) {
+                        subscription.request(1);
+                    }
+
+                    @Override
+                    public void onNext(Verdict next) {
+                        verdict.set(next);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        completed.countDown();
+                    }
+                });
+
+        // Then
+        Assertions.assertThat(completed.await(1, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(verdict.get().getAction()).isEqualTo(AuthenticateAction.DENY);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+}
@@ -1,5 +1,7 @@
 package io.castle.client;
 
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
 import io.castle.client.model.*;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -109,6 +111,55 @@ public class CastleReviewHttpTest extends AbstractCastleHttpLayerTest {
         waitForValueAndVerify(result,true);
     }
 
+    @Test
+    public void coalescedReviewAsyncErrorStatusIsReportedAsException() throws Exception {
+        // Given a review that is not found, and an SDK coalescing identical calls
+        server.enqueue(new MockResponse().setResponseCode(404));
+        server.enqueue(new MockResponse().setBody(testReviewJson));
+        Castle sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(CastleConfigurationBuilder
+                .defaultConfigBuilder()
+                .withApiSecret("secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withRequestCoalescing(true)
+                .build()));
+        HttpServletRequest request = new MockHttpServletRequest();
+        String reviewId = "mmnnsbkkkshhhs";
+
+        // When an async review call is made
+        final AtomicReference<Exception> result = new AtomicReference<>();
+        sdk.onRequest(request).reviewAsync(reviewId, new AsyncCallbackHandler<Review>() {
+            @Override
+            public void onResponse(Review response) {
+                Assertions.fail("should not pass");
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                result.set(exception);
+            }
+        });
+
+        // Then the handler is informed of the failure
+        Assertions.assertThat(waitForValue(result)).isNotNull();
+
+        // And the next identical call is sent instead of waiting for the failed one
+        final AtomicReference<Review> review = new AtomicReference<>();
+        sdk.onRequest(request).reviewAsync(reviewId, new AsyncCallbackHandler<Review>() {
+            @Override
+            public void onResponse(Review response) {
+                review.set(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                Assertions.fail("should not fail");
+            }
+        });
+        Assertions.assertThat(waitForValue(review)).isNotNull();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(2);
+        sdk.close();
+    }
+
     @Test(expected = CastleRuntimeException.class)
     public void testExceptionWithServerError () {
 
@@ -0,0 +1,116 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+public class CastleSpillJournalHttpTest extends AbstractCastleHttpLayerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    public CastleSpillJournalHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withSpillJournal(true)
+                .withSpillJournalDirectory(folder.getRoot().getPath());
+    }
+
+    @Test
+    public void undeliveredEventIsReplayedOnceTheApiIsHealthy() throws InterruptedException {
+        // Given an API failing the first request and accepting the next one
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse());
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("1").build());
+
+        // Then the event is replayed from the journal
+        RecordedRequest failed = server.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest replayed = server.takeRequest(2, TimeUnit.SECONDS);
+        Assertions.assertThat(replayed).isNotNull();
+        Assertions.assertThat(replayed.getPath()).isEqualTo("/v1/track");
+        Assertions.assertThat(replayed.getBody().readUtf8()).isEqualTo(failed.getBody().readUtf8());
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.SPILL_APPENDED)).isEqualTo(1);
+    }
+
+    @Test
+    public void replayKeepsTheIdempotencyKeyOfTheFailedAttempts() throws InterruptedException, CastleSdkConfigurationException {
+        // Given an SDK retrying track requests, and an API failing both attempts before accepting the replay
+        sdk.close();
+        Castle retrying = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                CastleConfigurationBuilder.defaultConfigBuilder()
+                        .withApiSecret("secret")
+                        .withApiBaseUrl(server.url("/").toString())
+                        .withTrackRetries(true)
+                        .withTrackRetryMaxAttempts(2)
+                        .withTrackRetryBackoffMillis(10, 10)
+                        .withSpillJournal(true)
+                        .withSpillJournalDirectory(folder.getRoot().getPath())
+                        .build()));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse());
+
+        // When
+        retrying.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("1").build());
+
+        // Then the replay is sent with the key of the attempts, so the API can discard it if it processed them
+        String key = server.takeRequest(1, TimeUnit.SECONDS).getHeader("Idempotency-Key");
+        Assertions.assertThat(key).isNotNull();
+        Assertions.assertThat(server.takeRequest(1, TimeUnit.SECONDS).getHeader("Idempotency-Key")).isEqualTo(key);
+        RecordedRequest replayed = server.takeRequest(2, TimeUnit.SECONDS);
+        Assertions.assertThat(replayed).isNotNull();
+        Assertions.assertThat(replayed.getHeader("Idempotency-Key")).isEqualTo(key);
+        retrying.close();
+    }
+
+    @Test
+    public void undeliveredIdentifyIsReplayedToTheIdentifyEndpoint() throws InterruptedException {
+        // Given
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse());
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).identify("12345");
+
+        // Then
+        server.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest replayed = server.takeRequest(2, TimeUnit.SECONDS);
+        Assertions.assertThat(replayed).isNotNull();
+        Assertions.assertThat(replayed.getPath()).isEqualTo("/v1/identify");
+    }
+
+    @Test
+    public void closingReleasesTheJournalDirectory() throws CastleSdkConfigurationException {
+        // When
+        sdk.close();
+
+        // Then another SDK can use the same directory
+        Castle next = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(
+                CastleConfigurationBuilder.defaultConfigBuilder()
+                        .withApiSecret("secret")
+                        .withApiBaseUrl(server.url("/").toString())
+                        .withSpillJournal(true)
+                        .withSpillJournalDirectory(folder.getRoot().getPath())
+                        .build()));
+        next.close();
+    }
+}
@@ -0,0 +1,134 @@
+package io.castle.client;
+
+import com.google.common.collect.ImmutableList;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.TrackResult;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleTrackAllHttpTest {
+
+    private MockWebServer server;
+    private Castle sdk;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Before
+    public void prepare() throws IOException, CastleSdkConfigurationException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                int current = inFlight.incrementAndGet();
+                while (true) {
+                    int max = maxInFlight.get();
+                    if (current <= max || maxInFlight.compareAndSet(max, current)) {
+                        break;
+                    }
+                }
+                Thread.sleep(20);
+                inFlight.decrementAndGet();
+                // chunks carrying a rejected event fail
+                return new MockResponse().setResponseCode(request.getBody().readUtf8().contains("rejected") ? 500 : 204);
+            }
+        });
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withTrackAllChunkSize(2)
+                .withTrackAllConcurrency(2)
+                .build()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void eventsAreSentInChunksWithBoundedConcurrency() {
+        // Given seven events, the fourth of which is rejected
+        List<CastleMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            messages.add(CastleMessage.builder(i == 3 ? "rejected" : "$login.succeeded").userId(String.valueOf(i)).build());
+        }
+
+        // When
+        List<TrackResult> results = sdk.onRequest(new MockHttpServletRequest()).trackAll(messages);
+
+        // Then four chunks were sent, never more than two at a time
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(4);
+        Assertions.assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+        // and each event has the result of its chunk, in order
+        Assertions.assertThat(results).hasSize(7);
+        for (int i = 0; i < 7; i++) {
+            Assertions.assertThat(results.get(i).getMessage()).isSameAs(messages.get(i));
+            Assertions.assertThat(results.get(i).isSuccessful()).isEqualTo(i != 2 && i != 3);
+        }
+    }
+
+    @Test
+    public void asyncCallInformsTheHandlerOnce() throws InterruptedException {
+        // Given
+        final AtomicReference<List<TrackResult>> result = new AtomicReference<>();
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).trackAllAsync(ImmutableList.of(
+                CastleMessage.builder("$login.succeeded").userId("1").build(),
+                CastleMessage.builder("$logout.succeeded").userId("1").build(),
+                CastleMessage.builder("$login.failed").userId("2").build()), new AsyncCallbackHandler<List<TrackResult>>() {
+            @Override
+            public void onResponse(List<TrackResult> response) {
+                result.compareAndSet(null, response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // Then
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (result.get() == null && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertThat(result.get()).hasSize(3);
+        for (TrackResult trackResult : result.get()) {
+            Assertions.assertThat(trackResult.isSuccessful()).isTrue();
+            Assertions.assertThat(trackResult.getException()).isNull();
+        }
+    }
+
+    @Test
+    public void emptyCollectionSendsNothing() {
+        // When
+        List<TrackResult> results = sdk.onRequest(new MockHttpServletRequest()).trackAll(new ArrayList<CastleMessage>());
+
+        // Then
+        Assertions.assertThat(results).isEmpty();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,147 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.json.JSONException;
+import org.junit.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleTrackBatchHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleTrackBatchHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withTrackBatching(true)
+                .withTrackBatchFlushSize(3)
+                .withTrackBatchLingerMillis(200)
+                .withTrackQueueCapacity(100);
+    }
+
+    @Test
+    public void trackEventsAreSentInASingleBatchWhenFlushSizeIsReached() throws InterruptedException, JSONException {
+        // Given
+        server.enqueue(new MockResponse());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        // When three events are tracked
+        sdk.onRequest(request).track(CastleMessage.builder("$login.succeeded").userId("1").build());
+        sdk.onRequest(request).track(CastleMessage.builder("$login.failed").userId("2").build());
+        sdk.onRequest(request).track(CastleMessage.builder("$logout.succeeded").userId("3").build());
+
+        // Then a single request carries all of them
+        RecordedRequest recordedRequest = server.takeRequest(1, TimeUnit.SECONDS);
+        Assertions.assertThat(recordedRequest.getPath()).isEqualTo("/v1/track");
+        JSONAssert.assertEquals("[{\"event\":\"$login.succeeded\",\"user_id\":\"1\"},{\"event\":\"$login.failed\",\"user_id\":\"2\"},{\"event\":\"$logout.succeeded\",\"user_id\":\"3\"}]",
+                recordedRequest.getBody().readUtf8(), false);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.TRACK_BATCH_ENQUEUED)).isEqualTo(3);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.TRACK_BATCH_FLUSHED)).isEqualTo(3);
+    }
+
+    @Test
+    public void partialBatchIsFlushedAfterLingerTime() throws InterruptedException {
+        // Given
+        server.enqueue(new MockResponse());
+        final AtomicReference<Boolean> result = new AtomicReference<>();
+
+        // When a single event is tracked
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("1").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                result.set(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // Then it is sent once the linger time has passed and the handler is informed
+        RecordedRequest recordedRequest = server.takeRequest(1, TimeUnit.SECONDS);
+        Assertions.assertThat(recordedRequest).isNotNull();
+        Assertions.assertThat(waitForValue(result)).isTrue();
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.TRACK_BATCH_REQUESTS)).isEqualTo(1);
+    }
+
+    @Test
+    public void closeSendsQueuedEvents() throws InterruptedException {
+        // Given events waiting for the linger time
+        server.enqueue(new MockResponse());
+        final AtomicReference<Boolean> result = new AtomicReference<>();
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("1").build());
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.failed").userId("2").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                result.set(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        });
+
+        // When the SDK is closed
+        sdk.close();
+
+        // Then they were flushed before close returned, without waiting for the linger time
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.TRACK_BATCH_FLUSHED)).isEqualTo(2);
+        Assertions.assertThat(server.takeRequest(1, TimeUnit.SECONDS)).isNotNull();
+        Assertions.assertThat(waitForValue(result)).isTrue();
+    }
+
+    @Test
+    public void eventsTrackedAfterCloseAreRejected() {
+        // Given
+        sdk.close();
+        final AtomicReference<Exception> result = new AtomicReference<>();
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("1").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                result.set(exception);
+            }
+        });
+
+        // Then
+        Assertions.assertThat(result.get()).hasMessage("Track batching is closed");
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void messagesAreSerializedWhenTracked() throws InterruptedException, JSONException {
+        // Given
+        server.enqueue(new MockResponse());
+        CastleMessage message = CastleMessage.builder("$login.succeeded").userId("1").build();
+
+        // When the message is changed while it waits in the queue
+        sdk.onRequest(new MockHttpServletRequest()).track(message);
+        message.setUserId("CHANGED");
+        sdk.close();
+
+        // Then the values it had when tracked are sent, with a known length
+        RecordedRequest recordedRequest = server.takeRequest(1, TimeUnit.SECONDS);
+        String body = recordedRequest.getBody().readUtf8();
+        JSONAssert.assertEquals("[{\"event\":\"$login.succeeded\",\"user_id\":\"1\"}]", body, false);
+        Assertions.assertThat(recordedRequest.getHeader("Content-Length")).isEqualTo(String.valueOf(body.length()));
+    }
+}
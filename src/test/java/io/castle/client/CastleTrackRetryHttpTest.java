@@ -0,0 +1,132 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleTrackRetryHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleTrackRetryHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withTrackRetries(true)
+                .withTrackRetryMaxAttempts(3)
+                .withTrackRetryBackoffMillis(10, 50)
+                .withTrackRetryBudgetPercent(100);
+    }
+
+    @Test
+    public void serverErrorsAreRetriedWithTheSameIdempotencyKey() throws InterruptedException {
+        // Given an API failing twice before accepting the event
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(502));
+        server.enqueue(new MockResponse());
+
+        // When
+        Boolean result = track();
+
+        // Then the event is delivered by the third attempt
+        Assertions.assertThat(result).isTrue();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(3);
+        String key = server.takeRequest().getHeader("Idempotency-Key");
+        Assertions.assertThat(key).isNotEmpty();
+        Assertions.assertThat(server.takeRequest().getHeader("Idempotency-Key")).isEqualTo(key);
+        Assertions.assertThat(server.takeRequest().getHeader("Idempotency-Key")).isEqualTo(key);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.RETRY_ATTEMPTS)).isEqualTo(2);
+    }
+
+    @Test
+    public void attemptsAreLimited() throws InterruptedException {
+        // Given an API that keeps failing
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        // When
+        Boolean result = track();
+
+        // Then the outcome of the last attempt is reported
+        Assertions.assertThat(result).isFalse();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() throws InterruptedException {
+        // Given
+        server.enqueue(new MockResponse().setResponseCode(400));
+
+        // When
+        Boolean result = track();
+
+        // Then
+        Assertions.assertThat(result).isFalse();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.RETRY_ATTEMPTS)).isEqualTo(0);
+    }
+
+    @Test
+    public void identifyIsRetried() throws InterruptedException {
+        // Given
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse());
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).identify("12345");
+
+        // Then
+        RecordedRequest first = server.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest second = server.takeRequest(1, TimeUnit.SECONDS);
+        Assertions.assertThat(second).isNotNull();
+        Assertions.assertThat(second.getPath()).isEqualTo("/v1/identify");
+        Assertions.assertThat(second.getHeader("Idempotency-Key")).isEqualTo(first.getHeader("Idempotency-Key"));
+    }
+
+    @Test
+    public void noRetryIsScheduledOnceClosed() throws InterruptedException {
+        // Given
+        sdk.close();
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        // When
+        Boolean result = track();
+
+        // Then the failure is reported without retry
+        Assertions.assertThat(result).isFalse();
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    private Boolean track() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Boolean> result = new AtomicReference<>();
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder("$login.succeeded").userId("1").build(), new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                result.set(response);
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                done.countDown();
+            }
+        });
+        Assertions.assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+        return result.get();
+    }
+}
@@ -0,0 +1,86 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.TrackPriority;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CastleTrackSheddingHttpTest extends AbstractCastleHttpLayerTest {
+
+    public CastleTrackSheddingHttpTest() {
+        super(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE));
+    }
+
+    @Override
+    protected void configureServer(MockWebServer server) {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                // Slow enough for the events to be outstanding at the same time.
+                return new MockResponse().setHeadersDelay(50, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    @Override
+    protected CastleConfigurationBuilder configure(CastleConfigurationBuilder builder) {
+        return builder
+                .withTrackLoadShedding(true)
+                .withTrackLoadSheddingThresholds(4, 10000)
+                .withTrackPriority("page.viewed", TrackPriority.LOW);
+    }
+
+    @Test
+    public void lowPriorityEventsAreDroppedBeforeLoginEvents() throws InterruptedException {
+        // Given
+        final CountDownLatch done = new CountDownLatch(6);
+        final AtomicInteger delivered = new AtomicInteger();
+        final AtomicInteger dropped = new AtomicInteger();
+        AsyncCallbackHandler<Boolean> handler = new AsyncCallbackHandler<Boolean>() {
+            @Override
+            public void onResponse(Boolean response) {
+                delivered.incrementAndGet();
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Exception exception) {
+                dropped.incrementAndGet();
+                done.countDown();
+            }
+        };
+
+        // When a surge of page views is followed by failed logins
+        for (int i = 0; i < 4; i++) {
+            track("page.viewed", handler);
+        }
+        track("$login.failed", handler);
+        track("$login.failed", handler);
+
+        // Then page views over half of the outstanding limit are dropped, but no login event
+        Assertions.assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(delivered.get()).isEqualTo(4);
+        Assertions.assertThat(dropped.get()).isEqualTo(2);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.TRACK_SHED_LOW)).isEqualTo(2);
+        Assertions.assertThat(server.getRequestCount()).isEqualTo(4);
+        Assertions.assertThat(sdk.getMetrics().get(CastleMetrics.TRACK_OUTSTANDING)).isEqualTo(0);
+    }
+
+    private void track(String event, AsyncCallbackHandler<Boolean> handler) {
+        sdk.onRequest(new MockHttpServletRequest()).track(CastleMessage.builder(event).userId("1").build(), handler);
+    }
+}
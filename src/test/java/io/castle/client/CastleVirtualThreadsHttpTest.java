@@ -0,0 +1,76 @@
+package io.castle.client;
+
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.config.CastleSdkInternalConfiguration;
+import io.castle.client.internal.utils.VirtualThreads;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.AuthenticateFailoverStrategy;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CastleVirtualThreadsHttpTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void prepare() throws IOException {
+        server = new MockWebServer();
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void callbacksRunOnVirtualThreads() throws CastleSdkConfigurationException, InterruptedException {
+        Assume.assumeTrue(VirtualThreads.isAvailable());
+        // Given
+        server.enqueue(new MockResponse().setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}"));
+        Castle sdk = new Castle(CastleSdkInternalConfiguration.buildFromConfiguration(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("secret")
+                .withApiBaseUrl(server.url("/").toString())
+                .withAuthenticateFailoverStrategy(new AuthenticateFailoverStrategy(AuthenticateAction.CHALLENGE))
+                .withVirtualThreads(true)
+                .build()));
+        final AtomicReference<Thread> callbackThread = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        // When
+        sdk.onRequest(new MockHttpServletRequest()).authenticateAsync(
+                CastleMessage.builder("$login.succeeded").userId("12345").build(),
+                new AsyncCallbackHandler<Verdict>() {
+                    @Override
+                    public void onResponse(Verdict response) {
+                        callbackThread.set(Thread.currentThread());
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onException(Exception exception) {
+                        done.countDown();
+                    }
+                });
+
+        // Then
+        Assertions.assertThat(done.await(1, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(VirtualThreads.isVirtual(callbackThread.get())).isTrue();
+    }
+}
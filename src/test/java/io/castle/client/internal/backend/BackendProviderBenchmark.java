@@ -0,0 +1,109 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.Castle;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleRuntimeException;
+import io.castle.client.model.CastleSdkConfigurationException;
+import io.castle.client.model.Verdict;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency of authenticate calls and the number of live threads of the available backend providers
+ * against a local server answering after a fixed delay.
+ * <p>
+ * Not a unit test, run on Java 11 or later to include JDK_HTTP with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=io.castle.client.internal.backend.BackendProviderBenchmark}.
+ */
+public class BackendProviderBenchmark {
+
+    private static final int CONCURRENT_CALLS = 64;
+    private static final int ROUNDS = 50;
+    private static final int SERVER_DELAY_MILLIS = 5;
+
+    public static void main(String[] args) throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setBody("{\"action\":\"allow\",\"user_id\":\"12345\"}")
+                        .setHeadersDelay(SERVER_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start(InetAddress.getByName("127.0.0.1"), 0);
+        try {
+            for (CastleBackendProvider provider : CastleBackendProvider.values()) {
+                try {
+                    run(provider, server.url("/").toString());
+                } catch (CastleRuntimeException e) {
+                    System.out.println(provider + " skipped: " + e.getMessage());
+                }
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static void run(CastleBackendProvider provider, String baseUrl) throws CastleSdkConfigurationException, InterruptedException, IOException {
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        Castle castle = Castle.initialize(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("secret")
+                .withApiBaseUrl(baseUrl)
+                .withTimeout(5000)
+                .withBackendProvider(provider)
+                .build());
+        // warm-up round, not measured
+        round(castle, new long[CONCURRENT_CALLS]);
+
+        long[] latencies = new long[CONCURRENT_CALLS * ROUNDS];
+        int peakThreads = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long[] roundLatencies = new long[CONCURRENT_CALLS];
+            round(castle, roundLatencies);
+            System.arraycopy(roundLatencies, 0, latencies, i * CONCURRENT_CALLS, CONCURRENT_CALLS);
+            peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore);
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-8s p50 %6.2f ms  p99 %6.2f ms  extra threads %d%n", provider,
+                latencies[latencies.length / 2] / 1e6,
+                latencies[(int) (latencies.length * 0.99)] / 1e6,
+                peakThreads);
+    }
+
+    private static void round(Castle castle, final long[] latencies) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(latencies.length);
+        for (int i = 0; i < latencies.length; i++) {
+            final int index = i;
+            final long start = System.nanoTime();
+            castle.onRequest(new MockHttpServletRequest()).authenticateAsync(
+                    CastleMessage.builder("$login.succeeded").userId("12345").build(),
+                    new AsyncCallbackHandler<Verdict>() {
+                        @Override
+                        public void onResponse(Verdict response) {
+                            latencies[index] = System.nanoTime() - start;
+                            done.countDown();
+                        }
+
+                        @Override
+                        public void onException(Exception exception) {
+                            latencies[index] = Long.MAX_VALUE;
+                            done.countDown();
+                        }
+                    });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,123 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.DnsCacheConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import okhttp3.Dns;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingDnsTest {
+
+    private final CastleMetrics metrics = new CastleMetrics();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicBoolean failing = new AtomicBoolean();
+
+    private final Dns resolver = new Dns() {
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            lookups.incrementAndGet();
+            if (failing.get()) {
+                throw new UnknownHostException(hostname);
+            }
+            return Arrays.asList(address("10.0.0.1"), address("10.0.0.2"), address("::1"), address("::2"));
+        }
+    };
+
+    @Test
+    public void lookupsAreCached() throws UnknownHostException {
+        //given
+        CachingDns dns = new CachingDns(resolver, new DnsCacheConfiguration(true, 60000, 60000), metrics);
+
+        //when
+        dns.lookup("api.castle.io");
+        dns.lookup("api.castle.io");
+
+        //then
+        Assertions.assertThat(lookups.get()).isEqualTo(1);
+        Assertions.assertThat(metrics.get(CastleMetrics.DNS_LOOKUPS)).isEqualTo(1);
+        Assertions.assertThat(metrics.get(CastleMetrics.DNS_CACHE_HITS)).isEqualTo(1);
+    }
+
+    @Test
+    public void addressFamiliesAreInterleaved() throws UnknownHostException {
+        //given
+        CachingDns dns = new CachingDns(resolver, new DnsCacheConfiguration(true, 60000, 60000), metrics);
+
+        //when
+        List<InetAddress> addresses = dns.lookup("api.castle.io");
+
+        //then
+        Assertions.assertThat(addresses).containsExactly(address("10.0.0.1"), address("::1"), address("10.0.0.2"), address("::2"));
+    }
+
+    @Test
+    public void entriesInUseAreRefreshedInTheBackground() throws UnknownHostException, InterruptedException {
+        //given
+        CachingDns dns = new CachingDns(resolver, new DnsCacheConfiguration(true, 100, 60000), metrics);
+        dns.lookup("api.castle.io");
+
+        //when
+        Thread.sleep(250);
+
+        //then the entry was resolved again without a lookup waiting for it
+        Assertions.assertThat(lookups.get()).isGreaterThan(1);
+        dns.lookup("api.castle.io");
+        Assertions.assertThat(metrics.get(CastleMetrics.DNS_CACHE_HITS)).isEqualTo(1);
+    }
+
+    @Test
+    public void entriesAreNotRefreshedOnceClosed() throws UnknownHostException, InterruptedException {
+        //given
+        CachingDns dns = new CachingDns(resolver, new DnsCacheConfiguration(true, 100, 60000), metrics);
+        dns.lookup("api.castle.io");
+
+        //when
+        dns.close();
+        Thread.sleep(250);
+
+        //then
+        Assertions.assertThat(lookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void lastKnownAddressesAreUsedWhenTheResolverFails() throws UnknownHostException, InterruptedException {
+        //given an expired entry and a failing resolver
+        CachingDns dns = new CachingDns(resolver, new DnsCacheConfiguration(true, 20, 60000), metrics);
+        dns.lookup("api.castle.io");
+        failing.set(true);
+        Thread.sleep(50);
+
+        //when
+        List<InetAddress> addresses = dns.lookup("api.castle.io");
+
+        //then
+        Assertions.assertThat(addresses).hasSize(4);
+        Assertions.assertThat(metrics.get(CastleMetrics.DNS_STALE_SERVED)).isEqualTo(1);
+        Assertions.assertThat(metrics.get(CastleMetrics.DNS_FAILURES)).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test(expected = UnknownHostException.class)
+    public void failuresAreReportedWithoutKnownAddresses() throws UnknownHostException {
+        //given
+        CachingDns dns = new CachingDns(resolver, new DnsCacheConfiguration(true, 60000, 60000), metrics);
+        failing.set(true);
+
+        //when
+        dns.lookup("api.castle.io");
+    }
+
+    private static InetAddress address(String literal) {
+        try {
+            return InetAddress.getByName(literal);
+        } catch (UnknownHostException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.config.CircuitBreakerConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.CircuitBreakerState;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreakerInterceptorTest {
+
+    @Test
+    public void probePermitIsReleasedWhenTheCallThrowsARuntimeException() throws Exception {
+        //given a half-open breaker allowing a single probe
+        CircuitBreaker breaker = new CircuitBreaker("authenticate",
+                new CircuitBreakerConfiguration(true, 50, 100, 10000, 1, 1, 10, 1, null), new CastleMetrics());
+        breaker.onResult(breaker.acquire(), 0, true);
+        Thread.sleep(20);
+        CircuitBreakerInterceptor interceptor = new CircuitBreakerInterceptor(breaker);
+
+        //when the probe fails with an unexpected exception
+        try {
+            interceptor.intercept(new FailingChain());
+            Assertions.fail("the exception of the chain should be thrown");
+        } catch (IllegalStateException expected) {
+        }
+
+        //then the probe can be sent again
+        Assertions.assertThat(breaker.acquire()).isEqualTo(CircuitBreakerState.HALF_OPEN);
+    }
+
+    private static class FailingChain implements Interceptor.Chain {
+
+        @Override
+        public Request request() {
+            return new Request.Builder().url("http://localhost/v1/authenticate").build();
+        }
+
+        @Override
+        public Response proceed(Request request) {
+            throw new IllegalStateException("unexpected");
+        }
+
+        @Override
+        public Connection connection() {
+            return null;
+        }
+
+        @Override
+        public Call call() {
+            return null;
+        }
+
+        @Override
+        public int connectTimeoutMillis() {
+            return 0;
+        }
+
+        @Override
+        public Interceptor.Chain withConnectTimeout(int timeout, TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public int readTimeoutMillis() {
+            return 0;
+        }
+
+        @Override
+        public Interceptor.Chain withReadTimeout(int timeout, TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public int writeTimeoutMillis() {
+            return 0;
+        }
+
+        @Override
+        public Interceptor.Chain withWriteTimeout(int timeout, TimeUnit unit) {
+            return this;
+        }
+    }
+}
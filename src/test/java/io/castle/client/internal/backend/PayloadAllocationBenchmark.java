@@ -0,0 +1,102 @@
+package io.castle.client.internal.backend;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastlePayload;
+import io.castle.client.internal.utils.ContextMerge;
+import io.castle.client.model.CastleContext;
+import io.castle.client.model.CastleHeaders;
+import io.castle.client.model.CastleMessage;
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares the bytes allocated per authenticate request body by the JSON tree serialization of previous versions and
+ * by the streaming serialization of {@link CastlePayload}.
+ * <p>
+ * Not a unit test, run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=io.castle.client.internal.backend.PayloadAllocationBenchmark} on a HotSpot JVM.
+ */
+public class PayloadAllocationBenchmark {
+
+    private static final int WARMUP = 50000;
+    private static final int ITERATIONS = 200000;
+
+    private final CastleGsonModel model = new CastleGsonModel();
+    private final Gson fieldsGson = CastleGsonModel.createGsonBuilder().create();
+    private final CastleMessage message = sampleMessage();
+    private final JsonObject context = model.getGson().toJsonTree(sampleContext()).getAsJsonObject();
+    private final Buffer sink = new Buffer();
+
+    public static void main(String[] args) throws IOException {
+        PayloadAllocationBenchmark benchmark = new PayloadAllocationBenchmark();
+        for (int i = 0; i < WARMUP; i++) {
+            benchmark.treeBody();
+            benchmark.streamingBody();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            benchmark.treeBody();
+        }
+        long tree = (threads.getThreadAllocatedBytes(threadId) - start) / ITERATIONS;
+
+        start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            benchmark.streamingBody();
+        }
+        long streaming = (threads.getThreadAllocatedBytes(threadId) - start) / ITERATIONS;
+
+        System.out.println("JSON tree body: " + tree + " bytes allocated per request");
+        System.out.println("Streaming body: " + streaming + " bytes allocated per request");
+    }
+
+    /**
+     * Request body as built before: message tree, tree of the other values merged into it, context added, then
+     * converted to a String and encoded by {@link RequestBody#create(okhttp3.MediaType, String)}.
+     */
+    private void treeBody() throws IOException {
+        JsonObject root = fieldsGson.toJsonTree(message).getAsJsonObject();
+        JsonElement other = model.getGson().toJsonTree(message.getOther());
+        JsonObject json = new ContextMerge().merge(root, other.getAsJsonObject());
+        json.add("context", context);
+        RequestBody.create(JsonRequestBody.JSON, json.toString()).writeTo(sink);
+        sink.clear();
+    }
+
+    private void streamingBody() throws IOException {
+        JsonRequestBody.of(new CastlePayload(model, message, context)).writeTo(sink);
+        sink.clear();
+    }
+
+    private static CastleMessage sampleMessage() {
+        return CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .properties(ImmutableMap.of("a", "valueA", "b", 123456))
+                .userTraits(ImmutableMap.of("email", "user@example.com", "name", "A User"))
+                .build();
+    }
+
+    private static CastleContext sampleContext() {
+        CastleContext context = new CastleContext();
+        context.setIp("1.1.1.1");
+        context.setClientId("client-id");
+        context.setUserAgent("Mozilla/5.0 (Macintosh; Intel Mac OS X 10_14_3) AppleWebKit/537.36 (KHTML, like Gecko)");
+        context.setHeaders(CastleHeaders.builder()
+                .add("User-Agent", "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_14_3) AppleWebKit/537.36")
+                .add("Accept-Language", "en-US,en;q=0.9")
+                .add("Accept-Encoding", "gzip, deflate, br")
+                .add("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9")
+                .add("X-Forwarded-For", "1.1.1.1, 10.0.0.1")
+                .build());
+        return context;
+    }
+}
@@ -0,0 +1,133 @@
+package io.castle.client.internal.backend;
+
+import io.castle.client.internal.utils.CastleMetrics;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+public class SpillJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final CastleMetrics metrics = new CastleMetrics();
+
+    @Test
+    public void recordsAreReplayedInOrder() throws IOException, InterruptedException {
+        //given
+        SpillJournal journal = new SpillJournal(folder.getRoot(), 1024, 4096, metrics);
+        journal.append(SpillJournal.TRACK, "first-key", bytes("first"));
+        journal.append(SpillJournal.IDENTIFY, null, bytes("second"));
+
+        //when
+        SpillJournal.Record first = journal.next(0);
+        journal.commit(first);
+        SpillJournal.Record second = journal.next(0);
+        journal.commit(second);
+
+        //then
+        Assertions.assertThat(first.getKind()).isEqualTo(SpillJournal.TRACK);
+        Assertions.assertThat(first.getIdempotencyKey()).isEqualTo("first-key");
+        Assertions.assertThat(first.getBody()).isEqualTo(bytes("first"));
+        Assertions.assertThat(second.getKind()).isEqualTo(SpillJournal.IDENTIFY);
+        Assertions.assertThat(second.getIdempotencyKey()).isNotEmpty();
+        Assertions.assertThat(second.getBody()).isEqualTo(bytes("second"));
+        Assertions.assertThat(journal.next(0)).isNull();
+    }
+
+    @Test
+    public void undeliveredRecordsAreRecoveredAfterRestart() throws IOException, InterruptedException {
+        //given a record delivered and a record pending when the journal is closed
+        SpillJournal journal = new SpillJournal(folder.getRoot(), 1024, 4096, metrics);
+        journal.append(SpillJournal.TRACK, null, bytes("delivered"));
+        journal.append(SpillJournal.TRACK, "pending-key", bytes("pending"));
+        journal.commit(journal.next(0));
+        journal.close();
+
+        //when
+        SpillJournal reopened = new SpillJournal(folder.getRoot(), 1024, 4096, metrics);
+
+        //then only the pending record is replayed
+        SpillJournal.Record record = reopened.next(0);
+        Assertions.assertThat(record.getBody()).isEqualTo(bytes("pending"));
+        Assertions.assertThat(record.getIdempotencyKey()).isEqualTo("pending-key");
+        reopened.commit(record);
+        Assertions.assertThat(reopened.next(0)).isNull();
+    }
+
+    @Test
+    public void recordInterruptedByACrashIsDiscarded() throws IOException, InterruptedException {
+        //given a journal whose last record was only partially written
+        SpillJournal journal = new SpillJournal(folder.getRoot(), 1024, 4096, metrics);
+        journal.append(SpillJournal.TRACK, "key", bytes("complete"));
+        journal.close();
+        File segment = folder.getRoot().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".seg");
+            }
+        })[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            int end = 8 + 2 + "key".length() + "complete".length();
+            file.seek(end);
+            file.writeInt(20);
+            file.writeInt(12345);
+            file.write(bytes("torn"));
+        }
+
+        //when
+        SpillJournal reopened = new SpillJournal(folder.getRoot(), 1024, 4096, metrics);
+        reopened.append(SpillJournal.TRACK, null, bytes("after"));
+
+        //then the torn record is skipped and the journal keeps working
+        SpillJournal.Record first = reopened.next(0);
+        reopened.commit(first);
+        SpillJournal.Record second = reopened.next(0);
+        Assertions.assertThat(first.getBody()).isEqualTo(bytes("complete"));
+        Assertions.assertThat(second.getBody()).isEqualTo(bytes("after"));
+    }
+
+    @Test
+    public void oldestRecordsAreEvictedWhenTheJournalIsFull() throws IOException, InterruptedException {
+        //given a journal of two segments of 1024 bytes
+        SpillJournal journal = new SpillJournal(folder.getRoot(), 1024, 2048, metrics);
+        byte[] body = new byte[450];
+
+        //when five records of about half a segment are appended
+        for (int i = 0; i < 5; i++) {
+            body[0] = (byte) i;
+            Assertions.assertThat(journal.append(SpillJournal.TRACK, null, body)).isTrue();
+        }
+
+        //then the records of the first segment were evicted
+        Assertions.assertThat(metrics.get(CastleMetrics.SPILL_EVICTED)).isEqualTo(2);
+        Assertions.assertThat(journal.next(0).getBody()[0]).isEqualTo((byte) 2);
+        long used = 0;
+        for (File segment : folder.getRoot().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".seg");
+            }
+        })) {
+            used += segment.length();
+        }
+        Assertions.assertThat(used).isLessThanOrEqualTo(2048);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void diskCapSmallerThanTwoSegmentsIsRejected() throws IOException {
+        //when
+        new SpillJournal(folder.getRoot(), 1024, 1500, metrics);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
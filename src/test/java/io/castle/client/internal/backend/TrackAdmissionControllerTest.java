@@ -0,0 +1,103 @@
+package io.castle.client.internal.backend;
+
+import com.google.common.collect.ImmutableMap;
+import io.castle.client.internal.config.TrackSheddingConfiguration;
+import io.castle.client.internal.utils.CastleMetrics;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.TrackPriority;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class TrackAdmissionControllerTest {
+
+    private final CastleMetrics metrics = new CastleMetrics();
+
+    @Test
+    public void longestMatchingPatternGivesThePriority() {
+        //given
+        TrackAdmissionController controller = controller(100, 1000);
+
+        //then
+        Assertions.assertThat(controller.priorityOf("$login.failed")).isEqualTo(TrackPriority.CRITICAL);
+        Assertions.assertThat(controller.priorityOf("$profile_update.succeeded")).isEqualTo(TrackPriority.HIGH);
+        Assertions.assertThat(controller.priorityOf("page.viewed")).isEqualTo(TrackPriority.LOW);
+        Assertions.assertThat(controller.priorityOf("page.viewed.twice")).isEqualTo(TrackPriority.NORMAL);
+        Assertions.assertThat(controller.priorityOf("checkout")).isEqualTo(TrackPriority.NORMAL);
+    }
+
+    @Test
+    public void lowerPrioritiesAreShedFirst() {
+        //given a controller admitting at most 4 outstanding events
+        TrackAdmissionController controller = controller(4, 1000);
+
+        //then each priority is admitted up to its share of the outstanding events
+        Assertions.assertThat(controller.admit("page.viewed", null)).isNotNull();
+        Assertions.assertThat(controller.admit("page.viewed", null)).isNotNull();
+        Assertions.assertThat(controller.admit("page.viewed", null)).isNull();
+        Assertions.assertThat(controller.admit("checkout", null)).isNotNull();
+        Assertions.assertThat(controller.admit("checkout", null)).isNull();
+        Assertions.assertThat(controller.admit("$profile_update.succeeded", null)).isNotNull();
+        Assertions.assertThat(controller.admit("$profile_update.succeeded", null)).isNull();
+        Assertions.assertThat(controller.admit("$login.failed", null)).isNotNull();
+        Assertions.assertThat(metrics.get(CastleMetrics.TRACK_SHED_LOW)).isEqualTo(1);
+        Assertions.assertThat(metrics.get(CastleMetrics.TRACK_SHED_NORMAL)).isEqualTo(1);
+        Assertions.assertThat(metrics.get(CastleMetrics.TRACK_SHED_HIGH)).isEqualTo(1);
+        Assertions.assertThat(metrics.get(CastleMetrics.TRACK_OUTSTANDING)).isEqualTo(5);
+    }
+
+    @Test
+    public void completedEventsReleaseTheirAdmission() {
+        //given
+        TrackAdmissionController controller = controller(2, 1000);
+        AsyncCallbackHandler<Boolean> admitted = controller.admit("page.viewed", null);
+        Assertions.assertThat(controller.admit("page.viewed", null)).isNull();
+
+        //when
+        admitted.onResponse(true);
+
+        //then
+        Assertions.assertThat(controller.admit("page.viewed", null)).isNotNull();
+    }
+
+    @Test
+    public void slowEventsShedNormalPriorityEvents() throws InterruptedException {
+        //given 20 recent events slower than the 1 ms threshold
+        TrackAdmissionController controller = controller(1000, 1);
+        for (int i = 0; i < 20; i++) {
+            AsyncCallbackHandler<Boolean> admitted = controller.admit("$login.succeeded", null);
+            Thread.sleep(2);
+            admitted.onResponse(true);
+        }
+
+        //then
+        Assertions.assertThat(controller.admit("checkout", null)).isNull();
+        Assertions.assertThat(controller.admit("$profile_update.succeeded", null)).isNotNull();
+    }
+
+    @Test
+    public void someEventsAreAdmittedToProbeTheLatency() throws InterruptedException {
+        //given events shed because recent events were slower than the 1 ms threshold
+        TrackAdmissionController controller = controller(1000, 1);
+        for (int i = 0; i < 20; i++) {
+            AsyncCallbackHandler<Boolean> admitted = controller.admit("$login.succeeded", null);
+            Thread.sleep(2);
+            admitted.onResponse(true);
+        }
+        int admitted = 0;
+
+        //when
+        for (int i = 0; i < 20; i++) {
+            if (controller.admit("checkout", null) != null) {
+                admitted++;
+            }
+        }
+
+        //then one in ten is admitted
+        Assertions.assertThat(admitted).isEqualTo(2);
+    }
+
+    private TrackAdmissionController controller(int maxOutstanding, int latencyThresholdMillis) {
+        return new TrackAdmissionController(new TrackSheddingConfiguration(true, maxOutstanding, latencyThresholdMillis,
+                ImmutableMap.of("$login.*", TrackPriority.CRITICAL, "$*", TrackPriority.HIGH, "page.viewed", TrackPriority.LOW)), metrics);
+    }
+}
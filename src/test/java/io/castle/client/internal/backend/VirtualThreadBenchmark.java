@@ -0,0 +1,118 @@
+package io.castle.client.internal.backend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.castle.client.Castle;
+import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.VirtualThreads;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleSdkConfigurationException;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares synchronous authenticate calls made from a pool of platform threads with the SDK on platform threads, and
+ * made from one virtual thread per call with the SDK in virtual thread mode, against a local server that also handles
+ * each request on a virtual thread and answers after a fixed delay.
+ * <p>
+ * Not a unit test, run on Java 21 or later with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=io.castle.client.internal.backend.VirtualThreadBenchmark}.
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int CONCURRENT_CALLS = 1000;
+    private static final int PLATFORM_CALLER_THREADS = 200;
+    private static final int ROUNDS = 10;
+    private static final int SERVER_DELAY_MILLIS = 20;
+
+    public static void main(String[] args) throws Exception {
+        if (!VirtualThreads.isAvailable()) {
+            System.out.println("Skipped: virtual threads require Java 21 or later.");
+            return;
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 1024);
+        server.setExecutor(VirtualThreads.newThreadPerTaskExecutor("benchmark-server-"));
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(SERVER_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = "{\"action\":\"allow\",\"user_id\":\"12345\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+        });
+        server.start();
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        try {
+            run("platform", false, Executors.newFixedThreadPool(PLATFORM_CALLER_THREADS), baseUrl);
+            run("virtual", true, VirtualThreads.newThreadPerTaskExecutor("benchmark-caller-"), baseUrl);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void run(String mode, boolean virtualThreads, ExecutorService callers, String baseUrl) throws CastleSdkConfigurationException, InterruptedException {
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        Castle castle = Castle.initialize(CastleConfigurationBuilder.defaultConfigBuilder()
+                .withApiSecret("secret")
+                .withApiBaseUrl(baseUrl)
+                .withTimeout(10000)
+                .withVirtualThreads(virtualThreads)
+                .build());
+        // warm-up round, not measured
+        round(castle, callers, new long[CONCURRENT_CALLS]);
+
+        long[] latencies = new long[CONCURRENT_CALLS * ROUNDS];
+        int peakThreads = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            long[] roundLatencies = new long[CONCURRENT_CALLS];
+            round(castle, callers, roundLatencies);
+            System.arraycopy(roundLatencies, 0, latencies, i * CONCURRENT_CALLS, CONCURRENT_CALLS);
+            peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        callers.shutdown();
+        Arrays.sort(latencies);
+        System.out.printf("%-8s %7.0f calls/s  p50 %7.2f ms  p99 %7.2f ms  extra platform threads %d%n", mode,
+                latencies.length / seconds,
+                latencies[latencies.length / 2] / 1e6,
+                latencies[(int) (latencies.length * 0.99)] / 1e6,
+                peakThreads);
+    }
+
+    private static void round(final Castle castle, ExecutorService callers, final long[] latencies) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(latencies.length);
+        for (int i = 0; i < latencies.length; i++) {
+            final int index = i;
+            final long submitted = System.nanoTime();
+            callers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    castle.onRequest(new MockHttpServletRequest()).authenticate(
+                            CastleMessage.builder("$login.succeeded").userId("12345").build());
+                    latencies[index] = System.nanoTime() - submitted;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
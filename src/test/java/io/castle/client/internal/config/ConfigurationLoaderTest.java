@@ -220,6 +220,24 @@ public class ConfigurationLoaderTest {
         Assertions.assertThat(castleConfiguration.isLogHttpRequests()).isTrue();
     }
 
+    @Test
+    public void loadCompressionConfig() throws CastleSdkConfigurationException {
+        //given
+        Properties properties = new Properties();
+        properties.setProperty("api_secret", "212312");
+        properties.setProperty("app_id", "F");
+        properties.setProperty("compression", "true");
+        properties.setProperty("compression_min_size", "2048");
+        ConfigurationLoader loader = new ConfigurationLoader(properties);
+
+        //when
+        CastleConfiguration castleConfiguration = loader.loadConfiguration();
+
+        //then compression is enabled with the given threshold
+        Assertions.assertThat(castleConfiguration.getCompression().isEnabled()).isTrue();
+        Assertions.assertThat(castleConfiguration.getCompression().getMinSizeBytes()).isEqualTo(2048);
+    }
+
 
     @Test(expected = NumberFormatException.class)
     public void testTimeoutWithNonParsableInt() throws CastleSdkConfigurationException {
@@ -0,0 +1,83 @@
+package io.castle.client.internal.json;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonObject;
+import io.castle.client.model.CastleContext;
+import io.castle.client.model.CastleHeaders;
+import io.castle.client.model.CastleMessage;
+import org.json.JSONException;
+import org.junit.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+import java.util.HashMap;
+
+public class CastleMessageTypeAdapterTest {
+
+    private CastleGsonModel model = new CastleGsonModel();
+
+    @Test
+    public void otherValuesAreDeepMergedIntoMessageFields() throws JSONException {
+        // given a message whose other values collide with its fields
+        HashMap<String, Object> other = new HashMap<>();
+        other.put("properties", ImmutableMap.of("b", 2, "nested", ImmutableMap.of("y", "other")));
+        other.put("user_id", "other_user");
+        other.put("extra", "value");
+        CastleMessage message = CastleMessage.builder("$login.succeeded")
+                .userId("12345")
+                .properties(ImmutableMap.of("a", 1, "nested", ImmutableMap.of("x", "base")))
+                .other(other)
+                .build();
+
+        // when
+        String json = writePayload(message, null);
+
+        // then
+        JSONAssert.assertEquals("{\"event\":\"$login.succeeded\",\"user_id\":\"other_user\",\"extra\":\"value\"," +
+                        "\"properties\":{\"a\":1,\"b\":2,\"nested\":{\"x\":\"base\",\"y\":\"other\"}}}",
+                json, true);
+    }
+
+    @Test
+    public void defaultContextIsWrittenWhenMessageHasNone() throws JSONException {
+        // given
+        JsonObject defaultContext = new JsonObject();
+        defaultContext.addProperty("ip", "1.1.1.1");
+        CastleMessage message = CastleMessage.builder("$login.succeeded")
+                .put("context", "ignored")
+                .build();
+
+        // when
+        String json = writePayload(message, defaultContext);
+
+        // then the context of the payload replaces the one in other
+        JSONAssert.assertEquals("{\"event\":\"$login.succeeded\",\"context\":{\"ip\":\"1.1.1.1\"}}", json, true);
+    }
+
+    @Test
+    public void messageContextTakesPrecedenceOverDefaultContext() throws JSONException {
+        // given
+        JsonObject defaultContext = new JsonObject();
+        defaultContext.addProperty("ip", "1.1.1.1");
+        CastleContext context = new CastleContext();
+        context.setIp("2.2.2.2");
+        context.setHeaders(CastleHeaders.builder()
+                .add("User-Agent", "first")
+                .add("Accept", "*/*")
+                .add("User-Agent", "last")
+                .build());
+        CastleMessage message = CastleMessage.builder("$login.succeeded")
+                .context(context)
+                .build();
+
+        // when
+        String json = writePayload(message, defaultContext);
+
+        // then repeated headers keep the last value
+        JSONAssert.assertEquals("{\"event\":\"$login.succeeded\",\"context\":{\"ip\":\"2.2.2.2\",\"headers\":{\"User-Agent\":\"last\",\"Accept\":\"*/*\"}}}",
+                json, false);
+    }
+
+    private String writePayload(CastleMessage message, JsonObject defaultContext) {
+        return new CastlePayload(model, message, defaultContext).getJson().utf8();
+    }
+}
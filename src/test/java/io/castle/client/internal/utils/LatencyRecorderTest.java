@@ -0,0 +1,53 @@
+package io.castle.client.internal.utils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void percentileIsUnknownWithoutEnoughSamples() {
+        //given
+        LatencyRecorder recorder = new LatencyRecorder(100, 10);
+
+        //when
+        recorder.record(5);
+
+        //then
+        Assertions.assertThat(recorder.percentileNanos(50)).isEqualTo(-1);
+    }
+
+    @Test
+    public void percentilesOfTheRecordedLatencies() {
+        //given
+        LatencyRecorder recorder = new LatencyRecorder(100, 10);
+
+        //when latencies from 1 to 100 are recorded
+        for (int i = 100; i > 0; i--) {
+            recorder.record(i);
+        }
+
+        //then
+        Assertions.assertThat(recorder.percentileNanos(50)).isEqualTo(50);
+        Assertions.assertThat(recorder.percentileNanos(99)).isEqualTo(99);
+        Assertions.assertThat(recorder.percentileNanos(100)).isEqualTo(100);
+    }
+
+    @Test
+    public void onlyRecentLatenciesAreKept() {
+        //given a window of 10 samples
+        LatencyRecorder recorder = new LatencyRecorder(10, 10);
+
+        //when slow latencies are followed by a full window of fast ones
+        for (int i = 0; i < 10; i++) {
+            recorder.record(1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            recorder.record(1);
+        }
+
+        //then the slow latencies no longer count
+        Assertions.assertThat(recorder.size()).isEqualTo(10);
+        Assertions.assertThat(recorder.percentileNanos(100)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,50 @@
+package io.castle.client.internal.utils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class RequestBudgetTest {
+
+    @Test
+    public void extraRequestsAreLimitedToTheRatio() {
+        //given a budget of 10% extra requests
+        RequestBudget budget = new RequestBudget(0.1, 10);
+
+        //when 20 requests are made, trying an extra request after each of them
+        int acquired = 0;
+        for (int i = 0; i < 20; i++) {
+            budget.recordRequest();
+            if (budget.tryAcquire()) {
+                acquired++;
+            }
+        }
+
+        //then only 2 extra requests are allowed
+        Assertions.assertThat(acquired).isEqualTo(2);
+    }
+
+    @Test
+    public void savedBudgetIsCapped() {
+        //given a budget that can save up to 2 extra requests
+        RequestBudget budget = new RequestBudget(0.5, 2);
+        for (int i = 0; i < 100; i++) {
+            budget.recordRequest();
+        }
+
+        //then a burst can only use the saved budget
+        Assertions.assertThat(budget.tryAcquire()).isTrue();
+        Assertions.assertThat(budget.tryAcquire()).isTrue();
+        Assertions.assertThat(budget.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void initialBalanceAllowsExtraRequestsBeforeAnyTraffic() {
+        //given a budget starting with 2 extra requests
+        RequestBudget budget = new RequestBudget(0.1, 10, 2);
+
+        //then extra requests are allowed before any request was recorded
+        Assertions.assertThat(budget.tryAcquire()).isTrue();
+        Assertions.assertThat(budget.tryAcquire()).isTrue();
+        Assertions.assertThat(budget.tryAcquire()).isFalse();
+    }
+}
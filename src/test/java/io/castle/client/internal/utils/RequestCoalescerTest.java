@@ -0,0 +1,272 @@
+package io.castle.client.internal.utils;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.castle.client.internal.json.CastleGsonModel;
+import io.castle.client.internal.json.CastlePayload;
+import io.castle.client.model.AsyncCallbackHandler;
+import io.castle.client.model.AuthenticateAction;
+import io.castle.client.model.CastleMessage;
+import io.castle.client.model.CastleRuntimeException;
+import io.castle.client.model.Verdict;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestCoalescerTest {
+
+    private final CastleMetrics metrics = new CastleMetrics();
+    private final RequestCoalescer coalescer = new RequestCoalescer(metrics, 1000);
+
+    @Test
+    public void concurrentSyncCallsShareOneResult() throws Exception {
+        //given a call that blocks until released
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger sent = new AtomicInteger();
+        final RequestCoalescer.SyncCall<String> call = new RequestCoalescer.SyncCall<String>() {
+            @Override
+            public String execute() {
+                sent.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return "verdict";
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Future<String>> results = new ArrayList<>();
+
+        //when three identical calls are made while the first one is in flight
+        for (int i = 0; i < 3; i++) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return coalescer.execute("key", call);
+                }
+            }));
+        }
+        while (metrics.get(CastleMetrics.COALESCED_CALLS) < 2) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        //then only one call was sent and all got its result
+        for (Future<String> result : results) {
+            Assertions.assertThat(result.get(1, TimeUnit.SECONDS)).isEqualTo("verdict");
+        }
+        Assertions.assertThat(sent.get()).isEqualTo(1);
+        executor.shutdown();
+    }
+
+    @Test
+    public void asyncCallsShareTheResultUntilCompletion() {
+        //given an async call in flight
+        final List<AsyncCallbackHandler<String>> sent = new ArrayList<>();
+        RequestCoalescer.AsyncCall<String> call = new RequestCoalescer.AsyncCall<String>() {
+            @Override
+            public void enqueue(AsyncCallbackHandler<String> handler) {
+                sent.add(handler);
+            }
+        };
+        RecordingHandler first = new RecordingHandler();
+        RecordingHandler second = new RecordingHandler();
+        coalescer.enqueue("key", first, call);
+
+        //when an identical call is made, then the first one completes
+        coalescer.enqueue("key", second, call);
+        sent.get(0).onResponse("verdict");
+
+        //then both handlers got the result of the only call sent
+        Assertions.assertThat(sent).hasSize(1);
+        Assertions.assertThat(first.responses).containsExactly("verdict");
+        Assertions.assertThat(second.responses).containsExactly("verdict");
+
+        //and a later call is sent again
+        coalescer.enqueue("key", new RecordingHandler(), call);
+        Assertions.assertThat(sent).hasSize(2);
+    }
+
+    @Test
+    public void everyHandlerGetsItsOwnCopyOfTheResult() {
+        //given two identical async calls sharing one call in flight
+        final List<AsyncCallbackHandler<Verdict>> sent = new ArrayList<>();
+        RequestCoalescer.AsyncCall<Verdict> call = new RequestCoalescer.AsyncCall<Verdict>() {
+            @Override
+            public void enqueue(AsyncCallbackHandler<Verdict> handler) {
+                sent.add(handler);
+            }
+        };
+        final List<Verdict> verdicts = new ArrayList<>();
+        AsyncCallbackHandler<Verdict> handler = new AsyncCallbackHandler<Verdict>() {
+            @Override
+            public void onResponse(Verdict response) {
+                verdicts.add(response);
+            }
+
+            @Override
+            public void onException(Exception exception) {
+            }
+        };
+        coalescer.enqueue("key", handler, call);
+        coalescer.enqueue("key", handler, call);
+
+        //when the call completes and the first caller changes its verdict
+        sent.get(0).onResponse(VerdictBuilder.success().withAction(AuthenticateAction.CHALLENGE).withUserId("12345").build());
+        verdicts.get(0).setAction(AuthenticateAction.DENY);
+
+        //then the verdict of the second caller is unchanged
+        Assertions.assertThat(verdicts).hasSize(2);
+        Assertions.assertThat(verdicts.get(1)).isNotSameAs(verdicts.get(0));
+        Assertions.assertThat(verdicts.get(1).getAction()).isEqualTo(AuthenticateAction.CHALLENGE);
+        Assertions.assertThat(verdicts.get(1).getUserId()).isEqualTo("12345");
+    }
+
+    @Test
+    public void syncFailuresAreThrownAndFreeTheKey() {
+        //given
+        RequestCoalescer.SyncCall<String> call = new RequestCoalescer.SyncCall<String>() {
+            @Override
+            public String execute() {
+                throw new IllegalStateException("down");
+            }
+        };
+
+        //then
+        try {
+            coalescer.execute("key", call);
+            Assertions.fail("the exception of the call should be thrown");
+        } catch (IllegalStateException e) {
+            Assertions.assertThat(e).hasMessage("down");
+        }
+        Assertions.assertThat(coalescer.execute("key", new RequestCoalescer.SyncCall<String>() {
+            @Override
+            public String execute() {
+                return "verdict";
+            }
+        })).isEqualTo("verdict");
+    }
+
+    @Test
+    public void callsInFlightAreAbandonedAfterTheTimeout() throws InterruptedException {
+        //given an async call that never completes
+        RequestCoalescer coalescer = new RequestCoalescer(metrics, 50);
+        final List<AsyncCallbackHandler<String>> sent = new ArrayList<>();
+        RequestCoalescer.AsyncCall<String> call = new RequestCoalescer.AsyncCall<String>() {
+            @Override
+            public void enqueue(AsyncCallbackHandler<String> handler) {
+                sent.add(handler);
+            }
+        };
+        RecordingHandler first = new RecordingHandler();
+        RecordingHandler second = new RecordingHandler();
+        coalescer.enqueue("key", first, call);
+        coalescer.enqueue("key", second, call);
+
+        //when the timeout expires
+        long deadline = System.currentTimeMillis() + 1000;
+        while (second.exceptions.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        //then both handlers failed, a late result is ignored and the key is free again
+        Assertions.assertThat(first.exceptions).hasSize(1);
+        Assertions.assertThat(second.exceptions).hasSize(1);
+        Assertions.assertThat(first.exceptions.get(0)).isInstanceOf(CastleRuntimeException.class);
+        sent.get(0).onResponse("verdict");
+        Assertions.assertThat(first.responses).isEmpty();
+        coalescer.enqueue("key", new RecordingHandler(), call);
+        Assertions.assertThat(sent).hasSize(2);
+    }
+
+    @Test
+    public void syncWaitIsBoundedByTheTimeout() throws Exception {
+        //given a sync call that does not complete within the timeout
+        final RequestCoalescer coalescer = new RequestCoalescer(metrics, 200);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return coalescer.execute("key", new RequestCoalescer.SyncCall<String>() {
+                    @Override
+                    public String execute() {
+                        started.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return "verdict";
+                    }
+                });
+            }
+        });
+        started.await();
+
+        //then an identical call fails instead of waiting forever
+        try {
+            coalescer.execute("key", new RequestCoalescer.SyncCall<String>() {
+                @Override
+                public String execute() {
+                    return "other";
+                }
+            });
+            Assertions.fail("the identical call should time out");
+        } catch (CastleRuntimeException expected) {
+        }
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void payloadKeyDoesNotDependOnFieldOrder() {
+        //given two payloads with the same fields in a different order
+        CastleGsonModel model = new CastleGsonModel();
+        JsonObject firstContext = new JsonObject();
+        firstContext.add("ip", new JsonPrimitive("1.1.1.1"));
+        firstContext.add("client_id", new JsonPrimitive("abc"));
+        JsonObject secondContext = new JsonObject();
+        secondContext.add("client_id", new JsonPrimitive("abc"));
+        secondContext.add("ip", new JsonPrimitive("1.1.1.1"));
+        CastleMessage message = CastleMessage.builder("$login.succeeded").userId("12345").build();
+
+        //when
+        String first = RequestCoalescer.payloadKey(new CastlePayload(model, message, firstContext));
+        String second = RequestCoalescer.payloadKey(new CastlePayload(model, message, secondContext));
+        String other = RequestCoalescer.payloadKey(new CastlePayload(model,
+                CastleMessage.builder("$login.succeeded").userId("6789").build(), firstContext));
+
+        //then
+        Assertions.assertThat(first).isEqualTo(second);
+        Assertions.assertThat(first).isNotEqualTo(other);
+    }
+
+    private static class RecordingHandler implements AsyncCallbackHandler<String> {
+
+        private final List<String> responses = Collections.synchronizedList(new ArrayList<String>());
+        private final List<Exception> exceptions = Collections.synchronizedList(new ArrayList<Exception>());
+
+        @Override
+        public void onResponse(String response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            exceptions.add(exception);
+        }
+    }
+}
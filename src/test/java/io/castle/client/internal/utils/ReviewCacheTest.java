@@ -0,0 +1,76 @@
+package io.castle.client.internal.utils;
+
+import io.castle.client.internal.config.ReviewCacheConfiguration;
+import io.castle.client.internal.config.ReviewCacheExpiry;
+import io.castle.client.model.Review;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class ReviewCacheTest {
+
+    private final CastleMetrics metrics = new CastleMetrics();
+
+    @Test
+    public void cachedReviewsAreServedAndCounted() {
+        //given
+        ReviewCache cache = new ReviewCache(new ReviewCacheConfiguration(true, 10, 60000, ReviewCacheExpiry.AFTER_WRITE), metrics);
+        Review review = new Review();
+        review.setUserId("user");
+
+        //when
+        Review missing = cache.get("review");
+        cache.put("review", review);
+        Review cached = cache.get("review");
+
+        //then
+        Assertions.assertThat(missing).isNull();
+        Assertions.assertThat(cached).isEqualToComparingFieldByField(review);
+        Assertions.assertThat(metrics.get(CastleMetrics.REVIEW_CACHE_MISSES)).isEqualTo(1);
+        Assertions.assertThat(metrics.get(CastleMetrics.REVIEW_CACHE_HITS)).isEqualTo(1);
+    }
+
+    @Test
+    public void cachedReviewsAreNotSharedBetweenCallers() {
+        //given
+        ReviewCache cache = new ReviewCache(new ReviewCacheConfiguration(true, 10, 60000, ReviewCacheExpiry.AFTER_WRITE), metrics);
+        Review review = new Review();
+        review.setUserId("user");
+        cache.put("review", review);
+
+        //when the fetched and the cached reviews are modified
+        review.setUserId("changed");
+        cache.get("review").setUserId("changed");
+
+        //then the cached review is unchanged
+        Review cached = cache.get("review");
+        Assertions.assertThat(cached).isNotSameAs(cache.get("review"));
+        Assertions.assertThat(cached.getUserId()).isEqualTo("user");
+    }
+
+    @Test
+    public void reviewsAreEvictedWhenTheCacheIsFull() {
+        //given a cache of one review
+        ReviewCache cache = new ReviewCache(new ReviewCacheConfiguration(true, 1, 60000, ReviewCacheExpiry.AFTER_WRITE), metrics);
+
+        //when
+        cache.put("first", new Review());
+        cache.put("second", new Review());
+
+        //then
+        Assertions.assertThat(cache.get("first")).isNull();
+        Assertions.assertThat(metrics.get(CastleMetrics.REVIEW_CACHE_EVICTIONS)).isEqualTo(1);
+    }
+
+    @Test
+    public void reviewsExpire() throws InterruptedException {
+        //given
+        ReviewCache cache = new ReviewCache(new ReviewCacheConfiguration(true, 10, 20, ReviewCacheExpiry.AFTER_ACCESS), metrics);
+        cache.put("review", new Review());
+
+        //when
+        Thread.sleep(50);
+
+        //then
+        Assertions.assertThat(cache.get("review")).isNull();
+    }
+}
@@ -0,0 +1,60 @@
+package io.castle.client.internal.utils;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    @Test
+    public void burstIsAllowedThenRequestsAreLimited() {
+        //given a bucket of one token per minute
+        TokenBucket bucket = new TokenBucket(1.0 / 60, 3);
+
+        //then the burst is allowed at once
+        Assertions.assertThat(bucket.tryAcquire()).isTrue();
+        Assertions.assertThat(bucket.tryAcquire()).isTrue();
+        Assertions.assertThat(bucket.tryAcquire()).isTrue();
+        Assertions.assertThat(bucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void tokensAreRefilled() throws InterruptedException {
+        //given a bucket whose tokens were spent
+        TokenBucket bucket = new TokenBucket(100, 1);
+        Assertions.assertThat(bucket.tryAcquire()).isTrue();
+        Assertions.assertThat(bucket.tryAcquire()).isFalse();
+
+        //when
+        Thread.sleep(50);
+
+        //then
+        Assertions.assertThat(bucket.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void zeroRateDoesNotLimitRequests() {
+        //given
+        TokenBucket bucket = new TokenBucket(0, 1);
+
+        //then
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertThat(bucket.tryAcquire()).isTrue();
+        }
+    }
+
+    @Test
+    public void blockedBucketRejectsRequests() throws InterruptedException {
+        //given
+        TokenBucket bucket = new TokenBucket(0, 1);
+
+        //when
+        bucket.blockFor(100);
+
+        //then
+        Assertions.assertThat(bucket.tryAcquire()).isFalse();
+        Assertions.assertThat(bucket.blockedMillis()).isBetween(1L, 100L);
+        Thread.sleep(150);
+        Assertions.assertThat(bucket.tryAcquire()).isTrue();
+        Assertions.assertThat(bucket.blockedMillis()).isEqualTo(0);
+    }
+}
@@ -2,7 +2,9 @@ package io.castle.client.model;
 
 import io.castle.client.internal.config.CastleConfiguration;
 import io.castle.client.internal.config.CastleConfigurationBuilder;
+import io.castle.client.internal.utils.VirtualThreads;
 import org.assertj.core.api.Assertions;
+import org.junit.Assume;
 import org.junit.Test;
 
 public class CastleConfigurationBuilderTest {
@@ -83,4 +85,28 @@ public class CastleConfigurationBuilderTest {
         //then a exception is thrown
     }
 
-}
\ No newline at end of file
+    @Test(expected = CastleSdkConfigurationException.class)
+    public void virtualThreadsRequireJava21() throws CastleSdkConfigurationException {
+        Assume.assumeFalse(VirtualThreads.isAvailable());
+        //given
+        CastleConfigurationBuilder builder = CastleConfigurationBuilder.defaultConfigBuilder();
+        builder.withApiSecret("valid");
+        builder.withVirtualThreads(true);
+
+        //when
+        builder.build();
+        //then a exception is thrown
+    }
+
+    @Test(expected = CastleSdkConfigurationException.class)
+    public void trackAllRequiresPositiveChunkSize() throws CastleSdkConfigurationException {
+        //given
+        CastleConfigurationBuilder builder = CastleConfigurationBuilder.defaultConfigBuilder();
+        builder.withApiSecret("valid");
+        builder.withTrackAllChunkSize(0);
+
+        //when
+        builder.build();
+        //then a exception is thrown
+    }
+}